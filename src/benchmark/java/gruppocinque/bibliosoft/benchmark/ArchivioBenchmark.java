@@ -0,0 +1,146 @@
+/**
+ * @file ArchivioBenchmark.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.benchmark;
+
+import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.archivi.filtri.FiltroLibro;
+import gruppocinque.bibliosoft.archivi.filtri.FiltroPrestito;
+import gruppocinque.bibliosoft.modelli.Libro;
+import gruppocinque.bibliosoft.servizi.ServizioLibri;
+import gruppocinque.bibliosoft.servizi.ServizioPrestiti;
+import gruppocinque.bibliosoft.servizi.ServizioUtenti;
+import gruppocinque.bibliosoft.strumenti.GeneratoreDati;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * @brief Benchmark delle operazioni dell'archivio al variare della dimensione.
+ * @details Misura inserimento, modifica e rimozione di un libro, ricerca
+ * puntuale per ISBN, ricerca testuale (con e senza cache) e la lettura dei
+ * contatori della Dashboard. Ogni metodo viene eseguito su un archivio
+ * costruito da zero con GeneratoreDati (vedi DatiBenchmark).
+ *
+ * Le ricerche testuali scorrono un elenco di testi più lungo della capacità
+ * di CacheRicerche, per cui misurano gli indici e non la cache; la cache è
+ * misurata a parte ripetendo sempre lo stesso testo, il cui risultato
+ * completo viene memorizzato da una cercaLibri() durante la preparazione.
+ * L'aggiornamento dei ritardi è misurato da RitardiBenchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ArchivioBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int dimensione;
+
+    private Archivio archivio;
+    private ServizioLibri servizioLibri;
+    private ServizioUtenti servizioUtenti;
+    private ServizioPrestiti servizioPrestiti;
+    private String[] isbn;  //ISBN presenti, in ordine pseudo-casuale
+    private String[] testi; //testi cercati, più numerosi dei risultati memorizzati dalla cache
+    private Libro[] nuovi;  //libri non in archivio, inseriti e rimossi a turno
+    private String[] titoli;    //titoli originali dei libri nuovi
+    private int prossimo = 0;
+
+    @Setup(Level.Trial)
+    public void prepara() {
+        GeneratoreDati generatore = DatiBenchmark.generatore(dimensione);
+        archivio = generatore.genera();
+        servizioLibri = new ServizioLibri(archivio);
+        servizioUtenti = new ServizioUtenti(archivio);
+        servizioPrestiti = new ServizioPrestiti(archivio);
+
+        Random caso = new Random(DatiBenchmark.SEME);
+        List<Libro> libri = archivio.listaLibri();
+        isbn = new String[1024];
+        for (int i = 0; i < isbn.length; i++)
+            isbn[i] = libri.get(caso.nextInt(libri.size())).getIsbn();
+        nuovi = new Libro[1024];
+        titoli = new String[1024];
+        for (int i = 0; i < nuovi.length; i++) {
+            nuovi[i] = generatore.generaLibro();    //ISBN diverso da quelli già generati
+            titoli[i] = nuovi[i].getTitolo();
+        }
+        testi = new String[1024];
+        for (int i = 0; i < testi.length; i++) {
+            String parola = GeneratoreDati.PAROLE.get(caso.nextInt(GeneratoreDati.PAROLE.size()));
+            testi[i] = parola.substring(0, 2 + caso.nextInt(parola.length() - 1));  //prefissi di lunghezza variabile
+        }
+        archivio.cercaLibri(FiltroLibro.ricerca(testi[0])); //solo la ricerca memorizza il risultato completo servito da ricercaInCache()
+    }
+
+    private int prossimo() {
+        prossimo = (prossimo + 1) & 1023;
+        return prossimo;
+    }
+
+    @Benchmark
+    public void aggiungiModificaRimuovi() {
+        int i = prossimo();
+        Libro libro = nuovi[i];
+        archivio.aggiungiLibro(libro);
+        libro.setTitolo(titoli[i] + " (nuova edizione)");
+        archivio.modificaLibro(libro);
+        archivio.rimuoviLibro(libro);
+        libro.setTitolo(titoli[i]); //il libro torna come all'inizio per il prossimo turno
+    }
+
+    @Benchmark
+    public Libro trovaLibro() {
+        return archivio.trovaLibro(isbn[prossimo()]);
+    }
+
+    @Benchmark
+    public int ricercaTestuale() {
+        return archivio.contaLibri(FiltroLibro.ricerca(testi[prossimo()]));
+    }
+
+    @Benchmark
+    public List<Libro> paginaRicerca() {
+        return archivio.paginaLibri(FiltroLibro.ricerca(testi[prossimo()]), 0, 100);
+    }
+
+    @Benchmark
+    public int ricercaInCache() {
+        return archivio.contaLibri(FiltroLibro.ricerca(testi[0]));
+    }
+
+    @Benchmark
+    public int prestitiInRitardo() {
+        return archivio.contaPrestiti(FiltroPrestito.filtraInRitardo());
+    }
+
+    @Benchmark
+    public void dashboard(Blackhole buco) {   //stessi contatori letti da ControllerDashboard
+        buco.consume(servizioPrestiti.getPrestitiInRitardo());
+        buco.consume(servizioPrestiti.getPrestitiConclusi());
+        buco.consume(servizioPrestiti.getPrestitiInCorso());
+        buco.consume(servizioUtenti.getUtentiTotali());
+        buco.consume(servizioUtenti.getUtentiAttivi());
+        buco.consume(servizioLibri.getLibriTotali());
+        buco.consume(servizioLibri.getCopieTotali());
+        buco.consume(servizioLibri.getCopieDisponibili());
+    }
+}
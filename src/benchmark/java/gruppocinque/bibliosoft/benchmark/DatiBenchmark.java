@@ -0,0 +1,47 @@
+/**
+ * @file DatiBenchmark.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.benchmark;
+
+import gruppocinque.bibliosoft.strumenti.GeneratoreDati;
+import java.time.LocalDate;
+
+/**
+ * @brief Parametri comuni dei dati usati dai benchmark.
+ * @details Gli archivi sono prodotti da GeneratoreDati con seme e data di
+ * riferimento fissi, così che le misure di esecuzioni diverse siano
+ * confrontabili. Per ogni dimensione vengono creati un utente ogni dieci
+ * libri e un prestito ogni cinque.
+ */
+final class DatiBenchmark {
+
+    /**
+     * @brief Seme usato da tutti i benchmark.
+     */
+    static final long SEME = 20251217L;
+
+    private static final LocalDate OGGI = LocalDate.of(2025, 6, 1);    //data fissa: lo stato dei prestiti non dipende dal giorno di esecuzione
+
+    private DatiBenchmark() {
+    }
+
+    /**
+     * @brief Restituisce il generatore configurato per il numero di libri indicato.
+     * @details Dopo genera() il generatore può produrre altri libri con ISBN
+     * non presenti nell'archivio.
+     *
+     * @param[in] libri Numero di libri.
+     *
+     * @return Il generatore.
+     */
+    static GeneratoreDati generatore(int libri) {
+        GeneratoreDati generatore = new GeneratoreDati(SEME);
+        generatore.setLibri(libri);
+        generatore.setUtenti(Math.max(1, libri / 10));
+        generatore.setPrestiti(libri / 5);
+        generatore.setOggi(OGGI);
+        return generatore;
+    }
+}
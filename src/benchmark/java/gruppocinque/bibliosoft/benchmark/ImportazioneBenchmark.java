@@ -0,0 +1,68 @@
+/**
+ * @file ImportazioneBenchmark.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.benchmark;
+
+import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.modelli.Libro;
+import gruppocinque.bibliosoft.servizi.EsitoImportazione;
+import gruppocinque.bibliosoft.servizi.ServizioImportazione;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @brief Benchmark dell'importazione di libri da CSV in un archivio vuoto.
+ * @details Il CSV viene generato in memoria da GeneratoreDati (vedi
+ * DatiBenchmark), così da misurare interpretazione, validazione e inserimento
+ * in blocco senza dipendere dal disco. Ogni esecuzione parte da un archivio
+ * nuovo, con tutti i suoi indici di ricerca.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ImportazioneBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int righe;
+
+    private String csv;
+    private ServizioImportazione servizio;
+
+    @Setup(Level.Trial)
+    public void prepara() {
+        StringBuilder testo = new StringBuilder("isbn,titolo,autori,anno,copie\n");
+        for (Libro libro : DatiBenchmark.generatore(righe).genera().listaLibri())
+            testo.append(libro.getIsbn()).append(",\"").append(libro.getTitolo().replace("\"", "\"\"")).append("\",\"")
+                    .append(String.join(";", libro.getAutori())).append("\",").append(libro.getAnnoPubblicazione())
+                    .append(',').append(libro.getCopieTotali()).append('\n');
+        csv = testo.toString();
+    }
+
+    @Setup(Level.Invocation)
+    public void svuota() {
+        servizio = new ServizioImportazione(new Archivio());
+    }
+
+    @Benchmark
+    public EsitoImportazione importaLibri() throws IOException {
+        return servizio.importaLibri(new StringReader(csv));
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * @file PersistenzaBenchmark.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.benchmark;
+
+import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.persistenza.CodecArchivio;
+import gruppocinque.bibliosoft.persistenza.RicostruttoreArchivio;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @brief Benchmark del salvataggio e del caricamento dell'archivio.
+ * @details Scrittura e lettura avvengono in memoria, così da misurare il
+ * formato (CodecArchivio) e la ricostruzione dell'archivio con i suoi indici
+ * senza dipendere dal disco.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class PersistenzaBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int dimensione;
+
+    private Archivio archivio;
+    private byte[] salvato; //archivio già scritto, usato dal benchmark di caricamento
+
+    @Setup(Level.Trial)
+    public void prepara() throws IOException {
+        archivio = DatiBenchmark.generatore(dimensione).genera();
+        salvato = salva();
+    }
+
+    @Benchmark
+    public byte[] salva() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream uscita = new DataOutputStream(bytes);
+        CodecArchivio.scrivi(uscita, archivio);
+        uscita.flush();
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Archivio carica() throws IOException {
+        DataInputStream ingresso = new DataInputStream(new ByteArrayInputStream(salvato));
+        if (!CodecArchivio.isFormatoBinario(ingresso.readInt()))
+            throw new IOException("Formato non riconosciuto");
+        RicostruttoreArchivio ricostruttore = new RicostruttoreArchivio();
+        CodecArchivio.leggi(ingresso, ricostruttore);
+        Archivio ricaricato = new Archivio();
+        ricostruttore.popola(ricaricato);
+        return ricaricato;
+    }
+
+    @Benchmark
+    public Archivio andataRitorno() throws IOException {
+        salvato = salva();
+        return carica();
+    }
+}
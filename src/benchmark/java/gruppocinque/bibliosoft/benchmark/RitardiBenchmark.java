@@ -0,0 +1,73 @@
+/**
+ * @file RitardiBenchmark.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.benchmark;
+
+import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.modelli.Prestito;
+import gruppocinque.bibliosoft.modelli.StatoPrestito;
+import gruppocinque.bibliosoft.servizi.ServizioPrestiti;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @brief Benchmark dell'aggiornamento dei prestiti in ritardo al variare della dimensione.
+ * @details Misura ServizioPrestiti.aggiornaRitardi(), eseguito dal server
+ * all'avvio e periodicamente. Gli archivi sono generati con una data di
+ * riferimento passata (vedi DatiBenchmark), per cui tutti i prestiti in
+ * corso risultano scaduti. Prima di ogni invocazione, fuori dalla misura,
+ * questi prestiti vengono riportati in corso, così ogni chiamata li porta di
+ * nuovo tutti in ritardo, con i lock per entità e il lock in scrittura
+ * acquisiti prestito per prestito.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class RitardiBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int dimensione;
+
+    private Archivio archivio;
+    private ServizioPrestiti servizioPrestiti;
+    private List<Prestito> scaduti; //prestiti in corso già scaduti nell'archivio generato
+
+    @Setup(Level.Trial)
+    public void prepara() {
+        archivio = DatiBenchmark.generatore(dimensione).genera();
+        servizioPrestiti = new ServizioPrestiti(archivio);
+        scaduti = archivio.prestitiScaduti(LocalDate.now());
+    }
+
+    @Setup(Level.Invocation)
+    public void ripristina() {
+        for (Prestito prestito : scaduti) {
+            prestito.setStato(StatoPrestito.IN_CORSO);
+            archivio.modificaPrestito(prestito);    //il prestito torna tra quelli in corso ordinati per scadenza
+        }
+    }
+
+    @Benchmark
+    public int aggiornaRitardi() {
+        servizioPrestiti.aggiornaRitardi();
+        return scaduti.size();
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * @file SmistatoreBenchmark.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.benchmark;
+
+import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.modelli.Libro;
+import gruppocinque.bibliosoft.servizi.ServizioLibri;
+import gruppocinque.bibliosoft.servizi.SmistatoreServizi;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @brief Benchmark della latenza delle scritture con lo smistatore saturo.
+ * @details Più client di quante scritture lo smistatore consenta insieme
+ * inseriscono libri, ognuno trattenendo il permesso per un tempo fisso oltre
+ * all'inserimento. Le scritture oltre la coda o l'attesa massima vengono
+ * rifiutate; il benchmark misura la distribuzione della latenza di ogni
+ * chiamata (percentili in SampleTime). I rifiuti costano pochi microsecondi
+ * e occupano la parte bassa della distribuzione: la latenza delle scritture
+ * accettate si legge nei percentili alti, che dovrebbero restare vicini
+ * all'attesa massima più il servizio anziché crescere con il numero di
+ * client. Il conteggio di accettate e rifiutate è verificato da
+ * SmistatoreServiziTest.
+ *
+ * @see SmistatoreServizi
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class SmistatoreBenchmark {
+
+    private static final int SCRITTURE_MASSIME = 2;
+    private static final int CODA_MASSIMA = 16;
+    private static final long ATTESA_MASSIMA = 50;  //millisecondi
+    private static final long SERVIZIO = 2; //millisecondi di ogni scrittura, oltre all'inserimento in archivio
+
+    private SmistatoreServizi smistatore;
+    private ServizioLibri servizioLibri;
+    private final AtomicInteger prossimo = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void prepara() {
+        smistatore = new SmistatoreServizi(SCRITTURE_MASSIME, CODA_MASSIMA, ATTESA_MASSIMA);
+    }
+
+    @Setup(Level.Iteration)
+    public void svuota() {
+        servizioLibri = new ServizioLibri(new Archivio());
+    }
+
+    @TearDown(Level.Trial)
+    public void chiudi() {
+        smistatore.chiudi();
+    }
+
+    @Benchmark
+    public boolean scritturaSatura() {
+        try {
+            smistatore.scrivi("aggiungi", () -> {
+                String isbn = String.format("%010d", prossimo.incrementAndGet());
+                servizioLibri.aggiungiLibro(new Libro(isbn, "Titolo", List.of("Autore"), 2020, 1));
+                try {
+                    Thread.sleep(SERVIZIO);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;   //carico in eccesso: il client riproverebbe più tardi
+        }
+    }
+}
@@ -6,13 +6,18 @@
 package gruppocinque.bibliosoft;
 
 import gruppocinque.bibliosoft.servizi.ServizioArchivio;
+import gruppocinque.bibliosoft.servizi.ServizioImportazione;
 import gruppocinque.bibliosoft.servizi.ServizioLibri;
 import gruppocinque.bibliosoft.servizi.ServizioUtenti;
 import gruppocinque.bibliosoft.servizi.ServizioPrestiti;
 import gruppocinque.bibliosoft.controller.ControllerPrincipale;
 import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.api.ServerApi;
+import java.io.IOException;
+import java.util.Arrays;
 
 import javafx.application.Application;
+import javafx.concurrent.Task;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
@@ -36,14 +41,15 @@ public class Bibliosoft extends Application {
      * * Caricamento del layout FXML principale. 
      * * Iniezione delle dipendenze nel Controller.
      * * Configurazione dei vincoli della finestra (Titolo, Dimensioni minime).
-     * * Avvio della procedura di caricamento dati da file.
+     * * Avvio della procedura di caricamento dati da file, eseguita in
+     *   background con l'interfaccia disabilitata fino al termine.
      *
      * @param[in] stage Lo stage primario fornito dalla piattaforma JavaFX.
      *
      *
      * @pre {@code stage != null}
-     * @post L'applicazione è visibile a video e i dati sono caricati in
-     * memoria.
+     * @post L'applicazione è visibile a video e il caricamento dei dati in
+     * memoria è avviato.
      * @throws IllegalStateException Se il caricamento del file FXML fallisce.
      */
     @Override
@@ -56,6 +62,7 @@ public class Bibliosoft extends Application {
         ServizioUtenti servizioUtenti = new ServizioUtenti(archivio);
         ServizioPrestiti servizioPrestiti = new ServizioPrestiti(archivio);
         ServizioArchivio servizioArchivio = new ServizioArchivio("archivio.dat", archivio);
+        ServizioImportazione servizioImportazione = new ServizioImportazione(archivio);
         
                             
         
@@ -63,7 +70,7 @@ public class Bibliosoft extends Application {
         Scene scena = new Scene(loader.load()); //carico la scena
 
         ControllerPrincipale controller = loader.getController();   //instanzio il controller principale
-        controller.inizializzaServizi(servizioLibri, servizioUtenti, servizioPrestiti, servizioArchivio);   //inizializzo i diversi servizi nel controller principale
+        controller.inizializzaServizi(servizioLibri, servizioUtenti, servizioPrestiti, servizioArchivio, servizioImportazione);   //inizializzo i diversi servizi nel controller principale
 
         stage.setOnCloseRequest(e -> {
             controller.chiudiApplicazione(null);
@@ -74,12 +81,26 @@ public class Bibliosoft extends Application {
         stage.setMinHeight(700); //imposto un'altezza minima per lo stage (più di questo non può essere rimpicciolito
         stage.show();   //mostro lo stage
 
-        try {
-            servizioArchivio.carica();  //carico il servizio che si preoccupa di caricare o salvare i dati in un file oggetto (archivio.dat)
+        Task<Void> caricamento = new Task<>() {   //il caricamento avviene in background per non bloccare la finestra
+            @Override
+            protected Void call() throws Exception {
+                servizioArchivio.carica();  //carico il servizio che si preoccupa di caricare o salvare i dati in un file oggetto (archivio.dat)
+                return null;
+            }
+        };
+        caricamento.setOnSucceeded(e -> {   //eseguito sul thread JavaFX
+            scena.getRoot().setDisable(false);  //riabilito l'interfaccia
             controller.aggiornaTutto(); //dico al controller di aggiornare tutto
-        } catch (Exception ex) {
-            ex.printStackTrace();
-        }
+        });
+        caricamento.setOnFailed(e -> {
+            scena.getRoot().setDisable(false);
+            caricamento.getException().printStackTrace();
+        });
+
+        scena.getRoot().setDisable(true);   //finché l'archivio non è caricato il bibliotecario non può modificarlo
+        Thread thread = new Thread(caricamento, "bibliosoft-caricamento");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     /**
@@ -87,9 +108,19 @@ public class Bibliosoft extends Application {
      * @details Garantisce la portabilità su Windows, macOS e Linux come
      * definito nei requisiti.
      *
+     * Se il primo argomento è {@code --api} l'applicazione viene avviata senza
+     * interfaccia grafica, come server HTTP (vedi ServerApi); gli argomenti
+     * successivi sono passati a ServerApi.main().
+     *
      * @param args Argomenti da riga di comando.
+     *
+     * @throws IOException Se il server API non riesce ad aprire il socket.
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--api")) {   //modalità senza interfaccia grafica
+            ServerApi.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         //il main lancia l'applicazione
         launch(args);   //lancio l'applicazione
 
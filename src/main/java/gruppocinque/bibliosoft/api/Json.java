@@ -0,0 +1,278 @@
+/**
+ * @file Json.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.api;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @brief Lettura e scrittura minimali del formato JSON.
+ * @details Il progetto non dipende da librerie esterne oltre a JavaFX: le
+ * risposte dell'API sono scritte direttamente su uno StringBuilder tramite
+ * i metodi di scrittura, mentre i corpi delle richieste sono letti da
+ * leggi() come mappe, liste, stringhe, numeri (Long o Double), Boolean e null.
+ * La lettura è ricorsiva: oltre PROFONDITA_MASSIMA oggetti o array annidati
+ * il documento è rifiutato, così un corpo di sole parentesi aperte non può
+ * esaurire lo stack del thread che gestisce la richiesta.
+ */
+final class Json {
+
+    /**
+     * @brief Numero massimo di oggetti e array annidati in un documento.
+     */
+    static final int PROFONDITA_MASSIMA = 32;
+
+    private final String testo;
+    private int posizione = 0;
+    private int profondita = 0;
+
+    private Json(String testo) {
+        this.testo = testo;
+    }
+
+    /**
+     * @brief Legge un documento JSON.
+     *
+     * @param[in] testo Il documento.
+     *
+     * @return Il valore letto: Map, List, String, Long, Double, Boolean o null.
+     *
+     * @throws IllegalArgumentException Se il documento non è JSON valido o
+     * supera PROFONDITA_MASSIMA livelli di annidamento.
+     */
+    static Object leggi(String testo) {
+        Json lettore = new Json(testo);
+        Object valore = lettore.valore();
+        lettore.spazi();
+        if (lettore.posizione < testo.length())
+            throw lettore.errore("contenuto inatteso dopo il documento");
+        return valore;
+    }
+
+    /**
+     * @brief Legge un oggetto JSON.
+     *
+     * @param[in] testo Il documento.
+     *
+     * @return I campi dell'oggetto, nell'ordine del documento.
+     *
+     * @throws IllegalArgumentException Se il documento non è un oggetto JSON.
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> leggiOggetto(String testo) {
+        Object valore = leggi(testo);
+        if (!(valore instanceof Map))
+            throw new IllegalArgumentException("Il corpo della richiesta deve essere un oggetto JSON");
+        return (Map<String, Object>) valore;
+    }
+
+    /**
+     * @brief Scrive una stringa JSON, con virgolette e sequenze di escape.
+     *
+     * @param[in] uscita Dove scrivere.
+     * @param[in] valore La stringa, scritta come null se nulla.
+     *
+     * @return {@code uscita}, per concatenare le scritture.
+     */
+    static StringBuilder stringa(StringBuilder uscita, String valore) {
+        if (valore == null)
+            return uscita.append("null");
+        uscita.append('"');
+        for (int i = 0; i < valore.length(); i++) {
+            char c = valore.charAt(i);
+            switch (c) {
+                case '"': uscita.append("\\\""); break;
+                case '\\': uscita.append("\\\\"); break;
+                case '\n': uscita.append("\\n"); break;
+                case '\r': uscita.append("\\r"); break;
+                case '\t': uscita.append("\\t"); break;
+                default:
+                    if (c < 0x20)
+                        uscita.append(String.format("\\u%04x", (int) c));
+                    else
+                        uscita.append(c);
+            }
+        }
+        return uscita.append('"');
+    }
+
+    /**
+     * @brief Scrive il nome di un campo seguito dai due punti.
+     * @details Se l'oggetto contiene già dei campi, antepone la virgola.
+     *
+     * @param[in] uscita Dove scrivere.
+     * @param[in] nome Il nome del campo.
+     *
+     * @return {@code uscita}, per concatenare le scritture.
+     */
+    static StringBuilder campo(StringBuilder uscita, String nome) {
+        char ultimo = uscita.charAt(uscita.length() - 1);
+        if (ultimo != '{' && ultimo != '[')
+            uscita.append(',');
+        return stringa(uscita, nome).append(':');
+    }
+
+    /**
+     * @brief Scrive un elenco di stringhe come array JSON.
+     *
+     * @param[in] uscita Dove scrivere.
+     * @param[in] valori Le stringhe.
+     *
+     * @return {@code uscita}, per concatenare le scritture.
+     */
+    static StringBuilder stringhe(StringBuilder uscita, List<String> valori) {
+        uscita.append('[');
+        for (int i = 0; i < valori.size(); i++) {
+            if (i > 0)
+                uscita.append(',');
+            stringa(uscita, valori.get(i));
+        }
+        return uscita.append(']');
+    }
+
+    private Object valore() {
+        spazi();
+        if (posizione >= testo.length())
+            throw errore("documento incompleto");
+        char c = testo.charAt(posizione);
+        switch (c) {
+            case '{':
+            case '[':
+                if (++profondita > PROFONDITA_MASSIMA)
+                    throw errore("superati " + PROFONDITA_MASSIMA + " livelli di annidamento");
+                Object annidato = (c == '{') ? oggetto() : array();
+                profondita--;
+                return annidato;
+            case '"': return stringa();
+            case 't': parola("true"); return Boolean.TRUE;
+            case 'f': parola("false"); return Boolean.FALSE;
+            case 'n': parola("null"); return null;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9'))
+                    return numero();
+                throw errore("carattere inatteso '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> oggetto() {
+        Map<String, Object> campi = new LinkedHashMap<>();
+        posizione++;    //salto la graffa aperta
+        spazi();
+        if (consuma('}'))
+            return campi;
+        do {
+            spazi();
+            if (posizione >= testo.length() || testo.charAt(posizione) != '"')
+                throw errore("atteso il nome di un campo");
+            String nome = stringa();
+            spazi();
+            if (!consuma(':'))
+                throw errore("attesi i due punti");
+            campi.put(nome, valore());
+            spazi();
+        } while (consuma(','));
+        if (!consuma('}'))
+            throw errore("attesa la graffa chiusa");
+        return campi;
+    }
+
+    private List<Object> array() {
+        List<Object> valori = new ArrayList<>();
+        posizione++;    //salto la quadra aperta
+        spazi();
+        if (consuma(']'))
+            return valori;
+        do {
+            valori.add(valore());
+            spazi();
+        } while (consuma(','));
+        if (!consuma(']'))
+            throw errore("attesa la quadra chiusa");
+        return valori;
+    }
+
+    private String stringa() {
+        StringBuilder valore = new StringBuilder();
+        posizione++;    //salto le virgolette iniziali
+        while (posizione < testo.length()) {
+            char c = testo.charAt(posizione++);
+            if (c == '"')
+                return valore.toString();
+            if (c != '\\') {
+                valore.append(c);
+                continue;
+            }
+            if (posizione >= testo.length())
+                break;
+            char escape = testo.charAt(posizione++);
+            switch (escape) {
+                case '"': case '\\': case '/': valore.append(escape); break;
+                case 'b': valore.append('\b'); break;
+                case 'f': valore.append('\f'); break;
+                case 'n': valore.append('\n'); break;
+                case 'r': valore.append('\r'); break;
+                case 't': valore.append('\t'); break;
+                case 'u':
+                    if (posizione + 4 > testo.length())
+                        throw errore("sequenza \\u incompleta");
+                    try {
+                        valore.append((char) Integer.parseInt(testo.substring(posizione, posizione + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw errore("sequenza \\u non valida");
+                    }
+                    posizione += 4;
+                    break;
+                default:
+                    throw errore("sequenza di escape non valida");
+            }
+        }
+        throw errore("stringa non terminata");
+    }
+
+    private Object numero() {
+        int inizio = posizione;
+        boolean decimale = false;
+        while (posizione < testo.length()) {
+            char c = testo.charAt(posizione);
+            if (c == '.' || c == 'e' || c == 'E')
+                decimale = true;
+            else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9')))
+                break;
+            posizione++;
+        }
+        String cifre = testo.substring(inizio, posizione);
+        try {
+            return decimale ? (Object) Double.valueOf(cifre) : (Object) Long.valueOf(cifre);
+        } catch (NumberFormatException e) {
+            throw errore("numero non valido: " + cifre);
+        }
+    }
+
+    private void parola(String parola) {
+        if (!testo.startsWith(parola, posizione))
+            throw errore("atteso " + parola);
+        posizione += parola.length();
+    }
+
+    private boolean consuma(char c) {
+        if (posizione < testo.length() && testo.charAt(posizione) == c) {
+            posizione++;
+            return true;
+        }
+        return false;
+    }
+
+    private void spazi() {
+        while (posizione < testo.length() && Character.isWhitespace(testo.charAt(posizione)))
+            posizione++;
+    }
+
+    private IllegalArgumentException errore(String messaggio) {
+        return new IllegalArgumentException("JSON non valido (posizione " + posizione + "): " + messaggio);
+    }
+}
@@ -0,0 +1,744 @@
+/**
+ * @file ServerApi.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.archivi.filtri.FiltroLibro;
+import gruppocinque.bibliosoft.archivi.filtri.FiltroPrestito;
+import gruppocinque.bibliosoft.archivi.filtri.FiltroUtente;
+import gruppocinque.bibliosoft.archivi.filtri.InterfacciaFiltro;
+import gruppocinque.bibliosoft.modelli.Libro;
+import gruppocinque.bibliosoft.modelli.Prestito;
+import gruppocinque.bibliosoft.modelli.Utente;
+import gruppocinque.bibliosoft.servizi.ServizioArchivio;
+import gruppocinque.bibliosoft.servizi.ServizioLibri;
+import gruppocinque.bibliosoft.servizi.ServizioPrestiti;
+import gruppocinque.bibliosoft.servizi.ServizioUtenti;
+import gruppocinque.bibliosoft.servizi.SmistatoreServizi;
+import gruppocinque.bibliosoft.strumenti.Esecutori;
+import gruppocinque.bibliosoft.strumenti.MetricheRichieste;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @brief Espone i servizi di Bibliosoft come API HTTP con corpi JSON.
+ * @details Consente a client diversi dall'interfaccia JavaFX (chioschi di
+ * autoprestito, portale di ateneo) di consultare il catalogo e registrare
+ * prestiti e restituzioni. Il server è quello incluso nel JDK
+ * (com.sun.net.httpserver) e opera sugli stessi servizi usati dai Controller,
+ * per cui valgono le stesse validazioni e le stesse regole di business.
+ *
+ * Rotte disponibili:
+ * * GET /api/libri?q=&offset=&limite=&dopo= : ricerca paginata nel catalogo.
+ * * GET /api/libri/{isbn}, POST /api/libri : dettaglio e inserimento di un libro.
+ * * GET /api/utenti?q=&offset=&limite=&dopo= : ricerca paginata degli utenti.
+ * * GET /api/utenti/{matricola}, POST /api/utenti : dettaglio e inserimento di un utente.
+ * * GET /api/utenti/{matricola}/prestiti : storico dei prestiti di un utente.
+ * * GET /api/prestiti?stato=&matricola=&offset=&limite= : elenco dei prestiti.
+ * * GET /api/prestiti/{id}, POST /api/prestiti : dettaglio e registrazione di un prestito.
+ * * POST /api/prestiti/{id}/restituzione : registrazione della restituzione.
+ * * GET /api/statistiche : i contatori della Dashboard.
+ * * GET /api/metriche : numero, errori e latenze delle richieste per rotta.
+ *
+ * Ogni richiesta è eseguita su un proprio thread (virtuale, se la JVM li
+ * supporta: vedi Esecutori) e chiama i servizi tramite uno SmistatoreServizi:
+ * le richieste GET non sono limitate, le altre sono scritture soggette al
+ * limite di scritture contemporanee. Le eccezioni dei servizi sono tradotte
+ * in codici HTTP: IllegalArgumentException in 400, NoSuchElementException in
+ * 404, IllegalStateException in 409, RejectedExecutionException (scrittura
+ * rifiutata dallo smistatore) in 503 con l'intestazione Retry-After; il corpo
+ * contiene il messaggio nel campo "errore".
+ *
+ * Le richieste GET non modificano l'archivio: lo stato IN_RITARDO dei
+ * prestiti scaduti viene aggiornato all'avvio e poi ogni PERIODO_RITARDI
+ * minuti, come scrittura soggetta agli stessi limiti delle richieste.
+ *
+ * Le risposte hanno sempre lunghezza dichiarata e il corpo della richiesta
+ * viene sempre letto per intero, così che la connessione resti aperta
+ * (keep-alive) e possa essere riusata dal client per le richieste successive.
+ */
+public class ServerApi {
+
+    /**
+     * @brief Porta su cui ascolta il server avviato da main().
+     */
+    public static final int PORTA_PREDEFINITA = 8080;
+
+    /**
+     * @brief Numero di elementi restituiti da una pagina se il client non indica il limite.
+     */
+    public static final int LIMITE_PREDEFINITO = 50;
+
+    /**
+     * @brief Numero massimo di elementi restituiti da una pagina.
+     */
+    public static final int LIMITE_MASSIMO = 1000;
+
+    /**
+     * @brief Secondi di attesa delle richieste in corso alla chiusura del server.
+     */
+    public static final int ATTESA_CHIUSURA = 10;
+
+    /**
+     * @brief Minuti fra due aggiornamenti dei prestiti in ritardo.
+     */
+    public static final int PERIODO_RITARDI = 60;
+
+    private static final int CORPO_MASSIMO = 64 * 1024;  //byte accettati nel corpo di una richiesta
+    private static final int CONNESSIONI_IN_ATTESA = 1024;  //backlog del socket: i picchi di connessioni non vengono rifiutati
+
+    private final ServizioLibri servizioLibri;
+    private final ServizioUtenti servizioUtenti;
+    private final ServizioPrestiti servizioPrestiti;
+    private final HttpServer server;
+    private final ExecutorService esecutore;
+    private final ScheduledExecutorService pianificatore = Executors.newSingleThreadScheduledExecutor(Esecutori.daemon("bibliosoft-ritardi")); //aggiornamento periodico dei ritardi
+    private final SmistatoreServizi smistatore;
+    private final MetricheRichieste metriche = new MetricheRichieste();
+    private final List<Rotta> rotte = new ArrayList<>();
+
+    /**
+     * @brief Costruisce il server sull'archivio indicato.
+     * @details Il socket viene aperto subito, ma le richieste sono servite
+     * solo dopo avvia(). Le scritture sono limitate da uno SmistatoreServizi
+     * con i limiti predefiniti.
+     *
+     * @param[in] archivio L'archivio su cui operano i servizi.
+     * @param[in] indirizzo Indirizzo e porta di ascolto (porta 0 per una porta libera qualsiasi).
+     *
+     * @pre {@code archivio != null && indirizzo != null}
+     *
+     * @throws IOException Se non è possibile aprire il socket.
+     */
+    public ServerApi(Archivio archivio, InetSocketAddress indirizzo) throws IOException {
+        this(archivio, indirizzo, new SmistatoreServizi());
+    }
+
+    /**
+     * @brief Costruisce il server con uno smistatore esplicito.
+     * @details
+     * @param[in] archivio L'archivio su cui operano i servizi.
+     * @param[in] indirizzo Indirizzo e porta di ascolto (porta 0 per una porta libera qualsiasi).
+     * @param[in] smistatore Lo smistatore con cui chiamare i servizi; viene chiuso da ferma().
+     *
+     * @pre {@code archivio != null && indirizzo != null && smistatore != null}
+     *
+     * @throws IOException Se non è possibile aprire il socket.
+     */
+    public ServerApi(Archivio archivio, InetSocketAddress indirizzo, SmistatoreServizi smistatore) throws IOException {
+        this.smistatore = smistatore;
+        this.servizioLibri = new ServizioLibri(archivio);
+        this.servizioUtenti = new ServizioUtenti(archivio);
+        this.servizioPrestiti = new ServizioPrestiti(archivio);
+        this.server = HttpServer.create(indirizzo, CONNESSIONI_IN_ATTESA);
+        this.esecutore = Esecutori.perRichiesta("bibliosoft-api");
+        server.setExecutor(esecutore);
+        server.createContext("/", this::gestisci);
+
+        rotte.add(new Rotta("GET", "/api/libri", this::cercaLibri));
+        rotte.add(new Rotta("POST", "/api/libri", this::aggiungiLibro));
+        rotte.add(new Rotta("GET", "/api/libri/{isbn}", this::trovaLibro));
+        rotte.add(new Rotta("GET", "/api/utenti", this::cercaUtenti));
+        rotte.add(new Rotta("POST", "/api/utenti", this::aggiungiUtente));
+        rotte.add(new Rotta("GET", "/api/utenti/{matricola}", this::trovaUtente));
+        rotte.add(new Rotta("GET", "/api/utenti/{matricola}/prestiti", this::storicoUtente));
+        rotte.add(new Rotta("GET", "/api/prestiti", this::cercaPrestiti));
+        rotte.add(new Rotta("POST", "/api/prestiti", this::registraPrestito));
+        rotte.add(new Rotta("GET", "/api/prestiti/{id}", this::trovaPrestito));
+        rotte.add(new Rotta("POST", "/api/prestiti/{id}/restituzione", this::registraRestituzione));
+        rotte.add(new Rotta("GET", "/api/statistiche", this::statistiche));
+        rotte.add(new Rotta("GET", "/api/metriche", this::metriche));
+    }
+
+    /**
+     * @brief Avvia il server.
+     * @details Prima di accettare richieste porta allo stato IN_RITARDO i
+     * prestiti già scaduti, poi pianifica lo stesso aggiornamento ogni
+     * PERIODO_RITARDI minuti.
+     */
+    public void avvia() {
+        servizioPrestiti.aggiornaRitardi();
+        pianificatore.scheduleWithFixedDelay(this::aggiornaRitardi, PERIODO_RITARDI, PERIODO_RITARDI, TimeUnit.MINUTES);
+        server.start();
+    }
+
+    private void aggiornaRitardi() {
+        try {
+            smistatore.scrivi("aggiornaRitardi", servizioPrestiti::aggiornaRitardi);  //come le richieste POST, soggetta al limite di scritture
+        } catch (RejectedExecutionException e) {
+            //server sovraccarico: i ritardi verranno aggiornati al prossimo periodo
+        } catch (RuntimeException e) {
+            e.printStackTrace();    //un'eccezione non gestita annullerebbe le esecuzioni successive
+        }
+    }
+
+    /**
+     * @brief Arresta il server.
+     * @details Smette di accettare connessioni e attende, fino ad
+     * ATTESA_CHIUSURA secondi, che le richieste in corso si concludano, così
+     * che un salvataggio eseguito subito dopo includa le loro modifiche.
+     * Chiude infine lo smistatore.
+     */
+    public void ferma() {
+        server.stop(1);
+        pianificatore.shutdownNow();
+        esecutore.shutdown();
+        try {
+            if (!esecutore.awaitTermination(ATTESA_CHIUSURA, TimeUnit.SECONDS))
+                System.err.println("Richieste ancora in corso dopo " + ATTESA_CHIUSURA + " secondi");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        smistatore.chiudi();
+    }
+
+    /**
+     * @brief Restituisce la porta su cui il server è in ascolto.
+     *
+     * @return La porta, utile se il server è stato creato sulla porta 0.
+     */
+    public int getPorta() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @brief Restituisce le metriche delle richieste servite.
+     *
+     * @return Le metriche, aggiornate a ogni richiesta.
+     */
+    public MetricheRichieste getMetriche() {
+        return metriche;
+    }
+
+    /**
+     * @brief Restituisce lo smistatore con cui il server chiama i servizi.
+     *
+     * @return Lo smistatore, con le metriche delle chiamate e delle scritture rifiutate.
+     */
+    public SmistatoreServizi getSmistatore() {
+        return smistatore;
+    }
+
+    /**
+     * @brief Avvia Bibliosoft senza interfaccia grafica, come server API.
+     * @details Argomenti facoltativi: {@code [file [porta]]}, predefiniti
+     * "archivio.dat" e {@link #PORTA_PREDEFINITA}. L'archivio viene caricato
+     * come dall'applicazione JavaFX e, alla chiusura del processo, salvato
+     * prima di chiudere il giornale.
+     *
+     * @param[in] args Argomenti da riga di comando.
+     *
+     * @throws IOException Se non è possibile aprire il socket.
+     */
+    public static void main(String[] args) throws IOException {
+        String file = (args.length > 0) ? args[0] : "archivio.dat";
+        int porta = (args.length > 1) ? Integer.parseInt(args[1]) : PORTA_PREDEFINITA;
+
+        Archivio archivio = new Archivio();
+        ServizioArchivio servizioArchivio = new ServizioArchivio(file, archivio);
+        servizioArchivio.carica();
+
+        ServerApi server = new ServerApi(archivio, new InetSocketAddress(porta));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {    //eseguito alla chiusura del processo (es. Ctrl+C)
+            server.ferma();
+            servizioArchivio.salva();
+            servizioArchivio.chiudi();
+        }, "bibliosoft-chiusura"));
+        server.avvia();
+        System.out.println("Bibliosoft API in ascolto sulla porta " + server.getPorta()
+                + (Esecutori.isThreadVirtuali() ? " (thread virtuali)" : ""));
+    }
+
+    /**
+     * @brief Gestisce una richiesta HTTP.
+     * @details Individua la rotta, esegue l'operazione e invia la risposta,
+     * registrandone la latenza nelle metriche. Il corpo della richiesta viene
+     * letto per intero prima di rispondere.
+     *
+     * @param[in] scambio La richiesta e la relativa risposta.
+     */
+    private void gestisci(HttpExchange scambio) {
+        long inizio = metriche.inizia();
+        String nome = "?";  //rotta non riconosciuta
+        Risposta risposta;
+        try {
+            String corpo = leggiCorpo(scambio);
+            String[] percorso = segmenti(scambio.getRequestURI().getRawPath());
+            String metodo = scambio.getRequestMethod();
+            Rotta rotta = null;
+            List<String> variabili = null;
+            boolean altroMetodo = false;    //il percorso esiste, ma non con questo metodo
+            for (Rotta candidata : rotte) {
+                List<String> trovate = candidata.corrisponde(percorso);
+                if (trovate == null)
+                    continue;
+                if (candidata.metodo.equals(metodo)) {
+                    rotta = candidata;
+                    variabili = trovate;
+                    break;
+                }
+                altroMetodo = true;
+            }
+
+            if (rotta == null) {
+                risposta = altroMetodo ? errore(405, "Metodo non consentito") : errore(404, "Risorsa inesistente");
+            } else {
+                nome = rotta.nome;
+                risposta = esegui(rotta, new Richiesta(variabili, parametri(scambio.getRequestURI().getRawQuery()), corpo));
+            }
+        } catch (CorpoTroppoGrande e) {
+            risposta = errore(413, e.getMessage());
+        } catch (IOException e) {
+            metriche.registra(nome, inizio, true);
+            scambio.close();    //connessione interrotta dal client: non c'è nessuno a cui rispondere
+            return;
+        }
+
+        try {
+            invia(scambio, risposta);
+        } catch (IOException e) {
+            //il client ha chiuso la connessione prima di ricevere la risposta
+        } finally {
+            metriche.registra(nome, inizio, risposta.codice >= 400);
+            scambio.close();
+        }
+    }
+
+    private Risposta esegui(Rotta rotta, Richiesta richiesta) {
+        try {
+            if (rotta.metodo.equals("GET"))
+                return smistatore.leggi(rotta.nome, () -> rotta.operazione.esegui(richiesta));
+            return smistatore.scrivi(rotta.nome, () -> rotta.operazione.esegui(richiesta));  //POST: soggetta al limite di scritture
+        } catch (RejectedExecutionException e) {
+            return errore(503, e.getMessage());   //sovraccarico: il client può riprovare
+        } catch (NoSuchElementException e) {
+            return errore(404, e.getMessage());
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return errore(400, e.getMessage());   //dati mancanti o non validi
+        } catch (IllegalStateException e) {
+            return errore(409, e.getMessage());   //violazione delle regole di business (duplicati, copie esaurite, ...)
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return errore(500, "Errore interno");
+        }
+    }
+
+    private static void invia(HttpExchange scambio, Risposta risposta) throws IOException {
+        byte[] corpo = risposta.corpo.getBytes(StandardCharsets.UTF_8);
+        scambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        if (risposta.codice == 503)
+            scambio.getResponseHeaders().set("Retry-After", "1");   //secondi dopo cui ripetere una scrittura rifiutata
+        scambio.sendResponseHeaders(risposta.codice, corpo.length);  //lunghezza dichiarata: la connessione può essere riusata
+        try (OutputStream uscita = scambio.getResponseBody()) {
+            uscita.write(corpo);
+        }
+    }
+
+    private static String leggiCorpo(HttpExchange scambio) throws IOException {
+        try (InputStream ingresso = scambio.getRequestBody()) {
+            byte[] corpo = ingresso.readNBytes(CORPO_MASSIMO + 1);
+            if (corpo.length > CORPO_MASSIMO) {
+                ingresso.transferTo(OutputStream.nullOutputStream());    //leggo il resto per non lasciare dati sulla connessione
+                throw new CorpoTroppoGrande();
+            }
+            return new String(corpo, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String[] segmenti(String percorso) {
+        List<String> segmenti = new ArrayList<>();
+        for (String segmento : percorso.split("/"))
+            if (!segmento.isEmpty())
+                segmenti.add(URLDecoder.decode(segmento, StandardCharsets.UTF_8));
+        return segmenti.toArray(new String[0]);
+    }
+
+    private static Map<String, String> parametri(String query) {
+        if (query == null || query.isEmpty())
+            return Collections.emptyMap();
+        Map<String, String> parametri = new HashMap<>();
+        for (String coppia : query.split("&")) {
+            int uguale = coppia.indexOf('=');
+            String nome = (uguale < 0) ? coppia : coppia.substring(0, uguale);
+            String valore = (uguale < 0) ? "" : coppia.substring(uguale + 1);
+            parametri.put(URLDecoder.decode(nome, StandardCharsets.UTF_8), URLDecoder.decode(valore, StandardCharsets.UTF_8));
+        }
+        return parametri;
+    }
+
+    // --- Libri ---
+
+    private Risposta cercaLibri(Richiesta richiesta) {
+        InterfacciaFiltro<Libro> filtro = FiltroLibro.ricerca(richiesta.parametro("q"));
+        int limite = richiesta.limite();
+        String dopo = richiesta.parametro("dopo");
+        List<Libro> pagina;
+        if (dopo != null) {  //paginazione per chiave: riprende dopo l'ultimo ISBN della pagina precedente
+            Libro ultimo = servizioLibri.trovaLibro(dopo);
+            if (ultimo == null)
+                throw new NoSuchElementException("Libro inesistente: " + dopo);
+            pagina = servizioLibri.paginaLibriDopo(filtro, ultimo, limite);
+        } else {
+            pagina = servizioLibri.paginaLibri(filtro, richiesta.offset(), limite);
+        }
+
+        StringBuilder json = new StringBuilder("{");
+        Json.campo(json, "totale").append(servizioLibri.contaLibri(filtro));
+        Json.campo(json, "risultati").append('[');
+        for (int i = 0; i < pagina.size(); i++)
+            libro(json.append(i > 0 ? "," : ""), pagina.get(i));
+        return new Risposta(200, json.append("]}").toString());
+    }
+
+    private Risposta trovaLibro(Richiesta richiesta) {
+        String isbn = richiesta.variabili.get(0);
+        Libro libro = servizioLibri.trovaLibro(isbn);
+        if (libro == null)
+            throw new NoSuchElementException("Libro inesistente: " + isbn);
+        return new Risposta(200, libro(new StringBuilder(), libro).toString());
+    }
+
+    private Risposta aggiungiLibro(Richiesta richiesta) {
+        Map<String, Object> campi = richiesta.json();
+        Libro libro = new Libro(testo(campi, "isbn"), testo(campi, "titolo"), testi(campi, "autori"),
+                intero(campi, "anno"), intero(campi, "copie"));
+        servizioLibri.aggiungiLibro(libro);
+        return new Risposta(201, libro(new StringBuilder(), libro).toString());
+    }
+
+    private static StringBuilder libro(StringBuilder json, Libro libro) {
+        json.append('{');
+        Json.stringa(Json.campo(json, "isbn"), libro.getIsbn());
+        Json.stringa(Json.campo(json, "titolo"), libro.getTitolo());
+        Json.stringhe(Json.campo(json, "autori"), libro.getAutori());
+        Json.campo(json, "anno").append(libro.getAnnoPubblicazione());
+        Json.campo(json, "copie").append(libro.getCopieTotali());
+        Json.campo(json, "copieDisponibili").append(libro.getCopieDisponibili());
+        return json.append('}');
+    }
+
+    // --- Utenti ---
+
+    private Risposta cercaUtenti(Richiesta richiesta) {
+        InterfacciaFiltro<Utente> filtro = FiltroUtente.ricerca(richiesta.parametro("q"));
+        int limite = richiesta.limite();
+        String dopo = richiesta.parametro("dopo");
+        List<Utente> pagina;
+        if (dopo != null) {  //paginazione per chiave: riprende dopo l'ultima matricola della pagina precedente
+            Utente ultimo = servizioUtenti.trovaUtente(dopo);
+            if (ultimo == null)
+                throw new NoSuchElementException("Utente inesistente: " + dopo);
+            pagina = servizioUtenti.paginaUtentiDopo(filtro, ultimo, limite);
+        } else {
+            pagina = servizioUtenti.paginaUtenti(filtro, richiesta.offset(), limite);
+        }
+
+        StringBuilder json = new StringBuilder("{");
+        Json.campo(json, "totale").append(servizioUtenti.contaUtenti(filtro));
+        Json.campo(json, "risultati").append('[');
+        for (int i = 0; i < pagina.size(); i++)
+            utente(json.append(i > 0 ? "," : ""), pagina.get(i));
+        return new Risposta(200, json.append("]}").toString());
+    }
+
+    private Risposta trovaUtente(Richiesta richiesta) {
+        return new Risposta(200, utente(new StringBuilder(), utente(richiesta.variabili.get(0))).toString());
+    }
+
+    private Risposta aggiungiUtente(Richiesta richiesta) {
+        Map<String, Object> campi = richiesta.json();
+        Utente utente = new Utente(testo(campi, "matricola"), testo(campi, "nome"), testo(campi, "cognome"), testo(campi, "email"));
+        servizioUtenti.aggiungiUtente(utente);
+        return new Risposta(201, utente(new StringBuilder(), utente).toString());
+    }
+
+    private Risposta storicoUtente(Richiesta richiesta) {
+        return new Risposta(200, prestiti(new StringBuilder(), servizioPrestiti.storico(utente(richiesta.variabili.get(0)))).toString());
+    }
+
+    private Utente utente(String matricola) {
+        Utente utente = servizioUtenti.trovaUtente(matricola);
+        if (utente == null)
+            throw new NoSuchElementException("Utente inesistente: " + matricola);
+        return utente;
+    }
+
+    private static StringBuilder utente(StringBuilder json, Utente utente) {
+        json.append('{');
+        Json.stringa(Json.campo(json, "matricola"), utente.getMatricola());
+        Json.stringa(Json.campo(json, "nome"), utente.getNome());
+        Json.stringa(Json.campo(json, "cognome"), utente.getCognome());
+        Json.stringa(Json.campo(json, "email"), utente.getEmail());
+        Json.campo(json, "prestitiAttivi").append(utente.getNumeroPrestitiAttivi());
+        return json.append('}');
+    }
+
+    // --- Prestiti ---
+
+    private Risposta cercaPrestiti(Richiesta richiesta) {
+        String stato = richiesta.parametro("stato");
+        String matricola = richiesta.parametro("matricola");
+        InterfacciaFiltro<Prestito> filtro;
+        if (matricola != null)
+            filtro = "attivi".equals(stato) ? FiltroPrestito.ricercaAttiviMatricola(matricola) : FiltroPrestito.ricercaMatricola(matricola);
+        else if (stato == null)
+            filtro = p -> true;
+        else
+            switch (stato) {
+                case "attivi": filtro = FiltroPrestito.filtraAttivi(); break;
+                case "incorso": filtro = FiltroPrestito.filtraInCorso(); break;
+                case "ritardo": filtro = FiltroPrestito.filtraInRitardo(); break;
+                case "conclusi": filtro = FiltroPrestito.filtraConclusi(); break;
+                default: throw new IllegalArgumentException("Stato non valido: " + stato);
+            }
+
+        StringBuilder json = new StringBuilder("{");
+        Json.campo(json, "totale").append(servizioPrestiti.conta(filtro));
+        prestiti(Json.campo(json, "risultati"), servizioPrestiti.pagina(filtro, richiesta.offset(), richiesta.limite()));
+        return new Risposta(200, json.append('}').toString());
+    }
+
+    private Risposta trovaPrestito(Richiesta richiesta) {
+        return new Risposta(200, prestito(new StringBuilder(), prestito(richiesta.variabili.get(0))).toString());
+    }
+
+    private Risposta registraPrestito(Richiesta richiesta) {
+        Map<String, Object> campi = richiesta.json();
+        Utente utente = utente(testo(campi, "matricola"));
+        String isbn = testo(campi, "isbn");
+        Libro libro = servizioLibri.trovaLibro(isbn);
+        if (libro == null)
+            throw new NoSuchElementException("Libro inesistente: " + isbn);
+        LocalDate dataPrevista = LocalDate.parse(testo(campi, "dataPrevista"));
+        if (!dataPrevista.isAfter(LocalDate.now())) //come nella vista dei prestiti, la scadenza deve essere successiva a oggi
+            throw new IllegalArgumentException("La data prevista deve essere successiva a oggi");
+
+        Prestito registrato = servizioPrestiti.registraPrestito(utente, libro, dataPrevista);
+        return new Risposta(201, prestito(new StringBuilder(), registrato).toString());
+    }
+
+    private Risposta registraRestituzione(Richiesta richiesta) {
+        Prestito prestito = prestito(richiesta.variabili.get(0));
+        servizioPrestiti.registraRestituzione(prestito);
+        return new Risposta(200, prestito(new StringBuilder(), prestito).toString());
+    }
+
+    private Prestito prestito(String id) {
+        Prestito prestito = servizioPrestiti.trova(id);
+        if (prestito == null)
+            throw new NoSuchElementException("Prestito inesistente: " + id);
+        return prestito;
+    }
+
+    private static StringBuilder prestiti(StringBuilder json, List<Prestito> prestiti) {
+        json.append('[');
+        for (int i = 0; i < prestiti.size(); i++)
+            prestito(json.append(i > 0 ? "," : ""), prestiti.get(i));
+        return json.append(']');
+    }
+
+    private static StringBuilder prestito(StringBuilder json, Prestito prestito) {
+        json.append('{');
+        Json.stringa(Json.campo(json, "id"), prestito.getId());
+        Json.stringa(Json.campo(json, "matricola"), prestito.getUtente().getMatricola());
+        Json.stringa(Json.campo(json, "isbn"), prestito.getLibro().getIsbn());
+        Json.stringa(Json.campo(json, "titolo"), prestito.getLibro().getTitolo());
+        Json.stringa(Json.campo(json, "dataInizio"), prestito.getDataInizio().toString());
+        Json.stringa(Json.campo(json, "dataPrevista"), prestito.getDataPrevista().toString());
+        LocalDate restituzione = prestito.getDataRestituzioneEffettiva();
+        Json.stringa(Json.campo(json, "dataRestituzione"), (restituzione == null) ? null : restituzione.toString());
+        Json.stringa(Json.campo(json, "stato"), prestito.getStato().name());
+        return json.append('}');
+    }
+
+    // --- Statistiche e metriche ---
+
+    private Risposta statistiche(Richiesta richiesta) {
+        StringBuilder json = new StringBuilder("{");
+        Json.campo(json, "libri").append(servizioLibri.getLibriTotali());
+        Json.campo(json, "copie").append(servizioLibri.getCopieTotali());
+        Json.campo(json, "copieDisponibili").append(servizioLibri.getCopieDisponibili());
+        Json.campo(json, "utenti").append(servizioUtenti.getUtentiTotali());
+        Json.campo(json, "utentiAttivi").append(servizioUtenti.getUtentiAttivi());
+        Json.campo(json, "prestitiInCorso").append(servizioPrestiti.getPrestitiInCorso());
+        Json.campo(json, "prestitiInRitardo").append(servizioPrestiti.getPrestitiInRitardo());
+        Json.campo(json, "prestitiConclusi").append(servizioPrestiti.getPrestitiConclusi());
+        return new Risposta(200, json.append('}').toString());
+    }
+
+    private Risposta metriche(Richiesta richiesta) {
+        StringBuilder json = new StringBuilder("{");
+        Json.campo(json, "threadVirtuali").append(Esecutori.isThreadVirtuali());
+        Json.campo(json, "inCorso").append(metriche.getInCorso());
+        Json.campo(json, "scrittureInCorso").append(smistatore.getScrittureInCorso());
+        Json.campo(json, "scrittureInCoda").append(smistatore.getInCoda());
+        Json.campo(json, "scrittureRifiutate").append(smistatore.getRifiutate());
+        Json.campo(json, "rotte").append('{');
+        for (String rotta : metriche.getRotte()) {
+            Json.campo(json, rotta).append('{');
+            Json.campo(json, "richieste").append(metriche.getRichieste(rotta));
+            Json.campo(json, "errori").append(metriche.getErrori(rotta));
+            Json.campo(json, "mediaMicrosecondi").append(Math.round(metriche.getLatenzaMedia(rotta)));
+            Json.campo(json, "p50Microsecondi").append(metriche.getPercentile(rotta, 50));
+            Json.campo(json, "p99Microsecondi").append(metriche.getPercentile(rotta, 99));
+            json.append('}');
+        }
+        return new Risposta(200, json.append("}}").toString());
+    }
+
+    // --- Lettura dei campi JSON ---
+
+    private static String testo(Map<String, Object> campi, String nome) {
+        Object valore = campi.get(nome);
+        if (!(valore instanceof String))
+            throw new IllegalArgumentException("Campo mancante o non testuale: " + nome);
+        return (String) valore;
+    }
+
+    private static int intero(Map<String, Object> campi, String nome) {
+        Object valore = campi.get(nome);
+        if (!(valore instanceof Long) || (Long) valore != ((Long) valore).intValue())
+            throw new IllegalArgumentException("Campo mancante o non intero: " + nome);
+        return ((Long) valore).intValue();
+    }
+
+    private static List<String> testi(Map<String, Object> campi, String nome) {
+        Object valore = campi.get(nome);
+        if (!(valore instanceof List))
+            throw new IllegalArgumentException("Campo mancante o non elenco: " + nome);
+        List<String> testi = new ArrayList<>();
+        for (Object elemento : (List<?>) valore) {
+            if (!(elemento instanceof String))
+                throw new IllegalArgumentException("Il campo " + nome + " deve contenere solo testi");
+            testi.add((String) elemento);
+        }
+        return testi;
+    }
+
+    private static Risposta errore(int codice, String messaggio) {
+        StringBuilder json = new StringBuilder("{");
+        Json.stringa(Json.campo(json, "errore"), (messaggio == null) ? "Richiesta non valida" : messaggio);
+        return new Risposta(codice, json.append('}').toString());
+    }
+
+    @FunctionalInterface
+    private interface Operazione {
+        Risposta esegui(Richiesta richiesta);
+    }
+
+    private static final class Rotta {
+        private final String metodo;
+        private final String nome;  //es. "GET /api/libri/{isbn}", usato nelle metriche
+        private final String[] modello;
+        private final Operazione operazione;
+
+        private Rotta(String metodo, String percorso, Operazione operazione) {
+            this.metodo = metodo;
+            this.nome = metodo + " " + percorso;
+            this.modello = segmenti(percorso);
+            this.operazione = operazione;
+        }
+
+        /**
+         * @brief Confronta un percorso con il modello della rotta.
+         *
+         * @param[in] percorso I segmenti del percorso richiesto.
+         *
+         * @return I valori delle variabili del modello, null se il percorso non corrisponde.
+         */
+        private List<String> corrisponde(String[] percorso) {
+            if (percorso.length != modello.length)
+                return null;
+            List<String> variabili = new ArrayList<>(1);
+            for (int i = 0; i < modello.length; i++) {
+                if (modello[i].startsWith("{"))
+                    variabili.add(percorso[i]);
+                else if (!modello[i].equals(percorso[i]))
+                    return null;
+            }
+            return variabili;
+        }
+    }
+
+    private static final class Richiesta {
+        private final List<String> variabili;
+        private final Map<String, String> parametri;
+        private final String corpo;
+
+        private Richiesta(List<String> variabili, Map<String, String> parametri, String corpo) {
+            this.variabili = variabili;
+            this.parametri = parametri;
+            this.corpo = corpo;
+        }
+
+        private String parametro(String nome) {
+            return parametri.get(nome);
+        }
+
+        private int offset() {
+            return numero("offset", 0, 0, Integer.MAX_VALUE);
+        }
+
+        private int limite() {
+            return numero("limite", LIMITE_PREDEFINITO, 1, LIMITE_MASSIMO);
+        }
+
+        private int numero(String nome, int predefinito, int minimo, int massimo) {
+            String valore = parametri.get(nome);
+            if (valore == null || valore.isEmpty())
+                return predefinito;
+            try {
+                int numero = Integer.parseInt(valore);
+                if (numero >= minimo && numero <= massimo)
+                    return numero;
+            } catch (NumberFormatException e) {
+                //segnalato sotto
+            }
+            throw new IllegalArgumentException("Parametro " + nome + " non valido: " + valore);
+        }
+
+        private Map<String, Object> json() {
+            return Json.leggiOggetto(corpo);
+        }
+    }
+
+    private static final class Risposta {
+        private final int codice;
+        private final String corpo;
+
+        private Risposta(int codice, String corpo) {
+            this.codice = codice;
+            this.corpo = corpo;
+        }
+    }
+
+    private static final class CorpoTroppoGrande extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private CorpoTroppoGrande() {
+            super("Corpo della richiesta troppo grande");
+        }
+    }
+}
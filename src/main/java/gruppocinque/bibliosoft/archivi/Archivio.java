@@ -5,17 +5,45 @@
  */
 package gruppocinque.bibliosoft.archivi;
 
+import gruppocinque.bibliosoft.archivi.InterfacciaOsservatoreArchivio.Operazione;
+import gruppocinque.bibliosoft.archivi.filtri.FiltroLibro;
+import gruppocinque.bibliosoft.archivi.filtri.FiltroPrestito;
+import gruppocinque.bibliosoft.archivi.filtri.FiltroUtente;
 import gruppocinque.bibliosoft.archivi.filtri.InterfacciaFiltro;
 import gruppocinque.bibliosoft.modelli.Libro;
 import gruppocinque.bibliosoft.modelli.Prestito;
+import gruppocinque.bibliosoft.modelli.StatoPrestito;
 import gruppocinque.bibliosoft.modelli.Utente;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 /**
  * @brief Classe principale per la gestione dell'archivio della biblioteca.
  * @details Agisce da facciata per i sotto-archivi di Libri, Utenti e Prestiti,
  * centralizzando l'accesso ai dati.
  *
+ * Le operazioni sono protette da un lock di lettura/scrittura: le
+ * interrogazioni (liste, ricerche, conteggi, pagine) acquisiscono il lock in
+ * lettura e possono essere eseguite in parallelo da più thread (più postazioni,
+ * aggiornamenti in background delle viste), mentre aggiunte, modifiche e
+ * rimozioni lo acquisiscono in scrittura e vengono eseguite una alla volta.
+ * Le scritture sono serializzate sull'intero archivio e non per sotto-archivio
+ * perché gli osservatori (statistiche, giornale) devono ricevere le modifiche
+ * in un unico ordine; gli osservatori vengono notificati mentre il lock in
+ * scrittura è ancora acquisito. Le operazioni composte che devono apparire
+ * indivisibili vanno eseguite con eseguiAtomicamente() oppure, se
+ * coinvolgono solo alcuni libri e utenti (es. la registrazione di un
+ * prestito), con i lock per entità di getBlocchi().
+ *
+ * Ricerche, conteggi e pagine con filtri descritti (vedi
+ * InterfacciaFiltro.descrizione()) sono serviti da una cache per
+ * sotto-archivio, invalidata alla prima interrogazione successiva a una
+ * modifica (vedi CacheRicerche).
+ *
  * @invariant {@code libri != null}
  * @invariant {@code utenti != null}
  * @invariant {@code prestiti != null}
@@ -23,9 +51,195 @@ import java.util.List;
  * @invariant Nessun utente presente due volte (verifica su matricola).
  */
 public class Archivio {
-    private final Sottoarchivio<Libro> libri = new Sottoarchivio<>(); //Inizializzo il sottoarchivio libro
-    private final Sottoarchivio<Utente> utenti = new Sottoarchivio<>(); //Inizializzo il sottoarchivio utente
-    private final Sottoarchivio<Prestito> prestiti = new Sottoarchivio<>(); //Inizializzo il sottoarchivio prestito
+    private final Sottoarchivio<Libro> libri = new Sottoarchivio<>(Libro::getIsbn); //Inizializzo il sottoarchivio libro, indicizzato per ISBN
+    private final Sottoarchivio<Utente> utenti = new Sottoarchivio<>(Utente::getMatricola); //Inizializzo il sottoarchivio utente, indicizzato per matricola
+    private final Sottoarchivio<Prestito> prestiti = new Sottoarchivio<>(Prestito::getId); //Inizializzo il sottoarchivio prestito, indicizzato per id
+    private final CacheRicerche<Libro> ricercheLibri = new CacheRicerche<>(libri);    //risultati delle ricerche sui libri, validi fino alla prossima modifica
+    private final CacheRicerche<Utente> ricercheUtenti = new CacheRicerche<>(utenti);
+    private final CacheRicerche<Prestito> ricerchePrestiti = new CacheRicerche<>(prestiti);
+    private final IndiceSecondario<String, Prestito> prestitiPerMatricola = new IndiceSecondario<>(FiltroPrestito.CHIAVE_MATRICOLA); //prestiti raggruppati per matricola dell'utente, usato anche da FiltroPrestito.ricercaMatricola()
+    private final IndiceSecondario<String, Prestito> prestitiPerIsbn = new IndiceSecondario<>(p -> p.getLibro().getIsbn()); //prestiti raggruppati per ISBN del libro
+    private final IndiceStati prestitiPerStato = new IndiceStati(); //prestiti partizionati per stato, ordinati per data prevista (ordinamento naturale di Prestito)
+    private final List<InterfacciaOsservatoreArchivio> osservatori = new ArrayList<>(); //osservatori notificati ad ogni modifica
+    private final StatisticheArchivio statistiche = new StatisticheArchivio(this);    //contatori aggregati per la dashboard
+    private final ReentrantReadWriteLock blocco = new ReentrantReadWriteLock(); //letture in parallelo, scritture esclusive
+    private final BlocchiEntita blocchi = new BlocchiEntita();  //lock per libro e utente, condivisi dai servizi che operano su questo archivio
+
+    /**
+     * @brief Costruisce un archivio vuoto.
+     * @details Le statistiche vengono registrate come primo osservatore, così
+     * da seguire ogni modifica fin dal primo inserimento. I sotto-archivi
+     * mantengono gli indici usati dai filtri strutturati di FiltroLibro,
+     * FiltroUtente e FiltroPrestito.
+     */
+    public Archivio() {
+        osservatori.add(statistiche);
+        libri.aggiungiIndice(new IndiceTrigrammi<>(FiltroLibro.CAMPI_RICERCA));  //indice per sottostringhe su titolo, autori e ISBN (RF 3.1.1.5)
+        libri.aggiungiIndice(new IndiceTestuale<>(FiltroLibro.CAMPI_RICERCA));   //indice per parole, usato per i testi più corti di tre caratteri
+        utenti.aggiungiIndice(new IndiceTrigrammi<>(FiltroUtente.CAMPI_RICERCA)); //indice per sottostringhe su cognome e matricola (RF 3.1.2.5)
+        libri.aggiungiIndice(new IndicePrefissi<>(FiltroLibro.CHIAVE_ISBN));     //indice ordinato degli ISBN per ricerche esatte e per prefisso
+        utenti.aggiungiIndice(new IndicePrefissi<>(FiltroUtente.CHIAVE_MATRICOLA));  //indice ordinato delle matricole
+        prestiti.aggiungiIndice(prestitiPerMatricola);    //prestiti per matricola, usato da prestitiPerUtente() e da FiltroPrestito.ricercaMatricola()
+        prestiti.aggiungiIndice(prestitiPerIsbn);   //prestiti per ISBN, usato da prestitiPerLibro()
+        prestiti.aggiungiIndice(new IndiceIntervalli<>(FiltroPrestito.CHIAVE_SCADENZA)); //prestiti per data prevista, usato da FiltroPrestito.scadenzaTra()
+        prestiti.aggiungiIndice(prestitiPerStato);  //prestiti per stato, usato dai filtri per stato di FiltroPrestito e da prestitiScaduti()
+    }
+
+    
+    
+    // GESTIONE OSSERVATORI
+    
+    
+    
+    /**
+     * @brief Registra un osservatore delle modifiche all'archivio.
+     * @details L'osservatore riceverà una notifica per ogni aggiunta, modifica
+     * o rimozione successiva alla registrazione.
+     *
+     * @param[in] osservatore L'osservatore da registrare.
+     *
+     * @pre {@code osservatore != null}
+     * @post L'osservatore è notificato delle modifiche successive.
+     *
+     * @throws NullPointerException se {@code osservatore == null}
+     *
+     * @see InterfacciaOsservatoreArchivio
+     */
+    public void aggiungiOsservatore(InterfacciaOsservatoreArchivio osservatore) {
+        scrivi(() -> {
+            if (osservatore == null) {
+                throw new NullPointerException("Impossibile registrare un osservatore nullo.");
+            }
+            osservatori.add(osservatore);
+        });
+    }
+
+    /**
+     * @brief Rimuove un osservatore precedentemente registrato.
+     * @details
+     * @param[in] osservatore L'osservatore da rimuovere.
+     *
+     * @post L'osservatore non riceve più notifiche.
+     */
+    public void rimuoviOsservatore(InterfacciaOsservatoreArchivio osservatore) {
+        scrivi(() -> osservatori.remove(osservatore));
+    }
+
+    /**
+     * @brief Restituisce i contatori aggregati dell'archivio.
+     * @details I contatori sono aggiornati a ogni modifica e la loro lettura è
+     * a tempo costante.
+     *
+     * @return Le statistiche dell'archivio.
+     * @see StatisticheArchivio
+     */
+    public StatisticheArchivio getStatistiche() {
+        return statistiche;
+    }
+
+    /**
+     * @brief Notifica un'operazione a tutti gli osservatori registrati.
+     * @details
+     * @param[in] operazione Il tipo di operazione eseguita.
+     * @param[in] elemento L'elemento coinvolto.
+     */
+    private void notifica(Operazione operazione, Object elemento) {
+        for (InterfacciaOsservatoreArchivio osservatore : osservatori)
+            osservatore.notifica(operazione, elemento);
+    }
+
+    /**
+     * @brief Esegue un'operazione composta in modo atomico rispetto agli altri thread.
+     * @details L'operazione viene eseguita con il lock in scrittura acquisito:
+     * nessun altro thread può leggere o modificare l'archivio finché non
+     * termina, per cui verifiche e modifiche eseguite al suo interno (es.
+     * disponibilità del libro e inserimento del prestito) non possono essere
+     * intercalate da altre operazioni. All'interno dell'operazione si possono
+     * invocare liberamente gli altri metodi dell'archivio.
+     *
+     * @param[in] operazione L'operazione da eseguire.
+     *
+     * @pre {@code operazione != null}
+     * @pre Il thread non sta eseguendo un'interrogazione sull'archivio (es.
+     * da un filtro).
+     *
+     * @throws IllegalStateException se invocato durante un'interrogazione
+     * dello stesso thread.
+     */
+    public void eseguiAtomicamente(Runnable operazione) {
+        scrivi(operazione);
+    }
+
+    /**
+     * @brief Restituisce i lock per libro e utente dell'archivio.
+     * @details Permettono di eseguire operazioni composte su singoli libri e
+     * utenti senza bloccare l'intero archivio: i lock vanno acquisiti prima
+     * di invocare i metodi dell'archivio, mai al loro interno.
+     *
+     * @return I lock per entità.
+     * @see BlocchiEntita
+     */
+    public BlocchiEntita getBlocchi() {
+        return blocchi;
+    }
+
+    /**
+     * @brief Esegue una lettura con il lock in lettura acquisito.
+     * @details Usato anche da StatisticheArchivio per leggere i contatori.
+     *
+     * @param[in] lettura La lettura da eseguire.
+     *
+     * @return Il risultato della lettura.
+     */
+    <R> R leggi(Supplier<R> lettura) {
+        blocco.readLock().lock();
+        try {
+            return lettura.get();
+        } finally {
+            blocco.readLock().unlock();
+        }
+    }
+
+    /**
+     * @brief Esegue una modifica con il lock in scrittura acquisito.
+     * @details Il lock è rientrante: una modifica può invocare altri metodi
+     * dell'archivio. Non è invece possibile passare dalla lettura alla
+     * scrittura, che causerebbe lo stallo del thread.
+     *
+     * @param[in] scrittura La modifica da eseguire.
+     *
+     * @throws IllegalStateException se il thread detiene il solo lock in lettura.
+     */
+    private void scrivi(Runnable scrittura) {
+        if (blocco.getReadHoldCount() > 0 && !blocco.isWriteLockedByCurrentThread())
+            throw new IllegalStateException("Impossibile modificare l'archivio durante un'interrogazione.");
+        blocco.writeLock().lock();
+        try {
+            scrittura.run();
+        } finally {
+            blocco.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @brief Imposta la soglia oltre la quale le ricerche valutano i filtri in parallelo.
+     * @details La soglia si applica a libri, utenti e prestiti; il valore
+     * predefinito è Sottoarchivio.SOGLIA_PARALLELA.
+     *
+     * @param[in] soglia Il numero minimo di elementi da esaminare.
+     *
+     * @pre {@code soglia > 0}
+     * @throws IllegalArgumentException se la soglia non è positiva (propagata dai sottoarchivi)
+     *
+     * @see Sottoarchivio#setSogliaParallela(int)
+     */
+    public void setSogliaParallela(int soglia) {
+        scrivi(() -> {
+            libri.setSogliaParallela(soglia);
+            utenti.setSogliaParallela(soglia);
+            prestiti.setSogliaParallela(soglia);
+        });
+    }
 
     
     
@@ -48,7 +262,38 @@ public class Archivio {
      * @see Sottoarchivio
      */
     public void aggiungiLibro(Libro libro) {
-        libri.aggiungi(libro);
+        scrivi(() -> {
+            libri.aggiungi(libro);
+            notifica(Operazione.AGGIUNTA, libro);
+        });
+    }
+
+    /**
+     * @brief Aggiunge più libri in un'unica operazione.
+     * @details Usato dalle importazioni massive (vedi ServizioImportazione):
+     * il lock in scrittura viene acquisito una sola volta e il sotto-archivio
+     * ordina i libri, scarta i duplicati e li inserisce nell'albero uno alla
+     * volta, incrementando la versione una sola volta per l'intero blocco
+     * (vedi Sottoarchivio.aggiungiTutti()). I libri già presenti (verifica su
+     * ISBN) non vengono aggiunti. Gli osservatori ricevono una
+     * notifica di aggiunta per ogni libro aggiunto.
+     *
+     * @param[in] nuovi I libri da aggiungere.
+     *
+     * @return I libri effettivamente aggiunti.
+     *
+     * @throws NullPointerException se uno dei libri è null (propagata dal sottoarchivio libri)
+     *
+     * @see Sottoarchivio
+     */
+    public List<Libro> aggiungiLibri(Collection<Libro> nuovi) {
+        List<Libro> aggiunti = new ArrayList<>();
+        scrivi(() -> {
+            aggiunti.addAll(libri.aggiungiTutti(nuovi));
+            for (Libro libro : aggiunti)
+                notifica(Operazione.AGGIUNTA, libro);
+        });
+        return aggiunti;
     }
 
     /**
@@ -67,7 +312,10 @@ public class Archivio {
      * @see Sottoarchivio
      */
     public void modificaLibro(Libro libro) {
-        libri.modifica(libro);
+        scrivi(() -> {
+            libri.modifica(libro);
+            notifica(Operazione.MODIFICA, libro);
+        });
     }
 
     /**
@@ -87,7 +335,10 @@ public class Archivio {
      * @see Sottoarchivio
      */
     public void rimuoviLibro(Libro libro) {
-        libri.rimuovi(libro);
+        scrivi(() -> {
+            libri.rimuovi(libro);
+            notifica(Operazione.RIMOZIONE, libro);
+        });
     }
 
     /**
@@ -98,7 +349,19 @@ public class Archivio {
      * @post {@code risultato != null}
      */
     public List<Libro> listaLibri() {
-        return libri.lista();
+        return leggi(() -> libri.lista());
+    }
+
+    /**
+     * @brief Restituisce il libro con l'ISBN indicato.
+     * @details Ricerca puntuale a tempo costante tramite l'indice per ISBN.
+     *
+     * @param[in] isbn L'ISBN cercato.
+     *
+     * @return Il libro, oppure null se non presente.
+     */
+    public Libro trovaLibro(String isbn) {
+        return leggi(() -> libri.trova(isbn));
     }
 
     /**
@@ -111,7 +374,7 @@ public class Archivio {
      * @post {@code risultato != null}
      */
     public List<Libro> cercaLibri(InterfacciaFiltro<Libro> filtro) {
-        return libri.cerca(filtro);
+        return leggi(() -> ricercheLibri.cerca(filtro));
     }
 
     /**
@@ -122,7 +385,75 @@ public class Archivio {
      * @post {@code risultato >= 0}
      */
     public int contaLibri() {
-         return libri.conta();
+        return leggi(() -> libri.conta());
+    }
+
+    /**
+     * @brief Conta i libri che soddisfano un filtro.
+     * @details Non costruisce la lista dei risultati.
+     *
+     * @param[in] filtro Il filtro da applicare. Se null conta tutti i libri.
+     *
+     * @return Numero di elementi che soddisfano il filtro.
+     * @post {@code risultato >= 0}
+     */
+    public int contaLibri(InterfacciaFiltro<Libro> filtro) {
+        return leggi(() -> ricercheLibri.conta(filtro));
+    }
+
+    /**
+     * @brief Verifica se almeno un elemento tra i libri soddisfa un filtro.
+     * @details Si interrompe al primo elemento trovato.
+     *
+     * @param[in] filtro Il filtro da applicare.
+     *
+     * @return true se esiste almeno un elemento che soddisfa il filtro.
+     */
+    public boolean esisteLibro(InterfacciaFiltro<Libro> filtro) {
+        return leggi(() -> libri.esiste(filtro));
+    }
+
+    /**
+     * @brief Restituisce il primo elemento tra i libri che soddisfa un filtro.
+     * @details Segue l'ordinamento dell'archivio e si interrompe al primo
+     * elemento trovato.
+     *
+     * @param[in] filtro Il filtro da applicare.
+     *
+     * @return Il primo elemento trovato, oppure null.
+     */
+    public Libro primoLibro(InterfacciaFiltro<Libro> filtro) {
+        return leggi(() -> libri.primo(filtro));
+    }
+
+    /**
+     * @brief Restituisce una pagina dei libri che soddisfano un filtro.
+     * @details Viene copiata solo la pagina richiesta, non l'intero archivio.
+     *
+     * @param[in] filtro Il filtro da applicare. Se null considera tutti gli elementi.
+     * @param[in] offset Numero di elementi da saltare.
+     * @param[in] limite Numero massimo di elementi da restituire.
+     *
+     * @return La pagina richiesta.
+     * @throws IllegalArgumentException se offset o limite sono negativi (propagata dal sottoarchivio libri)
+     */
+    public List<Libro> paginaLibri(InterfacciaFiltro<Libro> filtro, int offset, int limite) {
+        return leggi(() -> ricercheLibri.pagina(filtro, offset, limite));
+    }
+
+    /**
+     * @brief Restituisce la pagina dei libri successiva a un elemento dato.
+     * @details Paginazione a cursore sull'ordinamento dell'archivio.
+     *
+     * @param[in] filtro Il filtro da applicare. Se null considera tutti gli elementi.
+     * @param[in] ultimo Ultimo elemento della pagina precedente, null per la prima pagina.
+     * @param[in] limite Numero massimo di elementi da restituire.
+     *
+     * @return La pagina richiesta.
+     * @throws IllegalArgumentException se il limite è negativo (propagata dal sottoarchivio libri)
+     */
+    public List<Libro> paginaLibriDopo(InterfacciaFiltro<Libro> filtro, Libro ultimo, int limite) {
+        return leggi(() -> ricercheLibri.paginaDopo(filtro, ultimo, limite));
     }
 
     
@@ -147,7 +478,34 @@ public class Archivio {
      * @see Sottoarchivio
      */
     public void aggiungiUtente(Utente utente) {
-        utenti.aggiungi(utente);
+        scrivi(() -> {
+            utenti.aggiungi(utente);
+            notifica(Operazione.AGGIUNTA, utente);
+        });
+    }
+
+    /**
+     * @brief Aggiunge più utenti in un'unica operazione.
+     * @details Come aggiungiLibri(): gli utenti già presenti (verifica su
+     * matricola) non vengono aggiunti e gli osservatori ricevono una notifica
+     * per ogni utente aggiunto.
+     *
+     * @param[in] nuovi Gli utenti da aggiungere.
+     *
+     * @return Gli utenti effettivamente aggiunti.
+     *
+     * @throws NullPointerException se uno degli utenti è null (propagata dal sottoarchivio utenti)
+     *
+     * @see Sottoarchivio
+     */
+    public List<Utente> aggiungiUtenti(Collection<Utente> nuovi) {
+        List<Utente> aggiunti = new ArrayList<>();
+        scrivi(() -> {
+            aggiunti.addAll(utenti.aggiungiTutti(nuovi));
+            for (Utente utente : aggiunti)
+                notifica(Operazione.AGGIUNTA, utente);
+        });
+        return aggiunti;
     }
 
     /**
@@ -166,7 +524,10 @@ public class Archivio {
      * @see Sottoarchivio
      */
     public void modificaUtente(Utente utente) {
-        utenti.modifica(utente);
+        scrivi(() -> {
+            utenti.modifica(utente);
+            notifica(Operazione.MODIFICA, utente);
+        });
     }
 
     /**
@@ -186,7 +547,10 @@ public class Archivio {
      * @see Sottoarchivio
      */
     public void rimuoviUtente(Utente utente) {
-        utenti.rimuovi(utente);
+        scrivi(() -> {
+            utenti.rimuovi(utente);
+            notifica(Operazione.RIMOZIONE, utente);
+        });
     }
 
     /**
@@ -197,7 +561,19 @@ public class Archivio {
      * @post {@code risultato >= 0}
      */
     public List<Utente> listaUtenti() {
-        return utenti.lista();
+        return leggi(() -> utenti.lista());
+    }
+
+    /**
+     * @brief Restituisce l'utente con la matricola indicata.
+     * @details Ricerca puntuale a tempo costante tramite l'indice per matricola.
+     *
+     * @param[in] matricola La matricola cercata.
+     *
+     * @return L'utente, oppure null se non presente.
+     */
+    public Utente trovaUtente(String matricola) {
+        return leggi(() -> utenti.trova(matricola));
     }
 
     /**
@@ -210,7 +586,7 @@ public class Archivio {
      * @post {@code risultato >= 0}
      */
     public List<Utente> cercaUtenti(InterfacciaFiltro<Utente> filtro) {
-        return utenti.cerca(filtro);
+        return leggi(() -> ricercheUtenti.cerca(filtro));
     }
 
     /**
@@ -220,7 +596,75 @@ public class Archivio {
      * @post {@code risultato >= 0}
      */
     public int contaUtenti() {
-        return utenti.conta();
+        return leggi(() -> utenti.conta());
+    }
+
+    /**
+     * @brief Conta gli utenti che soddisfano un filtro.
+     * @details Non costruisce la lista dei risultati.
+     *
+     * @param[in] filtro Il filtro da applicare. Se null conta tutti gli utenti.
+     *
+     * @return Numero di elementi che soddisfano il filtro.
+     * @post {@code risultato >= 0}
+     */
+    public int contaUtenti(InterfacciaFiltro<Utente> filtro) {
+        return leggi(() -> ricercheUtenti.conta(filtro));
+    }
+
+    /**
+     * @brief Verifica se almeno un elemento tra gli utenti soddisfa un filtro.
+     * @details Si interrompe al primo elemento trovato.
+     *
+     * @param[in] filtro Il filtro da applicare.
+     *
+     * @return true se esiste almeno un elemento che soddisfa il filtro.
+     */
+    public boolean esisteUtente(InterfacciaFiltro<Utente> filtro) {
+        return leggi(() -> utenti.esiste(filtro));
+    }
+
+    /**
+     * @brief Restituisce il primo elemento tra gli utenti che soddisfa un filtro.
+     * @details Segue l'ordinamento dell'archivio e si interrompe al primo
+     * elemento trovato.
+     *
+     * @param[in] filtro Il filtro da applicare.
+     *
+     * @return Il primo elemento trovato, oppure null.
+     */
+    public Utente primoUtente(InterfacciaFiltro<Utente> filtro) {
+        return leggi(() -> utenti.primo(filtro));
+    }
+
+    /**
+     * @brief Restituisce una pagina degli utenti che soddisfano un filtro.
+     * @details Viene copiata solo la pagina richiesta, non l'intero archivio.
+     *
+     * @param[in] filtro Il filtro da applicare. Se null considera tutti gli elementi.
+     * @param[in] offset Numero di elementi da saltare.
+     * @param[in] limite Numero massimo di elementi da restituire.
+     *
+     * @return La pagina richiesta.
+     * @throws IllegalArgumentException se offset o limite sono negativi (propagata dal sottoarchivio utenti)
+     */
+    public List<Utente> paginaUtenti(InterfacciaFiltro<Utente> filtro, int offset, int limite) {
+        return leggi(() -> ricercheUtenti.pagina(filtro, offset, limite));
+    }
+
+    /**
+     * @brief Restituisce la pagina degli utenti successiva a un elemento dato.
+     * @details Paginazione a cursore sull'ordinamento dell'archivio.
+     *
+     * @param[in] filtro Il filtro da applicare. Se null considera tutti gli elementi.
+     * @param[in] ultimo Ultimo elemento della pagina precedente, null per la prima pagina.
+     * @param[in] limite Numero massimo di elementi da restituire.
+     *
+     * @return La pagina richiesta.
+     * @throws IllegalArgumentException se il limite è negativo (propagata dal sottoarchivio utenti)
+     */
+    public List<Utente> paginaUtentiDopo(InterfacciaFiltro<Utente> filtro, Utente ultimo, int limite) {
+        return leggi(() -> ricercheUtenti.paginaDopo(filtro, ultimo, limite));
     }
 
     
@@ -244,7 +688,10 @@ public class Archivio {
      * @see Sottoarchivio
      */
     public void aggiungiPrestito(Prestito prestito) {
-        prestiti.aggiungi(prestito); 
+        scrivi(() -> {
+            prestiti.aggiungi(prestito);
+            notifica(Operazione.AGGIUNTA, prestito);
+        });
     }
 
     /**
@@ -263,7 +710,10 @@ public class Archivio {
      * @see Sottoarchivio
      */
     public void modificaPrestito(Prestito prestito) {
-         prestiti.modifica(prestito);
+        scrivi(() -> {
+            prestiti.modifica(prestito);
+            notifica(Operazione.MODIFICA, prestito);
+        });
     }
 
     /**
@@ -281,7 +731,10 @@ public class Archivio {
      * @see Sottoarchivio
      */
     public void rimuoviPrestito(Prestito prestito) {
-        prestiti.rimuovi(prestito);
+        scrivi(() -> {
+            prestiti.rimuovi(prestito);
+            notifica(Operazione.RIMOZIONE, prestito);
+        });
     }
 
     /**
@@ -291,7 +744,73 @@ public class Archivio {
      * @post {@code risultato >= 0}
      */
     public List<Prestito> listaPrestiti() {
-        return prestiti.lista();
+        return leggi(() -> prestiti.lista());
+    }
+
+    /**
+     * @brief Restituisce il prestito con l'id indicato.
+     * @details Ricerca puntuale a tempo costante tramite l'indice per id.
+     *
+     * @param[in] id L'identificativo del prestito.
+     *
+     * @return Il prestito, oppure null se non presente.
+     */
+    public Prestito trovaPrestito(String id) {
+        return leggi(() -> prestiti.trova(id));
+    }
+
+    /**
+     * @brief Restituisce tutti i prestiti di un utente.
+     * @details Implementa lo "Storico prestiti" (UC13) tramite l'indice per
+     * matricola, senza scandire l'intero storico dei prestiti.
+     *
+     * @param[in] matricola La matricola dell'utente.
+     *
+     * @return Lista ordinata dei prestiti dell'utente (in corso e conclusi).
+     * @post {@code risultato != null}
+     */
+    public List<Prestito> prestitiPerUtente(String matricola) {
+        return leggi(() -> prestitiPerMatricola.cerca(matricola));
+    }
+
+    /**
+     * @brief Restituisce tutti i prestiti di un libro.
+     * @details Ricerca tramite l'indice per ISBN.
+     *
+     * @param[in] isbn L'ISBN del libro.
+     *
+     * @return Lista ordinata dei prestiti del libro (in corso e conclusi).
+     * @post {@code risultato != null}
+     */
+    public List<Prestito> prestitiPerLibro(String isbn) {
+        return leggi(() -> prestitiPerIsbn.cerca(isbn));
+    }
+
+    /**
+     * @brief Restituisce i prestiti in corso con data prevista già superata.
+     * @details Supporta il calcolo dei ritardi (UC15). L'indice per stato
+     * mantiene i prestiti in corso ordinati per data prevista, per cui vengono
+     * esaminati solo quelli effettivamente scaduti e non l'intero insieme dei
+     * prestiti attivi. Un prestito esce da questo insieme quando viene
+     * registrato con modificaPrestito() in uno stato diverso da IN_CORSO.
+     *
+     * @param[in] oggi La data di riferimento.
+     *
+     * @return Lista dei prestiti IN_CORSO con {@code dataPrevista < oggi},
+     * ordinati per data prevista.
+     * @post {@code risultato != null}
+     */
+    public List<Prestito> prestitiScaduti(LocalDate oggi) {
+        return leggi(() -> {
+            List<Prestito> scaduti = new ArrayList<>();
+            for (Prestito prestito : prestitiPerStato.prestiti(StatoPrestito.IN_CORSO)) {
+                if (!oggi.isAfter(prestito.getDataPrevista()))
+                    break;  //da qui in poi nessun prestito è scaduto
+                if (prestito.getStato() == StatoPrestito.IN_CORSO)  //scarto i prestiti cambiati senza passare da modificaPrestito()
+                    scaduti.add(prestito);
+            }
+            return scaduti;
+        });
     }
 
     /**
@@ -303,7 +822,7 @@ public class Archivio {
      * @post {@code risultato >= 0}
      */
     public List<Prestito> cercaPrestiti(InterfacciaFiltro<Prestito> filtro) {
-        return prestiti.cerca(filtro);
+        return leggi(() -> ricerchePrestiti.cerca(filtro));
     }
 
     /**
@@ -313,6 +832,75 @@ public class Archivio {
      * @post {@code risultato >= 0}
      */
     public int contaPrestiti() {
-        return prestiti.conta();
+        return leggi(() -> prestiti.conta());
+    }
+
+    /**
+     * @brief Conta i prestiti che soddisfano un filtro.
+     * @details Non costruisce la lista dei risultati.
+     *
+     * @param[in] filtro Il filtro da applicare. Se null conta tutti i prestiti.
+     *
+     * @return Numero di elementi che soddisfano il filtro.
+     * @post {@code risultato >= 0}
+     */
+    public int contaPrestiti(InterfacciaFiltro<Prestito> filtro) {
+        return leggi(() -> ricerchePrestiti.conta(filtro));
+    }
+
+    /**
+     * @brief Verifica se almeno un elemento tra i prestiti soddisfa un filtro.
+     * @details Si interrompe al primo elemento trovato.
+     *
+     * @param[in] filtro Il filtro da applicare.
+     *
+     * @return true se esiste almeno un elemento che soddisfa il filtro.
+     */
+    public boolean esistePrestito(InterfacciaFiltro<Prestito> filtro) {
+        return leggi(() -> prestiti.esiste(filtro));
+    }
+
+    /**
+     * @brief Restituisce il primo elemento tra i prestiti che soddisfa un filtro.
+     * @details Segue l'ordinamento dell'archivio e si interrompe al primo
+     * elemento trovato.
+     *
+     * @param[in] filtro Il filtro da applicare.
+     *
+     * @return Il primo elemento trovato, oppure null.
+     */
+    public Prestito primoPrestito(InterfacciaFiltro<Prestito> filtro) {
+        return leggi(() -> prestiti.primo(filtro));
     }
+
+    /**
+     * @brief Restituisce una pagina dei prestiti che soddisfano un filtro.
+     * @details Viene copiata solo la pagina richiesta, non l'intero archivio.
+     *
+     * @param[in] filtro Il filtro da applicare. Se null considera tutti gli elementi.
+     * @param[in] offset Numero di elementi da saltare.
+     * @param[in] limite Numero massimo di elementi da restituire.
+     *
+     * @return La pagina richiesta.
+     * @throws IllegalArgumentException se offset o limite sono negativi (propagata dal sottoarchivio prestiti)
+     */
+    public List<Prestito> paginaPrestiti(InterfacciaFiltro<Prestito> filtro, int offset, int limite) {
+        return leggi(() -> ricerchePrestiti.pagina(filtro, offset, limite));
+    }
+
+    /**
+     * @brief Restituisce la pagina dei prestiti successiva a un elemento dato.
+     * @details Paginazione a cursore sull'ordinamento dell'archivio.
+     *
+     * @param[in] filtro Il filtro da applicare. Se null considera tutti gli elementi.
+     * @param[in] ultimo Ultimo elemento della pagina precedente, null per la prima pagina.
+     * @param[in] limite Numero massimo di elementi da restituire.
+     *
+     * @return La pagina richiesta.
+     * @throws IllegalArgumentException se il limite è negativo (propagata dal sottoarchivio prestiti)
+     */
+    public List<Prestito> paginaPrestitiDopo(InterfacciaFiltro<Prestito> filtro, Prestito ultimo, int limite) {
+        return leggi(() -> ricerchePrestiti.paginaDopo(filtro, ultimo, limite));
+    }
+
 }
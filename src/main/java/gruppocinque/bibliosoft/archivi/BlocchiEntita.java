@@ -0,0 +1,155 @@
+/**
+ * @file BlocchiEntita.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.archivi;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * @brief Lock per singolo libro o utente, usati dalle transazioni sui prestiti.
+ * @details Registrazione di un prestito e di una restituzione leggono e
+ * modificano un libro (copie disponibili) e un utente (prestiti attivi):
+ * eseguendole con i lock delle due entità acquisiti, le operazioni su libri e
+ * utenti diversi procedono in parallelo, mentre quelle sullo stesso libro o
+ * utente vengono eseguite una alla volta. Il lock dell'archivio viene
+ * acquisito solo per la durata delle singole modifiche.
+ *
+ * Le entità sono identificate da una chiave (vedi libro() e utente()) e
+ * ripartite su un numero fisso di lock (STRISCE), così la memoria non cresce
+ * con il numero di libri e utenti; due entità sulla stessa striscia si
+ * attendono a vicenda anche se diverse. Le strisce vengono sempre acquisite
+ * in ordine crescente, per cui due transazioni non possono attendersi in
+ * ciclo.
+ *
+ * Viene contato quante acquisizioni hanno dovuto attendere un'altra
+ * transazione, come misura della contesa.
+ *
+ * @see Archivio#getBlocchi()
+ */
+public class BlocchiEntita {
+
+    /**
+     * @brief Numero di lock fra cui sono ripartite le entità.
+     */
+    public static final int STRISCE = 256;
+
+    private final ReentrantLock[] strisce = new ReentrantLock[STRISCE];
+    private final LongAdder acquisizioni = new LongAdder();    //strisce acquisite
+    private final LongAdder attese = new LongAdder();  //strisce trovate già acquisite da un altro thread
+
+    /**
+     * @brief Costruisce i lock, tutti liberi.
+     */
+    BlocchiEntita() {
+        for (int i = 0; i < STRISCE; i++)
+            strisce[i] = new ReentrantLock();
+    }
+
+    /**
+     * @brief Restituisce la chiave di un libro.
+     * @details
+     * @param[in] isbn L'ISBN del libro.
+     *
+     * @return La chiave da passare a esegui().
+     */
+    public static String libro(String isbn) {
+        return "libro/" + isbn;
+    }
+
+    /**
+     * @brief Restituisce la chiave di un utente.
+     * @details
+     * @param[in] matricola La matricola dell'utente.
+     *
+     * @return La chiave da passare a esegui().
+     */
+    public static String utente(String matricola) {
+        return "utente/" + matricola;
+    }
+
+    /**
+     * @brief Esegue un'operazione con i lock delle entità indicate acquisiti.
+     * @details I lock vengono rilasciati anche se l'operazione lancia
+     * un'eccezione, che viene propagata.
+     *
+     * @param[in] operazione L'operazione da eseguire.
+     * @param[in] chiavi Le chiavi delle entità lette o modificate.
+     *
+     * @return Il risultato dell'operazione.
+     *
+     * @pre {@code operazione != null && chiavi != null}
+     * @pre Il thread non detiene il lock dell'archivio né lock di altre
+     * entità (l'ordine di acquisizione non sarebbe più garantito).
+     */
+    public <R> R esegui(Supplier<R> operazione, String... chiavi) {
+        int[] indici = indici(chiavi);
+        int acquisite = 0;
+        try {
+            for (int indice : indici) {
+                ReentrantLock striscia = strisce[indice];
+                if (!striscia.tryLock()) {
+                    attese.increment();
+                    striscia.lock();
+                }
+                acquisite++;
+            }
+            acquisizioni.add(indici.length);
+            return operazione.get();
+        } finally {
+            for (int i = acquisite - 1; i >= 0; i--)
+                strisce[indici[i]].unlock();
+        }
+    }
+
+    /**
+     * @brief Esegue un'operazione senza risultato con i lock delle entità indicate acquisiti.
+     * @details
+     * @param[in] operazione L'operazione da eseguire.
+     * @param[in] chiavi Le chiavi delle entità lette o modificate.
+     *
+     * @see #esegui(Supplier, String...)
+     */
+    public void esegui(Runnable operazione, String... chiavi) {
+        esegui(() -> {
+            operazione.run();
+            return null;
+        }, chiavi);
+    }
+
+    /**
+     * @brief Restituisce il numero di lock acquisiti dalla creazione.
+     * @details
+     * @return Numero di acquisizioni.
+     */
+    public long getAcquisizioni() {
+        return acquisizioni.sum();
+    }
+
+    /**
+     * @brief Restituisce il numero di acquisizioni che hanno dovuto attendere.
+     * @details Il rapporto con getAcquisizioni() misura la contesa fra le
+     * transazioni.
+     *
+     * @return Numero di attese.
+     */
+    public long getAttese() {
+        return attese.sum();
+    }
+
+    /**
+     * @brief Calcola le strisce delle chiavi, ordinate e senza ripetizioni.
+     */
+    private static int[] indici(String... chiavi) {
+        int[] indici = new int[chiavi.length];
+        for (int i = 0; i < chiavi.length; i++) {
+            int h = chiavi[i].hashCode();
+            indici[i] = (h ^ (h >>> 16)) & (STRISCE - 1);
+        }
+        return Arrays.stream(indici).sorted().distinct().toArray();
+    }
+}
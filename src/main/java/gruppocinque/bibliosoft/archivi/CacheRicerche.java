@@ -0,0 +1,227 @@
+/**
+ * @file CacheRicerche.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.archivi;
+
+import gruppocinque.bibliosoft.archivi.filtri.InterfacciaFiltro;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * @brief Memorizza i risultati delle interrogazioni filtrate su un sotto-archivio.
+ * @details Le viste ripetono le stesse interrogazioni a ogni cambio di tab e
+ * aggiornamento anche se i dati non sono cambiati. I risultati vengono quindi
+ * memorizzati con chiave la descrizione canonica del filtro (vedi
+ * InterfacciaFiltro.descrizione()) e riusati finché la versione del
+ * sotto-archivio non cambia: la prima interrogazione successiva a una
+ * modifica svuota la cache.
+ *
+ * Il risultato completo viene memorizzato solo da cerca(), che costruisce
+ * comunque la lista; da esso vengono serviti anche conteggio e pagine, senza
+ * esaminare di nuovo il sotto-archivio. Se manca, conteggio e pagine vengono
+ * chiesti al sotto-archivio, che li calcola senza costruire la lista
+ * completa, e memorizzati a parte: un intero per il conteggio e i soli
+ * elementi della pagina, con chiave la descrizione più offset e limite. Così
+ * anche le viste paginate, che non chiamano mai cerca(), vengono servite
+ * dalla cache. Della paginazione a cursore si memorizza solo la prima
+ * pagina, che coincide con quella a offset zero. I filtri non descritti (es.
+ * le lambda) vengono passati direttamente al sotto-archivio. Per ciascun
+ * tipo vengono mantenuti al più CAPACITA valori, scartando quelli usati meno
+ * di recente.
+ *
+ * La cache viene interrogata con il lock in lettura dell'archivio, quindi da
+ * più thread insieme: l'accesso alla mappa è sincronizzato, mentre il calcolo
+ * di un risultato mancante avviene fuori dal monitor, così che le ricerche
+ * non memorizzate non si attendano a vicenda.
+ *
+ * @tparam T Tipo dell'elemento.
+ * @see Sottoarchivio#getVersione()
+ */
+class CacheRicerche<T> {
+    static final int CAPACITA = 32; //risultati mantenuti per sotto-archivio
+
+    private static final String TUTTI = "*";    //chiave dell'interrogazione senza filtro
+
+    private final Sottoarchivio<T> sottoarchivio;
+    private final Map<String, List<T>> risultati = recenti();    //descrizione -> risultato completo
+    private final Map<String, Integer> conteggi = recenti();    //descrizione -> numero di elementi
+    private final Map<String, List<T>> pagine = recenti();  //descrizione@offset+limite -> pagina
+    private long versione = -1; //versione del sotto-archivio a cui si riferiscono i valori, protetta dal monitor di risultati
+
+    /**
+     * @brief Costruisce la cache di un sotto-archivio.
+     * @details
+     * @param[in] sottoarchivio Il sotto-archivio interrogato.
+     */
+    CacheRicerche(Sottoarchivio<T> sottoarchivio) {
+        this.sottoarchivio = sottoarchivio;
+    }
+
+    /**
+     * @brief Esegue una ricerca filtrata.
+     * @details
+     * @param[in] filtro Il filtro, null per tutti gli elementi.
+     *
+     * @return Una nuova lista con gli elementi che soddisfano il filtro.
+     */
+    List<T> cerca(InterfacciaFiltro<T> filtro) {
+        String chiave = chiave(filtro);
+        if (chiave == null)
+            return sottoarchivio.cerca(filtro);
+        long attuale = sottoarchivio.getVersione();    //stabile: le modifiche attendono il rilascio del lock in lettura
+        List<T> risultato = memorizzato(risultati, chiave, attuale);
+        if (risultato == null) {
+            risultato = Collections.unmodifiableList(sottoarchivio.cerca(filtro));
+            memorizza(risultati, chiave, risultato, attuale);
+        }
+        return new ArrayList<>(risultato);
+    }
+
+    /**
+     * @brief Conta gli elementi che soddisfano un filtro.
+     * @details Se il risultato completo non è memorizzato, il sotto-archivio
+     * conta gli elementi senza costruirne la lista e viene memorizzato il
+     * solo conteggio.
+     *
+     * @param[in] filtro Il filtro, null per tutti gli elementi.
+     *
+     * @return Il numero di elementi.
+     */
+    int conta(InterfacciaFiltro<T> filtro) {
+        if (filtro == null)
+            return sottoarchivio.conta();   //già a tempo costante
+        String chiave = chiave(filtro);
+        if (chiave == null)
+            return sottoarchivio.conta(filtro);
+        long attuale = sottoarchivio.getVersione();
+        List<T> risultato = memorizzato(risultati, chiave, attuale);
+        if (risultato != null)
+            return risultato.size();
+        Integer conteggio = memorizzato(conteggi, chiave, attuale);
+        if (conteggio == null) {
+            conteggio = sottoarchivio.conta(filtro);
+            memorizza(conteggi, chiave, conteggio, attuale);
+        }
+        return conteggio;
+    }
+
+    /**
+     * @brief Restituisce una pagina degli elementi che soddisfano un filtro.
+     * @details Se il risultato completo non è memorizzato, la pagina viene
+     * chiesta al sotto-archivio e memorizzata da sola.
+     *
+     * @param[in] filtro Il filtro, null per tutti gli elementi.
+     * @param[in] offset Numero di elementi da saltare.
+     * @param[in] limite Numero massimo di elementi da restituire.
+     *
+     * @return La pagina richiesta.
+     * @throws IllegalArgumentException se offset o limite sono negativi.
+     */
+    List<T> pagina(InterfacciaFiltro<T> filtro, int offset, int limite) {
+        if (offset < 0 || limite < 0) { // Controllo parametri
+            throw new IllegalArgumentException("Offset e limite non possono essere negativi.");
+        }
+        String chiave = chiave(filtro);
+        if (chiave == null)
+            return sottoarchivio.pagina(filtro, offset, limite);
+        long attuale = sottoarchivio.getVersione();
+        List<T> risultato = memorizzato(risultati, chiave, attuale);
+        if (risultato == null)
+            return pagina(chiave, offset, limite, attuale, () -> sottoarchivio.pagina(filtro, offset, limite));
+        int inizio = Math.min(offset, risultato.size());
+        return new ArrayList<>(risultato.subList(inizio, (int) Math.min((long) inizio + limite, risultato.size())));
+    }
+
+    /**
+     * @brief Restituisce la pagina che segue un elemento dato.
+     * @details Il punto di partenza viene cercato con una ricerca binaria nel
+     * risultato, ordinato come il sotto-archivio. Senza risultato completo
+     * solo la prima pagina viene memorizzata, insieme a quelle di pagina().
+     *
+     * @param[in] filtro Il filtro, null per tutti gli elementi.
+     * @param[in] ultimo Ultimo elemento della pagina precedente, null per la prima pagina.
+     * @param[in] limite Numero massimo di elementi da restituire.
+     *
+     * @return La pagina richiesta.
+     * @throws IllegalArgumentException se il limite è negativo.
+     */
+    List<T> paginaDopo(InterfacciaFiltro<T> filtro, T ultimo, int limite) {
+        if (limite < 0) { // Controllo parametri
+            throw new IllegalArgumentException("Il limite non può essere negativo.");
+        }
+        String chiave = chiave(filtro);
+        if (chiave == null)
+            return sottoarchivio.paginaDopo(filtro, ultimo, limite);
+        long attuale = sottoarchivio.getVersione();
+        List<T> risultato = memorizzato(risultati, chiave, attuale);
+        if (risultato == null)
+            return (ultimo == null)
+                    ? pagina(chiave, 0, limite, attuale, () -> sottoarchivio.paginaDopo(filtro, null, limite))
+                    : sottoarchivio.paginaDopo(filtro, ultimo, limite);
+        int inizio = 0;
+        if (ultimo != null) {
+            int posizione = Collections.binarySearch(risultato, ultimo, null);  //null: ordinamento naturale, come nel TreeSet
+            inizio = (posizione >= 0) ? posizione + 1 : -posizione - 1;
+        }
+        return new ArrayList<>(risultato.subList(inizio, (int) Math.min((long) inizio + limite, risultato.size())));
+    }
+
+    /**
+     * @brief Restituisce una pagina memorizzata, calcolandola se manca.
+     * @details
+     * @param[in] chiave Descrizione del filtro.
+     * @param[in] offset Numero di elementi saltati.
+     * @param[in] limite Numero massimo di elementi.
+     * @param[in] attuale Versione del sotto-archivio letta dal chiamante.
+     * @param[in] calcolo Calcola la pagina sul sotto-archivio.
+     *
+     * @return Una copia della pagina.
+     */
+    private List<T> pagina(String chiave, int offset, int limite, long attuale, Supplier<List<T>> calcolo) {
+        String chiavePagina = chiave + "@" + offset + "+" + limite;
+        List<T> pagina = memorizzato(pagine, chiavePagina, attuale);
+        if (pagina == null) {
+            pagina = Collections.unmodifiableList(calcolo.get());
+            memorizza(pagine, chiavePagina, pagina, attuale);
+        }
+        return new ArrayList<>(pagina);
+    }
+
+    private String chiave(InterfacciaFiltro<T> filtro) {
+        return (filtro == null) ? TUTTI : filtro.descrizione();
+    }
+
+    private <V> V memorizzato(Map<String, V> valori, String chiave, long attuale) {
+        synchronized (risultati) {
+            if (versione != attuale) {  //il sotto-archivio è cambiato: i valori memorizzati non valgono più
+                risultati.clear();
+                conteggi.clear();
+                pagine.clear();
+                versione = attuale;
+            }
+            return valori.get(chiave);
+        }
+    }
+
+    private <V> void memorizza(Map<String, V> valori, String chiave, V valore, long attuale) {
+        synchronized (risultati) {
+            if (versione == attuale)    //un altro thread potrebbe aver già svuotato la cache per una versione successiva
+                valori.put(chiave, valore);
+        }
+    }
+
+    private static <V> Map<String, V> recenti() {
+        return new LinkedHashMap<>(16, 0.75f, true) {   //in ordine di accesso, per scartare il meno recente
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> piuVecchio) {
+                return size() > CAPACITA;
+            }
+        };
+    }
+}
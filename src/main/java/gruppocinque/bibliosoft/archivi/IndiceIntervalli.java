@@ -0,0 +1,98 @@
+/**
+ * @file IndiceIntervalli.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.archivi;
+
+import gruppocinque.bibliosoft.archivi.filtri.FiltroIntervallo;
+import gruppocinque.bibliosoft.archivi.filtri.InterfacciaFiltro;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * @brief Indice ordinato per data, per le ricerche su un intervallo di date.
+ * @details Gli elementi con una data compresa in un intervallo occupano un
+ * tratto contiguo della mappa ordinata, per cui la ricerca costa un accesso
+ * logaritmico più il numero di elementi trovati.
+ *
+ * Risponde ai FiltroIntervallo costruiti sulla stessa funzione della data.
+ * Gli elementi senza data non vengono indicizzati, coerentemente con il
+ * filtro che non li accetta.
+ *
+ * @tparam T Tipo dell'elemento indicizzato.
+ * @see FiltroIntervallo
+ */
+class IndiceIntervalli<T> implements InterfacciaIndiceRicerca<T> {
+    private final Function<? super T, LocalDate> chiave;   //data indicizzata, confrontata per identità con quella del filtro
+    private final NavigableMap<LocalDate, Set<T>> date = new TreeMap<>();  //data -> elementi
+    private final Map<T, LocalDate> dataPerElemento = new IdentityHashMap<>();  //elemento -> data con cui è indicizzato
+
+    /**
+     * @brief Costruisce un indice vuoto.
+     * @details
+     * @param[in] chiave Funzione che restituisce la data di un elemento;
+     * deve essere la stessa istanza usata dai filtri da servire.
+     */
+    IndiceIntervalli(Function<? super T, LocalDate> chiave) {
+        this.chiave = chiave;
+    }
+
+    @Override
+    public void aggiungi(T elemento) {
+        LocalDate data = chiave.apply(elemento);
+        if (data == null)
+            return;
+        dataPerElemento.put(elemento, data);
+        date.computeIfAbsent(data, d -> IndiceTestuale.nuovoInsieme()).add(elemento);
+    }
+
+    @Override
+    public void rimuovi(T elemento) {
+        LocalDate data = dataPerElemento.remove(elemento);
+        if (data == null)
+            return;
+        Set<T> elementi = date.get(data);
+        elementi.remove(elemento);
+        if (elementi.isEmpty())
+            date.remove(data);
+    }
+
+    /**
+     * @brief Restituisce gli elementi con data nell'intervallo cercato.
+     * @details Restituisce null se il filtro non è un FiltroIntervallo su
+     * questa data o se gli elementi trovati sono più della metà del totale.
+     *
+     * @param[in] filtro Il filtro dell'interrogazione.
+     *
+     * @return I candidati, oppure null.
+     */
+    @Override
+    public Collection<T> candidati(InterfacciaFiltro<T> filtro) {
+        if (!(filtro instanceof FiltroIntervallo) || ((FiltroIntervallo<T>) filtro).getChiave() != chiave)
+            return null;
+        FiltroIntervallo<T> intervallo = (FiltroIntervallo<T>) filtro;
+        if (intervallo.getDa() != null && intervallo.getA() != null && intervallo.getDa().isAfter(intervallo.getA()))
+            return IndiceTestuale.nuovoInsieme();   //intervallo vuoto
+
+        NavigableMap<LocalDate, Set<T>> tratto = date;
+        if (intervallo.getDa() != null)
+            tratto = tratto.tailMap(intervallo.getDa(), true);
+        if (intervallo.getA() != null)
+            tratto = tratto.headMap(intervallo.getA(), true);
+
+        Set<T> risultato = IndiceTestuale.nuovoInsieme();
+        for (Set<T> elementi : tratto.values()) {
+            risultato.addAll(elementi);
+            if (risultato.size() > dataPerElemento.size() / 2)
+                return null;    //intervallo poco selettivo: conviene la scansione
+        }
+        return risultato;
+    }
+}
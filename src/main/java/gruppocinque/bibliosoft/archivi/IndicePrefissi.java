@@ -0,0 +1,91 @@
+/**
+ * @file IndicePrefissi.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.archivi;
+
+import gruppocinque.bibliosoft.archivi.filtri.FiltroCodice;
+import gruppocinque.bibliosoft.archivi.filtri.InterfacciaFiltro;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * @brief Indice ordinato dei codici (es. ISBN, matricola) per ricerche esatte e per prefisso.
+ * @details Mantiene i codici in minuscolo in una mappa ordinata: gli elementi
+ * il cui codice inizia con un prefisso occupano un intervallo contiguo, per
+ * cui una ricerca per prefisso costa un accesso logaritmico più il numero di
+ * elementi trovati, e una ricerca esatta un solo accesso logaritmico.
+ *
+ * Risponde ai FiltroCodice costruiti sulla stessa funzione del codice.
+ *
+ * @tparam T Tipo dell'elemento indicizzato.
+ * @see FiltroCodice
+ */
+class IndicePrefissi<T> implements InterfacciaIndiceRicerca<T> {
+    private final Function<? super T, String> chiave;  //codice indicizzato, confrontata per identità con quella del filtro
+    private final NavigableMap<String, Set<T>> codici = new TreeMap<>();   //codice in minuscolo -> elementi
+    private final Map<T, String> codicePerElemento = new IdentityHashMap<>();  //elemento -> codice con cui è indicizzato
+
+    /**
+     * @brief Costruisce un indice vuoto.
+     * @details
+     * @param[in] chiave Funzione che restituisce il codice di un elemento;
+     * deve essere la stessa istanza usata dai filtri da servire.
+     */
+    IndicePrefissi(Function<? super T, String> chiave) {
+        this.chiave = chiave;
+    }
+
+    @Override
+    public void aggiungi(T elemento) {
+        String codice = chiave.apply(elemento).toLowerCase();
+        codicePerElemento.put(elemento, codice);
+        codici.computeIfAbsent(codice, c -> IndiceTestuale.nuovoInsieme()).add(elemento);
+    }
+
+    @Override
+    public void rimuovi(T elemento) {
+        String codice = codicePerElemento.remove(elemento);
+        if (codice == null)
+            return;
+        Set<T> elementi = codici.get(codice);
+        elementi.remove(elemento);
+        if (elementi.isEmpty())
+            codici.remove(codice);
+    }
+
+    /**
+     * @brief Restituisce gli elementi con il codice o il prefisso cercato.
+     * @details Restituisce null se il filtro non è un FiltroCodice su questa
+     * chiave o se gli elementi trovati sono più della metà del totale.
+     *
+     * @param[in] filtro Il filtro dell'interrogazione.
+     *
+     * @return I candidati, oppure null.
+     */
+    @Override
+    public Collection<T> candidati(InterfacciaFiltro<T> filtro) {
+        if (!(filtro instanceof FiltroCodice) || ((FiltroCodice<T>) filtro).getChiave() != chiave)
+            return null;
+        FiltroCodice<T> filtroCodice = (FiltroCodice<T>) filtro;
+        String cercato = filtroCodice.getCodice().toLowerCase();
+
+        if (!filtroCodice.isPrefisso())
+            return codici.getOrDefault(cercato, Collections.emptySet());
+
+        Set<T> risultato = IndiceTestuale.nuovoInsieme();
+        for (Set<T> elementi : codici.subMap(cercato, true, cercato + Character.MAX_VALUE, false).values()) {
+            risultato.addAll(elementi);
+            if (risultato.size() > codicePerElemento.size() / 2)
+                return null;    //prefisso poco selettivo: conviene la scansione
+        }
+        return risultato;
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * @file IndiceSecondario.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.archivi;
+
+import gruppocinque.bibliosoft.archivi.filtri.FiltroCodice;
+import gruppocinque.bibliosoft.archivi.filtri.InterfacciaFiltro;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * @brief Indice secondario che raggruppa gli elementi per una chiave non univoca.
+ * @details Associa a ogni chiave (es. matricola dell'utente o ISBN del libro
+ * di un prestito) l'insieme ordinato degli elementi che la condividono, così
+ * che la ricerca di tutti gli elementi con una data chiave non richieda la
+ * scansione dell'intero sotto-archivio.
+ *
+ * Registrato come indice di ricerca di un Sottoarchivio, viene mantenuto
+ * dal sotto-archivio a ogni modifica e risponde ai FiltroCodice esatti
+ * costruiti sulla stessa funzione della chiave (es.
+ * FiltroPrestito.ricercaMatricola()).
+ *
+ * La chiave di un elemento deve restare invariata finché l'elemento è
+ * indicizzato.
+ *
+ * @invariant {@code gruppi} non contiene insiemi vuoti.
+ *
+ * @tparam K Tipo della chiave.
+ * @tparam T Tipo dell'elemento, deve implementare Comparable.
+ * @see FiltroCodice
+ */
+class IndiceSecondario<K, T> implements InterfacciaIndiceRicerca<T> {
+    private final Map<K, NavigableSet<T>> gruppi = new HashMap<>();  //elementi raggruppati per chiave, nell'ordinamento naturale
+    private final Function<? super T, K> estrattoreChiave;  //funzione che restituisce la chiave di un elemento, confrontata per identità con quella del filtro
+
+    /**
+     * @brief Costruisce un indice vuoto.
+     * @details
+     * @param[in] estrattoreChiave Funzione che restituisce la chiave di un
+     * elemento; per servire dei filtri deve essere la stessa istanza usata da essi.
+     */
+    IndiceSecondario(Function<? super T, K> estrattoreChiave) {
+        this.estrattoreChiave = estrattoreChiave;
+    }
+
+    @Override
+    public void aggiungi(T elemento) {
+        gruppi.computeIfAbsent(estrattoreChiave.apply(elemento), k -> new TreeSet<>()).add(elemento);
+    }
+
+    @Override
+    public void rimuovi(T elemento) {   //se il gruppo della chiave resta vuoto viene eliminato
+        K chiave = estrattoreChiave.apply(elemento);
+        NavigableSet<T> gruppo = gruppi.get(chiave);
+        if (gruppo == null)
+            return;
+        gruppo.remove(elemento);
+        if (gruppo.isEmpty())
+            gruppi.remove(chiave);
+    }
+
+    /**
+     * @brief Restituisce gli elementi con il codice cercato.
+     * @details Restituisce null se il filtro non è un FiltroCodice esatto su
+     * questa chiave. Il gruppo viene restituito senza copiarlo, già
+     * nell'ordinamento del sotto-archivio.
+     *
+     * @param[in] filtro Il filtro dell'interrogazione.
+     *
+     * @return I candidati, oppure null.
+     */
+    @Override
+    public Collection<T> candidati(InterfacciaFiltro<T> filtro) {
+        if (!(filtro instanceof FiltroCodice))
+            return null;
+        FiltroCodice<T> filtroCodice = (FiltroCodice<T>) filtro;
+        if (filtroCodice.getChiave() != (Object) estrattoreChiave || filtroCodice.isPrefisso())
+            return null;
+        NavigableSet<T> gruppo = gruppi.get(filtroCodice.getCodice());
+        return (gruppo == null) ? Collections.emptyNavigableSet() : Collections.unmodifiableNavigableSet(gruppo);
+    }
+
+    /**
+     * @brief Restituisce gli elementi con la chiave indicata.
+     * @details
+     * @param[in] chiave La chiave cercata.
+     *
+     * @return Lista ordinata degli elementi, vuota se non ce ne sono.
+     * @post {@code risultato != null}
+     */
+    List<T> cerca(K chiave) {
+        NavigableSet<T> gruppo = gruppi.get(chiave);
+        return (gruppo == null) ? new ArrayList<>() : new ArrayList<>(gruppo);
+    }
+
+    /**
+     * @brief Restituisce il numero di elementi con la chiave indicata.
+     * @details
+     * @param[in] chiave La chiave cercata.
+     *
+     * @return Il numero di elementi.
+     */
+    int conta(K chiave) {
+        return gruppi.getOrDefault(chiave, Collections.emptyNavigableSet()).size();
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * @file IndiceStati.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.archivi;
+
+import gruppocinque.bibliosoft.archivi.filtri.FiltroStato;
+import gruppocinque.bibliosoft.archivi.filtri.InterfacciaFiltro;
+import gruppocinque.bibliosoft.modelli.Prestito;
+import gruppocinque.bibliosoft.modelli.StatoPrestito;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * @brief Partizione dei prestiti per StatoPrestito.
+ * @details Per ogni stato mantiene l'insieme ordinato (per data prevista,
+ * come il sotto-archivio) dei prestiti in quello stato. Un FiltroStato su un
+ * solo stato viene servito con l'insieme stesso, senza copie né ordinamenti,
+ * per cui il costo dell'interrogazione dipende dai soli prestiti in quello
+ * stato e non dall'intero storico; per più stati gli insiemi vengono fusi.
+ *
+ * Lo stato con cui ogni prestito è indicizzato viene ricordato, così la
+ * rimozione è corretta anche se lo stato è stato cambiato in place (es. da
+ * registraRestituzione()) prima di modificaPrestito().
+ *
+ * @see FiltroStato
+ */
+class IndiceStati implements InterfacciaIndiceRicerca<Prestito> {
+    private final Map<StatoPrestito, NavigableSet<Prestito>> prestitiPerStato = new EnumMap<>(StatoPrestito.class);  //stato -> prestiti ordinati
+    private final Map<Prestito, StatoPrestito> statoPerPrestito = new IdentityHashMap<>();  //prestito -> stato con cui è indicizzato
+
+    /**
+     * @brief Costruisce un indice vuoto.
+     */
+    IndiceStati() {
+        for (StatoPrestito stato : StatoPrestito.values())
+            prestitiPerStato.put(stato, new TreeSet<>());
+    }
+
+    @Override
+    public void aggiungi(Prestito prestito) {
+        statoPerPrestito.put(prestito, prestito.getStato());
+        prestitiPerStato.get(prestito.getStato()).add(prestito);
+    }
+
+    @Override
+    public void rimuovi(Prestito prestito) {
+        StatoPrestito stato = statoPerPrestito.remove(prestito);
+        if (stato != null)
+            prestitiPerStato.get(stato).remove(prestito);   //data prevista e id non cambiano: la posizione nel TreeSet è ancora valida
+    }
+
+    /**
+     * @brief Restituisce i prestiti negli stati cercati.
+     * @details Restituisce null se il filtro non è un FiltroStato o se, con più
+     * stati, i prestiti trovati sono più della metà del totale (la scansione
+     * costa meno della fusione).
+     *
+     * @param[in] filtro Il filtro dell'interrogazione.
+     *
+     * @return I candidati, oppure null.
+     */
+    @Override
+    public Collection<Prestito> candidati(InterfacciaFiltro<Prestito> filtro) {
+        if (!(filtro instanceof FiltroStato))
+            return null;
+        Set<StatoPrestito> stati = ((FiltroStato) filtro).getStati();
+        if (stati.size() == 1)
+            return prestiti(stati.iterator().next());
+
+        int totale = 0;
+        for (StatoPrestito stato : stati)
+            totale += prestitiPerStato.get(stato).size();
+        if (totale > statoPerPrestito.size() / 2)
+            return null;
+        NavigableSet<Prestito> fusi = new TreeSet<>();
+        for (StatoPrestito stato : stati)
+            fusi.addAll(prestitiPerStato.get(stato));
+        return fusi;
+    }
+
+    /**
+     * @brief Restituisce i prestiti in uno stato.
+     * @details
+     * @param[in] stato Lo stato richiesto.
+     *
+     * @return Vista non modificabile dei prestiti, ordinati per data prevista.
+     */
+    NavigableSet<Prestito> prestiti(StatoPrestito stato) {
+        return Collections.unmodifiableNavigableSet(prestitiPerStato.get(stato));
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * @file IndiceTestuale.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.archivi;
+
+import gruppocinque.bibliosoft.archivi.filtri.FiltroTestuale;
+import gruppocinque.bibliosoft.archivi.filtri.InterfacciaFiltro;
+import gruppocinque.bibliosoft.strumenti.Normalizzatore;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * @brief Indice invertito per parole sui campi testuali degli elementi.
+ * @details Ogni campo (es. titolo, autori e ISBN di un libro) viene
+ * normalizzato (vedi Normalizzatore) e suddiviso in parole, cioè sequenze
+ * massimali di lettere e cifre; per ogni parola l'indice mantiene l'insieme
+ * degli elementi che la contengono.
+ *
+ * Risponde ai FiltroTestuale costruiti sulla stessa funzione dei campi. Anche
+ * il testo cercato viene suddiviso in parole: se un campo contiene il testo,
+ * ogni parola del testo è contenuta in una parola del campo, e in
+ * particolare:
+ * * una parola delimitata da separatori su entrambi i lati coincide con una
+ *   parola del campo (ricerca puntuale nel dizionario);
+ * * una parola preceduta da un separatore è prefisso di una parola del campo
+ *   (intervallo del dizionario ordinato);
+ * * negli altri casi la parola è suffisso o sottostringa di una parola del
+ *   campo (scansione del dizionario, più piccolo dell'insieme degli elementi).
+ *
+ * I candidati sono l'intersezione, su tutte le parole del testo, degli
+ * elementi associati alle parole del dizionario compatibili; il sotto-archivio
+ * li verifica poi con il filtro, per cui il risultato coincide con quello
+ * della scansione completa.
+ *
+ * Gli elementi sono gestiti per identità (i modelli non ridefiniscono
+ * hashCode) e per ognuno vengono ricordate le parole indicizzate, così la
+ * rimozione è corretta anche se l'elemento è stato modificato in place.
+ *
+ * @tparam T Tipo dell'elemento indicizzato.
+ * @see FiltroTestuale
+ */
+class IndiceTestuale<T> implements InterfacciaIndiceRicerca<T> {
+    private final Function<? super T, ? extends Iterable<String>> campi; //campi indicizzati, confrontata per identità con quella del filtro
+    private final NavigableMap<String, Set<T>> dizionario = new TreeMap<>(); //parola -> elementi che la contengono
+    private final Map<T, Set<String>> parolePerElemento = new IdentityHashMap<>(); //elemento -> parole con cui è indicizzato
+
+    /**
+     * @brief Costruisce un indice vuoto.
+     * @details
+     * @param[in] campi Funzione che restituisce i campi testuali di un
+     * elemento; deve essere la stessa istanza usata dai filtri da servire.
+     */
+    IndiceTestuale(Function<? super T, ? extends Iterable<String>> campi) {
+        this.campi = campi;
+    }
+
+    @Override
+    public void aggiungi(T elemento) {
+        Set<String> parole = new HashSet<>();
+        for (String campo : campi.apply(elemento))
+            parole.addAll(parole(Normalizzatore.normalizza(campo)));
+        parolePerElemento.put(elemento, parole);
+        for (String parola : parole)
+            dizionario.computeIfAbsent(parola, p -> nuovoInsieme()).add(elemento);
+    }
+
+    @Override
+    public void rimuovi(T elemento) {
+        Set<String> parole = parolePerElemento.remove(elemento);
+        if (parole == null)
+            return;
+        for (String parola : parole) {
+            Set<T> elementi = dizionario.get(parola);
+            elementi.remove(elemento);
+            if (elementi.isEmpty())
+                dizionario.remove(parola);
+        }
+    }
+
+    /**
+     * @brief Restituisce i candidati per una ricerca testuale.
+     * @details Restituisce null se il filtro non è un FiltroTestuale su questi
+     * campi, se il testo non contiene lettere o cifre o se i candidati sono
+     * più della metà degli elementi (in tal caso la scansione è più rapida).
+     *
+     * @param[in] filtro Il filtro dell'interrogazione.
+     *
+     * @return I candidati, oppure null.
+     */
+    @Override
+    public Collection<T> candidati(InterfacciaFiltro<T> filtro) {
+        if (!(filtro instanceof FiltroTestuale) || ((FiltroTestuale<T>) filtro).getCampi() != campi)
+            return null;
+        String testo = Normalizzatore.normalizza(((FiltroTestuale<T>) filtro).getTesto());
+
+        //per ogni parola del testo raccolgo gli elementi compatibili
+        List<Set<T>> gruppi = new ArrayList<>();
+        int i = 0;
+        while (i < testo.length()) {
+            while (i < testo.length() && !Character.isLetterOrDigit(testo.charAt(i)))
+                i++;
+            int inizio = i;
+            while (i < testo.length() && Character.isLetterOrDigit(testo.charAt(i)))
+                i++;
+            if (inizio == i)
+                continue;
+            Set<T> gruppo = elementiCon(testo.substring(inizio, i), inizio > 0, i < testo.length());
+            if (gruppo.isEmpty())
+                return Collections.emptySet();  //nessun elemento può soddisfare il filtro
+            gruppi.add(gruppo);
+        }
+        if (gruppi.isEmpty())
+            return null;
+
+        Set<T> risultato = interseca(gruppi);
+        return (risultato.size() > parolePerElemento.size() / 2) ? null : risultato;
+    }
+
+    /**
+     * @brief Restituisce gli elementi con una parola compatibile con quella cercata.
+     * @details
+     * @param[in] cercata Parola del testo cercato.
+     * @param[in] inizioParola true se nel testo cercato è preceduta da un separatore.
+     * @param[in] fineParola true se nel testo cercato è seguita da un separatore.
+     */
+    private Set<T> elementiCon(String cercata, boolean inizioParola, boolean fineParola) {
+        if (inizioParola && fineParola)
+            return dizionario.getOrDefault(cercata, Collections.emptySet());
+
+        Collection<Map.Entry<String, Set<T>>> voci = inizioParola
+                ? dizionario.subMap(cercata, true, cercata + Character.MAX_VALUE, false).entrySet()
+                : dizionario.entrySet();
+        Set<T> elementi = nuovoInsieme();
+        for (Map.Entry<String, Set<T>> voce : voci) {
+            String parola = voce.getKey();
+            if (inizioParola || (fineParola ? parola.endsWith(cercata) : parola.contains(cercata)))
+                elementi.addAll(voce.getValue());
+        }
+        return elementi;
+    }
+
+    /**
+     * @brief Suddivide un testo in minuscolo nelle sue parole.
+     * @details
+     * @param[in] testo Il testo da suddividere.
+     *
+     * @return Le sequenze massimali di lettere e cifre del testo.
+     */
+    static List<String> parole(String testo) {
+        List<String> parole = new ArrayList<>();
+        int inizio = -1;
+        for (int i = 0; i <= testo.length(); i++) {
+            boolean carattere = i < testo.length() && Character.isLetterOrDigit(testo.charAt(i));
+            if (carattere && inizio < 0)
+                inizio = i;
+            else if (!carattere && inizio >= 0) {
+                parole.add(testo.substring(inizio, i));
+                inizio = -1;
+            }
+        }
+        return parole;
+    }
+
+    /**
+     * @brief Interseca degli insiemi di elementi partendo dal più piccolo.
+     * @details
+     * @param[in] gruppi Gli insiemi da intersecare, almeno uno.
+     *
+     * @return Un nuovo insieme (per identità) con gli elementi comuni.
+     */
+    static <T> Set<T> interseca(List<Set<T>> gruppi) {
+        gruppi.sort(Comparator.comparingInt(Set::size));
+        Set<T> risultato = nuovoInsieme();
+        risultato.addAll(gruppi.get(0));
+        for (int g = 1; g < gruppi.size() && !risultato.isEmpty(); g++)
+            risultato.retainAll(gruppi.get(g));
+        return risultato;
+    }
+
+    /**
+     * @brief Crea un insieme vuoto che confronta gli elementi per identità.
+     */
+    static <T> Set<T> nuovoInsieme() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+}
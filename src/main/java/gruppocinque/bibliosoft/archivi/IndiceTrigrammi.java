@@ -0,0 +1,127 @@
+/**
+ * @file IndiceTrigrammi.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.archivi;
+
+import gruppocinque.bibliosoft.archivi.filtri.FiltroTestuale;
+import gruppocinque.bibliosoft.archivi.filtri.InterfacciaFiltro;
+import gruppocinque.bibliosoft.strumenti.Normalizzatore;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * @brief Indice per trigrammi che risponde alle ricerche per sottostringa.
+ * @details Ogni campo testuale (es. titolo, autori e ISBN di un libro; cognome
+ * e matricola di un utente) viene normalizzato (minuscolo, senza accenti) e
+ * scomposto in tutte le sue sottostringhe di tre caratteri, separatori
+ * compresi; per ogni trigramma l'indice mantiene l'insieme degli elementi che
+ * lo contengono.
+ *
+ * Risponde ai FiltroTestuale costruiti sulla stessa funzione dei campi e con
+ * un testo di almeno tre caratteri: se un campo contiene il testo cercato,
+ * contiene anche ciascuno dei suoi trigrammi, per cui i candidati sono
+ * l'intersezione degli elementi associati ai trigrammi del testo. I candidati
+ * vengono poi verificati dal sotto-archivio con il filtro, per cui il
+ * risultato coincide con quello della scansione completa.
+ *
+ * Per testi più corti restituisce null, lasciando rispondere gli altri indici
+ * o la scansione.
+ *
+ * @tparam T Tipo dell'elemento indicizzato.
+ * @see FiltroTestuale
+ * @see IndiceTestuale
+ */
+class IndiceTrigrammi<T> implements InterfacciaIndiceRicerca<T> {
+    private static final int LUNGHEZZA = 3; //lunghezza dei gram indicizzati
+
+    private final Function<? super T, ? extends Iterable<String>> campi; //campi indicizzati, confrontata per identità con quella del filtro
+    private final Map<String, Set<T>> trigrammi = new HashMap<>(); //trigramma -> elementi che lo contengono
+    private final Map<T, Set<String>> trigrammiPerElemento = new IdentityHashMap<>(); //elemento -> trigrammi con cui è indicizzato
+
+    /**
+     * @brief Costruisce un indice vuoto.
+     * @details
+     * @param[in] campi Funzione che restituisce i campi testuali di un
+     * elemento; deve essere la stessa istanza usata dai filtri da servire.
+     */
+    IndiceTrigrammi(Function<? super T, ? extends Iterable<String>> campi) {
+        this.campi = campi;
+    }
+
+    @Override
+    public void aggiungi(T elemento) {
+        Set<String> propri = new HashSet<>();
+        for (String campo : campi.apply(elemento))
+            propri.addAll(trigrammi(Normalizzatore.normalizza(campo)));
+        trigrammiPerElemento.put(elemento, propri);
+        for (String trigramma : propri)
+            trigrammi.computeIfAbsent(trigramma, t -> IndiceTestuale.nuovoInsieme()).add(elemento);
+    }
+
+    @Override
+    public void rimuovi(T elemento) {
+        Set<String> propri = trigrammiPerElemento.remove(elemento);
+        if (propri == null)
+            return;
+        for (String trigramma : propri) {
+            Set<T> elementi = trigrammi.get(trigramma);
+            elementi.remove(elemento);
+            if (elementi.isEmpty())
+                trigrammi.remove(trigramma);
+        }
+    }
+
+    /**
+     * @brief Restituisce i candidati per una ricerca per sottostringa.
+     * @details Restituisce null se il filtro non è un FiltroTestuale su questi
+     * campi, se il testo è più corto di tre caratteri o se i candidati sono
+     * più della metà degli elementi.
+     *
+     * @param[in] filtro Il filtro dell'interrogazione.
+     *
+     * @return I candidati, oppure null.
+     */
+    @Override
+    public Collection<T> candidati(InterfacciaFiltro<T> filtro) {
+        if (!(filtro instanceof FiltroTestuale) || ((FiltroTestuale<T>) filtro).getCampi() != campi)
+            return null;
+        String testo = Normalizzatore.normalizza(((FiltroTestuale<T>) filtro).getTesto());
+        if (testo.length() < LUNGHEZZA)
+            return null;
+
+        List<Set<T>> gruppi = new ArrayList<>();
+        for (String trigramma : trigrammi(testo)) {
+            Set<T> gruppo = trigrammi.get(trigramma);
+            if (gruppo == null)
+                return Collections.emptySet();  //nessun elemento contiene questo trigramma
+            gruppi.add(gruppo);
+        }
+
+        Set<T> risultato = IndiceTestuale.interseca(gruppi);
+        return (risultato.size() > trigrammiPerElemento.size() / 2) ? null : risultato;
+    }
+
+    /**
+     * @brief Restituisce i trigrammi distinti di un testo.
+     * @details
+     * @param[in] testo Il testo, già normalizzato.
+     *
+     * @return Le sottostringhe di tre caratteri del testo.
+     */
+    static Set<String> trigrammi(String testo) {
+        Set<String> risultato = new HashSet<>();
+        for (int i = 0; i + LUNGHEZZA <= testo.length(); i++)
+            risultato.add(testo.substring(i, i + LUNGHEZZA));
+        return risultato;
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * @file InterfacciaIndiceRicerca.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.archivi;
+
+import gruppocinque.bibliosoft.archivi.filtri.InterfacciaFiltro;
+import java.util.Collection;
+
+/**
+ * @brief Indice di ricerca mantenuto da un Sottoarchivio.
+ * @details Il sotto-archivio notifica all'indice ogni elemento aggiunto o
+ * rimosso e, per ogni interrogazione filtrata, chiede all'indice l'insieme
+ * degli elementi candidati. I candidati vengono poi verificati con il filtro,
+ * per cui l'indice può restituire elementi in più ma mai ometterne uno che
+ * soddisfa il filtro.
+ *
+ * @tparam T Tipo dell'elemento indicizzato.
+ * @see Sottoarchivio
+ */
+interface InterfacciaIndiceRicerca<T> {
+
+    /**
+     * @brief Indicizza un elemento appena aggiunto al sotto-archivio.
+     * @details
+     * @param[in] elemento L'elemento aggiunto.
+     */
+    void aggiungi(T elemento);
+
+    /**
+     * @brief Rimuove dall'indice un elemento tolto dal sotto-archivio.
+     * @details L'istanza è quella passata ad aggiungi(), anche se modificata
+     * in place nel frattempo.
+     *
+     * @param[in] elemento L'elemento rimosso.
+     */
+    void rimuovi(T elemento);
+
+    /**
+     * @brief Restituisce i candidati a soddisfare un filtro.
+     * @details Se i candidati sono un NavigableSet nell'ordinamento naturale
+     * degli elementi, il sotto-archivio li scorre senza copiarli: l'indice non
+     * deve modificarli finché l'interrogazione è in corso.
+     *
+     * @param[in] filtro Il filtro dell'interrogazione, non null.
+     *
+     * @return Un insieme che contiene tutti gli elementi che soddisfano il
+     * filtro, oppure null se l'indice non è in grado di rispondere (o se
+     * conviene la scansione completa).
+     */
+    Collection<T> candidati(InterfacciaFiltro<T> filtro);
+}
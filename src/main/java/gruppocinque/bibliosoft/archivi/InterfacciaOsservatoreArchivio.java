@@ -0,0 +1,41 @@
+/**
+ * @file InterfacciaOsservatoreArchivio.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.archivi;
+
+/**
+ * @brief Interfaccia per gli osservatori delle modifiche all'archivio.
+ * @details Un osservatore registrato presso l'Archivio riceve una notifica per
+ * ogni operazione di aggiunta, modifica o rimozione andata a buon fine su
+ * Libri, Utenti e Prestiti. Viene utilizzata, ad esempio, dal giornale delle
+ * modifiche per rendere persistente ogni operazione nel momento in cui avviene.
+ *
+ * @see Archivio
+ */
+public interface InterfacciaOsservatoreArchivio {
+
+    /**
+     * @brief Tipologia dell'operazione eseguita sull'archivio.
+     */
+    enum Operazione {
+        AGGIUNTA,
+        MODIFICA,
+        RIMOZIONE
+    }
+
+    /**
+     * @brief Notifica un'operazione avvenuta sull'archivio.
+     * @details Viene invocato dall'Archivio dopo che l'operazione è stata
+     * applicata al sotto-archivio corrispondente. Non deve lanciare eccezioni:
+     * l'operazione non verrebbe annullata e gli osservatori successivi non
+     * riceverebbero la notifica.
+     *
+     * @param[in] operazione Il tipo di operazione eseguita.
+     * @param[in] elemento L'elemento coinvolto (Libro, Utente o Prestito).
+     *
+     * @pre {@code operazione != null && elemento != null}
+     */
+    void notifica(Operazione operazione, Object elemento);
+}
@@ -6,7 +6,9 @@
 package gruppocinque.bibliosoft.archivi;
 
 import gruppocinque.bibliosoft.archivi.filtri.InterfacciaFiltro;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * @brief Interfaccia generica per la gestione di un sotto-archivio.
@@ -33,6 +35,19 @@ public interface InterfacciaSottoarchivio<T> {
      */
     void aggiungi(T elemento);
 
+    /**
+     * @brief Aggiunge più elementi in un'unica operazione.
+     * @details Gli elementi già presenti o ripetuti non vengono aggiunti, senza
+     * interrompere l'operazione.
+     *
+     * @param[in] nuovi Gli elementi da aggiungere. Non devono essere null.
+     *
+     * @return Gli elementi effettivamente aggiunti.
+     *
+     * @throws NullPointerException se uno degli elementi è null.
+     */
+    List<T> aggiungiTutti(Collection<? extends T> nuovi);
+
     /**
      * @brief Modifica un elemento esistente nell'archivio.
      * @details L'operazione sostituisce l'elemento esistente con la nuova
@@ -88,6 +103,19 @@ public interface InterfacciaSottoarchivio<T> {
      */
     List<T> cerca(InterfacciaFiltro<T> filtro);
 
+    /**
+     * @brief Restituisce l'elemento con la chiave primaria indicata.
+     * @details La chiave è quella univoca dell'elemento (ISBN per i libri,
+     * matricola per gli utenti, id per i prestiti).
+     *
+     * @param[in] chiave La chiave primaria cercata.
+     *
+     * @return L'elemento corrispondente, oppure null se non presente.
+     *
+     * @post Il ritorno, se non null, ha chiave uguale a {@code chiave}.
+     */
+    T trova(String chiave);
+
     /**
      * @brief Conta il numero totale di elementi presenti.
      * @details
@@ -96,4 +124,88 @@ public interface InterfacciaSottoarchivio<T> {
      * @post {@code risultato >= 0}
      */
     int conta();
+
+    /**
+     * @brief Conta gli elementi che soddisfano un filtro.
+     * @details A differenza di {@code cerca(filtro).size()} non costruisce la
+     * lista dei risultati.
+     *
+     * @param[in] filtro Il criterio di filtraggio. Se null, conta tutti gli elementi.
+     *
+     * @return Il numero di elementi che soddisfano il filtro.
+     *
+     * @post {@code risultato >= 0}
+     */
+    int conta(InterfacciaFiltro<T> filtro);
+
+    /**
+     * @brief Verifica se almeno un elemento soddisfa un filtro.
+     * @details La scansione si interrompe al primo elemento trovato.
+     *
+     * @param[in] filtro Il criterio di filtraggio. Se null, verifica che
+     * l'archivio non sia vuoto.
+     *
+     * @return true se esiste almeno un elemento che soddisfa il filtro.
+     */
+    boolean esiste(InterfacciaFiltro<T> filtro);
+
+    /**
+     * @brief Restituisce il primo elemento, nell'ordinamento dell'archivio,
+     * che soddisfa un filtro.
+     * @details La scansione si interrompe al primo elemento trovato.
+     *
+     * @param[in] filtro Il criterio di filtraggio. Se null, restituisce il
+     * primo elemento dell'archivio.
+     *
+     * @return Il primo elemento che soddisfa il filtro, oppure null se nessuno lo soddisfa.
+     */
+    T primo(InterfacciaFiltro<T> filtro);
+
+    /**
+     * @brief Restituisce una pagina degli elementi che soddisfano un filtro.
+     * @details Gli elementi seguono l'ordinamento dell'archivio; vengono
+     * scartati i primi {@code offset} elementi che soddisfano il filtro e
+     * restituiti al più {@code limite} elementi successivi.
+     *
+     * @param[in] filtro Il criterio di filtraggio. Se null, considera tutti gli elementi.
+     * @param[in] offset Numero di elementi da saltare.
+     * @param[in] limite Numero massimo di elementi da restituire.
+     *
+     * @return La pagina richiesta, eventualmente vuota.
+     *
+     * @pre {@code offset >= 0 && limite >= 0}
+     * @post {@code risultato.size() <= limite}
+     * @throws IllegalArgumentException se offset o limite sono negativi.
+     */
+    List<T> pagina(InterfacciaFiltro<T> filtro, int offset, int limite);
+
+    /**
+     * @brief Restituisce la pagina di elementi successiva a un elemento dato.
+     * @details Paginazione a cursore: la pagina parte dal primo elemento che
+     * segue {@code ultimo} nell'ordinamento dell'archivio, senza scorrere le
+     * pagine precedenti.
+     *
+     * @param[in] filtro Il criterio di filtraggio. Se null, considera tutti gli elementi.
+     * @param[in] ultimo L'ultimo elemento della pagina precedente, oppure null
+     * per la prima pagina.
+     * @param[in] limite Numero massimo di elementi da restituire.
+     *
+     * @return La pagina richiesta, eventualmente vuota.
+     *
+     * @pre {@code limite >= 0}
+     * @post {@code risultato.size() <= limite}
+     * @throws IllegalArgumentException se il limite è negativo.
+     */
+    List<T> paginaDopo(InterfacciaFiltro<T> filtro, T ultimo, int limite);
+
+    /**
+     * @brief Restituisce un flusso sequenziale degli elementi, in ordine.
+     * @details Il flusso scorre direttamente la collezione senza copiarla:
+     * l'archivio non deve essere modificato finché il flusso non è consumato.
+     *
+     * @return Flusso degli elementi nell'ordinamento dell'archivio.
+     *
+     * @post {@code risultato != null}
+     */
+    Stream<T> flusso();
 }
@@ -5,12 +5,21 @@
  */
 package gruppocinque.bibliosoft.archivi;
 
+import gruppocinque.bibliosoft.archivi.filtri.FiltroComposto;
 import gruppocinque.bibliosoft.archivi.filtri.InterfacciaFiltro;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @brief Implementazione concreta di un sotto-archivio in memoria.
@@ -18,8 +27,29 @@ import java.util.TreeSet;
  * automaticamente in base al loro ordinamento naturale (interfaccia
  * Comparable). Gestisce la persistenza in memoria volatile delle entità.
  *
+ * Se costruito con un estrattore di chiave, mantiene inoltre un indice hash
+ * dalla chiave primaria (es. ISBN, matricola, id) all'elemento, che rende la
+ * ricerca puntuale tramite trova() a tempo costante.
+ *
+ * Possono essere registrati indici di ricerca (vedi InterfacciaIndiceRicerca)
+ * mantenuti a ogni aggiunta, modifica e rimozione. Le interrogazioni filtrate
+ * vengono pianificate sulla struttura del filtro (FiltroComposto e filtri
+ * riconosciuti dagli indici): se il piano individua dei candidati vengono
+ * esaminati solo quelli, nell'ordine del sotto-archivio, altrimenti si
+ * ricorre alla scansione completa. Le lambda sono sempre valutate per
+ * scansione.
+ *
+ * Quando gli elementi da esaminare sono almeno getSogliaParallela(), cerca()
+ * e conta() valutano il filtro in parallelo sul ForkJoinPool comune: il
+ * TreeSet viene suddiviso tramite il proprio spliterator e i risultati
+ * vengono ricomposti nell'ordine del sotto-archivio. I filtri devono quindi
+ * poter essere valutati da più thread contemporaneamente (i filtri di
+ * FiltroLibro, FiltroUtente e FiltroPrestito non hanno stato).
+ *
  * @invariant {@code elementi != null}
  * @invariant {@code elementi non contiene duplicati}
+ * @invariant Se {@code estrattoreChiave != null}, {@code indice} contiene
+ * esattamente gli elementi di {@code elementi}, ciascuno alla propria chiave.
  *
  * @tparam T Tipo dell'elemento, deve implementare Comparable per l'ordinamento nel TreeSet.
  * @see InterfacciaSottoarchivio
@@ -30,7 +60,45 @@ public class Sottoarchivio<T> implements InterfacciaSottoarchivio<T> {
      * @brief Collezione ordinata degli elementi.
      * @details Utilizza un TreeSet per garantire l'ordinamento e l'unicità.
      */
-    protected Set<T> elementi = new TreeSet<>(); ;
+    protected NavigableSet<T> elementi = new TreeSet<>(); ;
+
+    /**
+     * @brief Indice hash degli elementi per chiave primaria.
+     * @details Vuoto se il sotto-archivio è stato costruito senza estrattore di chiave.
+     */
+    protected final Map<String, T> indice = new HashMap<>();
+
+    private final Function<? super T, String> estrattoreChiave;   //funzione che restituisce la chiave primaria di un elemento (null se non indicizzato)
+    private final List<InterfacciaIndiceRicerca<T>> indiciRicerca = new ArrayList<>();    //indici consultati dalle interrogazioni filtrate
+    private volatile int sogliaParallela = SOGLIA_PARALLELA;  //elementi da esaminare oltre i quali cerca() e conta() procedono in parallelo
+    private long versione = 0;  //incrementata a ogni aggiunta, modifica o rimozione
+
+    /**
+     * @brief Soglia predefinita per la valutazione parallela dei filtri.
+     * @details Sotto questa dimensione il costo di suddividere il lavoro supera
+     * il guadagno.
+     */
+    public static final int SOGLIA_PARALLELA = 20_000;
+
+    /**
+     * @brief Costruisce un sotto-archivio senza indice per chiave.
+     * @details Su un sotto-archivio così costruito trova() non è supportato.
+     */
+    public Sottoarchivio() {
+        this(null);
+    }
+
+    /**
+     * @brief Costruisce un sotto-archivio indicizzato per chiave primaria.
+     * @details
+     * @param[in] estrattoreChiave Funzione che restituisce la chiave univoca di
+     * un elemento (es. {@code Libro::getIsbn}).
+     *
+     * @post trova() restituisce gli elementi in tempo costante.
+     */
+    public Sottoarchivio(Function<? super T, String> estrattoreChiave) {
+        this.estrattoreChiave = estrattoreChiave;
+    }
 
     /**
      * @brief Aggiunge un elemento alla collezione verificando l'unicità.
@@ -49,10 +117,100 @@ public class Sottoarchivio<T> implements InterfacciaSottoarchivio<T> {
             throw new NullPointerException("Impossibile aggiungere un elemento nullo.");
         }
         
+        // Con l'indice verifico l'unicità della chiave prima di toccare il TreeSet
+        if (estrattoreChiave != null && indice.containsKey(estrattoreChiave.apply(elemento))) {
+            throw new IllegalStateException(elemento.getClass().getSimpleName() + " già presente.");
+        }
+
         // Uso il valore di ritorno di add() per verificare l'unicità in modo efficiente
         if (!elementi.add(elemento)) {
             throw new IllegalStateException(elemento.getClass().getSimpleName() + " già presente.");
         }
+
+        if (estrattoreChiave != null) {
+            indice.put(estrattoreChiave.apply(elemento), elemento);
+        }
+        for (InterfacciaIndiceRicerca<T> indiceRicerca : indiciRicerca)
+            indiceRicerca.aggiungi(elemento);
+        versione++;
+    }
+
+    /**
+     * @brief Aggiunge più elementi in un'unica operazione.
+     * @details Pensato per le importazioni massive (vedi ServizioImportazione).
+     * Gli elementi vengono ordinati e confrontati con quelli già presenti: gli
+     * elementi già presenti (stessa chiave o uguali secondo l'ordinamento) e
+     * quelli ripetuti all'interno di {@code nuovi} non vengono aggiunti, senza
+     * che l'operazione venga interrotta.
+     *
+     * Gli elementi vengono inseriti nel TreeSet in ordine crescente, con un
+     * solo incremento di versione e un solo aggiornamento degli indici per
+     * l'intero blocco.
+     *
+     * @param[in] nuovi Gli elementi da aggiungere, in qualsiasi ordine (se già
+     * ordinati l'ordinamento costa un solo passaggio).
+     *
+     * @return Gli elementi effettivamente aggiunti, nell'ordine del sotto-archivio.
+     *
+     * @post L'archivio contiene tutti gli elementi restituiti.
+     *
+     * @throws NullPointerException se {@code nuovi} contiene null; in questo
+     * caso nessun elemento viene aggiunto.
+     */
+    @Override
+    public List<T> aggiungiTutti(Collection<? extends T> nuovi) {
+        List<T> ordinati = new ArrayList<>(nuovi);
+        for (T elemento : ordinati)
+            if (elemento == null)
+                throw new NullPointerException("Impossibile aggiungere un elemento nullo.");
+        ordinati.sort(null);    //ordinamento naturale, come quello del TreeSet
+
+        // Scarto i duplicati per chiave (già presenti o ripetuti) e per ordinamento (adiacenti dopo l'ordinamento)
+        List<T> accettati = new ArrayList<>(ordinati.size());
+        Set<String> chiavi = new HashSet<>();
+        for (T elemento : ordinati) {
+            if (estrattoreChiave != null) {
+                String chiave = estrattoreChiave.apply(elemento);
+                if (indice.containsKey(chiave) || !chiavi.add(chiave))
+                    continue;
+            }
+            if (!accettati.isEmpty() && confronta(accettati.get(accettati.size() - 1), elemento) == 0)
+                continue;
+            accettati.add(elemento);
+        }
+        if (accettati.isEmpty())
+            return accettati;
+
+        accettati.removeIf(elemento -> !elementi.add(elemento));    //scarto anche gli elementi uguali (secondo l'ordinamento) a uno presente
+
+        for (T elemento : accettati) {
+            if (estrattoreChiave != null)
+                indice.put(estrattoreChiave.apply(elemento), elemento);
+            for (InterfacciaIndiceRicerca<T> indiceRicerca : indiciRicerca)
+                indiceRicerca.aggiungi(elemento);
+        }
+        versione++;
+        return accettati;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> int confronta(T primo, T secondo) {
+        return ((Comparable<? super T>) primo).compareTo(secondo);
+    }
+
+    /**
+     * @brief Registra un indice di ricerca.
+     * @details L'indice viene popolato con gli elementi già presenti e
+     * mantenuto a ogni modifica successiva.
+     *
+     * @param[in] indiceRicerca L'indice da registrare.
+     *
+     * @post Le interrogazioni filtrate possono usare l'indice.
+     */
+    void aggiungiIndice(InterfacciaIndiceRicerca<T> indiceRicerca) {
+        for (T elemento : elementi)
+            indiceRicerca.aggiungi(elemento);
+        indiciRicerca.add(indiceRicerca);
     }
 
     /**
@@ -72,16 +230,33 @@ public class Sottoarchivio<T> implements InterfacciaSottoarchivio<T> {
             throw new NullPointerException("Impossibile rimuovere un elemento nullo.");
         }
         
+        if (estrattoreChiave != null) {
+            // Con l'indice ritrovo l'istanza memorizzata e la rimuovo dal TreeSet
+            T presente = indice.remove(estrattoreChiave.apply(elemento));
+            if (presente == null) {
+                throw new NoSuchElementException(elemento.getClass().getSimpleName() + " non trovato nell'archivio.");
+            }
+            rimuoviIstanza(presente);
+            rimuoviDagliIndici(presente);
+            versione++;
+            return;
+        }
+
+        // Ritrovo l'istanza memorizzata, necessaria per aggiornare gli indici di ricerca
+        T presente = istanzaPresente(elemento);
         // Controllo se l'elemento è stato rimosso (cioè se era presente)
         if (!elementi.remove(elemento)) {
             throw new NoSuchElementException(elemento.getClass().getSimpleName() + " non trovato nell'archivio.");
         }
+        rimuoviDagliIndici(presente);
+        versione++;
     }
 
     /**
      * @brief Esegue una ricerca filtrata sugli elementi.
      * @details Itera sulla collezione e applica il metodo filtra
-     * dell'interfaccia InterfacciaFiltro.
+     * dell'interfaccia InterfacciaFiltro; oltre la soglia parallela la
+     * valutazione è suddivisa tra più thread.
      * @param[in] filtro criterio di filtraggio. Se null, restituisce tutti gli
      * elementi.
      *
@@ -92,9 +267,13 @@ public class Sottoarchivio<T> implements InterfacciaSottoarchivio<T> {
         if (filtro == null) { // Gestione filtro null
             return lista();
         }
+        NavigableSet<T> candidati = daEsaminare(filtro);
+        if (candidati.size() >= sogliaParallela)  //collezione grande: valuto il filtro in parallelo mantenendo l'ordine
+            return candidati.parallelStream().filter(filtro::filtra).collect(Collectors.toList());
+
          List<T> risultati = new ArrayList<>();  //creo una lista per il risultato della ricerca
         
-        for(T elemento : elementi)  //per ogni elemento della collezzione...
+        for(T elemento : candidati)  //per ogni elemento candidato della collezzione...
             if(filtro.filtra(elemento))  //controllo se rispetta il filtro
                 risultati.add(elemento);    //lo aggiungo alla lista dei risultati
         
@@ -122,6 +301,260 @@ public class Sottoarchivio<T> implements InterfacciaSottoarchivio<T> {
         return elementi.size();
     }
 
+    /**
+     * @brief Conta gli elementi che soddisfano il filtro.
+     * @details Scorre la collezione senza costruire la lista dei risultati;
+     * oltre la soglia parallela il conteggio è suddiviso tra più thread.
+     * @param[in] filtro criterio di filtraggio. Se null, conta tutti gli
+     * elementi.
+     *
+     * @return Numero di elementi che soddisfano il filtro.
+     * @post {@code risultato >= 0}
+     */
+    public int conta(InterfacciaFiltro<T> filtro) {
+        if (filtro == null) { // Gestione filtro null
+            return conta();
+        }
+        NavigableSet<T> candidati = daEsaminare(filtro);
+        if (candidati.size() >= sogliaParallela)
+            return (int) candidati.parallelStream().filter(filtro::filtra).count();
+
+        int contatore = 0;
+        for (T elemento : candidati)
+            if (filtro.filtra(elemento))
+                contatore++;
+        return contatore;
+    }
+
+    /**
+     * @brief Verifica se almeno un elemento soddisfa il filtro.
+     * @details Si interrompe al primo elemento che soddisfa il filtro.
+     * @param[in] filtro criterio di filtraggio. Se null, verifica che la
+     * collezione non sia vuota.
+     *
+     * @return true se esiste almeno un elemento che soddisfa il filtro.
+     */
+    public boolean esiste(InterfacciaFiltro<T> filtro) {
+        return primo(filtro) != null;
+    }
+
+    /**
+     * @brief Restituisce il primo elemento che soddisfa il filtro.
+     * @details Gli elementi sono esaminati in ordine; la scansione si
+     * interrompe al primo elemento che soddisfa il filtro.
+     * @param[in] filtro criterio di filtraggio. Se null, restituisce il primo
+     * elemento della collezione.
+     *
+     * @return Il primo elemento trovato, oppure null.
+     */
+    public T primo(InterfacciaFiltro<T> filtro) {
+        for (T elemento : daEsaminare(filtro))
+            if (filtro == null || filtro.filtra(elemento))
+                return elemento;
+        return null;
+    }
+
+    /**
+     * @brief Restituisce una pagina degli elementi che soddisfano il filtro.
+     * @details Scorre la collezione in ordine fermandosi a pagina completa;
+     * viene copiata solo la pagina restituita.
+     * @param[in] filtro criterio di filtraggio. Se null, considera tutti gli
+     * elementi.
+     * @param[in] offset Numero di elementi da saltare.
+     * @param[in] limite Numero massimo di elementi da restituire.
+     *
+     * @return Lista con al più {@code limite} elementi.
+     * @throws IllegalArgumentException se offset o limite sono negativi.
+     */
+    public List<T> pagina(InterfacciaFiltro<T> filtro, int offset, int limite) {
+        if (offset < 0 || limite < 0) { // Controllo parametri
+            throw new IllegalArgumentException("Offset e limite non possono essere negativi.");
+        }
+        return raccogli(daEsaminare(filtro), filtro, offset, limite);
+    }
+
+    /**
+     * @brief Restituisce la pagina di elementi che segue un elemento dato.
+     * @details La ricerca del punto di partenza nel TreeSet è logaritmica,
+     * indipendentemente da quante pagine precedono quella richiesta.
+     * @param[in] filtro criterio di filtraggio. Se null, considera tutti gli
+     * elementi.
+     * @param[in] ultimo Ultimo elemento della pagina precedente (null per la
+     * prima pagina).
+     * @param[in] limite Numero massimo di elementi da restituire.
+     *
+     * @return Lista con al più {@code limite} elementi.
+     * @throws IllegalArgumentException se il limite è negativo.
+     */
+    public List<T> paginaDopo(InterfacciaFiltro<T> filtro, T ultimo, int limite) {
+        if (limite < 0) { // Controllo parametri
+            throw new IllegalArgumentException("Il limite non può essere negativo.");
+        }
+        NavigableSet<T> candidati = daEsaminare(filtro);
+        NavigableSet<T> successivi = (ultimo == null) ? candidati : candidati.tailSet(ultimo, false);
+        return raccogli(successivi, filtro, 0, limite);
+    }
+
+    /**
+     * @brief Restituisce la versione del contenuto.
+     * @details La versione cambia a ogni aggiunta, modifica o rimozione: due
+     * letture con la stessa versione vedono gli stessi elementi.
+     *
+     * @return Il numero di modifiche eseguite finora.
+     */
+    public long getVersione() {
+        return versione;
+    }
+
+    /**
+     * @brief Restituisce la soglia per la valutazione parallela dei filtri.
+     * @details
+     * @return Il numero minimo di elementi da esaminare perché cerca() e
+     * conta() procedano in parallelo.
+     */
+    public int getSogliaParallela() {
+        return sogliaParallela;
+    }
+
+    /**
+     * @brief Imposta la soglia per la valutazione parallela dei filtri.
+     * @details Con {@code Integer.MAX_VALUE} la valutazione è sempre
+     * sequenziale.
+     *
+     * @param[in] soglia Il numero minimo di elementi da esaminare.
+     *
+     * @pre {@code soglia > 0}
+     * @throws IllegalArgumentException se la soglia non è positiva.
+     */
+    public void setSogliaParallela(int soglia) {
+        if (soglia <= 0) { // Controllo parametri
+            throw new IllegalArgumentException("La soglia deve essere positiva.");
+        }
+        this.sogliaParallela = soglia;
+    }
+
+    /**
+     * @brief Restituisce un flusso sequenziale degli elementi ordinati.
+     * @details Il flusso legge direttamente dal TreeSet, senza copie; la
+     * collezione non deve essere modificata finché il flusso è in uso.
+     *
+     * @return Flusso degli elementi.
+     * @post {@code risultato != null}
+     */
+    public Stream<T> flusso() {
+        return elementi.stream();
+    }
+
+    /**
+     * @brief Restituisce gli elementi da esaminare per un filtro.
+     * @details Se il piano dell'interrogazione (vedi pianifica()) individua dei
+     * candidati, questi vengono ordinati come nel sotto-archivio (a meno che
+     * non lo siano già, come per IndiceStati); altrimenti
+     * restituisce l'intera collezione. In entrambi i casi il chiamante
+     * verifica ogni elemento con l'intero filtro, per cui le condizioni non
+     * coperte dagli indici vengono applicate come filtro residuo.
+     */
+    private NavigableSet<T> daEsaminare(InterfacciaFiltro<T> filtro) {
+        if (filtro == null)
+            return elementi;
+        Collection<T> candidati = pianifica(filtro);
+        if (candidati == null)
+            return elementi;
+        if (candidati instanceof NavigableSet && ((NavigableSet<T>) candidati).comparator() == null)
+            return (NavigableSet<T>) candidati;  //già nell'ordinamento naturale: nessuna copia
+        NavigableSet<T> ordinati = new TreeSet<>();
+        ordinati.addAll(candidati);
+        return ordinati;
+    }
+
+    /**
+     * @brief Pianifica un'interrogazione sugli indici di ricerca.
+     * @details Visita la struttura del filtro:
+     * * una congiunzione (FiltroComposto E) usa i candidati dell'operando più
+     *   selettivo, cioè quello con meno candidati; gli altri operandi restano
+     *   filtro residuo;
+     * * una disgiunzione (FiltroComposto O) usa l'unione dei candidati degli
+     *   operandi, purché tutti abbiano un indice e l'unione non superi la metà
+     *   degli elementi;
+     * * una negazione non è pianificabile: i candidati del complemento non
+     *   sono noti;
+     * * ogni altro filtro viene proposto agli indici nell'ordine di
+     *   registrazione e vale la risposta del primo che lo riconosce. Le
+     *   lambda non sono riconosciute da alcun indice.
+     *
+     * @param[in] filtro Il filtro da pianificare.
+     *
+     * @return Un insieme che contiene tutti gli elementi che soddisfano il
+     * filtro, oppure null se occorre la scansione completa.
+     */
+    private Collection<T> pianifica(InterfacciaFiltro<T> filtro) {
+        if (!(filtro instanceof FiltroComposto))
+            return candidatiDaIndice(filtro);
+
+        FiltroComposto<T> composto = (FiltroComposto<T>) filtro;
+        switch (composto.getOperatore()) {
+            case E: {
+                Collection<T> migliori = null;
+                for (InterfacciaFiltro<T> operando : composto.getOperandi()) {
+                    Collection<T> candidati = pianifica(operando);
+                    if (candidati != null && (migliori == null || candidati.size() < migliori.size()))
+                        migliori = candidati;
+                    if (migliori != null && migliori.isEmpty())
+                        break;  //nessun elemento può soddisfare la congiunzione
+                }
+                return migliori;
+            }
+            case O: {
+                Set<T> unione = IndiceTestuale.nuovoInsieme();
+                for (InterfacciaFiltro<T> operando : composto.getOperandi()) {
+                    Collection<T> candidati = pianifica(operando);
+                    if (candidati == null)
+                        return null;    //un operando richiede la scansione, quindi anche l'unione
+                    unione.addAll(candidati);
+                    if (unione.size() > elementi.size() / 2)
+                        return null;
+                }
+                return unione;
+            }
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @brief Restituisce i candidati proposti dal primo indice che riconosce il filtro.
+     */
+    private Collection<T> candidatiDaIndice(InterfacciaFiltro<T> filtro) {
+        for (InterfacciaIndiceRicerca<T> indiceRicerca : indiciRicerca) {
+            Collection<T> candidati = indiceRicerca.candidati(filtro);
+            if (candidati != null)
+                return candidati;
+        }
+        return null;
+    }
+
+    /**
+     * @brief Raccoglie al più {@code limite} elementi filtrati dopo averne saltati {@code offset}.
+     */
+    private List<T> raccogli(Iterable<T> sorgente, InterfacciaFiltro<T> filtro, int offset, int limite) {
+        List<T> risultati = new ArrayList<>(Math.min(limite, 256));
+        if (limite == 0)
+            return risultati;
+        int saltati = 0;
+        for (T elemento : sorgente) {
+            if (filtro != null && !filtro.filtra(elemento))
+                continue;
+            if (saltati < offset) {
+                saltati++;
+                continue;
+            }
+            risultati.add(elemento);
+            if (risultati.size() == limite)
+                break;
+        }
+        return risultati;
+    }
+
     /**
      * @brief Modifica un elemento aggiornandone i dati.
      * @details Poiché gli elementi sono in un Set, la modifica richiede la
@@ -135,6 +568,8 @@ public class Sottoarchivio<T> implements InterfacciaSottoarchivio<T> {
      * @post L'elemento nell'archivio è aggiornato con i nuovi dati.
      * 
      * @throws NoSuchElementException se l'elemento da modificare non esiste.
+     * @throws IllegalStateException se i nuovi dati coincidono con quelli di
+     * un altro elemento (solo per sotto-archivi indicizzati).
      * @throws NullPointerException se l'elemento è null.
      */
     public void modifica(T elemento) {
@@ -142,6 +577,26 @@ public class Sottoarchivio<T> implements InterfacciaSottoarchivio<T> {
             throw new NullPointerException("Impossibile modificare un elemento nullo.");
         }
 
+        if (estrattoreChiave != null) {
+            // Con l'indice ritrovo la versione memorizzata, anche se è un'istanza diversa
+            String chiave = estrattoreChiave.apply(elemento);
+            T presente = indice.get(chiave);
+            if (presente == null) {
+                throw new NoSuchElementException(elemento.getClass().getSimpleName() + " non trovato nell'archivio.");
+            }
+            rimuoviIstanza(presente);
+            if (!elementi.add(elemento)) {
+                // I nuovi dati collidono con un altro elemento: ripristino la versione precedente
+                elementi.add(presente);
+                throw new IllegalStateException(elemento.getClass().getSimpleName() + " già presente.");
+            }
+            indice.put(chiave, elemento);
+            sostituisciNegliIndici(presente, elemento);
+            versione++;
+            return;
+        }
+
+        T presente = istanzaPresente(elemento);
         // Rimuovo il vecchio oggetto. Se remove ritorna false, l'oggetto non esisteva.
         if (!elementi.remove(elemento)) {
              throw new NoSuchElementException(elemento.getClass().getSimpleName() + " non trovato nell'archivio.");
@@ -149,5 +604,56 @@ public class Sottoarchivio<T> implements InterfacciaSottoarchivio<T> {
 
         //Aggiungo il nuovo oggetto
         elementi.add(elemento);
+        sostituisciNegliIndici(presente, elemento);
+        versione++;
+    }
+
+    /**
+     * @brief Restituisce l'elemento con la chiave primaria indicata.
+     * @details Ricerca a tempo costante tramite l'indice hash.
+     *
+     * @param[in] chiave La chiave primaria cercata.
+     *
+     * @return L'elemento corrispondente, oppure null se non presente.
+     *
+     * @throws UnsupportedOperationException se il sotto-archivio non è indicizzato.
+     */
+    public T trova(String chiave) {
+        if (estrattoreChiave == null) {
+            throw new UnsupportedOperationException("Sotto-archivio senza indice per chiave.");
+        }
+        return (chiave == null) ? null : indice.get(chiave);
+    }
+
+    /**
+     * @brief Rimuove dal TreeSet un'istanza già presente.
+     * @details Se l'istanza è stata modificata in place dopo l'inserimento, la
+     * sua posizione nel TreeSet può non corrispondere più all'ordinamento: in
+     * quel caso la rimozione avviene per identità con una scansione.
+     */
+    private void rimuoviIstanza(T presente) {
+        if (!elementi.remove(presente)) {
+            elementi.removeIf(e -> e == presente);
+        }
+    }
+
+    /**
+     * @brief Restituisce l'istanza memorizzata uguale (secondo l'ordinamento) a un elemento.
+     */
+    private T istanzaPresente(T elemento) {
+        NavigableSet<T> uguali = elementi.subSet(elemento, true, elemento, true);
+        return uguali.isEmpty() ? null : uguali.first();
+    }
+
+    private void rimuoviDagliIndici(T presente) {
+        for (InterfacciaIndiceRicerca<T> indiceRicerca : indiciRicerca)
+            indiceRicerca.rimuovi(presente);
+    }
+
+    private void sostituisciNegliIndici(T presente, T nuovo) {
+        for (InterfacciaIndiceRicerca<T> indiceRicerca : indiciRicerca) {
+            indiceRicerca.rimuovi(presente);
+            indiceRicerca.aggiungi(nuovo);
+        }
     }
 }
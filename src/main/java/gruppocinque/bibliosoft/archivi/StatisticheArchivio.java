@@ -0,0 +1,171 @@
+/**
+ * @file StatisticheArchivio.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.archivi;
+
+import gruppocinque.bibliosoft.modelli.Libro;
+import gruppocinque.bibliosoft.modelli.Prestito;
+import gruppocinque.bibliosoft.modelli.StatoPrestito;
+import gruppocinque.bibliosoft.modelli.Utente;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @brief Contatori aggregati dell'archivio mantenuti in modo incrementale.
+ * @details Registrata come osservatore dell'Archivio, aggiorna a ogni
+ * aggiunta, modifica o rimozione i totali mostrati nella Dashboard (UC1):
+ * copie totali e disponibili, prestiti per stato e utenti con almeno un
+ * prestito attivo. La lettura dei contatori è quindi a tempo costante.
+ *
+ * Poiché libri e prestiti possono essere modificati in place prima della
+ * notifica, per ogni elemento viene ricordato l'ultimo valore notificato, così
+ * da poter calcolare la variazione da applicare ai totali.
+ *
+ * @invariant I contatori riflettono l'ultimo stato notificato di ogni elemento.
+ * @see Archivio
+ */
+public class StatisticheArchivio implements InterfacciaOsservatoreArchivio {
+    private final Archivio archivio;    //archivio osservato, usato per verificare la presenza degli utenti
+
+    private final Map<String, int[]> copiePerLibro = new HashMap<>();  //ISBN -> {copie totali, copie disponibili} notificate
+    private final Map<String, StatoPrestito> statoPerPrestito = new HashMap<>();    //id -> ultimo stato notificato
+    private final Map<String, Integer> attiviPerMatricola = new HashMap<>();    //matricola -> numero di prestiti attivi
+
+    private final int[] prestitiPerStato = new int[StatoPrestito.values().length]; //numero di prestiti per stato
+    private long copieTotali = 0;
+    private long copieDisponibili = 0;
+    private int utentiAttivi = 0;   //utenti presenti in archivio con almeno un prestito attivo
+
+    /**
+     * @brief Costruisce le statistiche di un archivio.
+     * @details Le statistiche devono essere registrate come osservatore prima
+     * di qualsiasi modifica all'archivio.
+     *
+     * @param[in] archivio L'archivio osservato.
+     */
+    StatisticheArchivio(Archivio archivio) {
+        this.archivio = archivio;
+    }
+
+    /**
+     * @brief Aggiorna i contatori in base all'operazione notificata.
+     * @details
+     * @param[in] operazione Il tipo di operazione.
+     * @param[in] elemento Libro, Utente o Prestito coinvolto.
+     */
+    @Override
+    public void notifica(Operazione operazione, Object elemento) {
+        if (elemento instanceof Libro)
+            aggiornaLibro(operazione, (Libro) elemento);
+        else if (elemento instanceof Utente)
+            aggiornaUtente(operazione, (Utente) elemento);
+        else if (elemento instanceof Prestito)
+            aggiornaPrestito(operazione, (Prestito) elemento);
+    }
+
+    /**
+     * @brief Aggiorna i totali delle copie.
+     */
+    private void aggiornaLibro(Operazione operazione, Libro libro) {
+        int[] precedenti = (operazione == Operazione.RIMOZIONE)
+                ? copiePerLibro.remove(libro.getIsbn())
+                : copiePerLibro.put(libro.getIsbn(), new int[]{libro.getCopieTotali(), libro.getCopieDisponibili()});
+        if (precedenti != null) {
+            copieTotali -= precedenti[0];
+            copieDisponibili -= precedenti[1];
+        }
+        if (operazione != Operazione.RIMOZIONE) {
+            copieTotali += libro.getCopieTotali();
+            copieDisponibili += libro.getCopieDisponibili();
+        }
+    }
+
+    /**
+     * @brief Aggiorna il numero di utenti attivi alla comparsa o rimozione di un utente.
+     */
+    private void aggiornaUtente(Operazione operazione, Utente utente) {
+        if (operazione == Operazione.MODIFICA || !attiviPerMatricola.containsKey(utente.getMatricola()))
+            return;
+        utentiAttivi += (operazione == Operazione.AGGIUNTA) ? 1 : -1;
+    }
+
+    /**
+     * @brief Aggiorna i prestiti per stato e i prestiti attivi dell'utente.
+     */
+    private void aggiornaPrestito(Operazione operazione, Prestito prestito) {
+        StatoPrestito precedente = (operazione == Operazione.RIMOZIONE)
+                ? statoPerPrestito.remove(prestito.getId())
+                : statoPerPrestito.put(prestito.getId(), prestito.getStato());
+        StatoPrestito attuale = (operazione == Operazione.RIMOZIONE) ? null : prestito.getStato();
+
+        if (precedente != null)
+            prestitiPerStato[precedente.ordinal()]--;
+        if (attuale != null)
+            prestitiPerStato[attuale.ordinal()]++;
+
+        int variazione = (isAttivo(attuale) ? 1 : 0) - (isAttivo(precedente) ? 1 : 0);
+        if (variazione != 0)
+            aggiornaAttivi(prestito.getUtente().getMatricola(), variazione);
+    }
+
+    /**
+     * @brief Aggiorna il numero di prestiti attivi di una matricola.
+     * @details Il numero di utenti attivi cambia solo quando una matricola
+     * presente in archivio passa da zero a uno o da uno a zero prestiti attivi.
+     */
+    private void aggiornaAttivi(String matricola, int variazione) {
+        int prima = attiviPerMatricola.getOrDefault(matricola, 0);
+        int dopo = prima + variazione;
+        if (dopo > 0)
+            attiviPerMatricola.put(matricola, dopo);
+        else
+            attiviPerMatricola.remove(matricola);
+
+        if ((prima == 0) != (dopo == 0) && archivio.trovaUtente(matricola) != null)
+            utentiAttivi += (dopo > 0) ? 1 : -1;
+    }
+
+    private static boolean isAttivo(StatoPrestito stato) {
+        return stato == StatoPrestito.IN_CORSO || stato == StatoPrestito.IN_RITARDO;
+    }
+
+    /**
+     * @brief Restituisce il totale delle copie fisiche dei libri in archivio.
+     * @details
+     * @return Somma delle copie totali.
+     */
+    public int getCopieTotali() {
+        return archivio.leggi(() -> (int) copieTotali);  //i contatori sono aggiornati con il lock in scrittura dell'archivio
+    }
+
+    /**
+     * @brief Restituisce il totale delle copie disponibili.
+     * @details
+     * @return Somma delle copie disponibili.
+     */
+    public int getCopieDisponibili() {
+        return archivio.leggi(() -> (int) copieDisponibili);
+    }
+
+    /**
+     * @brief Restituisce il numero di prestiti in uno stato.
+     * @details
+     * @param[in] stato Lo stato richiesto.
+     *
+     * @return Il numero di prestiti nello stato indicato.
+     */
+    public int getPrestiti(StatoPrestito stato) {
+        return archivio.leggi(() -> prestitiPerStato[stato.ordinal()]);
+    }
+
+    /**
+     * @brief Restituisce il numero di utenti con almeno un prestito attivo.
+     * @details
+     * @return Numero di utenti con prestiti in corso o in ritardo.
+     */
+    public int getUtentiAttivi() {
+        return archivio.leggi(() -> utentiAttivi);
+    }
+}
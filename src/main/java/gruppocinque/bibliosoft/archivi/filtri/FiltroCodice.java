@@ -0,0 +1,95 @@
+/**
+ * @file FiltroCodice.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.archivi.filtri;
+
+import java.util.function.Function;
+
+/**
+ * @brief Filtro per codice (es. ISBN o matricola) riconoscibile dagli indici dell'archivio.
+ * @details Seleziona gli elementi il cui codice coincide con quello cercato
+ * oppure inizia con esso. Oltre al predicato espone il codice cercato, il tipo
+ * di confronto e la funzione che restituisce il codice di un elemento, così
+ * che un indice costruito sulla stessa funzione possa rispondere senza
+ * scandire l'intero sotto-archivio.
+ *
+ * Il predicato deve accettare un elemento solo se il suo codice, in
+ * minuscolo, coincide con il codice cercato in minuscolo (o inizia con esso,
+ * per la ricerca per prefisso).
+ *
+ * @tparam T Il tipo di oggetto da filtrare.
+ * @see FiltroLibro#prefissoIsbn(String)
+ * @see FiltroUtente#prefissoMatricola(String)
+ */
+public class FiltroCodice<T> implements InterfacciaFiltro<T> {
+    private final String codice;    //codice (o prefisso) cercato
+    private final boolean prefisso; //true per la ricerca per prefisso, false per la corrispondenza esatta
+    private final Function<? super T, String> chiave;   //funzione che restituisce il codice di un elemento
+    private final InterfacciaFiltro<T> predicato;   //verifica esatta della corrispondenza
+    private final String descrizione;   //descrizione canonica, null se non descrivibile
+
+    /**
+     * @brief Costruisce un filtro per codice.
+     * @details
+     * @param[in] codice Il codice o il prefisso cercato.
+     * @param[in] prefisso true per la ricerca per prefisso.
+     * @param[in] chiave Funzione che restituisce il codice di un elemento.
+     * @param[in] predicato Il predicato di ricerca.
+     * @param[in] descrizione La descrizione canonica del filtro, oppure null.
+     *
+     * @pre {@code codice != null && chiave != null && predicato != null}
+     */
+    public FiltroCodice(String codice, boolean prefisso, Function<? super T, String> chiave, InterfacciaFiltro<T> predicato, String descrizione) {
+        this.codice = codice;
+        this.prefisso = prefisso;
+        this.chiave = chiave;
+        this.predicato = predicato;
+        this.descrizione = descrizione;
+    }
+
+    /**
+     * @brief Valuta il predicato di ricerca.
+     * @details
+     * @param[in] elemento L'oggetto da valutare.
+     *
+     * @return true se il codice dell'elemento corrisponde.
+     */
+    @Override
+    public boolean filtra(T elemento) {
+        return predicato.filtra(elemento);
+    }
+
+    @Override
+    public String descrizione() {
+        return descrizione;
+    }
+
+    /**
+     * @brief Restituisce il codice cercato.
+     * @details
+     * @return Il codice, così come passato al costruttore.
+     */
+    public String getCodice() {
+        return codice;
+    }
+
+    /**
+     * @brief Indica se la ricerca è per prefisso.
+     * @details
+     * @return true per la ricerca per prefisso, false per la corrispondenza esatta.
+     */
+    public boolean isPrefisso() {
+        return prefisso;
+    }
+
+    /**
+     * @brief Restituisce la funzione che estrae il codice di un elemento.
+     * @details
+     * @return La funzione del codice.
+     */
+    public Function<? super T, String> getChiave() {
+        return chiave;
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * @file FiltroComposto.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.archivi.filtri;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * @brief Combinazione logica (E, O, NON) di altri filtri.
+ * @details A differenza di una lambda che combina due filtri, un FiltroComposto
+ * espone l'operatore e gli operandi: il sotto-archivio può così esaminare la
+ * struttura dell'interrogazione e rispondere tramite gli indici degli
+ * operandi (vedi Sottoarchivio), verificando poi l'intero filtro sui soli
+ * candidati.
+ *
+ * @tparam T Il tipo di oggetto da filtrare.
+ * @see FiltroPrestito#ricercaAttiviMatricola(String)
+ */
+public class FiltroComposto<T> implements InterfacciaFiltro<T> {
+
+    /**
+     * @brief Operatore logico del filtro.
+     */
+    public enum Operatore {
+        E,  //tutti gli operandi devono essere soddisfatti
+        O,  //almeno un operando deve essere soddisfatto
+        NON //l'unico operando non deve essere soddisfatto
+    }
+
+    private final Operatore operatore;
+    private final List<InterfacciaFiltro<T>> operandi;
+
+    private FiltroComposto(Operatore operatore, List<InterfacciaFiltro<T>> operandi) {
+        this.operatore = operatore;
+        this.operandi = operandi;
+    }
+
+    /**
+     * @brief Crea un filtro soddisfatto se lo sono tutti gli operandi.
+     * @details La valutazione si interrompe al primo operando non soddisfatto.
+     *
+     * @param[in] operandi I filtri da combinare.
+     *
+     * @return Il filtro composto.
+     * @throws NullPointerException se un operando è null.
+     */
+    @SafeVarargs
+    public static <T> FiltroComposto<T> congiunzione(InterfacciaFiltro<T>... operandi) {
+        List<InterfacciaFiltro<T>> lista = new ArrayList<>(operandi.length);  //copia elemento per elemento: l'array varargs non esce dal metodo
+        for (InterfacciaFiltro<T> operando : operandi)
+            lista.add(Objects.requireNonNull(operando));
+        return new FiltroComposto<>(Operatore.E, Collections.unmodifiableList(lista));
+    }
+
+    /**
+     * @brief Crea un filtro soddisfatto se lo è almeno un operando.
+     * @details La valutazione si interrompe al primo operando soddisfatto.
+     *
+     * @param[in] operandi I filtri da combinare.
+     *
+     * @return Il filtro composto.
+     * @throws NullPointerException se un operando è null.
+     */
+    @SafeVarargs
+    public static <T> FiltroComposto<T> disgiunzione(InterfacciaFiltro<T>... operandi) {
+        List<InterfacciaFiltro<T>> lista = new ArrayList<>(operandi.length);  //come in congiunzione()
+        for (InterfacciaFiltro<T> operando : operandi)
+            lista.add(Objects.requireNonNull(operando));
+        return new FiltroComposto<>(Operatore.O, Collections.unmodifiableList(lista));
+    }
+
+    /**
+     * @brief Crea un filtro soddisfatto se l'operando non lo è.
+     * @details
+     * @param[in] operando Il filtro da negare.
+     *
+     * @return Il filtro composto.
+     * @throws NullPointerException se l'operando è null.
+     */
+    public static <T> FiltroComposto<T> negazione(InterfacciaFiltro<T> operando) {
+        return new FiltroComposto<>(Operatore.NON, List.of(operando));
+    }
+
+    /**
+     * @brief Valuta la combinazione degli operandi.
+     * @details
+     * @param[in] elemento L'oggetto da valutare.
+     *
+     * @return true se l'elemento soddisfa la combinazione.
+     */
+    @Override
+    public boolean filtra(T elemento) {
+        switch (operatore) {
+            case E:
+                for (InterfacciaFiltro<T> operando : operandi)
+                    if (!operando.filtra(elemento))
+                        return false;
+                return true;
+            case O:
+                for (InterfacciaFiltro<T> operando : operandi)
+                    if (operando.filtra(elemento))
+                        return true;
+                return false;
+            default:
+                return !operandi.get(0).filtra(elemento);
+        }
+    }
+
+    /**
+     * @brief Restituisce la descrizione canonica della combinazione.
+     * @details Ogni operando è preceduto dalla lunghezza della propria
+     * descrizione, così che descrizioni diverse non possano coincidere.
+     *
+     * @return La descrizione, oppure null se un operando non è descrivibile.
+     */
+    @Override
+    public String descrizione() {
+        StringBuilder risultato = new StringBuilder(operatore.name()).append('(');
+        for (InterfacciaFiltro<T> operando : operandi) {
+            String parte = operando.descrizione();
+            if (parte == null)
+                return null;
+            risultato.append(parte.length()).append(':').append(parte);
+        }
+        return risultato.append(')').toString();
+    }
+
+    /**
+     * @brief Restituisce l'operatore logico.
+     * @details
+     * @return L'operatore del filtro.
+     */
+    public Operatore getOperatore() {
+        return operatore;
+    }
+
+    /**
+     * @brief Restituisce gli operandi.
+     * @details
+     * @return Lista non modificabile degli operandi, uno solo per NON.
+     */
+    public List<InterfacciaFiltro<T>> getOperandi() {
+        return operandi;
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * @file FiltroIntervallo.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.archivi.filtri;
+
+import java.time.LocalDate;
+import java.util.function.Function;
+
+/**
+ * @brief Filtro sugli elementi con una data compresa in un intervallo.
+ * @details Gli estremi sono inclusi; un estremo null lascia l'intervallo
+ * aperto da quel lato. Espone la funzione che restituisce la data di un
+ * elemento, così che un indice costruito sulla stessa funzione possa
+ * rispondere senza scandire l'intero sotto-archivio.
+ *
+ * @tparam T Il tipo di oggetto da filtrare.
+ * @see FiltroPrestito#scadenzaTra(LocalDate, LocalDate)
+ */
+public class FiltroIntervallo<T> implements InterfacciaFiltro<T> {
+    private final Function<? super T, LocalDate> chiave;    //funzione che restituisce la data di un elemento
+    private final LocalDate da; //primo giorno incluso, null se illimitato
+    private final LocalDate a;  //ultimo giorno incluso, null se illimitato
+    private final String nomeChiave;    //nome della data nella descrizione, null se non descrivibile
+
+    /**
+     * @brief Costruisce un filtro per intervallo di date.
+     * @details
+     * @param[in] chiave Funzione che restituisce la data di un elemento.
+     * @param[in] da Primo giorno dell'intervallo, null se illimitato.
+     * @param[in] a Ultimo giorno dell'intervallo, null se illimitato.
+     * @param[in] nomeChiave Nome univoco della data (es. "FiltroPrestito.scadenza"),
+     * usato nella descrizione canonica; null se il filtro non va descritto.
+     *
+     * @pre {@code chiave != null}
+     */
+    public FiltroIntervallo(Function<? super T, LocalDate> chiave, LocalDate da, LocalDate a, String nomeChiave) {
+        this.chiave = chiave;
+        this.da = da;
+        this.a = a;
+        this.nomeChiave = nomeChiave;
+    }
+
+    /**
+     * @brief Verifica che la data dell'elemento cada nell'intervallo.
+     * @details Un elemento senza data non soddisfa il filtro.
+     *
+     * @param[in] elemento L'oggetto da valutare.
+     *
+     * @return true se la data è compresa tra gli estremi.
+     */
+    @Override
+    public boolean filtra(T elemento) {
+        LocalDate data = chiave.apply(elemento);
+        return data != null && (da == null || !data.isBefore(da)) && (a == null || !data.isAfter(a));
+    }
+
+    @Override
+    public String descrizione() {
+        return (nomeChiave == null) ? null : nomeChiave + ":" + da + ".." + a;
+    }
+
+    /**
+     * @brief Restituisce la funzione che estrae la data di un elemento.
+     * @details
+     * @return La funzione della data.
+     */
+    public Function<? super T, LocalDate> getChiave() {
+        return chiave;
+    }
+
+    /**
+     * @brief Restituisce il primo giorno dell'intervallo.
+     * @details
+     * @return Il primo giorno incluso, oppure null.
+     */
+    public LocalDate getDa() {
+        return da;
+    }
+
+    /**
+     * @brief Restituisce l'ultimo giorno dell'intervallo.
+     * @details
+     * @return L'ultimo giorno incluso, oppure null.
+     */
+    public LocalDate getA() {
+        return a;
+    }
+}
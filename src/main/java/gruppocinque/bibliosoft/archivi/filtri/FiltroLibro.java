@@ -6,6 +6,9 @@
     package gruppocinque.bibliosoft.archivi.filtri;
 
     import gruppocinque.bibliosoft.modelli.Libro;
+    import gruppocinque.bibliosoft.strumenti.Normalizzatore;
+    import java.util.List;
+    import java.util.function.Function;
 
     /**
      * @brief Classe di utilità per la creazione di filtri applicabili ai Libri.
@@ -17,13 +20,31 @@
      */
     public class FiltroLibro {
 
+        /**
+         * @brief Campi testuali su cui avviene la ricerca generica: titolo, autori e ISBN.
+         * @details Restituisce i campi già normalizzati mantenuti dal libro.
+         * Usata dall'archivio per costruire l'indice di ricerca sui libri.
+         */
+        public static final Function<Libro, List<String>> CAMPI_RICERCA = Libro::getChiaviRicerca;
+
+        /**
+         * @brief Codice su cui avvengono le ricerche per ISBN.
+         * @details Usata dall'archivio per costruire l'indice dei codici ISBN.
+         */
+        public static final Function<Libro, String> CHIAVE_ISBN = Libro::getIsbn;
+
         /**
          * @brief Genera un filtro per una ricerca testuale generica.
          * @details Cerca la corrispondenza della stringa fornita all'interno del
-         * titolo, dell'autore o del codice ISBN del libro. La ricerca è
-         * case-insensitive.Se il testo è nullo, vuoto o composto solo da spazi, 
+         * titolo, dell'autore o del codice ISBN del libro. La ricerca ignora
+         * maiuscole e accenti (vedi Normalizzatore): il testo viene normalizzato
+         * una sola volta e confrontato con i campi già normalizzati del libro.
+         * Se il testo è nullo, vuoto o composto solo da spazi, 
          * il filtro accetta tutti gli elementi.
          *
+         * Il filtro restituito è un FiltroTestuale sui CAMPI_RICERCA, per cui
+         * l'archivio può rispondere tramite il proprio indice di ricerca.
+         *
          * @param[in] testo La stringa da ricercare.
          * @return Un'istanza di InterfacciaFiltro che restituisce true se trova
          * corrispondenze, false altrimenti.
@@ -35,10 +56,10 @@
             }
 
             // Parte di filtraggio
-            String t = testo.toLowerCase();                       //applico il lowercase per rendere la stringa case-insensitive
-            return l ->  l.getTitolo().toLowerCase().contains(t)  //controllo per titolo
-                        || l.contieneAutore(testo)                //controllo per autore
-                        || l.getIsbn().toLowerCase().contains(t); //controllo per ISBN
+            String t = Normalizzatore.normalizza(testo);          //normalizzo il testo per ignorare maiuscole e accenti
+            return new FiltroTestuale<>(testo, CAMPI_RICERCA,
+                    l -> FiltroTestuale.contiene(l.getChiaviRicerca(), t), //controllo per titolo, autori e ISBN
+                    "FiltroLibro.ricerca:" + t);
 
         }
 
@@ -47,6 +68,9 @@
          * @details La ricerca è case-insensitive. Se il codice è nullo, vuoto o 
          * composto solo da spazi, il filtro accetta tutti gli elementi.
          *
+         * Il filtro restituito è un FiltroCodice su CHIAVE_ISBN, per cui
+         * l'archivio può rispondere tramite l'indice dei codici.
+         *
          * @param[in] codice Il codice ISBN da cercare.
          *
          * @return Un filtro che restituisce true se l'ISBN corrisponde.
@@ -57,6 +81,32 @@
                 return l -> true; // Filtro che accetta tutti i libri
             }
             // Parte di filtraggio
-            return l -> l.getIsbn().equalsIgnoreCase(codice);  //controllo per ISBN
+            return new FiltroCodice<>(codice, false, CHIAVE_ISBN,
+                    l -> l.getIsbn().equalsIgnoreCase(codice),  //controllo per ISBN
+                    "FiltroLibro.ricercaIsbn:" + codice);
+        }
+
+        /**
+         * @brief Genera un filtro per la ricerca dei libri il cui ISBN inizia con un prefisso.
+         * @details La ricerca è case-insensitive. Se il prefisso è nullo, vuoto o
+         * composto solo da spazi, il filtro accetta tutti gli elementi.
+         *
+         * Il filtro restituito è un FiltroCodice su CHIAVE_ISBN, per cui
+         * l'archivio può rispondere tramite l'indice dei codici.
+         *
+         * @param[in] prefisso L'inizio del codice ISBN da cercare.
+         *
+         * @return Un filtro che restituisce true se l'ISBN inizia con il prefisso.
+         */
+        public static InterfacciaFiltro<Libro> prefissoIsbn(String prefisso) {
+            // Gestione del caso limite: se la stringa è nulla o vuota, non filtra nulla.
+            if (prefisso == null || prefisso.trim().isEmpty()) {
+                return l -> true; // Filtro che accetta tutti i libri
+            }
+            // Parte di filtraggio
+            String p = prefisso.toLowerCase();
+            return new FiltroCodice<>(prefisso, true, CHIAVE_ISBN,
+                    l -> l.getIsbn().toLowerCase().startsWith(p),  //controllo per inizio dell'ISBN
+                    "FiltroLibro.prefissoIsbn:" + p);
         }
     }
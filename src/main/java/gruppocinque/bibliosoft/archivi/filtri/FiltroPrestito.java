@@ -7,23 +7,41 @@ package gruppocinque.bibliosoft.archivi.filtri;
 
 import gruppocinque.bibliosoft.modelli.Prestito;
 import gruppocinque.bibliosoft.modelli.StatoPrestito;
+import java.time.LocalDate;
+import java.util.function.Function;
 
 /**
  * @brief Classe di utilità per la creazione di filtri applicabili ai Prestiti.
  * @details Permette di filtrare i prestiti in base al loro stato (Concluso, In
  * Corso, In Ritardo) o in base alla matricola dell'utente associato.
  *
+ * I filtri restituiti sono strutturati (FiltroStato, FiltroCodice,
+ * FiltroIntervallo, FiltroComposto), così che l'archivio possa rispondere
+ * tramite i propri indici anziché scandire l'intero storico.
+ *
  * @see InterfacciaFiltro
  */
 public class FiltroPrestito {
 
+    /**
+     * @brief Codice su cui avvengono le ricerche per matricola dell'utente.
+     * @details Usata dall'archivio per costruire l'indice dei prestiti per matricola.
+     */
+    public static final Function<Prestito, String> CHIAVE_MATRICOLA = p -> p.getUtente().getMatricola();
+
+    /**
+     * @brief Data su cui avvengono le ricerche per scadenza.
+     * @details Usata dall'archivio per costruire l'indice delle date previste.
+     */
+    public static final Function<Prestito, LocalDate> CHIAVE_SCADENZA = Prestito::getDataPrevista;
+
     /**
      * @brief Crea un filtro per i prestiti conclusi.
      * @details
      * @return Un filtro che seleziona i prestiti con stato CONCLUSO.
      */
     public static InterfacciaFiltro<Prestito> filtraConclusi() {
-       return l -> l.getStato() == StatoPrestito.CONCLUSO;
+       return new FiltroStato(StatoPrestito.CONCLUSO);
     }
 
     /**
@@ -32,7 +50,7 @@ public class FiltroPrestito {
      * @return Un filtro che seleziona i prestiti con stato IN_CORSO.
      */
     public static InterfacciaFiltro<Prestito> filtraInCorso() {
-       return l -> l.getStato() == StatoPrestito.IN_CORSO;
+       return new FiltroStato(StatoPrestito.IN_CORSO);
     }
 
     /**
@@ -41,17 +59,17 @@ public class FiltroPrestito {
      * @return Un filtro che seleziona i prestiti con stato IN_RITARDO.
      */
     public static InterfacciaFiltro<Prestito> filtraInRitardo() {
-       return l -> l.getStato() == StatoPrestito.IN_RITARDO;
+       return new FiltroStato(StatoPrestito.IN_RITARDO);
     }
 
     /**
      * @brief Crea un filtro per tutti i prestiti attivi (In Corso oppure In Ritardo).
-     * @details Il filtro sfrutta la negazione dello stato CONCLUSO.
+     * @details Il filtro accetta tutti gli stati diversi da CONCLUSO.
      *
      * @return Un filtro che seleziona i prestiti non ancora conclusi.
      */
     public static InterfacciaFiltro<Prestito> filtraAttivi() {
-        return l -> l.getStato() != StatoPrestito.CONCLUSO;  //Se non concluso allora è attivo
+        return new FiltroStato(StatoPrestito.IN_CORSO, StatoPrestito.IN_RITARDO);  //Se non concluso allora è attivo
     }
 
     /**
@@ -68,7 +86,23 @@ public class FiltroPrestito {
             return l -> true;
         }
         // Filtraggio
-        return l -> l.getUtente().getMatricola().equals(matricola); //controllo per matricola
+        return new FiltroCodice<>(matricola, false, CHIAVE_MATRICOLA,
+                l -> l.getUtente().getMatricola().equals(matricola), //controllo per matricola
+                "FiltroPrestito.ricercaMatricola:" + matricola);
+    }
+
+    /**
+     * @brief Crea un filtro per i prestiti con data prevista di restituzione in un intervallo.
+     * @details Gli estremi sono inclusi; se un estremo è null l'intervallo è
+     * aperto da quel lato.
+     *
+     * @param[in] da Primo giorno dell'intervallo.
+     * @param[in] a Ultimo giorno dell'intervallo.
+     *
+     * @return Un filtro che seleziona i prestiti in scadenza nell'intervallo.
+     */
+    public static InterfacciaFiltro<Prestito> scadenzaTra(LocalDate da, LocalDate a) {
+        return new FiltroIntervallo<>(CHIAVE_SCADENZA, da, a, "FiltroPrestito.scadenza");
     }
 
     /**
@@ -86,6 +120,6 @@ public class FiltroPrestito {
         InterfacciaFiltro<Prestito> ricercaMatricola = ricercaMatricola(matricola); //Sfrutta ricercaMatricola per controllare se Matricola è null e restituire la lista completa
         InterfacciaFiltro<Prestito> filtraAttivi = filtraAttivi();
 
-        return l -> ricercaMatricola.filtra(l) && filtraAttivi.filtra(l); //controlla per prestiti attivi e matricola 
+        return FiltroComposto.congiunzione(ricercaMatricola, filtraAttivi); //controlla per prestiti attivi e matricola
     }
 }
@@ -0,0 +1,61 @@
+/**
+ * @file FiltroStato.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.archivi.filtri;
+
+import gruppocinque.bibliosoft.modelli.Prestito;
+import gruppocinque.bibliosoft.modelli.StatoPrestito;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * @brief Filtro sui prestiti in uno degli stati indicati.
+ * @details Espone gli stati accettati, così che l'archivio possa riconoscere
+ * il filtro e rispondere senza valutare un predicato opaco.
+ *
+ * @see FiltroPrestito#filtraAttivi()
+ */
+public class FiltroStato implements InterfacciaFiltro<Prestito> {
+    private final Set<StatoPrestito> stati; //stati accettati
+
+    /**
+     * @brief Costruisce un filtro sugli stati indicati.
+     * @details
+     * @param[in] primo Uno degli stati accettati.
+     * @param[in] altri Gli eventuali altri stati accettati.
+     *
+     * @pre {@code primo != null}
+     */
+    public FiltroStato(StatoPrestito primo, StatoPrestito... altri) {
+        this.stati = Collections.unmodifiableSet(EnumSet.of(primo, altri));
+    }
+
+    /**
+     * @brief Verifica lo stato del prestito.
+     * @details
+     * @param[in] prestito Il prestito da valutare.
+     *
+     * @return true se lo stato del prestito è tra quelli accettati.
+     */
+    @Override
+    public boolean filtra(Prestito prestito) {
+        return stati.contains(prestito.getStato());
+    }
+
+    @Override
+    public String descrizione() {
+        return "FiltroStato:" + stati;  //EnumSet elenca gli stati nell'ordine di dichiarazione
+    }
+
+    /**
+     * @brief Restituisce gli stati accettati.
+     * @details
+     * @return Insieme non modificabile degli stati.
+     */
+    public Set<StatoPrestito> getStati() {
+        return stati;
+    }
+}
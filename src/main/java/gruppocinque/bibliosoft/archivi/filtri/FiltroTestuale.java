@@ -0,0 +1,98 @@
+/**
+ * @file FiltroTestuale.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.archivi.filtri;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * @brief Filtro di ricerca testuale riconoscibile dagli indici dell'archivio.
+ * @details Oltre al predicato di ricerca, espone il testo cercato e la funzione
+ * che restituisce i campi testuali su cui la ricerca avviene. Un indice
+ * costruito sulla stessa funzione dei campi può così restringere la ricerca ai
+ * soli elementi candidati, verificati poi con il predicato.
+ *
+ * Il predicato deve accettare un elemento solo se almeno uno dei suoi campi,
+ * normalizzato con Normalizzatore.normalizza(), contiene il testo cercato
+ * normalizzato.
+ *
+ * @tparam T Il tipo di oggetto da filtrare.
+ * @see FiltroLibro#ricerca(String)
+ */
+public class FiltroTestuale<T> implements InterfacciaFiltro<T> {
+    private final String testo;   //testo cercato, così come inserito
+    private final Function<? super T, ? extends Iterable<String>> campi;  //campi su cui avviene la ricerca
+    private final InterfacciaFiltro<T> predicato;   //verifica esatta della corrispondenza
+    private final String descrizione;   //descrizione canonica, null se non descrivibile
+
+    /**
+     * @brief Costruisce un filtro testuale.
+     * @details
+     * @param[in] testo Il testo cercato.
+     * @param[in] campi Funzione che restituisce i campi testuali di un elemento.
+     * @param[in] predicato Il predicato di ricerca.
+     * @param[in] descrizione La descrizione canonica del filtro, oppure null.
+     *
+     * @pre {@code testo != null && campi != null && predicato != null}
+     */
+    public FiltroTestuale(String testo, Function<? super T, ? extends Iterable<String>> campi, InterfacciaFiltro<T> predicato, String descrizione) {
+        this.testo = testo;
+        this.campi = campi;
+        this.predicato = predicato;
+        this.descrizione = descrizione;
+    }
+
+    /**
+     * @brief Valuta il predicato di ricerca.
+     * @details
+     * @param[in] elemento L'oggetto da valutare.
+     *
+     * @return true se l'elemento corrisponde al testo cercato.
+     */
+    @Override
+    public boolean filtra(T elemento) {
+        return predicato.filtra(elemento);
+    }
+
+    @Override
+    public String descrizione() {
+        return descrizione;
+    }
+
+    /**
+     * @brief Restituisce il testo cercato.
+     * @details
+     * @return Il testo, così come passato al costruttore.
+     */
+    public String getTesto() {
+        return testo;
+    }
+
+    /**
+     * @brief Restituisce la funzione dei campi su cui avviene la ricerca.
+     * @details
+     * @return La funzione dei campi.
+     */
+    public Function<? super T, ? extends Iterable<String>> getCampi() {
+        return campi;
+    }
+
+    /**
+     * @brief Verifica se almeno un campo normalizzato contiene il testo normalizzato.
+     * @details Non alloca: campi e testo sono già normalizzati.
+     *
+     * @param[in] campi I campi normalizzati di un elemento.
+     * @param[in] testo Il testo cercato, normalizzato.
+     *
+     * @return true se un campo contiene il testo.
+     */
+    static boolean contiene(List<String> campi, String testo) {
+        for (String campo : campi)
+            if (campo.contains(testo))
+                return true;
+        return false;
+    }
+}
@@ -6,6 +6,9 @@
 package gruppocinque.bibliosoft.archivi.filtri;
 
 import gruppocinque.bibliosoft.modelli.Utente;
+import gruppocinque.bibliosoft.strumenti.Normalizzatore;
+import java.util.List;
+import java.util.function.Function;
 
 /**
  * @brief Classe di utilità per la creazione di filtri applicabili agli Utenti.
@@ -16,12 +19,28 @@ import gruppocinque.bibliosoft.modelli.Utente;
  */
 public class FiltroUtente {
 
+    /**
+     * @brief Campi testuali su cui avviene la ricerca generica: cognome e matricola.
+     * @details Restituisce i campi già normalizzati mantenuti dall'utente.
+     * Usata dall'archivio per costruire l'indice di ricerca sugli utenti.
+     */
+    public static final Function<Utente, List<String>> CAMPI_RICERCA = Utente::getChiaviRicerca;
+
+    /**
+     * @brief Codice su cui avvengono le ricerche per matricola.
+     * @details Usata dall'archivio per costruire l'indice delle matricole.
+     */
+    public static final Function<Utente, String> CHIAVE_MATRICOLA = Utente::getMatricola;
+
     /**
      * @brief Crea un filtro per la ricerca di un utente tramite corrispondenza
      * esatta della matricola.
      * @details La ricerca è case-insensitive. Se la matricola fornita è nulla, vuota 
      * o contiene solo spazi, il filtro accetta tutti gli elementi.
      *
+     * Il filtro restituito è un FiltroCodice su CHIAVE_MATRICOLA, per cui
+     * l'archivio può rispondere tramite l'indice delle matricole.
+     *
      * @param[in] matricola La matricola da cercare.
      *
      * @return Un filtro per la matricola specificata.
@@ -32,15 +51,45 @@ public class FiltroUtente {
             return l -> true; 
         }
         // Filtraggio
-        return l-> l.getMatricola().equals(matricola); //controlla per matricola
+        return new FiltroCodice<>(matricola, false, CHIAVE_MATRICOLA,
+                l-> l.getMatricola().equals(matricola), //controlla per matricola
+                "FiltroUtente.ricercaMatricola:" + matricola);
+    }
+
+    /**
+     * @brief Crea un filtro per la ricerca degli utenti la cui matricola inizia
+     * con un prefisso.
+     * @details Se il prefisso fornito è nullo, vuoto o contiene solo spazi, il
+     * filtro accetta tutti gli elementi.
+     *
+     * Il filtro restituito è un FiltroCodice su CHIAVE_MATRICOLA, per cui
+     * l'archivio può rispondere tramite l'indice delle matricole.
+     *
+     * @param[in] prefisso L'inizio della matricola da cercare.
+     *
+     * @return Un filtro che restituisce true se la matricola inizia con il prefisso.
+     */
+    public static InterfacciaFiltro<Utente> prefissoMatricola(String prefisso) {
+        // Gestione del caso limite: se la stringa è nulla o vuota, non filtra nulla.
+        if (prefisso == null || prefisso.trim().isEmpty()) {
+            return l -> true;
+        }
+        // Filtraggio
+        return new FiltroCodice<>(prefisso, true, CHIAVE_MATRICOLA,
+                l -> l.getMatricola().startsWith(prefisso), //controlla l'inizio della matricola
+                "FiltroUtente.prefissoMatricola:" + prefisso);
     }
 
     /**
      * @brief Crea un filtro per la ricerca generica su cognome o matricola.
      * @details Verifica se la stringa fornita è contenuta (parzialmente) nel
-     * cognome o nella matricola dell'utente. La ricerca è case-insensitive.
+     * cognome o nella matricola dell'utente. La ricerca ignora maiuscole e
+     * accenti (vedi Normalizzatore).
      * Se l'input è nullo, vuoto o composto solo da spazi, il filtro accetta tutti gli elementi.
      *
+     * Il filtro restituito è un FiltroTestuale sui CAMPI_RICERCA, per cui
+     * l'archivio può rispondere tramite il proprio indice di ricerca.
+     *
      * @param[in] stringaFiltro La stringa da cercare.
      *
      * @return Un filtro che restituisce true se la stringa è contenuta nel
@@ -53,15 +102,19 @@ public class FiltroUtente {
         }
         
         // FIltraggio
-        return l -> l.getCognome().toLowerCase().contains(stringaFiltro.toLowerCase()) //controlla per cognome
-                || l.getMatricola().contains(stringaFiltro);                           //controlla per matricola
+        String s = Normalizzatore.normalizza(stringaFiltro);    //normalizzo una sola volta, non per ogni utente
+        return new FiltroTestuale<>(stringaFiltro, CAMPI_RICERCA,
+                l -> FiltroTestuale.contiene(l.getChiaviRicerca(), s), //controlla per cognome e matricola
+                "FiltroUtente.ricerca:" + s);
     }
 
     /**
      * @brief Crea un filtro per la ricerca degli utenti che hanno prestiti
      * attivi.
      * @details Verifica se la lista dei prestiti attivi dell'utente non è
-     * vuota.
+     * vuota. La lista cambia senza che l'utente venga modificato in archivio,
+     * per cui il filtro non è descritto e i suoi risultati non vengono
+     * memorizzati.
      *
      * @return Un filtro che seleziona gli utenti con almeno un prestito in
      * corso o in ritardo.
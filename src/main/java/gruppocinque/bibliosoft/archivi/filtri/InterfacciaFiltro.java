@@ -24,4 +24,18 @@ public interface InterfacciaFiltro<T> {
      * @return true se l'elemento soddisfa la condizione, false altrimenti.
      */
     boolean filtra(T elemento);
+
+    /**
+     * @brief Restituisce la descrizione canonica del filtro.
+     * @details Due filtri con la stessa descrizione devono selezionare gli
+     * stessi elementi: l'archivio usa la descrizione come chiave per
+     * memorizzare i risultati delle interrogazioni (vedi CacheRicerche). I
+     * filtri restituiti da FiltroLibro, FiltroUtente e FiltroPrestito sono
+     * descritti; una lambda non lo è e viene sempre valutata.
+     *
+     * @return La descrizione, oppure null se il filtro non è descrivibile.
+     */
+    default String descrizione() {
+        return null;
+    }
 }
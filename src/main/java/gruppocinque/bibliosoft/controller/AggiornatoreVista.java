@@ -0,0 +1,106 @@
+/**
+ * @file AggiornatoreVista.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.controller;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javafx.application.Platform;
+
+/**
+ * @brief Esegue in background l'interrogazione di una vista e ne pubblica il
+ * risultato sul thread JavaFX.
+ * @details Ogni vista (Dashboard, Libri, Utenti, Prestiti) ne possiede uno:
+ * richiedi() accoda l'interrogazione sul thread di aggiornamento condiviso e,
+ * al termine, consegna il risultato alla vista tramite Platform.runLater, così
+ * il thread JavaFX resta libero di ridisegnare la finestra.
+ *
+ * Le richieste ravvicinate vengono accorpate: finché un'interrogazione è in
+ * attesa di essere eseguita, le ulteriori richieste non ne accodano altre.
+ * Una richiesta che arriva mentre l'interrogazione è già in corso ne accoda
+ * una nuova, così l'ultimo risultato pubblicato riflette sempre lo stato
+ * dell'archivio successivo all'ultima richiesta.
+ *
+ * Il thread di aggiornamento è unico e condiviso: le interrogazioni delle
+ * diverse viste vengono eseguite una alla volta e i risultati sono pubblicati
+ * nell'ordine delle richieste.
+ *
+ * @tparam R Tipo del risultato dell'interrogazione.
+ */
+public class AggiornatoreVista<R> {
+
+    private static final ExecutorService ESECUTORE = Executors.newSingleThreadExecutor(lavoro -> {  //thread condiviso da tutte le viste
+        Thread thread = new Thread(lavoro, "bibliosoft-aggiornamento");
+        thread.setDaemon(true); //non deve impedire la chiusura dell'applicazione
+        return thread;
+    });
+
+    private final Supplier<R> interrogazione;  //eseguita sul thread di aggiornamento
+    private final Consumer<R> pubblicazione;   //eseguita sul thread JavaFX
+    private final Executor esecutore;
+    private final Executor pubblicatore;
+    private final AtomicBoolean inAttesa = new AtomicBoolean(false);   //true se un'interrogazione è accodata ma non ancora iniziata
+
+    /**
+     * @brief Costruisce l'aggiornatore di una vista.
+     * @details
+     * @param[in] interrogazione Legge i dati dai servizi, senza toccare la GUI.
+     * @param[in] pubblicazione Mostra il risultato nella vista.
+     *
+     * @pre {@code interrogazione != null && pubblicazione != null}
+     */
+    public AggiornatoreVista(Supplier<R> interrogazione, Consumer<R> pubblicazione) {
+        this(interrogazione, pubblicazione, ESECUTORE, Platform::runLater);
+    }
+
+    /**
+     * @brief Costruisce l'aggiornatore con esecutori espliciti.
+     * @details Usato nei test, dove il toolkit JavaFX non è avviato.
+     *
+     * @param[in] interrogazione Legge i dati dai servizi, senza toccare la GUI.
+     * @param[in] pubblicazione Mostra il risultato nella vista.
+     * @param[in] esecutore Esecutore delle interrogazioni.
+     * @param[in] pubblicatore Esecutore delle pubblicazioni.
+     */
+    AggiornatoreVista(Supplier<R> interrogazione, Consumer<R> pubblicazione, Executor esecutore, Executor pubblicatore) {
+        this.interrogazione = Objects.requireNonNull(interrogazione);
+        this.pubblicazione = Objects.requireNonNull(pubblicazione);
+        this.esecutore = esecutore;
+        this.pubblicatore = pubblicatore;
+    }
+
+    /**
+     * @brief Richiede l'aggiornamento della vista.
+     * @details Ritorna subito; se un aggiornamento è già in attesa la richiesta
+     * viene accorpata a quello.
+     *
+     * @post Entro breve la vista mostra un risultato successivo alla richiesta.
+     */
+    public void richiedi() {
+        if (inAttesa.compareAndSet(false, true))
+            esecutore.execute(this::esegui);
+    }
+
+    /**
+     * @brief Esegue l'interrogazione e ne accoda la pubblicazione.
+     * @details Eventuali errori vengono stampati e la vista resta invariata.
+     */
+    private void esegui() {
+        inAttesa.set(false);    //da qui in poi una nuova richiesta deve accodare un'altra interrogazione
+        R risultato;
+        try {
+            risultato = interrogazione.get();
+        } catch (RuntimeException ex) {
+            ex.printStackTrace();
+            return;
+        }
+        pubblicatore.execute(() -> pubblicazione.accept(risultato));
+    }
+}
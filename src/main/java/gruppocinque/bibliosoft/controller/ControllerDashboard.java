@@ -60,51 +60,53 @@ public class ControllerDashboard {
     }
 
     /**
-     * @brief Aggiorna tutte le sezioni statistiche della dashboard.
-     * @details Metodo che invoca l'aggiornamento specifico per prestiti, utenti
-     * e libri. Viene chiamato all'inizializzazione e ogni volta che la tab
-     * riceve il focus.
+     * @brief Legge le statistiche in background e le mostra sul thread JavaFX.
      */
-    public void aggiorna() {
-        //aggiorno tutte le tipologie di statistiche:
-        aggiornaStatistichePrestiti();
-        aggiornaStatisticheUtenti();
-        aggiornaStatisticheLibri();
-    }
+    private final AggiornatoreVista<int[]> aggiornatore = new AggiornatoreVista<>(this::leggiStatistiche, this::mostraStatistiche);
 
     /**
-     * @brief Aggiorna i contatori relativi ai prestiti.
-     * @details Visualizza il numero di prestiti in ritardo, conclusi e in
-     * corso. Utile per monitorare lo stato di salute dei rientri (RF 3.1.3 - Gestione Prestiti).
+     * @brief Aggiorna tutte le sezioni statistiche della dashboard.
+     * @details Metodo che richiede l'aggiornamento delle statistiche su
+     * prestiti, utenti e libri. Viene chiamato all'inizializzazione e ogni
+     * volta che la tab riceve il focus; i valori vengono letti in background.
      */
-    public void aggiornaStatistichePrestiti() {
-        //riempo tutte le label con le relative statistiche:
-        prestitiInRitardo.setText(Integer.toString(servizioPrestiti.getPrestitiInRitardo()));
-        prestitiConclusi.setText(Integer.toString(servizioPrestiti.getPrestitiConclusi()));
-        prestitiInCorso.setText(Integer.toString(servizioPrestiti.getPrestitiInCorso()));
+    public void aggiorna() {
+        aggiornatore.richiedi();
     }
 
     /**
-     * @brief Aggiorna i contatori relativi agli utenti.
-     * @details Visualizza il totale degli utenti registrati e quanti di essi
-     * hanno almeno un prestito attivo.
+     * @brief Legge dai servizi tutti i valori mostrati nella dashboard.
+     * @details Eseguito sul thread di aggiornamento: non tocca la GUI.
+     *
+     * @return I valori nell'ordine atteso da mostraStatistiche().
      */
-    public void aggiornaStatisticheUtenti() {
-        //riempo tutte le label con le relative statistiche:
-        utentiTotali.setText(Integer.toString(servizioUtenti.getUtentiTotali()));
-        utentiPrestitiAttivi.setText(Integer.toString(servizioUtenti.getUtentiAttivi()));
+    private int[] leggiStatistiche() {
+        return new int[]{
+            servizioPrestiti.getPrestitiInRitardo(),
+            servizioPrestiti.getPrestitiConclusi(),
+            servizioPrestiti.getPrestitiInCorso(),
+            servizioUtenti.getUtentiTotali(),
+            servizioUtenti.getUtentiAttivi(),
+            servizioLibri.getLibriTotali(),
+            servizioLibri.getCopieTotali(),
+            servizioLibri.getCopieDisponibili()
+        };
     }
 
     /**
-     * @brief Aggiorna i contatori relativi al catalogo libri.
-     * @details Mostra il numero di titoli unici, il totale delle copie fisiche
-     * possedute e quante di queste sono attualmente disponibili per il
-     * prestito.
+     * @brief Mostra i valori letti da leggiStatistiche().
+     * @details
+     * @param[in] valori I valori da mostrare.
      */
-    public void aggiornaStatisticheLibri() {
+    private void mostraStatistiche(int[] valori) {
         //riempo tutte le label con le relative statistiche:
-        libriTotali.setText(Integer.toString(servizioLibri.getLibriTotali()));
-        copieTotali.setText(Integer.toString(servizioLibri.getCopieTotali()));
-        copieDisponibili.setText(Integer.toString(servizioLibri.getCopieDisponibili()));
+        prestitiInRitardo.setText(Integer.toString(valori[0]));
+        prestitiConclusi.setText(Integer.toString(valori[1]));
+        prestitiInCorso.setText(Integer.toString(valori[2]));
+        utentiTotali.setText(Integer.toString(valori[3]));
+        utentiPrestitiAttivi.setText(Integer.toString(valori[4]));
+        libriTotali.setText(Integer.toString(valori[5]));
+        copieTotali.setText(Integer.toString(valori[6]));
+        copieDisponibili.setText(Integer.toString(valori[7]));
     }
-}
\ No newline at end of file
+}
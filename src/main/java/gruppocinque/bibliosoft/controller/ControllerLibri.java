@@ -6,12 +6,11 @@
 package gruppocinque.bibliosoft.controller;
 
 import gruppocinque.bibliosoft.archivi.filtri.FiltroLibro;
+import gruppocinque.bibliosoft.archivi.filtri.InterfacciaFiltro;
 import gruppocinque.bibliosoft.modelli.Libro;
 import gruppocinque.bibliosoft.servizi.ServizioLibri;
 import java.util.Arrays;
 import java.util.List;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
 import javafx.scene.Node;
@@ -37,12 +36,37 @@ import javafx.scene.layout.VBox;
 public class ControllerLibri {
     private ServizioLibri servizioLibri;    //servizio libri con cui interagire per i dati
     
+    /**
+     * @brief Filtro della ricerca corrente, null per mostrare l'intero catalogo.
+     */
+    private InterfacciaFiltro<Libro> filtroCorrente = null;
+
     /**
      * @brief Lista osservabile che funge da model per la TableView.
-     * @details Contiene i dati dei prestiti filtrati e aggiornati, pronti per
-     * essere visualizzati secondo RF 3.4.2.
+     * @details Contiene i libri che soddisfano il filtro corrente; le righe
+     * vengono caricate a pagine solo quando la tabella le visualizza.
+     */
+    private final ListaVirtuale<Libro> dati = new ListaVirtuale<>(new ListaVirtuale.Sorgente<>() {
+        @Override
+        public int conta() {
+            return servizioLibri.contaLibri(filtroCorrente);
+        }
+
+        @Override
+        public List<Libro> pagina(int offset, int limite) {
+            return servizioLibri.paginaLibri(filtroCorrente, offset, limite);
+        }
+
+        @Override
+        public List<Libro> paginaDopo(Libro ultimo, int limite) {
+            return servizioLibri.paginaLibriDopo(filtroCorrente, ultimo, limite);
+        }
+    });
+
+    /**
+     * @brief Interroga il servizio in background e aggiorna la tabella sul thread JavaFX.
      */
-    private final ObservableList<Libro> dati = FXCollections.observableArrayList();
+    private final AggiornatoreVista<ListaVirtuale.Contenuto<Libro>> aggiornatore = new AggiornatoreVista<>(dati::leggi, dati::applica);
 
     //attributi fxml:
     @FXML
@@ -91,6 +115,7 @@ public class ControllerLibri {
         colonnaCopieDisponibili.setCellValueFactory(new PropertyValueFactory<>("copieDisponibili"));
 
         tabellaLibri.setPlaceholder(new Label("Nessun libro presente"));    //placeholder nel caso in cui non ci sono libri (anche dopo la ricerca)
+        tabellaLibri.getColumns().forEach(colonna -> colonna.setSortable(false));   //l'ordinamento è quello del catalogo (RF 3.1.1.4), la lista non viene riordinata
         tabellaLibri.setItems(dati);    //popola la tabella
     }
 
@@ -106,8 +131,8 @@ public class ControllerLibri {
     @FXML
     private void onRicerca() {
         String filtro = campoRicerca.getText(); //prelevo la stringa filtro dal campo di ricerca
-        List<Libro> risultati = servizioLibri.cercaLibri(FiltroLibro.ricerca(filtro));  //chiedo al servizio libri di cercare tra i libri tramite il filtro
-        dati.setAll(risultati); //popolo la tabella con i risultati
+        filtroCorrente = FiltroLibro.ricerca(filtro);   //imposto il filtro con cui il servizio libri cercherà tra i libri
+        aggiornatore.richiedi();    //popolo la tabella con i risultati, cercati in background
     }
 
     /**
@@ -204,10 +229,12 @@ public class ControllerLibri {
 
     /**
      * @brief Aggiorna la vista recuperando la lista completa dei libri.
-     * @details Invocato dopo ogni modifica o cambio tab.
+     * @details Invocato dopo ogni modifica o cambio tab. I dati vengono letti
+     * in background e la tabella viene aggiornata appena disponibili.
      */
     public void aggiorna() {
-        dati.setAll(servizioLibri.listaLibri());    //popolo la tabella con i nuovi dati
+        filtroCorrente = null;  //torno all'intero catalogo
+        aggiornatore.richiedi();    //popolo la tabella con i nuovi dati
     }
 
     /**
@@ -15,8 +15,8 @@ import gruppocinque.bibliosoft.modelli.Libro;
 import gruppocinque.bibliosoft.modelli.StatoPrestito;
 import gruppocinque.bibliosoft.modelli.Utente;
 import java.time.LocalDate;
+import java.util.List;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
@@ -61,10 +61,41 @@ public class ControllerPrestiti {
     
     /**
      * @brief Lista osservabile che funge da model per la TableView.
-     * @details Contiene i dati dei prestiti filtrati e aggiornati, pronti per
-     * essere visualizzati secondo RF 3.4.2.
+     * @details Contiene i prestiti che soddisfano il filtro corrente, pronti
+     * per essere visualizzati secondo RF 3.4.2; le righe vengono caricate a
+     * pagine solo quando la tabella le visualizza.
      */
-    private final ObservableList<Prestito> dati = FXCollections.observableArrayList();
+    private final ListaVirtuale<Prestito> dati = new ListaVirtuale<>(new ListaVirtuale.Sorgente<>() {
+        @Override
+        public int conta() {
+            return servizioPrestiti.conta(filtroCorrente);
+        }
+
+        @Override
+        public List<Prestito> pagina(int offset, int limite) {
+            return servizioPrestiti.pagina(filtroCorrente, offset, limite);
+        }
+
+        @Override
+        public List<Prestito> paginaDopo(Prestito ultimo, int limite) {
+            return servizioPrestiti.paginaDopo(filtroCorrente, ultimo, limite);
+        }
+    });
+
+    /**
+     * @brief Aggiorna i ritardi e interroga il servizio in background, poi
+     * aggiorna la tabella sul thread JavaFX.
+     */
+    private final AggiornatoreVista<ListaVirtuale.Contenuto<Prestito>> aggiornatore = new AggiornatoreVista<>(() -> {
+        servizioPrestiti.aggiornaRitardi(); //aggiorno i ritardi di ogni prestito prima di leggerli
+        return dati.leggi();
+    }, dati::applica);
+
+    //aggiornatori delle ComboBox di selezione utente e libro:
+    private final AggiornatoreVista<List<Utente>> aggiornatoreUtenti = new AggiornatoreVista<>(
+            () -> servizioUtenti.listaUtenti(), utenti -> this.comboUtente.setItems(FXCollections.observableArrayList(utenti)));
+    private final AggiornatoreVista<List<Libro>> aggiornatoreLibri = new AggiornatoreVista<>(
+            () -> servizioLibri.listaLibri(), libri -> this.comboLibro.setItems(FXCollections.observableArrayList(libri)));
 
     //attributi FXML:
     @FXML
@@ -169,6 +200,7 @@ public class ControllerPrestiti {
         });
 
         tabellaPrestiti.setPlaceholder(new Label("Nessun prestito presente"));  //placeholder nel caso in cui non ci sono prestiti (anche dopo averli filtrati)
+        tabellaPrestiti.getColumns().forEach(colonna -> colonna.setSortable(false));    //l'ordinamento è quello dell'archivio (per data prevista), la lista non viene riordinata
         tabellaPrestiti.setItems(dati);    //popola la tabella
     }
 
@@ -231,14 +263,14 @@ public class ControllerPrestiti {
 
     /**
      * @brief Aggiorna i dati nelle ComboBox di selezione Utente e Libro.
-     * @details Recupera le liste aggiornate dai rispettivi servizi per
-     * garantire che si possano creare prestiti solo per utenti e libri
-     * esistenti.
+     * @details Recupera in background le liste aggiornate dai rispettivi
+     * servizi per garantire che si possano creare prestiti solo per utenti e
+     * libri esistenti.
      */
     private void aggiornaCombo() {
         //popolo le due combo con i dati prelevati dai servizi:
-        comboUtente.setItems(FXCollections.observableArrayList(servizioUtenti.listaUtenti()));
-        comboLibro.setItems(FXCollections.observableArrayList(servizioLibri.listaLibri()));
+        aggiornatoreUtenti.richiedi();
+        aggiornatoreLibri.richiedi();
     }
 
     /**
@@ -328,11 +360,11 @@ public class ControllerPrestiti {
      * @details Metodo centrale di refresh: 1. Invoca il calcolo automatico dei
      * ritardi (RF 3.2.3). 2. Recupera la lista filtrata dal servizio. 3.
      * Aggiorna la TableView. 4. Aggiorna le ComboBox e riconfigura il
-     * DatePicker per disabilitare date passate.
+     * DatePicker per disabilitare date passate. I passi 1-3 e il
+     * caricamento delle ComboBox vengono eseguiti in background.
      */
     public void aggiorna() {
-        servizioPrestiti.aggiornaRitardi(); //aggiorno i ritardi di ogni prestito
-        dati.setAll(servizioPrestiti.cerca(filtroCorrente));    //popola la tabella filtrata in base al filtro corrente
+        aggiornatore.richiedi();    //aggiorno i ritardi e popolo la tabella filtrata in base al filtro corrente
         aggiornaCombo();    //aggiorno le combo con i dati sui libri e sugli utenti
         pulisciCampi(); //mi assicuro che i campi siano puliti (non ci siano già selezioni)
 
@@ -5,11 +5,16 @@
  */
 package gruppocinque.bibliosoft.controller;
 
+import gruppocinque.bibliosoft.servizi.EsitoImportazione;
 import gruppocinque.bibliosoft.servizi.ServizioArchivio;
+import gruppocinque.bibliosoft.servizi.ServizioImportazione;
 import gruppocinque.bibliosoft.servizi.ServizioLibri;
 import gruppocinque.bibliosoft.servizi.ServizioPrestiti;
 import gruppocinque.bibliosoft.servizi.ServizioUtenti;
+import java.io.File;
 import java.io.IOException;
+import java.util.stream.Collectors;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.event.Event;
 import javafx.fxml.FXML;
@@ -20,6 +25,7 @@ import javafx.scene.control.ButtonType;
 import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
 import javafx.scene.layout.BorderPane;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.WindowEvent;
 
@@ -48,6 +54,7 @@ public class ControllerPrincipale {
     private ServizioUtenti servizioUtenti;
     private ServizioPrestiti servizioPrestiti;
     private ServizioArchivio servizioArchivio;
+    private ServizioImportazione servizioImportazione;
 
     //controller secondari:
     private ControllerDashboard controllerDashboard;
@@ -89,16 +96,18 @@ public class ControllerPrincipale {
      * @param[in] servizioUtenti Gestore logica utenti.
      * @param[in] servizioPrestiti Gestore logica prestiti.
      * @param[in] servizioArchivio Gestore persistenza dati.
+     * @param[in] servizioImportazione Gestore importazione da CSV.
      *
      * @pre {@code servizi != null}
      * @post Le viste secondarie sono caricate e popolate.
      */
-    public void inizializzaServizi(ServizioLibri servizioLibri, ServizioUtenti servizioUtenti, ServizioPrestiti servizioPrestiti, ServizioArchivio servizioArchivio) {
+    public void inizializzaServizi(ServizioLibri servizioLibri, ServizioUtenti servizioUtenti, ServizioPrestiti servizioPrestiti, ServizioArchivio servizioArchivio, ServizioImportazione servizioImportazione) {
         //inizializzo i servizi passati dal main:
         this.servizioLibri = servizioLibri;
         this.servizioUtenti = servizioUtenti;
         this.servizioPrestiti = servizioPrestiti;
         this.servizioArchivio = servizioArchivio;
+        this.servizioImportazione = servizioImportazione;
 
         //carico tutte le viste:
         caricaVistaDashboard();
@@ -212,6 +221,80 @@ public class ControllerPrincipale {
         }
     }
 
+    /**
+     * @brief Importa i libri da un file CSV scelto dal bibliotecario.
+     * @details Vedi ServizioImportazione per il formato del file.
+     *
+     * @param[in] event L'evento scatenante.
+     */
+    @FXML
+    private void onImportaLibri(ActionEvent event) {
+        File file = scegliCsv("Importa libri");
+        if (file != null)
+            importa(file, new Task<EsitoImportazione>() {
+                @Override
+                protected EsitoImportazione call() throws IOException {
+                    return servizioImportazione.importaLibri(file);
+                }
+            });
+    }
+
+    /**
+     * @brief Importa gli utenti da un file CSV scelto dal bibliotecario.
+     * @details Vedi ServizioImportazione per il formato del file.
+     *
+     * @param[in] event L'evento scatenante.
+     */
+    @FXML
+    private void onImportaUtenti(ActionEvent event) {
+        File file = scegliCsv("Importa utenti");
+        if (file != null)
+            importa(file, new Task<EsitoImportazione>() {
+                @Override
+                protected EsitoImportazione call() throws IOException {
+                    return servizioImportazione.importaUtenti(file);
+                }
+            });
+    }
+
+    private File scegliCsv(String titolo) {
+        FileChooser scelta = new FileChooser();
+        scelta.setTitle(titolo);
+        scelta.getExtensionFilters().add(new FileChooser.ExtensionFilter("File CSV", "*.csv"));
+        return scelta.showOpenDialog(root.getScene().getWindow());
+    }
+
+    /**
+     * @brief Esegue un'importazione in background e ne mostra l'esito.
+     * @details Durante l'importazione la finestra è disabilitata, così che il
+     * bibliotecario non modifichi l'archivio mentre viene popolato.
+     */
+    private void importa(File file, Task<EsitoImportazione> importazione) {
+        root.setDisable(true);
+        importazione.setOnSucceeded(e -> {
+            root.setDisable(false);
+            EsitoImportazione esito = importazione.getValue();
+            if (esito.getImportati() > 0)
+                modificheEffettuate = true; //registro la modifica
+            aggiornaTutto();
+            Alert alert = new Alert(esito.getScartate() == 0 ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING);
+            alert.setHeaderText("Importazione di " + file.getName() + " completata");
+            alert.setContentText(esito + esito.getErrori().stream().limit(10).map(errore -> "\n" + errore).collect(Collectors.joining())
+                    + (esito.getScartate() > 10 ? "\n..." : ""));  //mostro solo i primi errori
+            alert.showAndWait();
+        });
+        importazione.setOnFailed(e -> {
+            root.setDisable(false);
+            importazione.getException().printStackTrace();
+            Alert alert = new Alert(Alert.AlertType.ERROR, "Errore durante la lettura di " + file.getName() + ".");
+            alert.setHeaderText("Errore");
+            alert.showAndWait();
+        });
+        Thread thread = new Thread(importazione, "bibliosoft-importazione");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
     /**
      * @brief Gestisce la richiesta di chiusura dell'applicazione.
      * @details Implementa il Caso d'Uso 17 (Chiusura applicazione). Controlla
@@ -240,7 +323,22 @@ public class ControllerPrincipale {
         root.getScene().getWindow().hide(); //chiuedo la finestra
     }
     
+    /**
+     * @brief Verifica se l'applicazione può essere chiusa.
+     * @details Se il giornale delle modifiche è attivo, ogni modifica è già
+     * registrata su file: il giornale viene sincronizzato e la chiusura avviene
+     * senza chiedere conferma. Altrimenti, in presenza di modifiche non salvate,
+     * chiede al bibliotecario se salvare, scartare o annullare.
+     *
+     * @return true se l'applicazione può essere chiusa.
+     */
     private boolean chiediSeChiudere() {
+        if (servizioArchivio.isGiornaleAttivo()) {  //le modifiche sono già registrate nel giornale
+            servizioArchivio.chiudi();  //forzo su disco le ultime modifiche
+            modificheEffettuate = false;
+            return true;
+        }
+
         if (!modificheEffettuate)   //se non ci sono modifiche posso chiudere direttamente
             return true;
 
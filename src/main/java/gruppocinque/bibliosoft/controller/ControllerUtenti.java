@@ -5,6 +5,8 @@
  */
 package gruppocinque.bibliosoft.controller;
 
+import gruppocinque.bibliosoft.archivi.filtri.FiltroUtente;
+import gruppocinque.bibliosoft.archivi.filtri.InterfacciaFiltro;
 import gruppocinque.bibliosoft.modelli.Prestito;
 import static gruppocinque.bibliosoft.modelli.StatoPrestito.CONCLUSO;
 import static gruppocinque.bibliosoft.modelli.StatoPrestito.IN_CORSO;
@@ -13,8 +15,6 @@ import gruppocinque.bibliosoft.modelli.Utente;
 import gruppocinque.bibliosoft.servizi.ServizioPrestiti;
 import gruppocinque.bibliosoft.servizi.ServizioUtenti;
 import java.util.List;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
 import javafx.scene.Node;
@@ -48,12 +48,37 @@ public class ControllerUtenti {
     private ServizioUtenti servizioUtenti;
     private ServizioPrestiti servizioPrestiti;
     
+    /**
+     * @brief Filtro della ricerca corrente, null per mostrare tutti gli utenti.
+     */
+    private InterfacciaFiltro<Utente> filtroCorrente = null;
+
     /**
      * @brief Lista osservabile che funge da model per la TableView.
-     * @details Contiene i dati degli utenti filtrati e aggiornati, pronti per
-     * essere visualizzati secondo RF 3.4.2.
+     * @details Contiene gli utenti che soddisfano il filtro corrente; le righe
+     * vengono caricate a pagine solo quando la tabella le visualizza.
+     */
+    private final ListaVirtuale<Utente> dati = new ListaVirtuale<>(new ListaVirtuale.Sorgente<>() {
+        @Override
+        public int conta() {
+            return servizioUtenti.contaUtenti(filtroCorrente);
+        }
+
+        @Override
+        public List<Utente> pagina(int offset, int limite) {
+            return servizioUtenti.paginaUtenti(filtroCorrente, offset, limite);
+        }
+
+        @Override
+        public List<Utente> paginaDopo(Utente ultimo, int limite) {
+            return servizioUtenti.paginaUtentiDopo(filtroCorrente, ultimo, limite);
+        }
+    });
+
+    /**
+     * @brief Interroga il servizio in background e aggiorna la tabella sul thread JavaFX.
      */
-    private final ObservableList<Utente> dati = FXCollections.observableArrayList();
+    private final AggiornatoreVista<ListaVirtuale.Contenuto<Utente>> aggiornatore = new AggiornatoreVista<>(dati::leggi, dati::applica);
 
     //attributi FXML:
     @FXML
@@ -105,9 +130,10 @@ public class ControllerUtenti {
         colonnaCognome.setCellValueFactory(new PropertyValueFactory<>("cognome"));
         colonnaNome.setCellValueFactory(new PropertyValueFactory<>("nome"));
         colonnaEmail.setCellValueFactory(new PropertyValueFactory<>("email"));
-        colonnaPrestiti.setCellValueFactory(c-> new javafx.beans.property.SimpleIntegerProperty(c.getValue().getPrestitiAttivi().size()));
+        colonnaPrestiti.setCellValueFactory(c-> new javafx.beans.property.SimpleIntegerProperty(c.getValue().getNumeroPrestitiAttivi()));
 
         tabellaUtenti.setPlaceholder(new Label("Nessun utente presente"));   //placeholder nel caso in cui non ci sono utenti (anche dopo la ricerca)
+        tabellaUtenti.getColumns().forEach(colonna -> colonna.setSortable(false));  //l'ordinamento è quello dell'archivio (RF 3.1.2.4), la lista non viene riordinata
         tabellaUtenti.setItems(dati);   //popolo la tabella
     }
 
@@ -121,8 +147,8 @@ public class ControllerUtenti {
     @FXML
     private void onRicerca() {
         String filtro = campoRicerca.getText(); ///prelevo la stringa filtro dalla text field
-        List<Utente> risultati = servizioUtenti.cerca(filtro); //chiedo al servizio utenti di cercare in base al filtro
-        dati.setAll(risultati); //popolo la tabella
+        filtroCorrente = FiltroUtente.ricerca(filtro);  //imposto il filtro con cui il servizio utenti cercherà (per matricola o cognome)
+        aggiornatore.richiedi();    //popolo la tabella con i risultati, cercati in background
     }
 
     /**
@@ -274,10 +300,12 @@ public class ControllerUtenti {
     /**
      * @brief Ricarica la lista degli utenti dal servizio.
      * @details Utile per sincronizzare la vista dopo modifiche o annullamenti
-     * di filtri.
+     * di filtri. I dati vengono letti in background e la tabella viene
+     * aggiornata appena disponibili.
      */
     public void aggiorna() {
-        dati.setAll(servizioUtenti.listaUtenti());  //popolo la tabella
+        filtroCorrente = null;  //torno alla lista completa
+        aggiornatore.richiedi();    //popolo la tabella
     }
 
     /**
@@ -0,0 +1,226 @@
+/**
+ * @file ListaVirtuale.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.controller;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javafx.collections.ObservableListBase;
+
+/**
+ * @brief Lista osservabile che carica gli elementi a pagine, su richiesta.
+ * @details Funge da model per le TableView: la tabella richiede solo le righe
+ * visibili, per cui la lista conosce in anticipo il solo numero di elementi e
+ * carica dalla sorgente la pagina che contiene la riga richiesta. Viene
+ * mantenuto un numero limitato di pagine, scartando quelle usate meno di
+ * recente.
+ *
+ * Quando la pagina precedente è già in memoria, la pagina successiva viene
+ * richiesta a cursore (a partire dall'ultimo elemento della precedente), così
+ * lo scorrimento sequenziale non riparte ogni volta dall'inizio dell'archivio.
+ *
+ * La lista non osserva la sorgente: dopo ogni modifica ai dati occorre
+ * invocare aggiorna(). La lista non è modificabile dall'esterno e l'ordine
+ * degli elementi è quello della sorgente.
+ *
+ * @invariant {@code size() == ultimo valore restituito da sorgente.conta()}
+ *
+ * @tparam T Tipo degli elementi.
+ */
+public class ListaVirtuale<T> extends ObservableListBase<T> {
+
+    /**
+     * @brief Sorgente paginata dei dati di una ListaVirtuale.
+     * @details
+     * @tparam T Tipo degli elementi.
+     */
+    public interface Sorgente<T> {
+
+        /**
+         * @brief Restituisce il numero totale di elementi.
+         * @details
+         * @return Numero di elementi.
+         */
+        int conta();
+
+        /**
+         * @brief Restituisce una pagina a partire da una posizione.
+         * @details
+         * @param[in] offset Posizione del primo elemento.
+         * @param[in] limite Numero massimo di elementi.
+         *
+         * @return La pagina richiesta.
+         */
+        List<T> pagina(int offset, int limite);
+
+        /**
+         * @brief Restituisce la pagina che segue un elemento.
+         * @details
+         * @param[in] ultimo Ultimo elemento della pagina precedente.
+         * @param[in] limite Numero massimo di elementi.
+         *
+         * @return La pagina richiesta.
+         */
+        List<T> paginaDopo(T ultimo, int limite);
+    }
+
+    /**
+     * @brief Risultato di un'interrogazione della sorgente.
+     * @details Contiene il numero di elementi e la prima pagina.
+     *
+     * @tparam T Tipo degli elementi.
+     */
+    public static final class Contenuto<T> {
+        private final int dimensione;
+        private final List<T> primaPagina;
+
+        private Contenuto(int dimensione, List<T> primaPagina) {
+            this.dimensione = dimensione;
+            this.primaPagina = primaPagina;
+        }
+
+        /**
+         * @brief Restituisce il numero di elementi della sorgente.
+         * @details
+         * @return Numero di elementi.
+         */
+        public int getDimensione() {
+            return dimensione;
+        }
+
+        /**
+         * @brief Restituisce la prima pagina.
+         * @details
+         * @return La prima pagina, vuota se la sorgente è vuota.
+         */
+        public List<T> getPrimaPagina() {
+            return primaPagina;
+        }
+    }
+
+    /**
+     * @brief Numero di elementi caricati per pagina.
+     */
+    public static final int DIMENSIONE_PAGINA = 100;
+
+    private static final int PAGINE_IN_MEMORIA = 10;   //pagine mantenute prima di scartare la meno recente
+
+    private final Sorgente<T> sorgente;
+    private final Map<Integer, List<T>> pagine = new LinkedHashMap<>(16, 0.75f, true) {    //numero pagina -> elementi, in ordine di accesso
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> piuVecchia) {
+            return size() > PAGINE_IN_MEMORIA;
+        }
+    };
+    private int dimensione = 0;
+
+    /**
+     * @brief Costruisce una lista vuota collegata a una sorgente.
+     * @details Gli elementi vengono caricati alla prima invocazione di aggiorna().
+     *
+     * @param[in] sorgente La sorgente dei dati.
+     *
+     * @pre {@code sorgente != null}
+     */
+    public ListaVirtuale(Sorgente<T> sorgente) {
+        this.sorgente = Objects.requireNonNull(sorgente);
+    }
+
+    /**
+     * @brief Rilegge il numero di elementi e scarta le pagine caricate.
+     * @details Notifica agli osservatori la sostituzione dell'intero
+     * contenuto; le righe vengono ricaricate quando la tabella le richiede.
+     *
+     * @post {@code size() == sorgente.conta()}
+     */
+    public void aggiorna() {
+        applica(leggi());
+    }
+
+    /**
+     * @brief Interroga la sorgente senza modificare la lista.
+     * @details Legge il numero di elementi e la prima pagina. Non accede allo
+     * stato della lista, per cui può essere eseguito fuori dal thread JavaFX
+     * (vedi AggiornatoreVista); il risultato va poi passato ad applica().
+     *
+     * @return Il contenuto letto.
+     */
+    public Contenuto<T> leggi() {
+        int numero = sorgente.conta();
+        List<T> primaPagina = (numero > 0) ? sorgente.pagina(0, DIMENSIONE_PAGINA) : Collections.emptyList();
+        return new Contenuto<>(numero, primaPagina);
+    }
+
+    /**
+     * @brief Sostituisce il contenuto della lista con quello letto dalla sorgente.
+     * @details Scarta le pagine caricate e notifica agli osservatori la
+     * sostituzione dell'intero contenuto.
+     *
+     * @param[in] contenuto Il risultato di leggi().
+     *
+     * @pre {@code contenuto != null}
+     * @post {@code size() == contenuto.getDimensione()}
+     */
+    public void applica(Contenuto<T> contenuto) {
+        int precedente = dimensione;
+        pagine.clear();
+        dimensione = contenuto.getDimensione();
+        pagine.put(0, contenuto.getPrimaPagina());
+
+        beginChange();
+        if (precedente > 0)
+            nextRemove(0, Collections.<T>nCopies(precedente, null));    //gli elementi rimossi non sono più disponibili
+        if (dimensione > 0)
+            nextAdd(0, dimensione);
+        endChange();
+    }
+
+    /**
+     * @brief Restituisce l'elemento in una posizione, caricandone la pagina se necessario.
+     * @details Se la sorgente è stata modificata dopo l'ultimo aggiorna() la
+     * pagina potrebbe essere più corta del previsto: in tal caso restituisce null.
+     *
+     * @param[in] indice Posizione dell'elemento.
+     *
+     * @return L'elemento, oppure null se non più presente nella sorgente.
+     * @throws IndexOutOfBoundsException se l'indice non è valido.
+     */
+    @Override
+    public T get(int indice) {
+        Objects.checkIndex(indice, dimensione);
+        int numero = indice / DIMENSIONE_PAGINA;
+        List<T> pagina = pagine.get(numero);
+        if (pagina == null) {
+            pagina = carica(numero);
+            pagine.put(numero, pagina);
+        }
+        int posizione = indice % DIMENSIONE_PAGINA;
+        return (posizione < pagina.size()) ? pagina.get(posizione) : null;
+    }
+
+    /**
+     * @brief Restituisce il numero di elementi.
+     * @details
+     * @return Il numero di elementi all'ultimo aggiorna().
+     */
+    @Override
+    public int size() {
+        return dimensione;
+    }
+
+    /**
+     * @brief Carica una pagina dalla sorgente.
+     * @details Usa il cursore se la pagina precedente è completa e in memoria.
+     */
+    private List<T> carica(int numero) {
+        List<T> precedente = pagine.get(numero - 1);
+        if (precedente != null && precedente.size() == DIMENSIONE_PAGINA)
+            return sorgente.paginaDopo(precedente.get(DIMENSIONE_PAGINA - 1), DIMENSIONE_PAGINA);
+        return sorgente.pagina(numero * DIMENSIONE_PAGINA, DIMENSIONE_PAGINA);
+    }
+}
@@ -5,8 +5,10 @@
  */
 package gruppocinque.bibliosoft.modelli;
 
+import gruppocinque.bibliosoft.strumenti.Normalizzatore;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -35,6 +37,8 @@ public class Libro implements Serializable, Comparable<Libro> {
 
     private int copieDisponibili;
 
+    private transient List<String> chiaviRicerca;   //titolo, autori e ISBN normalizzati (null se da ricalcolare)
+
     /**
      * @brief Costruttore della classe Libro.
      *
@@ -71,6 +75,7 @@ public class Libro implements Serializable, Comparable<Libro> {
 
     public void setTitolo(String titolo) {
         this.titolo = titolo;
+        this.chiaviRicerca = null;
     }
 
     /**
@@ -94,6 +99,29 @@ public class Libro implements Serializable, Comparable<Libro> {
      */
     public void setAutori(List<String> autori) {
         this.autori = new ArrayList<>(autori);
+        this.chiaviRicerca = null;
+    }
+
+    /**
+     * @brief Restituisce i campi di ricerca normalizzati.
+     * @details Titolo, autori e ISBN in minuscolo e senza accenti (vedi
+     * Normalizzatore), nell'ordine. La lista viene calcolata alla prima
+     * richiesta e ricalcolata solo dopo setTitolo() o setAutori().
+     *
+     * @return Lista non modificabile dei campi normalizzati.
+     */
+    public List<String> getChiaviRicerca() {
+        List<String> chiavi = chiaviRicerca;
+        if (chiavi == null) {
+            List<String> calcolate = new ArrayList<>(autori.size() + 2);
+            calcolate.add(Normalizzatore.normalizza(titolo));
+            for (String autore : autori)
+                calcolate.add(Normalizzatore.normalizza(autore));
+            calcolate.add(Normalizzatore.normalizza(isbn));
+            chiavi = Collections.unmodifiableList(calcolate);
+            chiaviRicerca = chiavi;
+        }
+        return chiavi;
     }
 
     public int getAnnoPubblicazione() {
@@ -186,7 +214,8 @@ public class Libro implements Serializable, Comparable<Libro> {
 
     /**
      * @brief Verifica se il libro è stato scritto da un determinato autore.
-     * @details La ricerca è case-insensitive.
+     * @details La ricerca ignora maiuscole e accenti e usa i nomi degli autori
+     * già normalizzati.
      *
      * @param[in] filtroAutore Stringa contenente il nome da cercare.
      *
@@ -195,8 +224,10 @@ public class Libro implements Serializable, Comparable<Libro> {
      * @pre {@code filtroAutore != null}
      */
     public boolean contieneAutore(String filtroAutore) {
-       for(String autore : autori)
-            if(autore.toLowerCase().contains(filtroAutore.toLowerCase()))return true;
+        String cercato = Normalizzatore.normalizza(filtroAutore);
+        List<String> chiavi = getChiaviRicerca();
+        for(String autore : chiavi.subList(1, chiavi.size() - 1))   //tra titolo e ISBN
+            if(autore.contains(cercato))return true;
         
         return false;
     }
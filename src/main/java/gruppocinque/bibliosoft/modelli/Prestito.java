@@ -67,7 +67,30 @@ public class Prestito implements Serializable, Comparable<Prestito>{
      * 
      */
     public Prestito(Utente utente, Libro libro, LocalDate dataInizio, LocalDate dataPrevista) {
-        this.id = UUID.randomUUID().toString();
+        this(UUID.randomUUID().toString(), utente, libro, dataInizio, dataPrevista);
+    }
+
+    /**
+     * @brief Costruttore della classe Prestito con identificativo noto.
+     * @details
+     * Utilizzato durante il caricamento dei dati da file, quando il prestito
+     * deve essere ricostruito mantenendo l'identificativo originale.
+     * Lo stato iniziale è "IN_CORSO".
+     *
+     * @param[in] id L'identificativo univoco del prestito.
+     * @param[in] utente L'utente che ha richiesto il prestito.
+     * @param[in] libro Il libro oggetto del prestito.
+     * @param[in] dataInizio La data di inizio del prestito.
+     * @param[in] dataPrevista La data entro cui il libro deve essere restituito.
+     *
+     * @pre {@code id != null && !id.isEmpty()}
+     * @pre {@code utente != null && libro != null}
+     *
+     * @post {@code stato = StatoPrestito.IN_CORSO}
+     * @post {@code getId().equals(id)}
+     */
+    public Prestito(String id, Utente utente, Libro libro, LocalDate dataInizio, LocalDate dataPrevista) {
+        this.id = id;
         this.utente = utente;
         this.libro = libro;
         this.dataInizio = dataInizio;
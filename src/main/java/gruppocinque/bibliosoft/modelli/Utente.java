@@ -6,6 +6,7 @@
 
 package gruppocinque.bibliosoft.modelli;
 
+import gruppocinque.bibliosoft.strumenti.Normalizzatore;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -37,6 +38,8 @@ public class Utente implements Serializable, Comparable<Utente> {
 
     private List<Prestito> prestitiAttivi = new ArrayList<>();
 
+    private transient List<String> chiaviRicerca;   //cognome e matricola normalizzati (null se da ricalcolare)
+
     /**
      * @brief Costruttore della classe Utente.
      * @details
@@ -79,6 +82,24 @@ public class Utente implements Serializable, Comparable<Utente> {
 
     public void setCognome(String cognome) {
          this.cognome = cognome;
+         this.chiaviRicerca = null;
+    }
+
+    /**
+     * @brief Restituisce i campi di ricerca normalizzati.
+     * @details Cognome e matricola in minuscolo e senza accenti (vedi
+     * Normalizzatore), nell'ordine. La lista viene calcolata alla prima
+     * richiesta e ricalcolata solo dopo setCognome().
+     *
+     * @return Lista non modificabile dei campi normalizzati.
+     */
+    public List<String> getChiaviRicerca() {
+        List<String> chiavi = chiaviRicerca;
+        if (chiavi == null) {
+            chiavi = List.of(Normalizzatore.normalizza(cognome), Normalizzatore.normalizza(matricola));
+            chiaviRicerca = chiavi;
+        }
+        return chiavi;
     }
 
     public String getEmail() {
@@ -102,6 +123,16 @@ public class Utente implements Serializable, Comparable<Utente> {
         return new ArrayList<>(prestitiAttivi);
     }
 
+    /**
+     * @brief Restituisce il numero di prestiti attivi dell'utente.
+     * @details Equivale a {@code getPrestitiAttivi().size()} senza copiare la lista.
+     *
+     * @return Numero di prestiti attivi.
+     */
+    public int getNumeroPrestitiAttivi() {
+        return prestitiAttivi.size();
+    }
+
     /**
      * @brief Associa un nuovo prestito all'utente.
      * @details
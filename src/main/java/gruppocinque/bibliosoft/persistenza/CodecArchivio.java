@@ -0,0 +1,222 @@
+/**
+ * @file CodecArchivio.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.persistenza;
+
+import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.modelli.Libro;
+import gruppocinque.bibliosoft.modelli.Prestito;
+import gruppocinque.bibliosoft.modelli.Utente;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @brief Formato binario compatto per il salvataggio completo dell'archivio.
+ * @details Il file è composto da un'intestazione (numero magico e versione)
+ * seguita da cinque sezioni: libri, utenti, libri storici, utenti storici e
+ * prestiti. Ogni sezione riporta il numero di record e ogni record è
+ * preceduto dalla propria lunghezza, così che versioni successive possano
+ * aggiungere campi in coda senza rendere illeggibili i file precedenti.
+ *
+ * I prestiti sono memorizzati per riferimento (ISBN e matricola). I libri e
+ * gli utenti non più presenti in archivio ma ancora riferiti dallo storico dei
+ * prestiti vengono scritti nelle sezioni "storiche", così da poter ricollegare
+ * ogni prestito in fase di lettura.
+ *
+ * @see RicostruttoreArchivio
+ */
+public class CodecArchivio {
+
+    /**
+     * @brief Numero magico che identifica il formato ("BSFT").
+     */
+    public static final int NUMERO_MAGICO = 0x42534654;
+
+    /**
+     * @brief Versione corrente del formato.
+     */
+    public static final int VERSIONE = 1;
+
+    private CodecArchivio() {
+    }
+
+    /**
+     * @brief Scrive il contenuto dell'archivio.
+     * @details La scrittura avviene con il lock in scrittura dell'archivio
+     * (eseguiAtomicamente()): libri, utenti e prestiti sono letti nello stesso
+     * stato, senza modifiche intercalate fra una lista e l'altra o durante la
+     * codifica.
+     *
+     * @param[in] uscita Destinazione (si consiglia un flusso bufferizzato).
+     * @param[in] archivio L'archivio da scrivere.
+     *
+     * @pre {@code uscita != null && archivio != null}
+     * @post Il flusso contiene l'intero archivio nel formato corrente.
+     * @throws IOException in caso di errore di scrittura.
+     */
+    public static void scrivi(DataOutputStream uscita, Archivio archivio) throws IOException {
+        try {
+            archivio.eseguiAtomicamente(() -> {
+                try {
+                    scriviIstantanea(uscita, archivio);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void scriviIstantanea(DataOutputStream uscita, Archivio archivio) throws IOException {
+        List<Libro> libri = archivio.listaLibri();
+        List<Utente> utenti = archivio.listaUtenti();
+        List<Prestito> prestiti = archivio.listaPrestiti();
+
+        //individuo libri e utenti rimossi ma ancora riferiti dai prestiti
+        Set<String> isbnPresenti = new HashSet<>();
+        for (Libro libro : libri)
+            isbnPresenti.add(libro.getIsbn());
+        Set<String> matricolePresenti = new HashSet<>();
+        for (Utente utente : utenti)
+            matricolePresenti.add(utente.getMatricola());
+
+        Map<String, Libro> libriStorici = new LinkedHashMap<>();
+        Map<String, Utente> utentiStorici = new LinkedHashMap<>();
+        for (Prestito prestito : prestiti) {
+            if (!isbnPresenti.contains(prestito.getLibro().getIsbn()))
+                libriStorici.putIfAbsent(prestito.getLibro().getIsbn(), prestito.getLibro());
+            if (!matricolePresenti.contains(prestito.getUtente().getMatricola()))
+                utentiStorici.putIfAbsent(prestito.getUtente().getMatricola(), prestito.getUtente());
+        }
+
+        uscita.writeInt(NUMERO_MAGICO);
+        uscita.writeInt(VERSIONE);
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(buffer);
+
+        uscita.writeInt(libri.size());
+        for (Libro libro : libri) {
+            buffer.reset();
+            CodecEntita.scriviLibro(record, libro);
+            scriviRecord(uscita, buffer);
+        }
+
+        uscita.writeInt(utenti.size());
+        for (Utente utente : utenti) {
+            buffer.reset();
+            CodecEntita.scriviUtente(record, utente);
+            scriviRecord(uscita, buffer);
+        }
+
+        uscita.writeInt(libriStorici.size());
+        for (Libro libro : libriStorici.values()) {
+            buffer.reset();
+            CodecEntita.scriviLibro(record, libro);
+            scriviRecord(uscita, buffer);
+        }
+
+        uscita.writeInt(utentiStorici.size());
+        for (Utente utente : utentiStorici.values()) {
+            buffer.reset();
+            CodecEntita.scriviUtente(record, utente);
+            scriviRecord(uscita, buffer);
+        }
+
+        uscita.writeInt(prestiti.size());
+        for (Prestito prestito : prestiti) {
+            buffer.reset();
+            CodecEntita.scriviPrestito(record, prestito);
+            scriviRecord(uscita, buffer);
+        }
+        uscita.flush();
+    }
+
+    /**
+     * @brief Legge un archivio scritto con scrivi().
+     * @details Gli elementi letti vengono consegnati al ricostruttore; i
+     * prestiti vengono ricollegati a libri e utenti tramite ISBN e matricola.
+     * Il numero magico deve essere già stato letto dal chiamante (vedi
+     * {@link #isFormatoBinario(int)}).
+     *
+     * @param[in] ingresso Sorgente posizionata subito dopo il numero magico.
+     * @param[in] ricostruttore Destinatario degli elementi letti.
+     *
+     * @throws IOException in caso di errore di lettura, versione non supportata
+     * o riferimenti non risolvibili.
+     */
+    public static void leggi(DataInputStream ingresso, RicostruttoreArchivio ricostruttore) throws IOException {
+        int versione = ingresso.readInt();
+        if (versione < 1 || versione > VERSIONE)
+            throw new IOException("Versione del formato non supportata: " + versione);
+
+        int numero = ingresso.readInt();
+        for (int i = 0; i < numero; i++)
+            ricostruttore.aggiungiLibro(CodecEntita.leggiLibro(leggiRecord(ingresso)));
+
+        numero = ingresso.readInt();
+        for (int i = 0; i < numero; i++)
+            ricostruttore.aggiungiUtente(CodecEntita.leggiUtente(leggiRecord(ingresso)));
+
+        numero = ingresso.readInt();
+        for (int i = 0; i < numero; i++)
+            ricostruttore.aggiungiLibroStorico(CodecEntita.leggiLibro(leggiRecord(ingresso)));
+
+        numero = ingresso.readInt();
+        for (int i = 0; i < numero; i++)
+            ricostruttore.aggiungiUtenteStorico(CodecEntita.leggiUtente(leggiRecord(ingresso)));
+
+        numero = ingresso.readInt();
+        for (int i = 0; i < numero; i++) {
+            Prestito prestito = CodecEntita.leggiPrestito(leggiRecord(ingresso), ricostruttore::risolviLibro, ricostruttore::risolviUtente);
+            if (prestito.getLibro() == null || prestito.getUtente() == null)
+                throw new IOException("Prestito " + prestito.getId() + " con riferimenti non risolti");
+            ricostruttore.aggiungiPrestito(prestito);
+        }
+    }
+
+    /**
+     * @brief Verifica se un'intestazione corrisponde a questo formato.
+     * @details
+     * @param[in] intestazione I primi quattro byte del file letti come intero.
+     *
+     * @return true se il file è nel formato binario.
+     */
+    public static boolean isFormatoBinario(int intestazione) {
+        return intestazione == NUMERO_MAGICO;
+    }
+
+    /**
+     * @brief Scrive un record preceduto dalla sua lunghezza.
+     */
+    private static void scriviRecord(DataOutputStream uscita, ByteArrayOutputStream buffer) throws IOException {
+        uscita.writeInt(buffer.size());
+        buffer.writeTo(uscita);
+    }
+
+    /**
+     * @brief Legge un record preceduto dalla sua lunghezza.
+     * @details Eventuali campi aggiunti da versioni successive in coda al
+     * record vengono ignorati.
+     */
+    private static DataInputStream leggiRecord(DataInputStream ingresso) throws IOException {
+        int lunghezza = ingresso.readInt();
+        if (lunghezza < 0)
+            throw new IOException("Lunghezza record non valida: " + lunghezza);
+        byte[] record = new byte[lunghezza];
+        ingresso.readFully(record);
+        return new DataInputStream(new ByteArrayInputStream(record));
+    }
+}
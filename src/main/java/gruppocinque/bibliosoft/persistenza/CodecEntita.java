@@ -0,0 +1,218 @@
+/**
+ * @file CodecEntita.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.persistenza;
+
+import gruppocinque.bibliosoft.modelli.Libro;
+import gruppocinque.bibliosoft.modelli.Prestito;
+import gruppocinque.bibliosoft.modelli.StatoPrestito;
+import gruppocinque.bibliosoft.modelli.Utente;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * @brief Codifica binaria compatta delle entità del dominio.
+ * @details Scrive e legge i campi di Libro, Utente e Prestito tramite
+ * DataOutput/DataInput, senza descrittori di classe. I prestiti sono codificati
+ * per riferimento: vengono memorizzati solo ISBN e matricola, mentre libro e
+ * utente vengono risolti in fase di lettura.
+ */
+final class CodecEntita {
+
+    static final byte TIPO_LIBRO = 1;      //codice del tipo Libro
+    static final byte TIPO_UTENTE = 2;     //codice del tipo Utente
+    static final byte TIPO_PRESTITO = 3;   //codice del tipo Prestito
+
+    private CodecEntita() {
+    }
+
+    /**
+     * @brief Restituisce il codice di tipo associato all'elemento.
+     * @details
+     * @param[in] elemento Libro, Utente o Prestito.
+     *
+     * @return Il codice di tipo.
+     * @throws IllegalArgumentException se l'elemento non è di un tipo gestito.
+     */
+    static byte tipo(Object elemento) {
+        if (elemento instanceof Libro)
+            return TIPO_LIBRO;
+        if (elemento instanceof Utente)
+            return TIPO_UTENTE;
+        if (elemento instanceof Prestito)
+            return TIPO_PRESTITO;
+        throw new IllegalArgumentException("Tipo non gestito: " + elemento);
+    }
+
+    /**
+     * @brief Restituisce la chiave univoca dell'elemento (ISBN, matricola o id).
+     * @details
+     * @param[in] elemento Libro, Utente o Prestito.
+     *
+     * @return La chiave dell'elemento.
+     */
+    static String chiave(Object elemento) {
+        if (elemento instanceof Libro)
+            return ((Libro) elemento).getIsbn();
+        if (elemento instanceof Utente)
+            return ((Utente) elemento).getMatricola();
+        if (elemento instanceof Prestito)
+            return ((Prestito) elemento).getId();
+        throw new IllegalArgumentException("Tipo non gestito: " + elemento);
+    }
+
+    /**
+     * @brief Scrive i campi di un libro.
+     * @details
+     * @param[in] out Destinazione.
+     * @param[in] libro Il libro da scrivere.
+     *
+     * @throws IOException in caso di errore di scrittura.
+     */
+    static void scriviLibro(DataOutput out, Libro libro) throws IOException {
+        scriviStringa(out, libro.getIsbn());
+        scriviStringa(out, libro.getTitolo());
+        List<String> autori = libro.getAutori();
+        out.writeInt(autori.size());
+        for (String autore : autori)
+            scriviStringa(out, autore);
+        out.writeInt(libro.getAnnoPubblicazione());
+        out.writeInt(libro.getCopieTotali());
+        out.writeInt(libro.getCopieDisponibili());
+    }
+
+    /**
+     * @brief Legge un libro scritto con scriviLibro().
+     * @details
+     * @param[in] in Sorgente.
+     *
+     * @return Il libro letto.
+     * @throws IOException in caso di errore di lettura.
+     */
+    static Libro leggiLibro(DataInput in) throws IOException {
+        String isbn = leggiStringa(in);
+        String titolo = leggiStringa(in);
+        int numeroAutori = in.readInt();
+        List<String> autori = new ArrayList<>(numeroAutori);
+        for (int i = 0; i < numeroAutori; i++)
+            autori.add(leggiStringa(in));
+        int anno = in.readInt();
+        int copieTotali = in.readInt();
+        Libro libro = new Libro(isbn, titolo, autori, anno, copieTotali);
+        libro.setCopieDisponibili(in.readInt());
+        return libro;
+    }
+
+    /**
+     * @brief Scrive i campi anagrafici di un utente.
+     * @details La lista dei prestiti attivi non viene scritta: è ricostruita a
+     * partire dai prestiti in fase di caricamento.
+     *
+     * @param[in] out Destinazione.
+     * @param[in] utente L'utente da scrivere.
+     *
+     * @throws IOException in caso di errore di scrittura.
+     */
+    static void scriviUtente(DataOutput out, Utente utente) throws IOException {
+        scriviStringa(out, utente.getMatricola());
+        scriviStringa(out, utente.getNome());
+        scriviStringa(out, utente.getCognome());
+        scriviStringa(out, utente.getEmail());
+    }
+
+    /**
+     * @brief Legge un utente scritto con scriviUtente().
+     * @details
+     * @param[in] in Sorgente.
+     *
+     * @return L'utente letto (senza prestiti attivi).
+     * @throws IOException in caso di errore di lettura.
+     */
+    static Utente leggiUtente(DataInput in) throws IOException {
+        return new Utente(leggiStringa(in), leggiStringa(in), leggiStringa(in), leggiStringa(in));
+    }
+
+    /**
+     * @brief Scrive un prestito, riferendo libro e utente tramite ISBN e matricola.
+     * @details
+     * @param[in] out Destinazione.
+     * @param[in] prestito Il prestito da scrivere.
+     *
+     * @throws IOException in caso di errore di scrittura.
+     */
+    static void scriviPrestito(DataOutput out, Prestito prestito) throws IOException {
+        scriviStringa(out, prestito.getId());
+        scriviStringa(out, prestito.getUtente().getMatricola());
+        scriviStringa(out, prestito.getLibro().getIsbn());
+        out.writeLong(prestito.getDataInizio().toEpochDay());
+        out.writeLong(prestito.getDataPrevista().toEpochDay());
+        LocalDate restituzione = prestito.getDataRestituzioneEffettiva();
+        out.writeBoolean(restituzione != null);
+        if (restituzione != null)
+            out.writeLong(restituzione.toEpochDay());
+        out.writeByte(prestito.getStato().ordinal());
+    }
+
+    /**
+     * @brief Legge un prestito scritto con scriviPrestito().
+     * @details Libro e utente vengono risolti tramite le funzioni fornite; se
+     * un riferimento non è risolvibile il campo corrispondente resta null e la
+     * decisione su come trattare il prestito è lasciata al chiamante.
+     *
+     * @param[in] in Sorgente.
+     * @param[in] libri Funzione che associa un ISBN al libro corrispondente.
+     * @param[in] utenti Funzione che associa una matricola all'utente corrispondente.
+     *
+     * @return Il prestito letto.
+     * @throws IOException in caso di errore di lettura o stato non valido.
+     */
+    static Prestito leggiPrestito(DataInput in, Function<String, Libro> libri, Function<String, Utente> utenti) throws IOException {
+        String id = leggiStringa(in);
+        Utente utente = utenti.apply(leggiStringa(in));
+        Libro libro = libri.apply(leggiStringa(in));
+        LocalDate dataInizio = LocalDate.ofEpochDay(in.readLong());
+        LocalDate dataPrevista = LocalDate.ofEpochDay(in.readLong());
+        LocalDate restituzione = in.readBoolean() ? LocalDate.ofEpochDay(in.readLong()) : null;
+        int stato = in.readByte();
+        if (stato < 0 || stato >= StatoPrestito.values().length)
+            throw new IOException("Stato prestito non valido: " + stato);
+
+        Prestito prestito = new Prestito(id, utente, libro, dataInizio, dataPrevista);
+        prestito.setDataRestituzioneEffettiva(restituzione);
+        prestito.setStato(StatoPrestito.values()[stato]);
+        return prestito;
+    }
+
+    /**
+     * @brief Scrive una stringa eventualmente nulla.
+     * @details
+     * @param[in] out Destinazione.
+     * @param[in] stringa La stringa (può essere null).
+     *
+     * @throws IOException in caso di errore di scrittura.
+     */
+    static void scriviStringa(DataOutput out, String stringa) throws IOException {
+        out.writeBoolean(stringa != null);
+        if (stringa != null)
+            out.writeUTF(stringa);
+    }
+
+    /**
+     * @brief Legge una stringa scritta con scriviStringa().
+     * @details
+     * @param[in] in Sorgente.
+     *
+     * @return La stringa letta (può essere null).
+     * @throws IOException in caso di errore di lettura.
+     */
+    static String leggiStringa(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
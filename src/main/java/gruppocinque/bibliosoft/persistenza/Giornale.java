@@ -0,0 +1,256 @@
+/**
+ * @file Giornale.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.persistenza;
+
+import gruppocinque.bibliosoft.archivi.InterfacciaOsservatoreArchivio;
+import gruppocinque.bibliosoft.modelli.Libro;
+import gruppocinque.bibliosoft.modelli.Prestito;
+import gruppocinque.bibliosoft.modelli.Utente;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+
+/**
+ * @brief Giornale delle modifiche all'archivio (write-ahead log).
+ * @details Registrato come osservatore dell'Archivio, accoda su file un record
+ * compatto per ogni aggiunta, modifica o rimozione. Ogni record è preceduto
+ * dalla sua lunghezza e dal CRC32 del contenuto, così che in fase di lettura
+ * un record troncato da un'interruzione improvvisa venga riconosciuto e
+ * scartato insieme a quelli successivi.
+ *
+ * I record vengono passati al sistema operativo subito dopo la scrittura,
+ * mentre la sincronizzazione su disco (fsync) avviene a gruppi di
+ * {@link #SINCRONIZZA_OGNI} record oppure su richiesta esplicita.
+ *
+ * La notifica arriva quando la modifica è già applicata all'archivio in
+ * memoria, per cui un errore di scrittura non viene propagato: lancerebbe
+ * l'eccezione a metà dell'operazione e impedirebbe la notifica agli altri
+ * osservatori. Il primo errore viene invece registrato e le modifiche
+ * successive non vengono più scritte, dato che la riproduzione si fermerebbe
+ * comunque al record mancante; sincronizza() e chiudi() lanciano l'errore
+ * finché tronca() non svuota il giornale dopo un salvataggio completo.
+ *
+ * I metodi che usano il flusso sul file sono sincronizzati: sincronizzazione,
+ * svuotamento e chiusura possono essere invocati da un thread diverso da
+ * quello che registra le modifiche (es. alla chiusura del server).
+ *
+ * @invariant {@code file != null}
+ * @see RicostruttoreArchivio
+ */
+public class Giornale implements InterfacciaOsservatoreArchivio {
+
+    /**
+     * @brief Numero di record dopo il quale il giornale viene sincronizzato su disco.
+     */
+    public static final int SINCRONIZZA_OGNI = 64;
+
+    private static final int LUNGHEZZA_MASSIMA_RECORD = 1 << 20; //limite di sicurezza sulla lunghezza di un record
+
+    private final File file;    //file del giornale
+    private FileOutputStream flussoFile;    //flusso sul file, aperto alla prima scrittura
+    private DataOutputStream uscita;    //flusso bufferizzato usato per scrivere i record
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();   //buffer del record corrente
+    private final DataOutputStream datiRecord = new DataOutputStream(buffer);   //vista dati del buffer
+    private final CRC32 crc = new CRC32();
+    private int nonSincronizzati = 0;   //record scritti dall'ultima sincronizzazione
+    private long lunghezzaValida = -1;  //lunghezza della parte valida del file dopo la lettura (-1 se non letto)
+    private IOException errore; //primo errore di scrittura dall'ultimo svuotamento, null se nessuno
+
+    /**
+     * @brief Costruisce il giornale associato a un file.
+     * @details Il file non viene creato fino alla prima operazione registrata.
+     *
+     * @param[in] percorso Il percorso del file del giornale.
+     *
+     * @pre {@code percorso != null && !percorso.isEmpty()}
+     */
+    public Giornale(String percorso) {
+        this.file = new File(percorso);
+    }
+
+    /**
+     * @brief Registra un'operazione sull'archivio.
+     * @details Per aggiunta e modifica viene scritto l'elemento completo, per
+     * la rimozione solo la sua chiave.
+     *
+     * @param[in] operazione Il tipo di operazione.
+     * @param[in] elemento Libro, Utente o Prestito coinvolto.
+     *
+     * @post Il record è stato consegnato al sistema operativo, oppure
+     * l'errore di scrittura è stato registrato e verrà lanciato da
+     * sincronizza().
+     */
+    @Override
+    public synchronized void notifica(Operazione operazione, Object elemento) {
+        if (errore != null)
+            return; //il giornale è già incompleto: serve un salvataggio completo
+        try {
+            buffer.reset();
+            datiRecord.writeByte(operazione.ordinal());
+            datiRecord.writeByte(CodecEntita.tipo(elemento));
+            if (operazione == Operazione.RIMOZIONE)
+                CodecEntita.scriviStringa(datiRecord, CodecEntita.chiave(elemento));
+            else if (elemento instanceof Libro)
+                CodecEntita.scriviLibro(datiRecord, (Libro) elemento);
+            else if (elemento instanceof Utente)
+                CodecEntita.scriviUtente(datiRecord, (Utente) elemento);
+            else
+                CodecEntita.scriviPrestito(datiRecord, (Prestito) elemento);
+
+            apri();
+            crc.reset();
+            crc.update(buffer.toByteArray());
+            uscita.writeInt(buffer.size());
+            uscita.writeInt((int) crc.getValue());
+            buffer.writeTo(uscita);
+            uscita.flush();
+
+            if (++nonSincronizzati >= SINCRONIZZA_OGNI)
+                sincronizza();
+        } catch (IOException e) {
+            errore = e; //lo lancerà sincronizza(): l'archivio ha già applicato la modifica
+        }
+    }
+
+    /**
+     * @brief Rilegge il giornale applicando ogni record valido.
+     * @details La lettura si interrompe al primo record incompleto o corrotto;
+     * la parte non valida verrà eliminata prima della scrittura successiva.
+     *
+     * @param[in] ricostruttore Destinatario delle operazioni lette.
+     *
+     * @return Il numero di record applicati.
+     * @throws IOException in caso di errore di lettura del file.
+     */
+    public synchronized int riproduci(RicostruttoreArchivio ricostruttore) throws IOException {
+        lunghezzaValida = 0;
+        if (!file.exists())
+            return 0;
+
+        int applicati = 0;
+        try (DataInputStream ingresso = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                byte[] record;
+                int crcAtteso;
+                try {
+                    int lunghezza = ingresso.readInt();
+                    if (lunghezza <= 0 || lunghezza > LUNGHEZZA_MASSIMA_RECORD)
+                        break;  //lunghezza non plausibile: coda corrotta
+                    crcAtteso = ingresso.readInt();
+                    record = new byte[lunghezza];
+                    ingresso.readFully(record);
+                } catch (EOFException e) {
+                    break;  //fine del file o record troncato
+                }
+
+                crc.reset();
+                crc.update(record);
+                if ((int) crc.getValue() != crcAtteso)
+                    break;  //contenuto corrotto
+
+                try {
+                    ricostruttore.applica(new DataInputStream(new ByteArrayInputStream(record)));
+                } catch (IOException e) {
+                    e.printStackTrace();    //record non applicabile: lo salto e proseguo
+                }
+                lunghezzaValida += 8 + record.length;
+                applicati++;
+            }
+        }
+        return applicati;
+    }
+
+    /**
+     * @brief Forza la scrittura su disco dei record registrati.
+     * @details
+     * @post Tutti i record registrati sono persistiti sul dispositivo.
+     * @throws IOException in caso di errore di sincronizzazione, oppure se la
+     * scrittura di un record non è riuscita dall'ultimo svuotamento.
+     */
+    public synchronized void sincronizza() throws IOException {
+        if (errore != null)
+            throw new IOException("Il giornale non contiene tutte le modifiche", errore);
+        if (uscita == null)
+            return;
+        uscita.flush();
+        flussoFile.getFD().sync();
+        nonSincronizzati = 0;
+    }
+
+    /**
+     * @brief Svuota il giornale.
+     * @details Invocato dopo un salvataggio completo, quando le operazioni
+     * registrate sono già incluse nel file dell'archivio.
+     *
+     * @post Il file del giornale non esiste più e l'eventuale errore di
+     * scrittura registrato è dimenticato.
+     * @throws IOException in caso di errore di cancellazione.
+     */
+    public synchronized void tronca() throws IOException {
+        errore = null;  //le modifiche non scritte sono incluse nel salvataggio completo
+        chiudi();
+        Files.deleteIfExists(file.toPath());
+        lunghezzaValida = 0;
+    }
+
+    /**
+     * @brief Restituisce la dimensione attuale del giornale in byte.
+     * @details
+     * @return Dimensione del file, 0 se non esiste.
+     */
+    public long dimensione() {
+        return file.length();
+    }
+
+    /**
+     * @brief Sincronizza e chiude il file del giornale.
+     * @details Una successiva registrazione riapre il file in accodamento.
+     *
+     * @throws IOException in caso di errore di chiusura, oppure se la
+     * scrittura di un record non è riuscita dall'ultimo svuotamento.
+     */
+    public synchronized void chiudi() throws IOException {
+        if (uscita == null) {
+            sincronizza();  //lancia l'eventuale errore di scrittura registrato
+            return;
+        }
+        try {
+            sincronizza();
+        } finally {
+            uscita.close();
+            uscita = null;
+            flussoFile = null;
+        }
+    }
+
+    /**
+     * @brief Apre il file in accodamento, se non già aperto.
+     * @details Se la lettura precedente ha rilevato una coda non valida, il
+     * file viene prima troncato all'ultimo record integro.
+     */
+    private void apri() throws IOException {
+        if (uscita != null)
+            return;
+        if (lunghezzaValida >= 0 && file.length() > lunghezzaValida) {
+            try (RandomAccessFile accesso = new RandomAccessFile(file, "rw")) {
+                accesso.setLength(lunghezzaValida);
+            }
+        }
+        flussoFile = new FileOutputStream(file, true);
+        uscita = new DataOutputStream(new BufferedOutputStream(flussoFile));
+    }
+}
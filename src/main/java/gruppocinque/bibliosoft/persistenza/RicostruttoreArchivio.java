@@ -0,0 +1,261 @@
+/**
+ * @file RicostruttoreArchivio.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.persistenza;
+
+import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.archivi.InterfacciaOsservatoreArchivio.Operazione;
+import gruppocinque.bibliosoft.modelli.Libro;
+import gruppocinque.bibliosoft.modelli.Prestito;
+import gruppocinque.bibliosoft.modelli.StatoPrestito;
+import gruppocinque.bibliosoft.modelli.Utente;
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @brief Stato intermedio utilizzato durante il caricamento dell'archivio.
+ * @details Raccoglie gli elementi letti dall'ultimo salvataggio completo e vi
+ * applica, in ordine, le operazioni registrate nel giornale. Al termine
+ * ricollega ogni prestito alle istanze correnti di libro e utente, ricalcola
+ * le copie disponibili e i prestiti attivi degli utenti e popola l'archivio.
+ *
+ * Le operazioni sono idempotenti (ogni record contiene lo stato completo
+ * dell'elemento), per cui riapplicare un giornale già incluso in un
+ * salvataggio completo non altera il risultato.
+ *
+ * @invariant Ogni mappa è indicizzata per chiave univoca (ISBN, matricola, id).
+ */
+public class RicostruttoreArchivio {
+    private final Map<String, Libro> libri = new LinkedHashMap<>();       //libri presenti, per ISBN
+    private final Map<String, Utente> utenti = new LinkedHashMap<>();     //utenti presenti, per matricola
+    private final Map<String, Prestito> prestiti = new LinkedHashMap<>(); //prestiti presenti, per id
+    private final Map<String, Libro> libriRimossi = new HashMap<>();      //libri rimossi ancora riferiti dallo storico
+    private final Map<String, Utente> utentiRimossi = new HashMap<>();    //utenti rimossi ancora riferiti dallo storico
+
+    /**
+     * @brief Inserisce o aggiorna un libro.
+     * @details Se esiste già un libro con lo stesso ISBN, i suoi dati vengono
+     * aggiornati in place così che i prestiti collegati restino coerenti.
+     *
+     * @param[in] libro Il libro letto.
+     */
+    public void aggiungiLibro(Libro libro) {
+        Libro esistente = libri.get(libro.getIsbn());
+        if (esistente == null) {
+            libri.put(libro.getIsbn(), libro);
+            libriRimossi.remove(libro.getIsbn());
+            return;
+        }
+        esistente.setTitolo(libro.getTitolo());
+        esistente.setAutori(libro.getAutori());
+        esistente.setAnnoPubblicazione(libro.getAnnoPubblicazione());
+        esistente.setCopieTotali(libro.getCopieTotali());
+        esistente.setCopieDisponibili(libro.getCopieDisponibili());
+    }
+
+    /**
+     * @brief Inserisce o aggiorna un utente.
+     * @details
+     * @param[in] utente L'utente letto.
+     */
+    public void aggiungiUtente(Utente utente) {
+        Utente esistente = utenti.get(utente.getMatricola());
+        if (esistente == null) {
+            utenti.put(utente.getMatricola(), utente);
+            utentiRimossi.remove(utente.getMatricola());
+            return;
+        }
+        esistente.setNome(utente.getNome());
+        esistente.setCognome(utente.getCognome());
+        esistente.setEmail(utente.getEmail());
+    }
+
+    /**
+     * @brief Inserisce o aggiorna un prestito.
+     * @details Per un prestito già presente vengono aggiornati solo i campi
+     * modificabili (stato e data di restituzione effettiva).
+     *
+     * @param[in] prestito Il prestito letto.
+     */
+    public void aggiungiPrestito(Prestito prestito) {
+        Prestito esistente = prestiti.get(prestito.getId());
+        if (esistente == null) {
+            prestiti.put(prestito.getId(), prestito);
+            return;
+        }
+        esistente.setStato(prestito.getStato());
+        esistente.setDataRestituzioneEffettiva(prestito.getDataRestituzioneEffettiva());
+    }
+
+    /**
+     * @brief Registra un libro non più in archivio ma riferito dallo storico.
+     * @details
+     * @param[in] libro Il libro rimosso.
+     */
+    void aggiungiLibroStorico(Libro libro) {
+        if (!libri.containsKey(libro.getIsbn()))
+            libriRimossi.put(libro.getIsbn(), libro);
+    }
+
+    /**
+     * @brief Registra un utente non più in archivio ma riferito dallo storico.
+     * @details
+     * @param[in] utente L'utente rimosso.
+     */
+    void aggiungiUtenteStorico(Utente utente) {
+        if (!utenti.containsKey(utente.getMatricola()))
+            utentiRimossi.put(utente.getMatricola(), utente);
+    }
+
+    /**
+     * @brief Applica un'operazione letta dal giornale.
+     * @details Il formato del record è: operazione (byte), tipo (byte) e, per
+     * aggiunta e modifica, l'elemento completo; per la rimozione la sola chiave.
+     *
+     * @param[in] in Sorgente posizionata all'inizio del record.
+     *
+     * @throws IOException se il record non è valido.
+     */
+    void applica(DataInput in) throws IOException {
+        int codiceOperazione = in.readByte();
+        if (codiceOperazione < 0 || codiceOperazione >= Operazione.values().length)
+            throw new IOException("Operazione non valida: " + codiceOperazione);
+        Operazione operazione = Operazione.values()[codiceOperazione];
+        byte tipo = in.readByte();
+
+        if (operazione == Operazione.RIMOZIONE) {
+            rimuovi(tipo, CodecEntita.leggiStringa(in));
+            return;
+        }
+
+        switch (tipo) {
+            case CodecEntita.TIPO_LIBRO:
+                aggiungiLibro(CodecEntita.leggiLibro(in));
+                break;
+            case CodecEntita.TIPO_UTENTE:
+                aggiungiUtente(CodecEntita.leggiUtente(in));
+                break;
+            case CodecEntita.TIPO_PRESTITO:
+                Prestito prestito = CodecEntita.leggiPrestito(in, this::risolviLibro, this::risolviUtente);
+                if (!prestiti.containsKey(prestito.getId()) && (prestito.getLibro() == null || prestito.getUtente() == null))
+                    throw new IOException("Prestito " + prestito.getId() + " con riferimenti non risolti");
+                aggiungiPrestito(prestito);
+                break;
+            default:
+                throw new IOException("Tipo non valido: " + tipo);
+        }
+    }
+
+    /**
+     * @brief Rimuove un elemento dato il tipo e la chiave.
+     * @details Libri e utenti rimossi vengono conservati a parte perché
+     * possono essere ancora riferiti dai prestiti conclusi dello storico.
+     */
+    private void rimuovi(byte tipo, String chiave) throws IOException {
+        switch (tipo) {
+            case CodecEntita.TIPO_LIBRO:
+                Libro libro = libri.remove(chiave);
+                if (libro != null)
+                    libriRimossi.put(chiave, libro);
+                break;
+            case CodecEntita.TIPO_UTENTE:
+                Utente utente = utenti.remove(chiave);
+                if (utente != null)
+                    utentiRimossi.put(chiave, utente);
+                break;
+            case CodecEntita.TIPO_PRESTITO:
+                prestiti.remove(chiave);
+                break;
+            default:
+                throw new IOException("Tipo non valido: " + tipo);
+        }
+    }
+
+    /**
+     * @brief Risolve un ISBN nel libro corrispondente, anche se rimosso.
+     * @details
+     * @param[in] isbn L'ISBN cercato.
+     *
+     * @return Il libro, oppure null se sconosciuto.
+     */
+    Libro risolviLibro(String isbn) {
+        Libro libro = libri.get(isbn);
+        return (libro != null) ? libro : libriRimossi.get(isbn);
+    }
+
+    /**
+     * @brief Risolve una matricola nell'utente corrispondente, anche se rimosso.
+     * @details
+     * @param[in] matricola La matricola cercata.
+     *
+     * @return L'utente, oppure null se sconosciuto.
+     */
+    Utente risolviUtente(String matricola) {
+        Utente utente = utenti.get(matricola);
+        return (utente != null) ? utente : utentiRimossi.get(matricola);
+    }
+
+    /**
+     * @brief Ricollega i prestiti e popola l'archivio.
+     * @details Ogni prestito viene ricollegato alle istanze correnti di libro
+     * e utente; le copie disponibili di ogni libro e i prestiti attivi di ogni
+     * utente vengono ricalcolati a partire dai prestiti non conclusi.
+     *
+     * @param[in] archivio L'archivio da popolare.
+     *
+     * @pre {@code archivio != null}
+     * @post L'archivio contiene tutti gli elementi ricostruiti.
+     */
+    public void popola(Archivio archivio) {
+        for (Utente utente : utenti.values())   //azzero i prestiti attivi, verranno ricalcolati
+            for (Prestito prestito : utente.getPrestitiAttivi())
+                utente.rimuoviPrestito(prestito);
+
+        Map<String, Integer> copieInPrestito = new HashMap<>();
+        for (Map.Entry<String, Prestito> voce : prestiti.entrySet()) {
+            Prestito prestito = ricollega(voce.getValue());
+            voce.setValue(prestito);
+
+            if (prestito.getStato() == StatoPrestito.CONCLUSO)
+                continue;
+            copieInPrestito.merge(prestito.getLibro().getIsbn(), 1, Integer::sum);
+            if (utenti.get(prestito.getUtente().getMatricola()) == prestito.getUtente())
+                prestito.getUtente().aggiungiPrestito(prestito);
+        }
+
+        for (Libro libro : libri.values()) {
+            int inPrestito = copieInPrestito.getOrDefault(libro.getIsbn(), 0);
+            libro.setCopieDisponibili(Math.max(0, libro.getCopieTotali() - inPrestito));
+        }
+
+        for (Libro libro : libri.values())
+            archivio.aggiungiLibro(libro);
+        for (Utente utente : utenti.values())
+            archivio.aggiungiUtente(utente);
+        for (Prestito prestito : prestiti.values())
+            archivio.aggiungiPrestito(prestito);
+    }
+
+    /**
+     * @brief Restituisce un prestito collegato alle istanze correnti.
+     * @details Se il prestito riferisce già le istanze correnti viene
+     * restituito invariato, altrimenti ne viene creata una copia con lo stesso
+     * id collegata alle istanze corrette.
+     */
+    private Prestito ricollega(Prestito prestito) {
+        Libro libro = libri.getOrDefault(prestito.getLibro().getIsbn(), prestito.getLibro());
+        Utente utente = utenti.getOrDefault(prestito.getUtente().getMatricola(), prestito.getUtente());
+        if (libro == prestito.getLibro() && utente == prestito.getUtente())
+            return prestito;
+
+        Prestito collegato = new Prestito(prestito.getId(), utente, libro, prestito.getDataInizio(), prestito.getDataPrevista());
+        collegato.setStato(prestito.getStato());
+        collegato.setDataRestituzioneEffettiva(prestito.getDataRestituzioneEffettiva());
+        return collegato;
+    }
+}
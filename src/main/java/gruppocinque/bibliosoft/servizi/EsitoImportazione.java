@@ -0,0 +1,125 @@
+/**
+ * @file EsitoImportazione.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.servizi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @brief Risultato di un'importazione da file CSV.
+ * @details Riporta il numero di righe lette, di elementi importati e di righe
+ * scartate. Delle righe scartate vengono conservati numero di riga e motivo,
+ * fino a {@link #MAX_ERRORI}: un file interamente errato non deve occupare
+ * memoria in proporzione alla propria dimensione.
+ *
+ * @see ServizioImportazione
+ */
+public class EsitoImportazione {
+
+    /**
+     * @brief Numero massimo di errori conservati con il loro dettaglio.
+     */
+    public static final int MAX_ERRORI = 1000;
+
+    private long righe = 0;
+    private long importati = 0;
+    private long scartate = 0;
+    private final List<Errore> errori = new ArrayList<>();
+
+    /**
+     * @brief Restituisce il numero di righe di dati lette (intestazione esclusa).
+     *
+     * @return Le righe lette.
+     */
+    public long getRighe() {
+        return righe;
+    }
+
+    /**
+     * @brief Restituisce il numero di elementi aggiunti all'archivio.
+     *
+     * @return Gli elementi importati.
+     */
+    public long getImportati() {
+        return importati;
+    }
+
+    /**
+     * @brief Restituisce il numero di righe scartate.
+     * @details Comprende anche le righe il cui dettaglio non è stato
+     * conservato perché oltre {@link #MAX_ERRORI}.
+     *
+     * @return Le righe scartate.
+     */
+    public long getScartate() {
+        return scartate;
+    }
+
+    /**
+     * @brief Restituisce il dettaglio delle righe scartate.
+     *
+     * @return I primi {@link #MAX_ERRORI} errori, in ordine di riga.
+     */
+    public List<Errore> getErrori() {
+        return Collections.unmodifiableList(errori);
+    }
+
+    void aggiungiRighe(int numero) {
+        righe += numero;
+    }
+
+    void aggiungiImportati(int numero) {
+        importati += numero;
+    }
+
+    void aggiungiErrore(Errore errore) {
+        scartate++;
+        if (errori.size() < MAX_ERRORI)
+            errori.add(errore);
+    }
+
+    @Override
+    public String toString() {
+        return "Righe lette: " + righe + ", importate: " + importati + ", scartate: " + scartate;
+    }
+
+    /**
+     * @brief Riga del file CSV scartata durante l'importazione.
+     */
+    public static class Errore {
+        private final long riga;
+        private final String messaggio;
+
+        Errore(long riga, String messaggio) {
+            this.riga = riga;
+            this.messaggio = messaggio;
+        }
+
+        /**
+         * @brief Restituisce il numero della riga nel file, a partire da 1.
+         *
+         * @return Il numero di riga (la prima, se il record occupa più righe).
+         */
+        public long getRiga() {
+            return riga;
+        }
+
+        /**
+         * @brief Restituisce il motivo per cui la riga è stata scartata.
+         *
+         * @return Il messaggio di errore.
+         */
+        public String getMessaggio() {
+            return messaggio;
+        }
+
+        @Override
+        public String toString() {
+            return "Riga " + riga + ": " + messaggio;
+        }
+    }
+}
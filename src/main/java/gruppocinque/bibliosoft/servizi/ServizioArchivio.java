@@ -9,28 +9,57 @@ import gruppocinque.bibliosoft.modelli.Utente;
 import gruppocinque.bibliosoft.modelli.Prestito;
 import gruppocinque.bibliosoft.modelli.Libro;
 import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.persistenza.CodecArchivio;
+import gruppocinque.bibliosoft.persistenza.Giornale;
+import gruppocinque.bibliosoft.persistenza.RicostruttoreArchivio;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.util.HashMap;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.Map;
 
 /**
  * @brief Gestisce la persistenza dei dati su file binario.
- * @details Questa classe si occupa di serializzare e deserializzare l'intero
- * stato dell'applicazione (Libri, Utenti, Prestiti) su un file locale.
+ * @details Questa classe si occupa di scrivere e leggere l'intero stato
+ * dell'applicazione (Libri, Utenti, Prestiti) su un file locale, nel formato
+ * binario definito da CodecArchivio.
+ *
+ * Dopo il caricamento ogni modifica all'archivio viene accodata in un giornale
+ * (file con estensione {@link #ESTENSIONE_GIORNALE}) nel momento in cui avviene;
+ * all'avvio successivo il giornale viene riapplicato sull'ultimo salvataggio
+ * completo. Il salvataggio completo viene quindi eseguito solo quando il
+ * giornale supera {@link #SOGLIA_COMPATTAZIONE} byte.
  *
  * @invariant {@code fileArchivio != null}
  * @invariant {@code archivio != null}
+ * @invariant {@code giornale != null}
  */
 
 public class ServizioArchivio {
+    /**
+     * @brief Estensione aggiunta al percorso dell'archivio per ottenere quello del giornale.
+     */
+    public static final String ESTENSIONE_GIORNALE = ".log";
+
+    /**
+     * @brief Dimensione del giornale (in byte) oltre la quale salva() esegue un salvataggio completo.
+     */
+    public static final long SOGLIA_COMPATTAZIONE = 4L * 1024 * 1024;
+
     private final String fileArchivio;  //attributo contenente il percorso dove si desidera salvare o caricare il file
     private final Archivio archivio;    //attributo archivio
+    private final Giornale giornale;    //giornale delle modifiche successive all'ultimo salvataggio completo
+    private boolean giornaleAttivo = false; //true se il giornale è registrato come osservatore dell'archivio
 
     /**
      * @brief Costruisce il servizio di archiviazione.
@@ -44,70 +73,171 @@ public class ServizioArchivio {
     public ServizioArchivio(String fileArchivio, Archivio archivio) {
         this.fileArchivio = fileArchivio;
         this.archivio = archivio;
+        this.giornale = new Giornale(fileArchivio + ESTENSIONE_GIORNALE);
     }
 
     /**
      * @brief Carica i dati dal file all'avvio dell'applicazione.
      * @details
-     * Tenta di leggere il file specificato. Se esiste, deserializza le liste di Libri,
-     * Utenti e Prestiti e popola l'archivio in memoria.
+     * Tenta di leggere il file specificato. Se esiste, ne legge Libri, Utenti e
+     * Prestiti riconoscendo il formato dall'intestazione (binario di
+     * CodecArchivio oppure serializzazione Java delle versioni precedenti); successivamente riapplica le operazioni registrate nel
+     * giornale e popola l'archivio in memoria. Da questo momento in poi ogni
+     * modifica all'archivio viene registrata nel giornale.
+     *
+     * Se il file dell'archivio non è leggibile il giornale non viene
+     * riapplicato né attivato, per non mescolarlo con dati incompleti.
      *
-     * @pre Il file, se esiste, deve contenere una Map serializzata compatibile.
-     * @post L'archivio in memoria contiene i dati letti dal file.
+     * @pre Il file, se esiste, deve essere nel formato binario o contenere una Map serializzata compatibile.
+     * @post L'archivio in memoria contiene i dati letti dal file e dal giornale.
      */
     public void carica(){
+        RicostruttoreArchivio ricostruttore = new RicostruttoreArchivio();  //raccoglie i dati letti prima di popolare l'archivio
         File file = new File(fileArchivio); //creo il file usando il percorso specificato
-        if (!file.exists())   //se il file non esiste...
-            return; // nessun dato da caricare, è normale al primo avvio
         
+        if (file.exists()) {  //se il file non esiste non c'è nessun salvataggio completo, è normale al primo avvio
+            try(DataInputStream ingresso = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))){ //con questo tipo di try lo stream viene chiuso automaticamente
+                ingresso.mark(Integer.BYTES);
+                if (CodecArchivio.isFormatoBinario(ingresso.readInt())) {  //riconosco il formato dal numero magico iniziale
+                    CodecArchivio.leggi(ingresso, ricostruttore);
+                } else {
+                    ingresso.reset();   //file salvato da una versione precedente: lo rileggo dall'inizio
+                    leggiFormatoSerializzato(ingresso, ricostruttore);
+                }
+            }catch(ClassNotFoundException | IOException | ClassCastException e){
+                //potrebbe essere lanciata una IOException se il file è inesistente, non leggibile, o ci sono problemi di permessi ecc.
+                //potrebbe essere lanciata una ClassNotFoundException se una delle classi serializzate non è disponibile
+                //potrebbe essere lanciata una ClassCastException se il tipo nel cast non è quello atteso
+                e.printStackTrace();
+                return;
+            }
+        }
         
-        try(ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))){//creo l'ois per poter estrarre gli oggetti dal file input stream overro lo stream dal file (con questo tipo di try lo stream viene chiuso automaticamente)
-            //legge dal file un oggetto serializzato e lo interpreta come Map<String, Object> (assumendo che nel file sia stato salvato proprio una Map con chiavi "libri", "utenti", "prestiti")
-            Map<String, Object> mappa = (Map<String, Object>) ois.readObject();
-            
-            List<Libro> libri = (List<Libro>) mappa.get("libri");    //estrae dalla mappa il valore associato alla chiave "libri" e lo converte in List<Libro>
-            List<Utente> utenti = (List<Utente>) mappa.get("utenti");    //estrae dalla mappa il valore associato alla chiave "utenti" e lo converte in List<Utente>
-            List<Prestito> prestiti = (List<Prestito>) mappa.get("prestiti");    //estrae dalla mappa il valore associato alla chiave "prestiti" e lo converte in List<Prestito>
-            
-            if (libri != null)  //se la lista di libri non è null...
-                for(Libro libro : libri)    //ogni libro della lista...
-                    archivio.aggiungiLibro(libro);  //viene aggiunto all'archivio
-            
-            if (utenti != null)  //se la lista di utenti non è null...
-                for(Utente utente : utenti)    //ogni utente della lista...
-                    archivio.aggiungiUtente(utente);  //viene aggiunto all'archivio
-            
-            if (prestiti != null)  //se la lista di prestiti non è null...
-                for(Prestito prestito : prestiti)    //ogni prestito della lista..
-                    archivio.aggiungiPrestito(prestito);  //viene aggiunto all'archivio
-        }catch(ClassNotFoundException | IOException | ClassCastException e){
-            //potrebbe essere lanciata una IOException se il file è inesistente, non leggibile, o ci sono problemi di permessi ecc.
-            //potrebbe essere lanciata una ClassNotFoundException se una delle classi serializzate non è disponibile
-            //potrebbe essere lanciata una ClassCastException se il tipo nel cast non è quello atteso
+        try {
+            giornale.riproduci(ricostruttore); //riapplico le modifiche successive all'ultimo salvataggio completo
+        } catch (IOException e) {
+            //il giornale è illeggibile: carico comunque l'ultimo salvataggio completo
             e.printStackTrace();
         }
+        
+        ricostruttore.popola(archivio); //popolo l'archivio ricollegando prestiti, libri e utenti
+        archivio.aggiungiOsservatore(giornale); //da ora in poi ogni modifica viene registrata nel giornale
+        giornaleAttivo = true;
+    }
+
+    /**
+     * @brief Legge un archivio salvato con la serializzazione Java.
+     * @details Formato usato dalle versioni precedenti: una Map con chiavi
+     * "libri", "utenti" e "prestiti". Viene letto solo per compatibilità; il
+     * primo salvataggio completo riscrive il file nel formato binario.
+     *
+     * @param[in] ingresso Il flusso posizionato all'inizio del file.
+     * @param[in] ricostruttore Destinatario degli elementi letti.
+     */
+    private void leggiFormatoSerializzato(InputStream ingresso, RicostruttoreArchivio ricostruttore) throws IOException, ClassNotFoundException {
+        ObjectInputStream ois = new ObjectInputStream(ingresso);  //creo l'ois per poter estrarre gli oggetti dal flusso
+        //legge dal file un oggetto serializzato e lo interpreta come Map<String, Object> (assumendo che nel file sia stato salvato proprio una Map con chiavi "libri", "utenti", "prestiti")
+        Map<String, Object> mappa = (Map<String, Object>) ois.readObject();
+
+        List<Libro> libri = (List<Libro>) mappa.get("libri");    //estrae dalla mappa il valore associato alla chiave "libri" e lo converte in List<Libro>
+        List<Utente> utenti = (List<Utente>) mappa.get("utenti");    //estrae dalla mappa il valore associato alla chiave "utenti" e lo converte in List<Utente>
+        List<Prestito> prestiti = (List<Prestito>) mappa.get("prestiti");    //estrae dalla mappa il valore associato alla chiave "prestiti" e lo converte in List<Prestito>
+
+        if (libri != null)  //se la lista di libri non è null...
+            for(Libro libro : libri)    //ogni libro della lista...
+                ricostruttore.aggiungiLibro(libro);  //viene raccolto dal ricostruttore
+
+        if (utenti != null)  //se la lista di utenti non è null...
+            for(Utente utente : utenti)    //ogni utente della lista...
+                ricostruttore.aggiungiUtente(utente);  //viene raccolto dal ricostruttore
+
+        if (prestiti != null)  //se la lista di prestiti non è null...
+            for(Prestito prestito : prestiti)    //ogni prestito della lista..
+                ricostruttore.aggiungiPrestito(prestito);  //viene raccolto dal ricostruttore
     }
 
     /**
      * @brief Salva lo stato corrente dell'archivio su file.
      * @details
      * Implementa il Caso d'Uso 16 (Salvataggio dati).
-     * Serializza le liste correnti di Libri, Utenti e Prestiti.
+     * Se il giornale è attivo e ancora piccolo, le modifiche sono già
+     * registrate su file e il salvataggio si limita a sincronizzarlo su disco;
+     * altrimenti, o se la sincronizzazione fallisce perché una modifica non è
+     * stata scritta nel giornale, viene eseguito un salvataggio completo
+     * tramite compatta().
      *
      * @pre L'archivio è in uno stato consistente.
-     * @post Se non si verifica alcun errore di I/O, il file su disco
-     *       riflette esattamente il contenuto della memoria
+     * @post Se non si verifica alcun errore di I/O, i file su disco
+     *       riflettono esattamente il contenuto della memoria
      */
     public void salva(){
-        Map<String, Object> mappa = new HashMap<>(); //creo una mappa che associa a una stringa(es.libri) un oggetto (es.lista di libri)
-        mappa.put("libri", archivio.listaLibri());   // "libri" -> lista di libri
-        mappa.put("utenti", archivio.listaUtenti());   // "utenti" -> lista di utenti
-        mappa.put("prestiti", archivio.listaPrestiti());   // "prestiti" -> lista di prestiti
-        
-        try(ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(fileArchivio))){   //creo un oos per scrivere su file l'oggetto, ovvero la mappa (con questo tipo di try lo stream viene chiuso automaticamente)
-            oos.writeObject(mappa); //scrivo la mappa sul file
-        }catch(IOException e){
+        if (giornaleAttivo && new File(fileArchivio).exists() && giornale.dimensione() < SOGLIA_COMPATTAZIONE) {
+            try {
+                giornale.sincronizza(); //le modifiche sono già nel giornale: basta forzarle su disco
+                return;
+            } catch (IOException e) {
+                e.printStackTrace();    //il giornale è incompleto: ripiego sul salvataggio completo, che lo svuota
+            }
+        }
+        compatta(); //altrimenti eseguo il salvataggio completo
+    }
+
+    /**
+     * @brief Esegue un salvataggio completo e svuota il giornale.
+     * @details
+     * Scrive Libri, Utenti e Prestiti nel formato binario di CodecArchivio su
+     * un file temporaneo che sostituisce atomicamente quello precedente; solo a
+     * sostituzione avvenuta il giornale viene svuotato.
+     *
+     * L'intera operazione avviene con il lock in scrittura dell'archivio: una
+     * modifica registrata nel giornale fra la scrittura del file e lo
+     * svuotamento del giornale andrebbe altrimenti persa.
+     *
+     * @pre L'archivio è in uno stato consistente.
+     * @post Se non si verifica alcun errore di I/O, il file su disco
+     *       riflette esattamente il contenuto della memoria e il giornale è vuoto.
+     */
+    public void compatta(){
+        File temporaneo = new File(fileArchivio + ".tmp");  //scrivo prima su un file temporaneo, così un errore non corrompe l'ultimo salvataggio
+        try{
+            archivio.eseguiAtomicamente(() -> {    //nessuna modifica fra l'istantanea e lo svuotamento del giornale
+                try{
+                    try(FileOutputStream flusso = new FileOutputStream(temporaneo);
+                        DataOutputStream uscita = new DataOutputStream(new BufferedOutputStream(flusso))){   //con questo tipo di try lo stream viene chiuso automaticamente
+                        CodecArchivio.scrivi(uscita, archivio); //scrivo libri, utenti e prestiti nel formato binario
+                        flusso.getFD().sync();  //mi assicuro che il file sia su disco prima di sostituire il precedente
+                    }
+                    Files.move(temporaneo.toPath(), new File(fileArchivio).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE); //sostituisco il vecchio salvataggio
+                    giornale.tronca();  //le modifiche registrate sono ora incluse nel salvataggio completo
+                }catch(IOException e){
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }catch(UncheckedIOException e){
             //potrebbe lanciare una IOException se il file è bloccato o ci sono problemi di permessi
+            e.getCause().printStackTrace();
+        }
+    }
+
+    /**
+     * @brief Indica se le modifiche vengono registrate nel giornale.
+     * @details
+     * @return true se il giornale è attivo (dopo carica()).
+     */
+    public boolean isGiornaleAttivo() {
+        return giornaleAttivo;
+    }
+
+    /**
+     * @brief Sincronizza e chiude il giornale.
+     * @details Da invocare alla chiusura dell'applicazione.
+     *
+     * @post Tutte le modifiche registrate sono persistite su disco.
+     */
+    public void chiudi() {
+        try {
+            giornale.chiudi();
+        } catch (IOException e) {
             e.printStackTrace();
         }
     }
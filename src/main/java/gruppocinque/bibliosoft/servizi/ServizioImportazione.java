@@ -0,0 +1,358 @@
+/**
+ * @file ServizioImportazione.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.servizi;
+
+import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.modelli.Libro;
+import gruppocinque.bibliosoft.modelli.Utente;
+import gruppocinque.bibliosoft.strumenti.Validatore;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * @brief Importa libri e utenti da file CSV.
+ * @details Il file viene letto un blocco di righe alla volta, senza mai
+ * caricarlo per intero in memoria. Per ogni blocco:
+ * * le righe vengono interpretate e validate in parallelo (Validatore), e gli
+ *   elementi validi vengono ordinati;
+ * * gli elementi validi vengono aggiunti all'archivio con un'unica operazione
+ *   (Archivio.aggiungiLibri() / aggiungiUtenti()), che scarta i duplicati e
+ *   li inserisce uno alla volta in ordine, con un solo incremento di versione
+ *   per blocco.
+ *
+ * Lettura e validazione del blocco successivo procedono mentre il blocco
+ * corrente viene inserito. Le righe non valide o già presenti vengono scartate
+ * senza interrompere l'importazione e riportate nell'EsitoImportazione.
+ *
+ * Formato dei file (UTF-8, separatore virgola, campi tra virgolette se
+ * contengono virgole, virgolette o a capo; virgolette raddoppiate all'interno):
+ * * libri: {@code isbn,titolo,autori,anno,copie}, con gli autori separati da {@code ;}
+ * * utenti: {@code matricola,nome,cognome,email}
+ *
+ * La prima riga è considerata un'intestazione, e ignorata, se il suo primo
+ * campo è "isbn" (libri) o "matricola" (utenti). Le righe vuote sono ignorate.
+ *
+ * @invariant {@code archivio != null}
+ */
+public class ServizioImportazione {
+
+    /**
+     * @brief Numero di righe lette e validate insieme.
+     */
+    public static final int DIMENSIONE_BLOCCO = 50_000;
+
+    private static final int CAMPI_LIBRO = 5;
+    private static final int CAMPI_UTENTE = 4;
+
+    private final Archivio archivio;    //attributo archivio
+    private final int dimensioneBlocco;
+
+    /**
+     * @brief Costruttore del servizio.
+     * @details
+     * @param[in] archivio Riferimento all'archivio centrale condiviso.
+     *
+     * @pre {@code archivio != null}
+     * @post attributi correttamente inizializzati.
+     */
+    public ServizioImportazione(Archivio archivio) {
+        this(archivio, DIMENSIONE_BLOCCO);
+    }
+
+    ServizioImportazione(Archivio archivio, int dimensioneBlocco) {
+        if (dimensioneBlocco < 1)
+            throw new IllegalArgumentException("Dimensione del blocco non valida");
+        this.archivio = archivio;
+        this.dimensioneBlocco = dimensioneBlocco;
+    }
+
+    /**
+     * @brief Importa i libri da un file CSV.
+     * @details
+     * @param[in] file Il file CSV, codificato in UTF-8.
+     *
+     * @return L'esito dell'importazione.
+     *
+     * @throws IOException Se il file non può essere letto.
+     */
+    public EsitoImportazione importaLibri(File file) throws IOException {
+        try (Reader sorgente = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            return importaLibri(sorgente);
+        }
+    }
+
+    /**
+     * @brief Importa i libri da un flusso di testo CSV.
+     * @details Le righe con ISBN già presente nell'archivio o ripetuto nel file
+     * (oltre la prima occorrenza) vengono scartate.
+     *
+     * @param[in] sorgente Il flusso da leggere; non viene chiuso.
+     *
+     * @return L'esito dell'importazione.
+     *
+     * @throws IOException Se il flusso non può essere letto.
+     */
+    public EsitoImportazione importaLibri(Reader sorgente) throws IOException {
+        return importa(sorgente, "isbn", CAMPI_LIBRO, ServizioImportazione::creaLibro, Validatore::validaLibro, archivio::aggiungiLibri);
+    }
+
+    /**
+     * @brief Importa gli utenti da un file CSV.
+     * @details
+     * @param[in] file Il file CSV, codificato in UTF-8.
+     *
+     * @return L'esito dell'importazione.
+     *
+     * @throws IOException Se il file non può essere letto.
+     */
+    public EsitoImportazione importaUtenti(File file) throws IOException {
+        try (Reader sorgente = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            return importaUtenti(sorgente);
+        }
+    }
+
+    /**
+     * @brief Importa gli utenti da un flusso di testo CSV.
+     * @details Le righe con matricola o email già presenti nell'archivio o
+     * ripetute nel file (oltre la prima occorrenza) vengono scartate.
+     *
+     * @param[in] sorgente Il flusso da leggere; non viene chiuso.
+     *
+     * @return L'esito dell'importazione.
+     *
+     * @throws IOException Se il flusso non può essere letto.
+     */
+    public EsitoImportazione importaUtenti(Reader sorgente) throws IOException {
+        return importa(sorgente, "matricola", CAMPI_UTENTE, ServizioImportazione::creaUtente, Validatore::validaUtente, archivio::aggiungiUtenti);
+    }
+
+    private <T> EsitoImportazione importa(Reader sorgente, String intestazione, int numeroCampi, Function<List<String>, T> costruttore,
+            Consumer<T> validatore, Function<List<T>, List<T>> inserimento) throws IOException {
+        LettoreCsv lettore = new LettoreCsv(sorgente, intestazione);
+        EsitoImportazione esito = new EsitoImportazione();
+        Function<List<Record>, List<Riga<T>>> validazione = record -> valida(record, numeroCampi, costruttore, validatore);
+
+        List<Record> blocco = lettore.leggiBlocco(dimensioneBlocco);
+        CompletableFuture<List<Riga<T>>> inValidazione = blocco.isEmpty() ? null : CompletableFuture.supplyAsync(() -> validazione.apply(blocco));
+        while (inValidazione != null) {
+            List<Record> successivo = lettore.leggiBlocco(dimensioneBlocco);   //la lettura procede mentre il blocco corrente viene validato
+            List<Riga<T>> righe = attendi(inValidazione);
+            inValidazione = successivo.isEmpty() ? null : CompletableFuture.supplyAsync(() -> validazione.apply(successivo));
+            inserisci(righe, inserimento, esito);   //l'inserimento procede mentre il blocco successivo viene validato
+        }
+        return esito;
+    }
+
+    /**
+     * @brief Interpreta e valida in parallelo un blocco di record.
+     *
+     * @return Una riga per record, nell'ordine del file, con l'elemento valido o il motivo dello scarto.
+     */
+    private static <T> List<Riga<T>> valida(List<Record> blocco, int numeroCampi, Function<List<String>, T> costruttore, Consumer<T> validatore) {
+        return blocco.parallelStream().map(record -> {
+            try {
+                List<String> campi = LettoreCsv.campi(record.testo);
+                if (campi.size() != numeroCampi)
+                    throw new IllegalArgumentException("Numero di campi errato: attesi " + numeroCampi + ", trovati " + campi.size());
+                T elemento = costruttore.apply(campi);
+                validatore.accept(elemento);
+                return new Riga<>(record.numero, elemento, null);
+            } catch (IllegalArgumentException | NullPointerException e) {
+                return new Riga<T>(record.numero, null, e.getMessage());
+            }
+        }).collect(Collectors.toList());
+    }
+
+    private static <T> void inserisci(List<Riga<T>> righe, Function<List<T>, List<T>> inserimento, EsitoImportazione esito) {
+        List<T> validi = new ArrayList<>(righe.size());
+        for (Riga<T> riga : righe)
+            if (riga.elemento != null)
+                validi.add(riga.elemento);
+        validi = ordina(validi);    //ordinati fuori dal lock dell'archivio: il suo riordinamento di una lista già ordinata costa un solo passaggio
+
+        Set<T> aggiunti = Collections.newSetFromMap(new IdentityHashMap<>());
+        aggiunti.addAll(inserimento.apply(validi));
+
+        // Riporto gli scarti nell'ordine del file
+        esito.aggiungiRighe(righe.size());
+        esito.aggiungiImportati(aggiunti.size());
+        for (Riga<T> riga : righe) {
+            if (riga.elemento == null)
+                esito.aggiungiErrore(new EsitoImportazione.Errore(riga.numero, riga.errore));
+            else if (!aggiunti.contains(riga.elemento))
+                esito.aggiungiErrore(new EsitoImportazione.Errore(riga.numero, riga.elemento.getClass().getSimpleName() + " già presente"));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> ordina(List<T> elementi) {
+        Object[] ordinati = elementi.toArray();
+        Arrays.parallelSort(ordinati, (primo, secondo) -> ((Comparable<Object>) primo).compareTo(secondo));
+        return (List<T>) Arrays.asList(ordinati);
+    }
+
+    private static <T> T attendi(CompletableFuture<T> risultato) {
+        try {
+            return risultato.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    private static Libro creaLibro(List<String> campi) {
+        List<String> autori = new ArrayList<>();
+        for (String autore : campi.get(2).split(";"))
+            if (!autore.isBlank())
+                autori.add(autore.trim());
+        return new Libro(campi.get(0), campi.get(1), autori, intero(campi.get(3), "Anno non valido"), intero(campi.get(4), "Numero copie non valido"));
+    }
+
+    private static Utente creaUtente(List<String> campi) {
+        return new Utente(campi.get(0), campi.get(1), campi.get(2), campi.get(3));
+    }
+
+    private static int intero(String campo, String messaggio) {
+        try {
+            return Integer.parseInt(campo);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(messaggio + ": " + campo);
+        }
+    }
+
+    /**
+     * @brief Record del file: numero della prima riga e testo (più righe se un campo tra virgolette va a capo).
+     */
+    private static final class Record {
+        private final long numero;
+        private final String testo;
+
+        private Record(long numero, String testo) {
+            this.numero = numero;
+            this.testo = testo;
+        }
+    }
+
+    /**
+     * @brief Esito della validazione di un record: l'elemento, se valido, o il motivo dello scarto.
+     */
+    private static final class Riga<T> {
+        private final long numero;
+        private final T elemento;
+        private final String errore;
+
+        private Riga(long numero, T elemento, String errore) {
+            this.numero = numero;
+            this.elemento = elemento;
+            this.errore = errore;
+        }
+    }
+
+    /**
+     * @brief Legge un flusso CSV un blocco di record alla volta.
+     */
+    private static final class LettoreCsv {
+        private final BufferedReader lettore;
+        private final String intestazione;
+        private long riga = 0;
+        private boolean primo = true;
+
+        private LettoreCsv(Reader sorgente, String intestazione) {
+            this.lettore = sorgente instanceof BufferedReader ? (BufferedReader) sorgente : new BufferedReader(sorgente);
+            this.intestazione = intestazione;
+        }
+
+        /**
+         * @brief Legge al più {@code dimensione} record.
+         *
+         * @return I record letti; vuoto a fine flusso.
+         */
+        private List<Record> leggiBlocco(int dimensione) throws IOException {
+            List<Record> blocco = new ArrayList<>();
+            String linea;
+            while (blocco.size() < dimensione && (linea = lettore.readLine()) != null) {
+                long numero = ++riga;
+                if (primo) {
+                    primo = false;
+                    if (!linea.isEmpty() && linea.charAt(0) == '\uFEFF')
+                        linea = linea.substring(1);   //BOM di UTF-8
+                    if (campi(linea).get(0).equalsIgnoreCase(intestazione))
+                        continue;
+                }
+                if (linea.isBlank())
+                    continue;
+                boolean aperte = virgoletteDispari(linea);
+                if (!aperte) {
+                    blocco.add(new Record(numero, linea));
+                    continue;
+                }
+                StringBuilder testo = new StringBuilder(linea);
+                while (aperte && (linea = lettore.readLine()) != null) {    //un campo tra virgolette prosegue sulla riga successiva
+                    riga++;
+                    testo.append('\n').append(linea);
+                    aperte ^= virgoletteDispari(linea); //esamino solo la riga aggiunta, non l'intero record
+                }
+                blocco.add(new Record(numero, testo.toString()));
+            }
+            return blocco;
+        }
+
+        private static boolean virgoletteDispari(String linea) {
+            boolean dispari = false;
+            for (int i = 0; i < linea.length(); i++)
+                if (linea.charAt(i) == '"')
+                    dispari = !dispari;   //le virgolette raddoppiate si annullano a vicenda
+            return dispari;
+        }
+
+        /**
+         * @brief Divide un record nei suoi campi, rimuovendo virgolette e spazi esterni.
+         */
+        private static List<String> campi(String testo) {
+            List<String> campi = new ArrayList<>();
+            StringBuilder campo = new StringBuilder();
+            boolean virgolette = false;
+            for (int i = 0; i < testo.length(); i++) {
+                char c = testo.charAt(i);
+                if (virgolette) {
+                    if (c != '"') {
+                        campo.append(c);
+                    } else if (i + 1 < testo.length() && testo.charAt(i + 1) == '"') {
+                        campo.append('"');  //virgolette raddoppiate
+                        i++;
+                    } else {
+                        virgolette = false;
+                    }
+                } else if (c == '"') {
+                    virgolette = true;
+                } else if (c == ',') {
+                    campi.add(campo.toString().trim());
+                    campo.setLength(0);
+                } else {
+                    campo.append(c);
+                }
+            }
+            campi.add(campo.toString().trim());
+            return campi;
+        }
+    }
+}
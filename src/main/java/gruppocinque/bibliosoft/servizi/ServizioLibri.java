@@ -7,6 +7,7 @@ package gruppocinque.bibliosoft.servizi;
 
 import gruppocinque.bibliosoft.modelli.Libro;
 import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.archivi.BlocchiEntita;
 import gruppocinque.bibliosoft.archivi.filtri.FiltroLibro;
 import gruppocinque.bibliosoft.archivi.filtri.InterfacciaFiltro;
 import gruppocinque.bibliosoft.strumenti.Validatore;
@@ -89,19 +90,19 @@ public class ServizioLibri {
     public void modificaLibro(Libro libro) {        
         Validatore.validaLibro(libro);  //se il validatore valida libro da modificare(tutti i parametri sono validi)...
         
-        List<Libro> risultati = archivio.cercaLibri(FiltroLibro.ricercaIsbn(libro.getIsbn()));
-        
-        if(risultati.isEmpty())
-            throw new IllegalArgumentException("Libro non trovato");
-        
-        Libro libroDaModificare = risultati.get(0);
-        
-        if(libro.getCopieTotali() < libroDaModificare.getCopieInPrestito())
-            throw new IllegalArgumentException("Copie totali troppo basso. (" + libroDaModificare.getCopieInPrestito() + " copie attualmente in prestito)");
-        
-        libro.setCopieDisponibili(libroDaModificare.getCopieDisponibili() + libro.getCopieTotali() - libroDaModificare.getCopieTotali());
-        
-        archivio.modificaLibro(libro);  //...allora modifico il libro nell'archivio
+        archivio.getBlocchi().esegui(() -> {   //verifica e modifica delle copie non devono essere intercalate da un prestito o una restituzione dello stesso libro
+            Libro libroDaModificare = archivio.trovaLibro(libro.getIsbn());    //ricerca puntuale tramite l'indice per ISBN
+
+            if(libroDaModificare == null)
+                throw new IllegalArgumentException("Libro non trovato");
+
+            if(libro.getCopieTotali() < libroDaModificare.getCopieInPrestito())
+                throw new IllegalArgumentException("Copie totali troppo basso. (" + libroDaModificare.getCopieInPrestito() + " copie attualmente in prestito)");
+
+            libro.setCopieDisponibili(libroDaModificare.getCopieDisponibili() + libro.getCopieTotali() - libroDaModificare.getCopieTotali());
+
+            archivio.modificaLibro(libro);  //...allora modifico il libro nell'archivio
+        }, BlocchiEntita.libro(libro.getIsbn()));
     }
 
     /**
@@ -126,9 +127,12 @@ public class ServizioLibri {
      * @see Archivio
      */
     public void eliminaLibro(Libro libro) {
-        if (libro.haPrestitiAttivi())   //se il libro  ha prestiti attivi...
-            throw new IllegalStateException("Impossibile eliminare: libro in prestito");  //lancio l'eccezione
-        archivio.rimuoviLibro(libro);   //...allora rimuovo il libro dall'archivio
+        archivio.getBlocchi().esegui(() -> {   //un prestito dello stesso libro non può essere registrato fra verifica e rimozione
+            Libro memorizzato = archivio.trovaLibro(libro.getIsbn());   //le copie in prestito sono quelle del libro in archivio
+            if ((memorizzato != null ? memorizzato : libro).haPrestitiAttivi())   //se il libro  ha prestiti attivi...
+                throw new IllegalStateException("Impossibile eliminare: libro in prestito");  //lancio l'eccezione
+            archivio.rimuoviLibro(libro);   //...allora rimuovo il libro dall'archivio
+        }, BlocchiEntita.libro(libro.getIsbn()));
     }
 
     /**
@@ -142,6 +146,19 @@ public class ServizioLibri {
         return archivio.listaLibri();   //restituisco l'intera lista di libri
     }
 
+    /**
+     * @brief Restituisce il libro con l'ISBN indicato.
+     * @details Ricerca puntuale a tempo costante, da preferire al filtro per
+     * ISBN quando si cerca un singolo libro.
+     *
+     * @param[in] isbn L'ISBN cercato.
+     *
+     * @return Il libro, oppure null se non presente nel catalogo.
+     */
+    public Libro trovaLibro(String isbn) {
+        return archivio.trovaLibro(isbn);   //restituisco il libro trovato tramite l'indice per ISBN
+    }
+
     /**
      * @brief Cerca libri che soddisfano un determinato filtro.
      * @details Implementa il Caso d'Uso 6 (Ricerca libro) e RF 3.1.1.5
@@ -157,6 +174,45 @@ public class ServizioLibri {
         return archivio.cercaLibri(filtro); //retuisco la lista filtrata
     }
 
+    /**
+     * @brief Conta i libri che soddisfano un filtro.
+     * @details Usato insieme a paginaLibri() per popolare la tabella senza
+     * caricare l'intero catalogo.
+     *
+     * @param[in] filtro Criterio di filtraggio. Se null, conta tutti i libri.
+     *
+     * @return Numero di libri trovati.
+     */
+    public int contaLibri(InterfacciaFiltro<Libro> filtro) {
+        return archivio.contaLibri(filtro); //restituisco il conteggio fatto dall'archivio senza costruire la lista
+    }
+
+    /**
+     * @brief Restituisce una pagina dei libri che soddisfano un filtro.
+     * @details
+     * @param[in] filtro Criterio di filtraggio. Se null, considera tutti i libri.
+     * @param[in] offset Numero di libri da saltare.
+     * @param[in] limite Numero massimo di libri da restituire.
+     *
+     * @return La pagina richiesta, nell'ordine del catalogo.
+     */
+    public List<Libro> paginaLibri(InterfacciaFiltro<Libro> filtro, int offset, int limite) {
+        return archivio.paginaLibri(filtro, offset, limite);
+    }
+
+    /**
+     * @brief Restituisce la pagina dei libri successiva a un libro dato.
+     * @details
+     * @param[in] filtro Criterio di filtraggio. Se null, considera tutti i libri.
+     * @param[in] ultimo Ultimo libro della pagina precedente, null per la prima pagina.
+     * @param[in] limite Numero massimo di libri da restituire.
+     *
+     * @return La pagina richiesta, nell'ordine del catalogo.
+     */
+    public List<Libro> paginaLibriDopo(InterfacciaFiltro<Libro> filtro, Libro ultimo, int limite) {
+        return archivio.paginaLibriDopo(filtro, ultimo, limite);
+    }
+
     /**
      * @brief Restituisce il numero totale di titoli unici (ISBN) nel catalogo.
      * @details Utilizzato per la Dashboard (UC1 - Visualizzazione
@@ -174,17 +230,12 @@ public class ServizioLibri {
      * @details Utilizzato per la Dashboard (UC1 - Visualizzazione
      * Dashboard).
      *
-     * Itera su tutti i libri sommando il campo 'copieTotali'.
+     * Restituisce il contatore mantenuto dalle statistiche dell'archivio.
      *
      * @return Somma totale delle copie.
      */
     public int getCopieTotali() {
-        int contatore = 0;  //contatore
-        for (Libro libro : archivio.listaLibri())   //per ogni libro dell'archivio...
-            contatore += libro.getCopieTotali();    //...conto quante copie totali ha
-        
-
-        return contatore;   //restituisco il conteggio
+        return archivio.getStatistiche().getCopieTotali();  //restituisco il contatore aggiornato dall'archivio a ogni modifica
     }
 
     /**
@@ -193,16 +244,13 @@ public class ServizioLibri {
      * @details Utilizzato per la Dashboard (UC1 - Visualizzazione
      * Dashboard).
      *
-     * Itera su tutti i libri sommando il campo 'copieDisponibili'.
+     * Restituisce il contatore mantenuto dalle statistiche dell'archivio: le
+     * variazioni delle copie disponibili passano da modificaLibro() (vedi
+     * ServizioPrestiti), per cui non serve scorrere i libri.
      *
      * @return Somma delle copie disponibili al prestito.
      */
     public int getCopieDisponibili() {
-        int contatore = 0;  //contatore
-        for (Libro libro : archivio.listaLibri())   //per ogni libro dell'archivio...
-            contatore += libro.getCopieDisponibili();    //...conto quante copie disponibili ha
-        
-
-        return contatore;   //restituisco il conteggio
+        return archivio.getStatistiche().getCopieDisponibili();  //restituisco il contatore aggiornato dall'archivio a ogni modifica
     }
 }
\ No newline at end of file
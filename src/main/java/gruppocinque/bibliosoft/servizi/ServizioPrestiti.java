@@ -10,6 +10,7 @@ import gruppocinque.bibliosoft.modelli.StatoPrestito;
 import gruppocinque.bibliosoft.modelli.Prestito;
 import gruppocinque.bibliosoft.modelli.Libro;
 import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.archivi.BlocchiEntita;
 import gruppocinque.bibliosoft.archivi.filtri.InterfacciaFiltro;
 import gruppocinque.bibliosoft.archivi.filtri.FiltroPrestito;
 import java.time.LocalDate;
@@ -46,6 +47,15 @@ public class ServizioPrestiti {
      * 3.1.3.1 (Disponibilità libri). Verifica le regole di business:
      * disponibilità copie e limite prestiti utente.
      *
+     * Verifiche e modifiche sono eseguite come una transazione con i soli lock
+     * del libro e dell'utente acquisiti (vedi BlocchiEntita): due postazioni
+     * che prestano l'ultima copia dello stesso libro, o che superano insieme
+     * il limite di un utente, non possono entrambe superare le verifiche. Il
+     * lock in scrittura dell'archivio è acquisito solo per le modifiche in
+     * place a libro, utente e prestito (eseguiAtomicamente()), così le
+     * interrogazioni non le osservano a metà; le verifiche di postazioni che
+     * operano su libri e utenti diversi procedono in parallelo.
+     *
      * @param[in] utente L'utente che richiede il prestito.
      * @param[in] libro Il libro da prestare.
      * @param[in] dataPrevista La data prevista per la restituzione.
@@ -58,6 +68,8 @@ public class ServizioPrestiti {
      *
      * @post {@code utente.getPrestitiAttivi()} contiene il nuovo prestito
      *
+     * @return Il prestito registrato.
+     *
      * @throws IllegalStateException Se l'utente ha troppi prestiti o il libro
      * non è disponibile.
      * 
@@ -66,19 +78,24 @@ public class ServizioPrestiti {
      * 
      * @see Archivio
      */
-    public void registraPrestito(Utente utente, Libro libro, LocalDate dataPrevista) {
-        if(utente.getPrestitiAttivi().size() >= MAX_PRESTITI_ATTIVI)  //se l'utente ha raggiunto il numero di prestiti attivi massimo o più...
-            throw new IllegalStateException("L'utente ha già " + MAX_PRESTITI_ATTIVI +" prestiti attivi");   //...lancio l'eccezione di tipo IllegalStateException
+    public Prestito registraPrestito(Utente utente, Libro libro, LocalDate dataPrevista) {
+        return archivio.getBlocchi().esegui(() -> {   //verifiche e modifiche non devono essere intercalate da altre postazioni sullo stesso libro o utente
+            if(utente.getNumeroPrestitiAttivi() >= MAX_PRESTITI_ATTIVI)  //se l'utente ha raggiunto il numero di prestiti attivi massimo o più...
+                throw new IllegalStateException("L'utente ha già " + MAX_PRESTITI_ATTIVI +" prestiti attivi");   //...lancio l'eccezione di tipo IllegalStateException
         
-        if(! libro.isDisponibile()) //se il libro non è disponibile...
-            throw new IllegalStateException("Copie non disponibili");   //...lancio l'eccezione di tipo IllegalStateException
+            Libro memorizzato = archivio.trovaLibro(libro.getIsbn());    //le copie da verificare sono quelle del libro in archivio, non di un'istanza precedente a una modifica
+            if(! (memorizzato != null ? memorizzato : libro).isDisponibile()) //se il libro non è disponibile...
+                throw new IllegalStateException("Copie non disponibili");   //...lancio l'eccezione di tipo IllegalStateException
         
 
-        Prestito prestito = new Prestito(utente, libro, LocalDate.now(), dataPrevista); //creo l'istanza di Prestito con i parametri
-        archivio.aggiungiPrestito(prestito);    //aggiungo il prestito all'archivio
-
-        libro.setCopieDisponibili(libro.getCopieDisponibili() - 1); //decremento il numero di copie disponibili relative a quello specifo libro
-        utente.aggiungiPrestito(prestito);  //aggiungo il prestito alla lista dei prestiti attivi del relativo utente (l'utente che ha effettuato il prestito)
+            Prestito prestito = new Prestito(utente, libro, LocalDate.now(), dataPrevista); //creo l'istanza di Prestito con i parametri
+            archivio.eseguiAtomicamente(() -> {    //le sole modifiche in place avvengono con il lock in scrittura dell'archivio
+                archivio.aggiungiPrestito(prestito);    //aggiungo il prestito all'archivio
+                registraCopie(libro, -1);   //decremento il numero di copie disponibili relative a quello specifo libro
+                utente.aggiungiPrestito(prestito);  //aggiungo il prestito alla lista dei prestiti attivi del relativo utente (l'utente che ha effettuato il prestito)
+            });
+            return prestito;
+        }, BlocchiEntita.libro(libro.getIsbn()), BlocchiEntita.utente(utente.getMatricola()));
     }
 
     /**
@@ -87,7 +104,10 @@ public class ServizioPrestiti {
      * 3.1.3.2 (Monitoraggio prestiti).
      *
      * Chiude il prestito, aggiorna la data effettiva e ripristina la
-     * disponibilità del libro.
+     * disponibilità del libro. Come per registraPrestito() l'operazione è
+     * eseguita con i lock del libro e dell'utente acquisiti, per cui lo stesso
+     * prestito non può essere restituito due volte, e il lock in scrittura
+     * dell'archivio è acquisito solo per le modifiche.
      *
      * @param[in] prestito Il prestito da chiudere.
      *
@@ -107,22 +127,49 @@ public class ServizioPrestiti {
      * @see Archivio
      */
     public void registraRestituzione(Prestito prestito) {
-        if (prestito.getStato() == StatoPrestito.CONCLUSO)  //se lo stato del prestito è gia "CONCLUSO"...
-            throw new IllegalStateException("Prestito concluso");   //...allora lancio l'eccezione di tipo IllegalStateException
-
-        prestito.setDataRestituzioneEffettiva(LocalDate.now()); //registro la data di restituzione effettiva come oggi
-        prestito.setStato(StatoPrestito.CONCLUSO);  //imposto lo stato del prestito su "CONCLUSO"
-        prestito.getLibro().setCopieDisponibili(prestito.getLibro().getCopieDisponibili() + 1);  //incremento il numero di copie disponibili relative a quello specifo libro
-        prestito.getUtente().rimuoviPrestito(prestito); //rimuovo il prestito dalla lista dei prestiti attivi del relativo utente
-        archivio.modificaPrestito(prestito);    //per poter registrare le modifiche effettive devo modificare il prestito nell'archivio
+        archivio.getBlocchi().esegui(() -> {
+            if (prestito.getStato() == StatoPrestito.CONCLUSO)  //se lo stato del prestito è gia "CONCLUSO"...
+                throw new IllegalStateException("Prestito concluso");   //...allora lancio l'eccezione di tipo IllegalStateException
+
+            archivio.eseguiAtomicamente(() -> {
+                prestito.setDataRestituzioneEffettiva(LocalDate.now()); //registro la data di restituzione effettiva come oggi
+                prestito.setStato(StatoPrestito.CONCLUSO);  //imposto lo stato del prestito su "CONCLUSO"
+                registraCopie(prestito.getLibro(), +1); //incremento il numero di copie disponibili relative a quello specifo libro
+                prestito.getUtente().rimuoviPrestito(prestito); //rimuovo il prestito dalla lista dei prestiti attivi del relativo utente
+                archivio.modificaPrestito(prestito);    //per poter registrare le modifiche effettive devo modificare il prestito nell'archivio
+            });
+        }, BlocchiEntita.libro(prestito.getLibro().getIsbn()), BlocchiEntita.utente(prestito.getUtente().getMatricola()));
+    }
+
+    /**
+     * @brief Registra nell'archivio la variazione delle copie disponibili di un libro.
+     * @details La variazione è applicata al libro memorizzato nell'archivio,
+     * non a quello referenziato dal prestito o passato dalla vista: dopo una
+     * modifica dei dati (ServizioLibri.modificaLibro()) l'archivio contiene
+     * una nuova istanza, e riscrivere quella vecchia annullerebbe la modifica.
+     * Se il libro non è (più) in catalogo la variazione è applicata
+     * all'istanza indicata, senza notificare l'archivio.
+     *
+     * @param[in] libro Il libro di cui cambiano le copie disponibili.
+     * @param[in] variazione Copie da aggiungere (negative se prestate).
+     */
+    private void registraCopie(Libro libro, int variazione) {
+        Libro memorizzato = archivio.trovaLibro(libro.getIsbn());
+        if (memorizzato == null) {
+            libro.setCopieDisponibili(libro.getCopieDisponibili() + variazione);
+            return;
+        }
+        memorizzato.setCopieDisponibili(memorizzato.getCopieDisponibili() + variazione);
+        archivio.modificaLibro(memorizzato);    //statistiche e giornale devono tenere conto della variazione
     }
 
     /**
      * @brief Aggiorna lo stato dei prestiti attivi.
      * @details Supporta il Caso d'Uso 15 (Monitoraggio prestiti).
      *
-     * Scorre tutti i prestiti attivi e confronta la data odierna con la data
-     * prevista.
+     * Chiede all'archivio i soli prestiti in corso la cui data prevista è già
+     * passata (mantenuti ordinati per scadenza) e li porta allo stato
+     * IN_RITARDO; i prestiti non ancora scaduti non vengono esaminati.
      *
      * @post I prestiti scaduti vengono impostati allo stato IN_RITARDO.
      * 
@@ -133,9 +180,15 @@ public class ServizioPrestiti {
      */
     public void aggiornaRitardi() {
         LocalDate oggi = LocalDate.now();   //prendo la data di oggi
-        for(Prestito prestito : archivio.cercaPrestiti(FiltroPrestito.filtraAttivi())){ //per ogni prestito prendendo dall'archivio solo quelli attivi (quindi sia "IN_CORSO" e "IN_RITARDO")...
-            prestito.aggiornaStato(oggi);   //...aggiorno lo stato passando la data di oggi
-            archivio.modificaPrestito(prestito);    //...registro le eventuali modifiche allo stato
+        for(Prestito prestito : archivio.prestitiScaduti(oggi)){ //per ogni prestito in corso la cui data prevista è già passata...
+            archivio.getBlocchi().esegui(() -> {    //...con i lock del prestito, che nel frattempo potrebbe essere stato restituito...
+                if (prestito.getStato() != StatoPrestito.IN_CORSO)
+                    return;
+                archivio.eseguiAtomicamente(() -> {
+                    prestito.aggiornaStato(oggi);   //...aggiorno lo stato passando la data di oggi
+                    archivio.modificaPrestito(prestito);    //...registro la modifica allo stato (il prestito esce dalle scadenze)
+                });
+            }, BlocchiEntita.libro(prestito.getLibro().getIsbn()), BlocchiEntita.utente(prestito.getUtente().getMatricola()));
         }
     }
 
@@ -163,6 +216,58 @@ public class ServizioPrestiti {
         return archivio.cercaPrestiti(filtro);  //restituisco la ricerca fatta dall'archivio tramite il filtro passato come parametro
     }
 
+    /**
+     * @brief Conta i prestiti che soddisfano un filtro.
+     * @details Usato insieme a pagina() per popolare la tabella senza caricare
+     * l'intero storico.
+     *
+     * @param[in] filtro Criterio di filtraggio. Se null, conta tutti i prestiti.
+     *
+     * @return Numero di prestiti trovati.
+     */
+    public int conta(InterfacciaFiltro<Prestito> filtro) {
+        return archivio.contaPrestiti(filtro);  //restituisco il conteggio fatto dall'archivio senza costruire la lista
+    }
+
+    /**
+     * @brief Restituisce una pagina dei prestiti che soddisfano un filtro.
+     * @details
+     * @param[in] filtro Criterio di filtraggio. Se null, considera tutti i prestiti.
+     * @param[in] offset Numero di prestiti da saltare.
+     * @param[in] limite Numero massimo di prestiti da restituire.
+     *
+     * @return La pagina richiesta, ordinata per data prevista.
+     */
+    public List<Prestito> pagina(InterfacciaFiltro<Prestito> filtro, int offset, int limite) {
+        return archivio.paginaPrestiti(filtro, offset, limite);
+    }
+
+    /**
+     * @brief Restituisce la pagina dei prestiti successiva a un prestito dato.
+     * @details
+     * @param[in] filtro Criterio di filtraggio. Se null, considera tutti i prestiti.
+     * @param[in] ultimo Ultimo prestito della pagina precedente, null per la prima pagina.
+     * @param[in] limite Numero massimo di prestiti da restituire.
+     *
+     * @return La pagina richiesta, ordinata per data prevista.
+     */
+    public List<Prestito> paginaDopo(InterfacciaFiltro<Prestito> filtro, Prestito ultimo, int limite) {
+        return archivio.paginaPrestitiDopo(filtro, ultimo, limite);
+    }
+
+    /**
+     * @brief Cerca un prestito tramite il suo identificativo.
+     * @details Usato dall'API HTTP (vedi ServerApi), dove il prestito da
+     * restituire è indicato dal client con il suo identificativo.
+     *
+     * @param[in] id L'identificativo del prestito.
+     *
+     * @return Il prestito trovato o null se non esiste.
+     */
+    public Prestito trova(String id) {
+        return archivio.trovaPrestito(id); //cerco il prestito tramite l'indice per identificativo dell'archivio
+    }
+
     /**
      * @brief Restituisce lo storico dei prestiti di un utente specifico.
      * @details Implementa il Caso d'Uso 12 (Storico prestiti).
@@ -172,7 +277,7 @@ public class ServizioPrestiti {
      * @return Lista dei prestiti associati alla matricola dell'utente.
      */
     public List<Prestito> storico(Utente utente) {
-        return archivio.cercaPrestiti(FiltroPrestito.ricercaMatricola(utente.getMatricola())); //restituisco tutti i prestiti (di tutti e 3 i possibili stati) cercando nell'archivio tramite il filtro per matricola dell'utente
+        return archivio.prestitiPerUtente(utente.getMatricola()); //restituisco tutti i prestiti (di tutti e 3 i possibili stati) tramite l'indice per matricola dell'archivio
     }
 
     /**
@@ -183,7 +288,7 @@ public class ServizioPrestiti {
      * @return Numero di prestiti scaduti.
      */
     public int getPrestitiInRitardo() {
-        return archivio.cercaPrestiti(FiltroPrestito.filtraInRitardo()).size(); //restituisco il numero di prestiti in ritardo cercando nell'archivio
+        return archivio.getStatistiche().getPrestiti(StatoPrestito.IN_RITARDO); //restituisco il contatore mantenuto dall'archivio
     }
 
     /**
@@ -194,7 +299,7 @@ public class ServizioPrestiti {
      * @return Numero di prestiti nello storico.
      */
     public int getPrestitiConclusi() {
-        return archivio.cercaPrestiti(FiltroPrestito.filtraConclusi()).size(); //restituisco il numero di prestiti conclusi cercando nell'archivio
+        return archivio.getStatistiche().getPrestiti(StatoPrestito.CONCLUSO); //restituisco il contatore mantenuto dall'archivio
     }
 
     /**
@@ -205,6 +310,6 @@ public class ServizioPrestiti {
      * @return Numero di prestiti regolarmente in corso.
      */
     public int getPrestitiInCorso() {
-        return archivio.cercaPrestiti(FiltroPrestito.filtraInCorso()).size(); //restituisco il numero di prestiti in corso cercando nell'archivio
+        return archivio.getStatistiche().getPrestiti(StatoPrestito.IN_CORSO); //restituisco il contatore mantenuto dall'archivio
     }
 }
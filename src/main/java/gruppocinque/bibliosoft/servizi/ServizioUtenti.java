@@ -6,7 +6,9 @@
 package gruppocinque.bibliosoft.servizi;
 
 import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.archivi.BlocchiEntita;
 import gruppocinque.bibliosoft.archivi.filtri.FiltroUtente;
+import gruppocinque.bibliosoft.archivi.filtri.InterfacciaFiltro;
 import gruppocinque.bibliosoft.modelli.Utente;
 import gruppocinque.bibliosoft.strumenti.Validatore;
 import java.util.List;
@@ -113,10 +115,12 @@ public class ServizioUtenti {
      * @see Archivio
      */
     public void eliminaUtente(Utente utente) {
-        if (utente.haPrestitiAttivi())  //se l'utente ha prestiti attivi...
-            throw new IllegalStateException("Utente con prestiti attivi: eliminazione negata"); //...lancio un'eccezione di tipo IllegalStateException
-        
-        archivio.rimuoviUtente(utente); //rimuovo l'utente dall'archivio
+        archivio.getBlocchi().esegui(() -> {   //un prestito allo stesso utente non può essere registrato fra verifica e rimozione
+            if (utente.haPrestitiAttivi())  //se l'utente ha prestiti attivi...
+                throw new IllegalStateException("Utente con prestiti attivi: eliminazione negata"); //...lancio un'eccezione di tipo IllegalStateException
+
+            archivio.rimuoviUtente(utente); //rimuovo l'utente dall'archivio
+        }, BlocchiEntita.utente(utente.getMatricola()));
     }
 
     /**
@@ -130,6 +134,19 @@ public class ServizioUtenti {
         return archivio.listaUtenti();  //prendo l'intera lista dei prestiti dall'archivio
     }
 
+    /**
+     * @brief Restituisce l'utente con la matricola indicata.
+     * @details Ricerca puntuale a tempo costante, da preferire al filtro per
+     * matricola quando si cerca un singolo utente.
+     *
+     * @param[in] matricola La matricola cercata.
+     *
+     * @return L'utente, oppure null se non registrato.
+     */
+    public Utente trovaUtente(String matricola) {
+        return archivio.trovaUtente(matricola); //restituisco l'utente trovato tramite l'indice per matricola
+    }
+
     /**
      * @brief Cerca utenti in base a una stringa di testo.
      * @details Implementa il Caso d'Uso 11 (Ricerca utente) e RF 3.1.2.5
@@ -145,6 +162,45 @@ public class ServizioUtenti {
         return archivio.cercaUtenti(FiltroUtente.ricerca(filtro));  //chiedo all'archivio di cercare tramite il filtro
     }
 
+    /**
+     * @brief Conta gli utenti che soddisfano un filtro.
+     * @details Usato insieme a paginaUtenti() per popolare la tabella senza
+     * caricare l'intera lista.
+     *
+     * @param[in] filtro Criterio di filtraggio. Se null, conta tutti gli utenti.
+     *
+     * @return Numero di utenti trovati.
+     */
+    public int contaUtenti(InterfacciaFiltro<Utente> filtro) {
+        return archivio.contaUtenti(filtro);    //chiedo all'archivio di contare senza costruire la lista
+    }
+
+    /**
+     * @brief Restituisce una pagina degli utenti che soddisfano un filtro.
+     * @details
+     * @param[in] filtro Criterio di filtraggio. Se null, considera tutti gli utenti.
+     * @param[in] offset Numero di utenti da saltare.
+     * @param[in] limite Numero massimo di utenti da restituire.
+     *
+     * @return La pagina richiesta, nell'ordine dell'archivio.
+     */
+    public List<Utente> paginaUtenti(InterfacciaFiltro<Utente> filtro, int offset, int limite) {
+        return archivio.paginaUtenti(filtro, offset, limite);
+    }
+
+    /**
+     * @brief Restituisce la pagina degli utenti successiva a un utente dato.
+     * @details
+     * @param[in] filtro Criterio di filtraggio. Se null, considera tutti gli utenti.
+     * @param[in] ultimo Ultimo utente della pagina precedente, null per la prima pagina.
+     * @param[in] limite Numero massimo di utenti da restituire.
+     *
+     * @return La pagina richiesta, nell'ordine dell'archivio.
+     */
+    public List<Utente> paginaUtentiDopo(InterfacciaFiltro<Utente> filtro, Utente ultimo, int limite) {
+        return archivio.paginaUtentiDopo(filtro, ultimo, limite);
+    }
+
     /**
      * @brief Restituisce il numero totale di utenti registrati.
      * @details Utilizzato per la Dashboard (UC1 - Visualizzazione
@@ -163,9 +219,9 @@ public class ServizioUtenti {
      * Dashboard).
      *
      * @return Numero di utenti con prestiti in corso o in ritardo.
-     * @see FiltroUtente
+     * @see gruppocinque.bibliosoft.archivi.StatisticheArchivio
      */
     public int getUtentiAttivi() {
-        return archivio.cercaUtenti(FiltroUtente.ricercaUtentiAttivi()).size(); //chiedo all'archivio di cercare gli utenti attivi (quindi con prestiti "IN_CORSO" o "IN_RITARDO") e li conto
+        return archivio.getStatistiche().getUtentiAttivi(); //restituisco il contatore degli utenti attivi (quindi con prestiti "IN_CORSO" o "IN_RITARDO") aggiornato dall'archivio
     }
 }
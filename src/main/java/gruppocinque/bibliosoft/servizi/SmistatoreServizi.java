@@ -0,0 +1,266 @@
+/**
+ * @file SmistatoreServizi.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.servizi;
+
+import gruppocinque.bibliosoft.strumenti.Esecutori;
+import gruppocinque.bibliosoft.strumenti.MetricheRichieste;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * @brief Esegue le chiamate ai servizi con un limite alle scritture contemporanee.
+ * @details Quando i servizi sono usati da più client (vedi ServerApi), le
+ * operazioni di scrittura (inserimenti, prestiti, restituzioni) si
+ * contendono il lock di scrittura dell'archivio: senza un limite, un picco
+ * di richieste si accoda sul lock senza scadenza e la latenza di tutte le
+ * richieste cresce insieme al picco.
+ *
+ * Lo smistatore avvolge le chiamate ai servizi esistenti, senza modificarne
+ * i metodi:
+ * * le letture (leggi()) non sono limitate, perché l'archivio le esegue in
+ *   parallelo;
+ * * le scritture (scrivi()) devono ottenere uno degli
+ *   {@code scrittureMassime} permessi di un semaforo equo. Se tutti i permessi
+ *   sono occupati la scrittura attende in coda, nell'ordine di arrivo, al
+ *   massimo {@code attesaMassima} millisecondi; se la coda contiene già
+ *   {@code codaMassima} scritture, o l'attesa scade, la scrittura viene
+ *   rifiutata con RejectedExecutionException senza essere eseguita.
+ *
+ * Ne deriva l'obiettivo di latenza: una scrittura accettata inizia entro
+ * {@code attesaMassima} millisecondi dal suo arrivo, mentre il carico in
+ * eccesso riceve subito un rifiuto che il client può ripetere più tardi
+ * (ServerApi risponde 503 con l'intestazione Retry-After).
+ *
+ * I metodi sincroni eseguono la chiamata sul thread del chiamante (nel server
+ * è già il thread, virtuale se disponibile, della richiesta); i metodi
+ * invia...() la eseguono su un nuovo thread di Esecutori.perRichiesta() e
+ * restituiscono un CompletableFuture.
+ *
+ * Numero, errori e latenze (attesa in coda compresa) delle chiamate sono
+ * raccolti in getMetriche(), raggruppati per il nome indicato dal chiamante.
+ */
+public class SmistatoreServizi {
+
+    /**
+     * @brief Scritture contemporanee consentite dallo smistatore predefinito.
+     */
+    public static final int SCRITTURE_PREDEFINITE = 4;
+
+    /**
+     * @brief Scritture in attesa consentite dallo smistatore predefinito.
+     */
+    public static final int CODA_PREDEFINITA = 256;
+
+    /**
+     * @brief Attesa massima in coda (in millisecondi) dello smistatore predefinito.
+     */
+    public static final long ATTESA_PREDEFINITA = 250;
+
+    private final Semaphore permessi;
+    private final int scrittureMassime;
+    private final int codaMassima;
+    private final long attesaMassima;   //in nanosecondi
+    private final AtomicInteger inCoda = new AtomicInteger();
+    private final LongAdder rifiutate = new LongAdder();
+    private final MetricheRichieste metriche = new MetricheRichieste();
+    private final ExecutorService esecutore = Esecutori.perRichiesta("bibliosoft-servizi");
+
+    /**
+     * @brief Costruisce lo smistatore con i limiti predefiniti.
+     */
+    public SmistatoreServizi() {
+        this(SCRITTURE_PREDEFINITE, CODA_PREDEFINITA, ATTESA_PREDEFINITA);
+    }
+
+    /**
+     * @brief Costruisce lo smistatore con i limiti indicati.
+     * @details
+     * @param[in] scrittureMassime Scritture eseguite contemporaneamente.
+     * @param[in] codaMassima Scritture che possono attendere un permesso (0 per rifiutare subito).
+     * @param[in] attesaMassima Attesa massima in coda, in millisecondi.
+     *
+     * @throws IllegalArgumentException Se {@code scrittureMassime < 1}, {@code codaMassima < 0} o {@code attesaMassima < 0}.
+     */
+    public SmistatoreServizi(int scrittureMassime, int codaMassima, long attesaMassima) {
+        if (scrittureMassime < 1 || codaMassima < 0 || attesaMassima < 0)
+            throw new IllegalArgumentException("Limiti dello smistatore non validi");
+        this.scrittureMassime = scrittureMassime;
+        this.permessi = new Semaphore(scrittureMassime, true);  //equo: le scritture in coda sono servite nell'ordine di arrivo
+        this.codaMassima = codaMassima;
+        this.attesaMassima = TimeUnit.MILLISECONDS.toNanos(attesaMassima);
+    }
+
+    /**
+     * @brief Esegue una lettura.
+     * @details Le letture non sono limitate: la chiamata viene eseguita subito
+     * sul thread del chiamante e conteggiata nelle metriche.
+     *
+     * @param[in] nome Nome della chiamata nelle metriche (es. "GET /api/libri").
+     * @param[in] lettura La chiamata al servizio.
+     *
+     * @return Il risultato della chiamata.
+     */
+    public <R> R leggi(String nome, Supplier<R> lettura) {
+        long inizio = metriche.inizia();
+        boolean errore = true;
+        try {
+            R risultato = lettura.get();
+            errore = false;
+            return risultato;
+        } finally {
+            metriche.registra(nome, inizio, errore);
+        }
+    }
+
+    /**
+     * @brief Esegue una scrittura rispettando il limite di scritture contemporanee.
+     * @details Vedi la descrizione della classe per la gestione della coda.
+     *
+     * @param[in] nome Nome della chiamata nelle metriche (es. "POST /api/prestiti").
+     * @param[in] scrittura La chiamata al servizio.
+     *
+     * @return Il risultato della chiamata.
+     *
+     * @throws RejectedExecutionException Se la coda è piena o l'attesa massima è scaduta;
+     * in questo caso la chiamata non viene eseguita.
+     */
+    public <R> R scrivi(String nome, Supplier<R> scrittura) {
+        long inizio = metriche.inizia();
+        boolean errore = true;
+        try {
+            acquisisci();
+            try {
+                R risultato = scrittura.get();
+                errore = false;
+                return risultato;
+            } finally {
+                permessi.release();
+            }
+        } finally {
+            metriche.registra(nome, inizio, errore);
+        }
+    }
+
+    /**
+     * @brief Esegue una scrittura senza risultato.
+     * @details Equivale a scrivi(String, Supplier).
+     *
+     * @param[in] nome Nome della chiamata nelle metriche.
+     * @param[in] scrittura La chiamata al servizio.
+     *
+     * @throws RejectedExecutionException Se la coda è piena o l'attesa massima è scaduta.
+     */
+    public void scrivi(String nome, Runnable scrittura) {
+        scrivi(nome, () -> {
+            scrittura.run();
+            return null;
+        });
+    }
+
+    /**
+     * @brief Esegue una lettura su un nuovo thread.
+     *
+     * @param[in] nome Nome della chiamata nelle metriche.
+     * @param[in] lettura La chiamata al servizio.
+     *
+     * @return Il risultato, completato con l'eccezione del servizio in caso di errore.
+     */
+    public <R> CompletableFuture<R> inviaLettura(String nome, Supplier<R> lettura) {
+        return CompletableFuture.supplyAsync(() -> leggi(nome, lettura), esecutore);
+    }
+
+    /**
+     * @brief Esegue una scrittura su un nuovo thread.
+     * @details L'eventuale rifiuto viene comunicato completando il risultato
+     * con RejectedExecutionException.
+     *
+     * @param[in] nome Nome della chiamata nelle metriche.
+     * @param[in] scrittura La chiamata al servizio.
+     *
+     * @return Il risultato, completato con l'eccezione del servizio in caso di errore.
+     */
+    public <R> CompletableFuture<R> inviaScrittura(String nome, Supplier<R> scrittura) {
+        return CompletableFuture.supplyAsync(() -> scrivi(nome, scrittura), esecutore);
+    }
+
+    /**
+     * @brief Restituisce le metriche delle chiamate eseguite o rifiutate.
+     *
+     * @return Le metriche, aggiornate a ogni chiamata.
+     */
+    public MetricheRichieste getMetriche() {
+        return metriche;
+    }
+
+    /**
+     * @brief Restituisce il numero di scritture in attesa di un permesso.
+     *
+     * @return Le scritture in coda.
+     */
+    public int getInCoda() {
+        return inCoda.get();
+    }
+
+    /**
+     * @brief Restituisce il numero di scritture in esecuzione.
+     *
+     * @return Le scritture che hanno ottenuto un permesso e non l'hanno ancora rilasciato.
+     */
+    public int getScrittureInCorso() {
+        return scrittureMassime - permessi.availablePermits();
+    }
+
+    /**
+     * @brief Restituisce il numero di scritture rifiutate.
+     *
+     * @return Le scritture rifiutate per coda piena o attesa scaduta.
+     */
+    public long getRifiutate() {
+        return rifiutate.sum();
+    }
+
+    /**
+     * @brief Chiude l'esecutore usato dai metodi invia...().
+     * @details Le chiamate già avviate vengono completate.
+     */
+    public void chiudi() {
+        esecutore.shutdown();
+    }
+
+    private void acquisisci() {
+        try {
+            if (permessi.tryAcquire(0, TimeUnit.NANOSECONDS))   //permesso libero e nessuno in coda (a differenza di tryAcquire() rispetta l'ordine di arrivo)
+                return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Operazione interrotta");
+        }
+        if (inCoda.incrementAndGet() > codaMassima) {
+            inCoda.decrementAndGet();
+            rifiutate.increment();
+            throw new RejectedExecutionException("Troppe operazioni in attesa, riprovare più tardi");
+        }
+        boolean acquisito;
+        try {
+            acquisito = permessi.tryAcquire(attesaMassima, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquisito = false;
+        } finally {
+            inCoda.decrementAndGet();
+        }
+        if (!acquisito) {
+            rifiutate.increment();
+            throw new RejectedExecutionException("Operazione non avviata entro " + TimeUnit.NANOSECONDS.toMillis(attesaMassima) + " ms, riprovare più tardi");
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * @file Esecutori.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.strumenti;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @brief Classe di utilità per la creazione degli esecutori delle richieste.
+ * @details Le richieste che arrivano da client esterni (vedi ServerApi) passano
+ * la maggior parte del tempo in attesa della rete o dei lock dell'archivio:
+ * conviene quindi eseguirle un thread per richiesta. Sulle JVM che dispongono
+ * dei thread virtuali (Java 21 o successive) viene usato
+ * {@code Executors.newVirtualThreadPerTaskExecutor()}; il progetto è però
+ * compilato per Java 17, per cui il metodo viene cercato per riflessione e,
+ * se assente, si ripiega su un pool di thread daemon che crea un nuovo thread
+ * solo quando quelli esistenti sono tutti occupati.
+ */
+public class Esecutori {
+
+    private static final Method THREAD_VIRTUALI = cercaThreadVirtuali(); //null se la JVM non dispone dei thread virtuali
+
+    private Esecutori() {
+    }
+
+    /**
+     * @brief Indica se la JVM corrente dispone dei thread virtuali.
+     *
+     * @return true se perRichiesta() restituisce un esecutore a thread virtuali.
+     */
+    public static boolean isThreadVirtuali() {
+        return THREAD_VIRTUALI != null;
+    }
+
+    /**
+     * @brief Crea un esecutore che esegue ogni attività su un proprio thread.
+     * @details Con i thread virtuali il nome non viene usato; nel pool di
+     * ripiego i thread si chiamano {@code nome-1}, {@code nome-2}, ... e
+     * vengono terminati dopo 60 secondi di inattività.
+     *
+     * @param[in] nome Prefisso del nome dei thread.
+     *
+     * @return L'esecutore, da chiudere con shutdown() quando non serve più.
+     */
+    public static ExecutorService perRichiesta(String nome) {
+        if (THREAD_VIRTUALI != null) {
+            try {
+                return (ExecutorService) THREAD_VIRTUALI.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                //non dovrebbe accadere: il metodo è pubblico e statico, ripiego comunque sul pool
+            }
+        }
+        return Executors.newCachedThreadPool(daemon(nome));
+    }
+
+    /**
+     * @brief Restituisce una fabbrica di thread daemon numerati.
+     *
+     * @param[in] nome Prefisso del nome dei thread.
+     *
+     * @return La fabbrica di thread.
+     */
+    public static ThreadFactory daemon(String nome) {
+        AtomicInteger contatore = new AtomicInteger();
+        return lavoro -> {
+            Thread thread = new Thread(lavoro, nome + "-" + contatore.incrementAndGet());
+            thread.setDaemon(true); //non deve impedire la chiusura dell'applicazione
+            return thread;
+        };
+    }
+
+    private static Method cercaThreadVirtuali() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;    //JVM precedente a Java 21
+        }
+    }
+}
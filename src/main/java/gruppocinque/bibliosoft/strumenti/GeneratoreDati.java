@@ -0,0 +1,435 @@
+/**
+ * @file GeneratoreDati.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.strumenti;
+
+import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.modelli.Libro;
+import gruppocinque.bibliosoft.modelli.Prestito;
+import gruppocinque.bibliosoft.modelli.StatoPrestito;
+import gruppocinque.bibliosoft.modelli.Utente;
+import gruppocinque.bibliosoft.persistenza.CodecArchivio;
+import gruppocinque.bibliosoft.servizi.ServizioPrestiti;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * @brief Genera archivi sintetici riproducibili per test, benchmark e prove.
+ * @details A parità di seme, parametri e data di riferimento l'archivio
+ * generato è sempre lo stesso. I dati superano i controlli di Validatore:
+ * * ISBN-10 e ISBN-13 numerici con cifra di controllo corretta;
+ * * nomi e cognomi italiani, e-mail "@studenti.unisa.it", matricole numeriche;
+ * * anni di pubblicazione non successivi a quello corrente.
+ *
+ * Lo storico dei prestiti comprende prestiti conclusi, in corso e in
+ * ritardo. La popolarità dei libri segue una distribuzione di Zipf (pochi
+ * libri ricevono la maggior parte dei prestiti) e la quota di prestiti attivi
+ * in ritardo è configurabile. I prestiti attivi rispettano copie disponibili
+ * e limite di ServizioPrestiti.MAX_PRESTITI_ATTIVI per utente; quando un
+ * prestito attivo non è ammissibile viene registrato come concluso.
+ *
+ * Eseguito da riga di comando scrive un file di archivio (vedi main()).
+ */
+public class GeneratoreDati {
+
+    /**
+     * @brief Parole da cui sono composti i titoli, utili per costruire testi da cercare.
+     */
+    public static final List<String> PAROLE = List.of(
+            "storia", "mare", "notte", "città", "giardino", "viaggio", "segreto", "tempo",
+            "luce", "guerra", "amore", "isola", "montagna", "fiume", "silenzio", "memoria",
+            "inverno", "estate", "ombra", "specchio", "lettera", "porto", "strada", "vento",
+            "casa", "fuoco", "cielo", "deserto", "biblioteca", "ritorno", "confine", "sogno");
+
+    private static final List<String> NOMI = List.of(
+            "Mario", "Anna", "Luca", "Giulia", "Marco", "Sara", "Paolo", "Chiara", "Francesco", "Martina",
+            "Alessandro", "Sofia", "Lorenzo", "Aurora", "Niccolò", "Ginevra", "Gabriele", "Beatrice", "Mattia", "Alice",
+            "Andrea", "Elena", "Riccardo", "Noemi", "Tommaso", "Greta", "Davide", "Ilaria", "Salvatore", "Carmela");
+    private static final List<String> COGNOMI = List.of(
+            "Rossi", "Russo", "Ferrari", "Esposito", "Bianchi", "Romano", "Colombo", "Ricci", "Marino", "Greco",
+            "Bruno", "Gallo", "Conti", "De Luca", "Mancini", "Costa", "Giordano", "Rizzo", "Lombardi", "Moretti",
+            "Barbieri", "Fontana", "Santoro", "Mariani", "Rinaldi", "Caruso", "Ferrara", "Galli", "Martini", "Leone",
+            "Longo", "Gentile", "Martinelli", "Vitale", "Serra", "Coppola", "De Santis", "Fabbri", "Bellini", "Cirillo");
+    private static final List<String> COGNOMI_UTENTI = List.of("D'Amico", "D'Angelo", "Dell'Aquila", "Sant'Elia");  //ammessi per gli utenti, non per gli autori
+    private static final List<String> ARTICOLI = List.of("Il", "La", "Lo", "Un", "Una", "I", "Le");
+    private static final List<String> LEGAMI = List.of("di", "del", "della", "nel", "sulla", "oltre il", "e");
+
+    private final long seme;
+    private int libri = 1000;
+    private int utenti = 200;
+    private int prestiti = 2000;
+    private double quotaAttivi = 0.25;  //frazione dei prestiti ancora aperti
+    private double quotaRitardo = 0.2;  //frazione dei prestiti aperti già scaduti
+    private double esponenteZipf = 1.0;
+    private LocalDate oggi = LocalDate.now();
+
+    private Random caso;
+    private final Set<String> isbnUsati = new HashSet<>();
+    private int progressivoUtenti = 0;
+
+    /**
+     * @brief Costruisce un generatore con i parametri predefiniti.
+     * @details 1000 libri, 200 utenti, 2000 prestiti di cui un quarto attivi
+     * e, fra questi, un quinto in ritardo; esponente di Zipf 1; data di
+     * riferimento odierna.
+     *
+     * @param[in] seme Seme del generatore pseudo-casuale.
+     */
+    public GeneratoreDati(long seme) {
+        this.seme = seme;
+        this.caso = new Random(seme);
+    }
+
+    /**
+     * @brief Imposta il numero di libri da generare.
+     * @details
+     * @param[in] libri Numero di libri.
+     *
+     * @throws IllegalArgumentException se il numero è negativo.
+     */
+    public void setLibri(int libri) {
+        if (libri < 0)
+            throw new IllegalArgumentException("Il numero di libri non può essere negativo.");
+        this.libri = libri;
+    }
+
+    /**
+     * @brief Imposta il numero di utenti da generare.
+     * @details
+     * @param[in] utenti Numero di utenti.
+     *
+     * @throws IllegalArgumentException se il numero è negativo.
+     */
+    public void setUtenti(int utenti) {
+        if (utenti < 0)
+            throw new IllegalArgumentException("Il numero di utenti non può essere negativo.");
+        this.utenti = utenti;
+    }
+
+    /**
+     * @brief Imposta il numero di prestiti da generare.
+     * @details Senza libri o utenti non viene generato alcun prestito.
+     *
+     * @param[in] prestiti Numero di prestiti.
+     *
+     * @throws IllegalArgumentException se il numero è negativo.
+     */
+    public void setPrestiti(int prestiti) {
+        if (prestiti < 0)
+            throw new IllegalArgumentException("Il numero di prestiti non può essere negativo.");
+        this.prestiti = prestiti;
+    }
+
+    /**
+     * @brief Imposta la frazione di prestiti ancora aperti (in corso o in ritardo).
+     * @details
+     * @param[in] quotaAttivi Valore fra 0 e 1.
+     *
+     * @throws IllegalArgumentException se il valore non è fra 0 e 1.
+     */
+    public void setQuotaAttivi(double quotaAttivi) {
+        this.quotaAttivi = quota(quotaAttivi);
+    }
+
+    /**
+     * @brief Imposta la frazione dei prestiti aperti che è già scaduta.
+     * @details
+     * @param[in] quotaRitardo Valore fra 0 e 1.
+     *
+     * @throws IllegalArgumentException se il valore non è fra 0 e 1.
+     */
+    public void setQuotaRitardo(double quotaRitardo) {
+        this.quotaRitardo = quota(quotaRitardo);
+    }
+
+    /**
+     * @brief Imposta l'esponente della distribuzione di Zipf della popolarità dei libri.
+     * @details Con 0 tutti i libri sono ugualmente richiesti; più è alto, più
+     * i prestiti si concentrano sui libri più popolari.
+     *
+     * @param[in] esponenteZipf Valore non negativo.
+     *
+     * @throws IllegalArgumentException se il valore è negativo.
+     */
+    public void setEsponenteZipf(double esponenteZipf) {
+        if (esponenteZipf < 0)
+            throw new IllegalArgumentException("L'esponente non può essere negativo.");
+        this.esponenteZipf = esponenteZipf;
+    }
+
+    /**
+     * @brief Imposta la data rispetto alla quale i prestiti sono in corso o in ritardo.
+     * @details Va fissata per ottenere lo stesso archivio in giorni diversi.
+     *
+     * @param[in] oggi La data di riferimento.
+     */
+    public void setOggi(LocalDate oggi) {
+        this.oggi = oggi;
+    }
+
+    /**
+     * @brief Genera un nuovo archivio.
+     * @details Il generatore riparte dal seme, per cui invocazioni successive
+     * con gli stessi parametri producono lo stesso archivio.
+     *
+     * @return L'archivio popolato.
+     */
+    public Archivio genera() {
+        Archivio archivio = new Archivio();
+        genera(archivio);
+        return archivio;
+    }
+
+    /**
+     * @brief Genera libri, utenti e prestiti e li aggiunge a un archivio.
+     * @details I prestiti vengono decisi prima dell'inserimento, così che libri
+     * e utenti vengano aggiunti già con copie disponibili e prestiti attivi
+     * coerenti con lo storico.
+     *
+     * @param[in] archivio L'archivio da popolare, che non deve contenere gli
+     * ISBN e le matricole generati.
+     *
+     * @throws IllegalStateException se un elemento è già presente (propagata dall'archivio)
+     */
+    public void genera(Archivio archivio) {
+        caso = new Random(seme);
+        isbnUsati.clear();
+        progressivoUtenti = 0;
+
+        List<Libro> catalogo = new ArrayList<>(libri);
+        for (int i = 0; i < libri; i++)
+            catalogo.add(generaLibro());
+        List<Utente> iscritti = new ArrayList<>(utenti);
+        for (int i = 0; i < utenti; i++)
+            iscritti.add(generaUtente());
+
+        List<Prestito> storico = generaPrestiti(catalogo, iscritti);
+
+        for (Libro libro : catalogo)
+            archivio.aggiungiLibro(libro);
+        for (Utente utente : iscritti)
+            archivio.aggiungiUtente(utente);
+        for (Prestito prestito : storico)
+            archivio.aggiungiPrestito(prestito);
+    }
+
+    /**
+     * @brief Genera un libro con ISBN mai restituito prima da questo generatore.
+     * @details Un libro su cinque ha un ISBN-10, gli altri un ISBN-13.
+     *
+     * @return Il nuovo libro, non ancora in archivio.
+     */
+    public Libro generaLibro() {
+        String isbn;
+        do {
+            isbn = (caso.nextInt(5) == 0) ? isbn10() : isbn13();
+        } while (!isbnUsati.add(isbn));
+
+        String titolo = scegli(ARTICOLI) + " " + parola() + " " + scegli(LEGAMI) + " " + parola();
+        List<String> autori = new ArrayList<>();
+        int numeroAutori = 1 + ((caso.nextInt(4) == 0) ? 1 + caso.nextInt(2) : 0);  //un libro su quattro ha più autori
+        for (int i = 0; i < numeroAutori; i++)
+            autori.add(scegli(NOMI) + " " + scegli(COGNOMI));
+        int anno = Math.min(Year.now().getValue(), 1900 + caso.nextInt(126));
+        return new Libro(isbn, titolo, autori, anno, 1 + caso.nextInt(5));
+    }
+
+    /**
+     * @brief Genera un utente con matricola mai restituita prima da questo generatore.
+     * @details
+     * @return Il nuovo utente, non ancora in archivio.
+     */
+    public Utente generaUtente() {
+        int progressivo = progressivoUtenti++;
+        String matricola = String.format("0512%06d", progressivo);
+        String nome = scegli(NOMI);
+        String cognome = (caso.nextInt(20) == 0) ? scegli(COGNOMI_UTENTI) : scegli(COGNOMI);
+        String email = semplifica(nome).charAt(0) + "." + semplifica(cognome) + progressivo + "@studenti.unisa.it";
+        return new Utente(matricola, nome, cognome, email);
+    }
+
+    /**
+     * @brief Genera lo storico dei prestiti.
+     * @details Ogni prestito sceglie il libro secondo la popolarità e l'utente
+     * in modo uniforme. I prestiti attivi aggiornano copie disponibili del
+     * libro e prestiti attivi dell'utente.
+     */
+    private List<Prestito> generaPrestiti(List<Libro> catalogo, List<Utente> iscritti) {
+        List<Prestito> storico = new ArrayList<>();
+        if (catalogo.isEmpty() || iscritti.isEmpty())
+            return storico;
+
+        List<Libro> perPopolarita = new ArrayList<>(catalogo);
+        Collections.shuffle(perPopolarita, caso);   //la popolarità non dipende dall'ordine degli ISBN
+        double[] cumulata = cumulataZipf(perPopolarita.size());
+
+        for (int i = 0; i < prestiti; i++) {
+            Libro libro = perPopolarita.get(rango(cumulata));
+            Utente utente = iscritti.get(caso.nextInt(iscritti.size()));
+            String id = new UUID(caso.nextLong(), caso.nextLong()).toString();
+
+            boolean attivo = caso.nextDouble() < quotaAttivi && libro.isDisponibile()
+                    && utente.getNumeroPrestitiAttivi() < ServizioPrestiti.MAX_PRESTITI_ATTIVI;
+            Prestito prestito;
+            if (attivo) {
+                boolean inRitardo = caso.nextDouble() < quotaRitardo;
+                LocalDate prevista = inRitardo ? oggi.minusDays(1 + caso.nextInt(60)) : oggi.plusDays(caso.nextInt(30));
+                prestito = new Prestito(id, utente, libro, prevista.minusDays(30), prevista);
+                if (inRitardo)
+                    prestito.setStato(StatoPrestito.IN_RITARDO);
+                libro.setCopieDisponibili(libro.getCopieDisponibili() - 1);
+                utente.aggiungiPrestito(prestito);
+            } else {
+                LocalDate inizio = oggi.minusDays(30 + caso.nextInt(700));
+                prestito = new Prestito(id, utente, libro, inizio, inizio.plusDays(30));
+                LocalDate restituzione = inizio.plusDays(1 + caso.nextInt(45)); //alcune restituzioni sono avvenute in ritardo
+                prestito.setDataRestituzioneEffettiva(restituzione.isAfter(oggi) ? oggi : restituzione);
+                prestito.setStato(StatoPrestito.CONCLUSO);
+            }
+            storico.add(prestito);
+        }
+        return storico;
+    }
+
+    /**
+     * @brief Calcola la distribuzione cumulata di Zipf sui ranghi 1..n, normalizzata a 1.
+     */
+    private double[] cumulataZipf(int n) {
+        double[] cumulata = new double[n];
+        double somma = 0;
+        for (int k = 0; k < n; k++) {
+            somma += 1.0 / Math.pow(k + 1, esponenteZipf);
+            cumulata[k] = somma;
+        }
+        for (int k = 0; k < n; k++)
+            cumulata[k] /= somma;
+        return cumulata;
+    }
+
+    /**
+     * @brief Estrae un rango (da 0) secondo la distribuzione cumulata.
+     */
+    private int rango(double[] cumulata) {
+        int posizione = Arrays.binarySearch(cumulata, caso.nextDouble());
+        int rango = (posizione >= 0) ? posizione : -posizione - 1;
+        return Math.min(rango, cumulata.length - 1);
+    }
+
+    /**
+     * @brief Genera un ISBN-13 con prefisso 978 o 979 e cifra di controllo corretta.
+     */
+    private String isbn13() {
+        StringBuilder isbn = new StringBuilder(caso.nextBoolean() ? "978" : "979");
+        while (isbn.length() < 12)
+            isbn.append(caso.nextInt(10));
+        int somma = 0;
+        for (int i = 0; i < 12; i++)
+            somma += (isbn.charAt(i) - '0') * ((i % 2 == 0) ? 1 : 3);
+        return isbn.append((10 - somma % 10) % 10).toString();
+    }
+
+    /**
+     * @brief Genera un ISBN-10 con cifra di controllo corretta.
+     * @details Sono scartati i codici con cifra di controllo "X", rifiutati da
+     * Validatore che ammette solo cifre.
+     */
+    private String isbn10() {
+        while (true) {
+            StringBuilder isbn = new StringBuilder();
+            int somma = 0;
+            for (int i = 0; i < 9; i++) {
+                int cifra = caso.nextInt(10);
+                isbn.append(cifra);
+                somma += cifra * (10 - i);
+            }
+            int controllo = (11 - somma % 11) % 11;
+            if (controllo < 10)
+                return isbn.append(controllo).toString();
+        }
+    }
+
+    private String parola() {
+        String parola = scegli(PAROLE);
+        return (caso.nextInt(3) == 0) ? Character.toUpperCase(parola.charAt(0)) + parola.substring(1) : parola;
+    }
+
+    private <T> T scegli(List<T> valori) {
+        return valori.get(caso.nextInt(valori.size()));
+    }
+
+    /**
+     * @brief Riduce un nome ai caratteri ammessi in un indirizzo e-mail.
+     */
+    private static String semplifica(String testo) {
+        return Normalizzatore.normalizza(testo).replaceAll("[^a-z0-9]", "");
+    }
+
+    private static double quota(double valore) {
+        if (!(valore >= 0 && valore <= 1))
+            throw new IllegalArgumentException("La quota deve essere compresa fra 0 e 1.");
+        return valore;
+    }
+
+    /**
+     * @brief Scrive un archivio su file nel formato binario di CodecArchivio.
+     * @details Il file può essere aperto dall'applicazione come archivio.dat.
+     *
+     * @param[in] archivio L'archivio da scrivere.
+     * @param[in] file Il file di destinazione, sovrascritto se esiste.
+     *
+     * @throws IOException in caso di errore di scrittura.
+     */
+    public static void scrivi(Archivio archivio, File file) throws IOException {
+        try (DataOutputStream uscita = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            CodecArchivio.scrivi(uscita, archivio);
+        }
+    }
+
+    /**
+     * @brief Genera un archivio da riga di comando e lo scrive su file.
+     * @details Argomenti: file [libri [utenti [prestiti [seme [quotaRitardo]]]]].
+     * I parametri omessi assumono i valori predefiniti (seme 1).
+     *
+     * @param[in] argomenti Gli argomenti della riga di comando.
+     */
+    public static void main(String[] argomenti) {
+        if (argomenti.length < 1 || argomenti.length > 6) {
+            System.err.println("Uso: GeneratoreDati file [libri [utenti [prestiti [seme [quotaRitardo]]]]]");
+            System.exit(1);
+        }
+        try {
+            GeneratoreDati generatore = new GeneratoreDati((argomenti.length > 4) ? Long.parseLong(argomenti[4]) : 1L);
+            if (argomenti.length > 1)
+                generatore.setLibri(Integer.parseInt(argomenti[1]));
+            if (argomenti.length > 2)
+                generatore.setUtenti(Integer.parseInt(argomenti[2]));
+            if (argomenti.length > 3)
+                generatore.setPrestiti(Integer.parseInt(argomenti[3]));
+            if (argomenti.length > 5)
+                generatore.setQuotaRitardo(Double.parseDouble(argomenti[5]));
+
+            Archivio archivio = generatore.genera();
+            scrivi(archivio, new File(argomenti[0]));
+            System.out.println("Scritti " + archivio.contaLibri() + " libri, " + archivio.contaUtenti() + " utenti e "
+                    + archivio.contaPrestiti() + " prestiti in " + argomenti[0]);
+        } catch (IllegalArgumentException | IOException ex) {   //NumberFormatException è una IllegalArgumentException
+            System.err.println("Generazione non riuscita: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * @file MetricheRichieste.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.strumenti;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @brief Raccoglie numero, errori e latenze delle richieste servite.
+ * @details Le richieste sono raggruppate per rotta (es. "GET /api/libri");
+ * ogni richiesta viene conteggiata anche nella rotta {@link #TUTTE}. Per ogni
+ * rotta sono mantenuti il numero di richieste e di errori, il tempo totale e
+ * un istogramma delle latenze da cui si ricavano i percentili.
+ *
+ * L'istogramma ha quattro intervalli per ogni potenza di due (in
+ * microsecondi), per cui un percentile è approssimato per eccesso di al più
+ * il 25%; in cambio la registrazione costa pochi incrementi atomici e la
+ * memoria non dipende dal numero di richieste.
+ *
+ * Tutti i metodi possono essere chiamati da più thread contemporaneamente.
+ */
+public class MetricheRichieste {
+
+    /**
+     * @brief Rotta che raccoglie tutte le richieste.
+     */
+    public static final String TUTTE = "*";
+
+    private static final int INTERVALLI = 160;  //copre latenze fino a circa 2^40 microsecondi
+
+    private final Map<String, Contatori> rotte = new ConcurrentHashMap<>();
+    private final AtomicInteger inCorso = new AtomicInteger();  //richieste iniziate e non ancora registrate
+
+    /**
+     * @brief Segnala l'inizio di una richiesta.
+     *
+     * @return L'istante di inizio, da passare a registra().
+     */
+    public long inizia() {
+        inCorso.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * @brief Registra il termine di una richiesta iniziata con inizia().
+     *
+     * @param[in] rotta La rotta della richiesta.
+     * @param[in] inizio Il valore restituito da inizia().
+     * @param[in] errore true se la richiesta si è conclusa con un errore.
+     *
+     * @pre {@code rotta != null}
+     */
+    public void registra(String rotta, long inizio, boolean errore) {
+        long micro = Math.max(0, (System.nanoTime() - inizio) / 1000);
+        inCorso.decrementAndGet();
+        contatori(rotta).registra(micro, errore);
+        contatori(TUTTE).registra(micro, errore);
+    }
+
+    /**
+     * @brief Restituisce il numero di richieste in corso.
+     *
+     * @return Le richieste iniziate e non ancora registrate.
+     */
+    public int getInCorso() {
+        return inCorso.get();
+    }
+
+    /**
+     * @brief Restituisce le rotte che hanno ricevuto almeno una richiesta.
+     *
+     * @return Le rotte in ordine alfabetico, compresa {@link #TUTTE}.
+     */
+    public Set<String> getRotte() {
+        return new TreeSet<>(rotte.keySet());
+    }
+
+    /**
+     * @brief Restituisce il numero di richieste registrate su una rotta.
+     *
+     * @param[in] rotta La rotta.
+     *
+     * @return Il numero di richieste, 0 se la rotta non è mai stata usata.
+     */
+    public long getRichieste(String rotta) {
+        Contatori contatori = rotte.get(rotta);
+        return (contatori == null) ? 0 : contatori.richieste.sum();
+    }
+
+    /**
+     * @brief Restituisce il numero di richieste concluse con un errore.
+     *
+     * @param[in] rotta La rotta.
+     *
+     * @return Il numero di errori, 0 se la rotta non è mai stata usata.
+     */
+    public long getErrori(String rotta) {
+        Contatori contatori = rotte.get(rotta);
+        return (contatori == null) ? 0 : contatori.errori.sum();
+    }
+
+    /**
+     * @brief Restituisce la latenza media di una rotta.
+     *
+     * @param[in] rotta La rotta.
+     *
+     * @return La latenza media in microsecondi, 0 se la rotta non è mai stata usata.
+     */
+    public double getLatenzaMedia(String rotta) {
+        Contatori contatori = rotte.get(rotta);
+        long richieste = (contatori == null) ? 0 : contatori.richieste.sum();
+        return (richieste == 0) ? 0 : (double) contatori.micro.sum() / richieste;
+    }
+
+    /**
+     * @brief Restituisce un percentile della latenza di una rotta.
+     * @details Il valore è il limite superiore dell'intervallo dell'istogramma
+     * che contiene il percentile richiesto.
+     *
+     * @param[in] rotta La rotta.
+     * @param[in] percentile Il percentile, tra 0 e 100 (es. 99 per il p99).
+     *
+     * @return La latenza in microsecondi, 0 se la rotta non è mai stata usata.
+     *
+     * @throws IllegalArgumentException Se il percentile non è tra 0 e 100.
+     */
+    public long getPercentile(String rotta, double percentile) {
+        if (percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("Percentile non valido: " + percentile);
+        Contatori contatori = rotte.get(rotta);
+        if (contatori == null)
+            return 0;
+
+        long[] conteggi = new long[INTERVALLI];
+        long totale = 0;
+        for (int i = 0; i < INTERVALLI; i++) {  //copia dell'istogramma: le richieste concorrenti non alterano il calcolo
+            conteggi[i] = contatori.istogramma.get(i);
+            totale += conteggi[i];
+        }
+        long soglia = Math.max(1, (long) Math.ceil(totale * percentile / 100));
+        long cumulato = 0;
+        for (int i = 0; i < INTERVALLI; i++) {
+            cumulato += conteggi[i];
+            if (cumulato >= soglia)
+                return limiteSuperiore(i);
+        }
+        return 0;
+    }
+
+    private Contatori contatori(String rotta) {
+        return rotte.computeIfAbsent(rotta, r -> new Contatori());
+    }
+
+    /**
+     * @brief Calcola l'intervallo dell'istogramma di una latenza.
+     * @details Le latenze inferiori a 8 microsecondi hanno un intervallo
+     * ciascuna; oltre, ogni potenza di due è divisa in quattro intervalli
+     * individuati dai due bit che seguono quello più significativo.
+     *
+     * @param[in] micro La latenza in microsecondi.
+     *
+     * @return L'indice dell'intervallo.
+     */
+    static int intervallo(long micro) {
+        if (micro < 8)
+            return (int) micro;
+        int esponente = 63 - Long.numberOfLeadingZeros(micro);
+        int quarto = (int) (micro >>> (esponente - 2)) & 3;
+        return Math.min(INTERVALLI - 1, 8 + (esponente - 3) * 4 + quarto);
+    }
+
+    /**
+     * @brief Restituisce la latenza massima contenuta in un intervallo.
+     *
+     * @param[in] indice L'indice dell'intervallo.
+     *
+     * @return La latenza in microsecondi.
+     */
+    static long limiteSuperiore(int indice) {
+        if (indice < 8)
+            return indice;
+        int esponente = 3 + (indice - 8) / 4;
+        int quarto = (indice - 8) % 4;
+        return ((5L + quarto) << (esponente - 2)) - 1;
+    }
+
+    private static final class Contatori {
+        private final LongAdder richieste = new LongAdder();
+        private final LongAdder errori = new LongAdder();
+        private final LongAdder micro = new LongAdder();    //somma delle latenze, per la media
+        private final AtomicLongArray istogramma = new AtomicLongArray(INTERVALLI);
+
+        private void registra(long latenza, boolean errore) {
+            richieste.increment();
+            if (errore)
+                errori.increment();
+            micro.add(latenza);
+            istogramma.incrementAndGet(intervallo(latenza));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * @file Normalizzatore.java
+ * @author gruppocinque
+ * @version 1.0
+ */
+package gruppocinque.bibliosoft.strumenti;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * @brief Classe di utilità per la normalizzazione dei testi di ricerca.
+ * @details Porta un testo in minuscolo e ne rimuove gli accenti e gli altri
+ * segni diacritici (es. "Nicolò" diventa "nicolo"), così che la ricerca
+ * (RF 3.1.1.5 e 3.1.2.5) non dipenda da maiuscole e accenti.
+ *
+ * Libro e Utente mantengono la forma normalizzata dei propri campi di
+ * ricerca: i filtri normalizzano solo il testo cercato, una volta per
+ * interrogazione.
+ */
+public class Normalizzatore {
+
+    private static final Pattern DIACRITICI = Pattern.compile("\\p{M}+");    //segni combinanti separati dalla decomposizione
+
+    /**
+     * @brief Restituisce la forma normalizzata di un testo.
+     * @details I testi composti solo da caratteri ASCII vengono soltanto
+     * portati in minuscolo, senza decomposizione.
+     *
+     * @param[in] testo Il testo da normalizzare.
+     *
+     * @return Il testo in minuscolo e senza diacritici.
+     *
+     * @pre {@code testo != null}
+     */
+    public static String normalizza(String testo) {
+        if (isAscii(testo))
+            return testo.toLowerCase(Locale.ROOT);
+        String scomposto = Normalizer.normalize(testo, Normalizer.Form.NFD);    //separo le lettere dai loro accenti
+        return DIACRITICI.matcher(scomposto).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isAscii(String testo) {
+        for (int i = 0; i < testo.length(); i++)
+            if (testo.charAt(i) > 127)
+                return false;
+        return true;
+    }
+}
@@ -8,6 +8,7 @@ package gruppocinque.bibliosoft.strumenti;
 import gruppocinque.bibliosoft.modelli.Libro;
 import gruppocinque.bibliosoft.modelli.Utente;
 import java.time.Year;
+import java.util.regex.Pattern;
 
 /**
  * @brief Classe di utilità per la validazione dei dati di input.
@@ -17,6 +18,12 @@ import java.time.Year;
  */
 public class Validatore {
 
+    // Espressioni compilate una sola volta: String.matches() le ricompilerebbe a ogni chiamata (importazioni massive)
+    private static final Pattern NUMERICO = Pattern.compile("[0-9]+");
+    private static final Pattern AUTORE = Pattern.compile("^[A-Za-zÀ-ÖØ-öø-ÿ .-]+(?:,\\s*[A-Za-zÀ-ÖØ-öø-ÿ .-]+)*$");
+    private static final Pattern NOMINATIVO = Pattern.compile("^[A-Za-zÀ-ÖØ-öø-ÿ .'-]+(,[A-Za-zÀ-ÖØ-öø-ÿ .'-]+)*$");
+    private static final Pattern EMAIL = Pattern.compile("^[A-Za-z0-9._%+-]+@studenti\\.unisa\\.it$");
+
     /**
      * @brief Valida i dati di un oggetto Libro.
      * @details Implementa i controlli di formato e logici per l'inserimento (UC3).
@@ -41,7 +48,7 @@ public class Validatore {
             throw new IllegalArgumentException("ISBN obbligatorio");
         }
 
-        if (!libro.getIsbn().matches("[0-9]+")) {
+        if (!NUMERICO.matcher(libro.getIsbn()).matches()) {
             throw new IllegalArgumentException("ISBN non valido");
         }
 
@@ -70,7 +77,7 @@ public class Validatore {
                 throw new IllegalArgumentException("Autore vuoto");
             }
 
-            if (!autore.matches("^[A-Za-zÀ-ÖØ-öø-ÿ .-]+(?:,\\s*[A-Za-zÀ-ÖØ-öø-ÿ .-]+)*$")) {
+            if (!AUTORE.matcher(autore).matches()) {
                 throw new IllegalArgumentException("Autore non valido");
             }
         }
@@ -98,7 +105,7 @@ public class Validatore {
             throw new IllegalArgumentException("Matricola obbligatoria");
         }
 
-        if (!utente.getMatricola().matches("[0-9]+")) {
+        if (!NUMERICO.matcher(utente.getMatricola()).matches()) {
             throw new IllegalArgumentException("Matricola non valida");
         }
 
@@ -107,7 +114,7 @@ public class Validatore {
             throw new IllegalArgumentException("Nome obbligatorio");
         }
 
-        if (!utente.getNome().matches("^[A-Za-zÀ-ÖØ-öø-ÿ .'-]+(,[A-Za-zÀ-ÖØ-öø-ÿ .'-]+)*$")) {
+        if (!NOMINATIVO.matcher(utente.getNome()).matches()) {
             throw new IllegalArgumentException("Nome non valido");
         }
 
@@ -116,7 +123,7 @@ public class Validatore {
             throw new IllegalArgumentException("Cognome obbligatorio");
         }
 
-        if (!utente.getCognome().matches("^[A-Za-zÀ-ÖØ-öø-ÿ .'-]+(,[A-Za-zÀ-ÖØ-öø-ÿ .'-]+)*$")) {
+        if (!NOMINATIVO.matcher(utente.getCognome()).matches()) {
             throw new IllegalArgumentException("Cognome non valido");
         }
 
@@ -124,7 +131,7 @@ public class Validatore {
         if (utente.getEmail() == null || utente.getEmail().isBlank()) {
             throw new IllegalArgumentException("Email obbligatoria");
         }
-        if (!utente.getEmail().toLowerCase().matches("^[A-Za-z0-9._%+-]+@studenti\\.unisa\\.it$")) {
+        if (!EMAIL.matcher(utente.getEmail().toLowerCase()).matches()) {
             throw new IllegalArgumentException("Email istituzionale non valida");
         }
     }
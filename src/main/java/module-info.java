@@ -1,6 +1,7 @@
 module gruppocinque.bibliosoft {
     requires javafx.controls;
     requires javafx.fxml;
+    requires jdk.httpserver;
 
     opens gruppocinque.bibliosoft.controller to javafx.fxml;
     opens gruppocinque.bibliosoft.modelli to javafx.base;
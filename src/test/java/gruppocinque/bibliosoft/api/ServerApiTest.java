@@ -0,0 +1,237 @@
+package gruppocinque.bibliosoft.api;
+
+import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.modelli.Libro;
+import gruppocinque.bibliosoft.modelli.Prestito;
+import gruppocinque.bibliosoft.modelli.StatoPrestito;
+import gruppocinque.bibliosoft.modelli.Utente;
+import gruppocinque.bibliosoft.servizi.SmistatoreServizi;
+import gruppocinque.bibliosoft.strumenti.MetricheRichieste;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServerApiTest {
+
+    private Archivio archivio;
+    private ServerApi server;
+    private Libro libro;
+    private Utente utente;
+
+    @BeforeEach
+    public void setUp() throws IOException { // Server su una porta libera con un libro e un utente in archivio.
+        archivio = new Archivio();
+        libro = new Libro("9788804668237", "Il Signore degli Anelli", List.of("Tolkien"), 1954, 2);
+        utente = new Utente("0512000001", "Mario", "Rossi", "m.rossi@studenti.unisa.it");
+        archivio.aggiungiLibro(libro);
+        archivio.aggiungiUtente(utente);
+        server = new ServerApi(archivio, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.avvia();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.ferma();
+    }
+
+    @Test
+    public void testCercaLibri() { // La ricerca restituisce il totale e la pagina richiesta.
+        Risposta risposta = richiesta("GET", "/api/libri?q=tolk&limite=10", null);
+        assertEquals(200, risposta.codice, "La ricerca dovrebbe riuscire.");
+        Map<String, Object> corpo = Json.leggiOggetto(risposta.corpo);
+        assertEquals(1L, corpo.get("totale"), "Dovrebbe essere trovato un libro.");
+        Map<?, ?> trovato = (Map<?, ?>) ((List<?>) corpo.get("risultati")).get(0);
+        assertEquals("9788804668237", trovato.get("isbn"), "Dovrebbe essere restituito il libro cercato.");
+        assertEquals(List.of("Tolkien"), trovato.get("autori"), "Gli autori dovrebbero essere un elenco.");
+
+        assertEquals(0L, Json.leggiOggetto(richiesta("GET", "/api/libri?q=asimov", null).corpo).get("totale"), "Nessun libro dovrebbe corrispondere.");
+        assertEquals(400, richiesta("GET", "/api/libri?limite=0", null).codice, "Un limite non valido dovrebbe essere rifiutato.");
+    }
+
+    @Test
+    public void testAggiungiLibro() { // Inserimento di un libro, con validazione e rifiuto dei duplicati.
+        String corpo = "{\"isbn\":\"0306406152\",\"titolo\":\"Fondazione\",\"autori\":[\"Asimov\"],\"anno\":1951,\"copie\":3}";
+        assertEquals(201, richiesta("POST", "/api/libri", corpo).codice, "Il libro dovrebbe essere creato.");
+        assertNotNull(archivio.trovaLibro("0306406152"), "Il libro dovrebbe essere in archivio.");
+        assertEquals(409, richiesta("POST", "/api/libri", corpo).codice, "Un ISBN già presente dovrebbe essere rifiutato.");
+
+        assertEquals(400, richiesta("POST", "/api/libri", corpo.replace("0306406152", "123")).codice, "Un ISBN non valido dovrebbe essere rifiutato.");
+        assertEquals(400, richiesta("POST", "/api/libri", "{\"isbn\":").codice, "Un corpo non valido dovrebbe essere rifiutato.");
+        assertEquals(400, richiesta("POST", "/api/libri", "[".repeat(60000)).codice, "Un corpo troppo annidato dovrebbe essere rifiutato.");
+        String annidato = "[".repeat(Json.PROFONDITA_MASSIMA - 1) + "]".repeat(Json.PROFONDITA_MASSIMA - 1);
+        String limite = corpo.replace("0306406152", "0451524934").replace("}", ",\"note\":" + annidato + "}");
+        assertEquals(201, richiesta("POST", "/api/libri", limite).codice, "Un corpo entro il limite di annidamento dovrebbe essere accettato.");
+        assertEquals(404, richiesta("GET", "/api/libri/0000000000", null).codice, "Un libro inesistente dovrebbe dare 404.");
+        assertEquals(405, richiesta("DELETE", "/api/libri", null).codice, "Un metodo non previsto dovrebbe dare 405.");
+    }
+
+    @Test
+    public void testPrestitoERestituzione() { // Prestito e restituzione tramite API aggiornano archivio e copie.
+        String data = LocalDate.now().plusDays(30).toString();
+        Risposta prestito = richiesta("POST", "/api/prestiti",
+                "{\"matricola\":\"0512000001\",\"isbn\":\"9788804668237\",\"dataPrevista\":\"" + data + "\"}");
+        assertEquals(201, prestito.codice, "Il prestito dovrebbe essere registrato.");
+        String id = (String) Json.leggiOggetto(prestito.corpo).get("id");
+        assertEquals(1, libro.getCopieDisponibili(), "Dovrebbe restare una copia disponibile.");
+        assertEquals(StatoPrestito.IN_CORSO.name(), Json.leggiOggetto(richiesta("GET", "/api/prestiti/" + id, null).corpo).get("stato"), "Il prestito dovrebbe essere in corso.");
+        assertEquals(1L, Json.leggiOggetto(richiesta("GET", "/api/prestiti?stato=attivi", null).corpo).get("totale"), "Dovrebbe esserci un prestito attivo.");
+
+        assertEquals(200, richiesta("POST", "/api/prestiti/" + id + "/restituzione", null).codice, "La restituzione dovrebbe riuscire.");
+        assertEquals(2, libro.getCopieDisponibili(), "La copia dovrebbe tornare disponibile.");
+        assertEquals(409, richiesta("POST", "/api/prestiti/" + id + "/restituzione", null).codice, "Un prestito concluso non dovrebbe essere restituito due volte.");
+        assertEquals(1, ((List<?>) Json.leggi(richiesta("GET", "/api/utenti/0512000001/prestiti", null).corpo)).size(), "Lo storico dovrebbe contenere il prestito.");
+
+        assertEquals(400, richiesta("POST", "/api/prestiti",
+                "{\"matricola\":\"0512000001\",\"isbn\":\"9788804668237\",\"dataPrevista\":\"" + LocalDate.now() + "\"}").codice, "La scadenza deve essere successiva a oggi.");
+        assertEquals(404, richiesta("POST", "/api/prestiti/inesistente/restituzione", null).codice, "Un prestito inesistente dovrebbe dare 404.");
+    }
+
+    @Test
+    public void testLettureSenzaModifiche() throws IOException { // Le richieste GET sui prestiti non aggiornano i ritardi: lo fa il server all'avvio e periodicamente.
+        LocalDate prevista = LocalDate.now().minusDays(1);
+        Prestito scaduto = new Prestito("scaduto", utente, libro, prevista.minusDays(30), prevista);
+        archivio.aggiungiPrestito(scaduto);    //scaduto dopo l'avvio del server
+
+        assertEquals(0L, Json.leggiOggetto(richiesta("GET", "/api/prestiti?stato=ritardo", null).corpo).get("totale"), "La lettura non dovrebbe aggiornare i ritardi.");
+        assertEquals(StatoPrestito.IN_CORSO, scaduto.getStato(), "La lettura non dovrebbe modificare il prestito.");
+
+        server.ferma();
+        server = new ServerApi(archivio, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.avvia();
+        assertEquals(StatoPrestito.IN_RITARDO, scaduto.getStato(), "All'avvio i prestiti scaduti dovrebbero passare in ritardo.");
+        assertEquals(1L, Json.leggiOggetto(richiesta("GET", "/api/prestiti?stato=ritardo", null).corpo).get("totale"), "Il prestito dovrebbe risultare in ritardo.");
+    }
+
+    @Test
+    public void testUltimaCopiaConcorrente() throws Exception { // Richieste parallele sull'ultima copia: una sola riesce.
+        libro.setCopieTotali(1);
+        libro.setCopieDisponibili(1);
+        archivio.modificaLibro(libro);
+        List<String> matricole = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Utente altro = new Utente("05121000" + i + "0", "Nome", "Cognome", "n" + i + "@studenti.unisa.it");
+            archivio.aggiungiUtente(altro);
+            matricole.add(altro.getMatricola());
+        }
+
+        String data = LocalDate.now().plusDays(30).toString();
+        ExecutorService client = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> codici = new ArrayList<>();
+        for (String matricola : matricole)
+            codici.add(client.submit(() -> richiesta("POST", "/api/prestiti",
+                    "{\"matricola\":\"" + matricola + "\",\"isbn\":\"9788804668237\",\"dataPrevista\":\"" + data + "\"}").codice));
+        int riusciti = 0;
+        for (Future<Integer> codice : codici)
+            riusciti += (codice.get() == 201) ? 1 : 0;
+        client.shutdown();
+
+        assertEquals(1, riusciti, "Un solo prestito dovrebbe essere registrato.");
+        assertEquals(0, libro.getCopieDisponibili(), "Le copie disponibili non dovrebbero essere negative.");
+    }
+
+    @Test
+    public void testMetriche() { // Ogni richiesta è conteggiata nella propria rotta, errori compresi.
+        for (int i = 0; i < 5; i++)
+            richiesta("GET", "/api/libri/9788804668237", null);
+        richiesta("GET", "/api/libri/0000000000", null);
+
+        MetricheRichieste metriche = server.getMetriche();
+        assertEquals(6, metriche.getRichieste("GET /api/libri/{isbn}"), "Dovrebbero essere conteggiate tutte le richieste.");
+        assertEquals(1, metriche.getErrori("GET /api/libri/{isbn}"), "Dovrebbe essere conteggiato l'errore.");
+        assertTrue(metriche.getPercentile("GET /api/libri/{isbn}", 99) > 0, "Il p99 dovrebbe essere calcolato.");
+
+        Map<String, Object> corpo = Json.leggiOggetto(richiesta("GET", "/api/metriche", null).corpo);
+        assertTrue(((Map<?, ?>) corpo.get("rotte")).containsKey("GET /api/libri/{isbn}"), "La rotta dovrebbe comparire nelle metriche.");
+    }
+
+    @Test
+    public void testSovraccarico() throws Exception { // Con il limite di scritture occupato le scritture ricevono 503, le letture no.
+        server.ferma();
+        SmistatoreServizi smistatore = new SmistatoreServizi(1, 0, 0);
+        server = new ServerApi(archivio, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), smistatore);
+        server.avvia();
+        CountDownLatch bloccata = new CountDownLatch(1);
+        CountDownLatch rilascia = new CountDownLatch(1);
+        CompletableFuture<Object> occupa = smistatore.inviaScrittura("occupa", () -> {   //occupa l'unico permesso di scrittura
+            bloccata.countDown();
+            try {
+                rilascia.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+        assertTrue(bloccata.await(5, TimeUnit.SECONDS), "Il permesso dovrebbe essere occupato.");
+
+        String corpo = "{\"isbn\":\"0306406152\",\"titolo\":\"Fondazione\",\"autori\":[\"Asimov\"],\"anno\":1951,\"copie\":3}";
+        Risposta rifiutata = richiesta("POST", "/api/libri", corpo);
+        assertEquals(503, rifiutata.codice, "La scrittura dovrebbe essere rifiutata.");
+        assertEquals("1", rifiutata.riprova, "La risposta dovrebbe indicare quando riprovare.");
+        assertNull(archivio.trovaLibro("0306406152"), "La scrittura rifiutata non dovrebbe modificare l'archivio.");
+        assertEquals(200, richiesta("GET", "/api/libri/9788804668237", null).codice, "Le letture non dovrebbero essere limitate.");
+        assertEquals(1L, Json.leggiOggetto(richiesta("GET", "/api/metriche", null).corpo).get("scrittureRifiutate"), "Il rifiuto dovrebbe comparire nelle metriche.");
+
+        rilascia.countDown();
+        occupa.get(5, TimeUnit.SECONDS);
+        assertEquals(201, richiesta("POST", "/api/libri", corpo).codice, "Liberato il permesso la scrittura dovrebbe riuscire.");
+    }
+
+    @Test
+    public void testKeepAlive() throws IOException { // La connessione viene riusata tra richieste successive.
+        for (int i = 0; i < 20; i++)
+            assertEquals(200, richiesta("GET", "/api/statistiche", null).codice, "Le statistiche dovrebbero essere disponibili.");
+        HttpURLConnection connessione = (HttpURLConnection) new URL("http://localhost:" + server.getPorta() + "/api/statistiche").openConnection();
+        assertNotEquals("close", connessione.getHeaderField("Connection"), "Il server non dovrebbe chiudere la connessione.");
+        connessione.getInputStream().readAllBytes();
+    }
+
+    private Risposta richiesta(String metodo, String percorso, String corpo) {
+        try {
+            HttpURLConnection connessione = (HttpURLConnection) new URL("http://localhost:" + server.getPorta() + percorso).openConnection();
+            connessione.setRequestMethod(metodo);
+            if (corpo != null) {
+                connessione.setDoOutput(true);
+                try (OutputStream uscita = connessione.getOutputStream()) {
+                    uscita.write(corpo.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            int codice = connessione.getResponseCode();
+            try (InputStream ingresso = (codice >= 400) ? connessione.getErrorStream() : connessione.getInputStream()) {
+                return new Risposta(codice, new String(ingresso.readAllBytes(), StandardCharsets.UTF_8), connessione.getHeaderField("Retry-After"));
+            }
+        } catch (IOException e) {
+            throw new AssertionError("Richiesta " + metodo + " " + percorso + " fallita", e);
+        }
+    }
+
+    private static final class Risposta {
+        private final int codice;
+        private final String corpo;
+        private final String riprova;   //intestazione Retry-After
+
+        private Risposta(int codice, String corpo, String riprova) {
+            this.codice = codice;
+            this.corpo = corpo;
+            this.riprova = riprova;
+        }
+    }
+}
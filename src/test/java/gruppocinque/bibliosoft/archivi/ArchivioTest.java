@@ -1,12 +1,25 @@
 package gruppocinque.bibliosoft.archivi;
 
 import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.archivi.filtri.FiltroComposto;
+import gruppocinque.bibliosoft.archivi.filtri.FiltroLibro;
+import gruppocinque.bibliosoft.archivi.filtri.FiltroPrestito;
+import gruppocinque.bibliosoft.archivi.filtri.FiltroUtente;
 import gruppocinque.bibliosoft.archivi.filtri.InterfacciaFiltro;
 import gruppocinque.bibliosoft.modelli.Libro;
 import gruppocinque.bibliosoft.modelli.Prestito;
+import gruppocinque.bibliosoft.modelli.StatoPrestito;
 import gruppocinque.bibliosoft.modelli.Utente;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
@@ -28,6 +41,20 @@ public class ArchivioTest {
         assertEquals(1, archivio.contaLibri(), "Il conteggio libri dovrebbe essere 1 dopo l'inserimento.");
     }
 
+    @Test
+    public void testAggiungiLibri() { // Verifica che l'inserimento in blocco salti i libri presenti e aggiorni le statistiche.
+        Libro presente = new Libro("9788800001", "Titolo", List.of("Autore"), 2000, 1);
+        archivio.aggiungiLibro(presente);
+        Libro nuovo = new Libro("9788800002", "Altro", List.of("Autore"), 2000, 3);
+
+        List<Libro> aggiunti = archivio.aggiungiLibri(List.of(nuovo, new Libro("9788800001", "Copia", List.of("Autore"), 2000, 1)));
+
+        assertEquals(List.of(nuovo), aggiunti, "Dovrebbe essere aggiunto solo il libro nuovo.");
+        assertEquals(2, archivio.contaLibri(), "Il conteggio dovrebbe comprendere il libro aggiunto.");
+        assertSame(nuovo, archivio.trovaLibro("9788800002"), "Il libro aggiunto dovrebbe essere trovato per ISBN.");
+        assertEquals(4, archivio.getStatistiche().getCopieTotali(), "Le statistiche dovrebbero contare solo il libro aggiunto.");
+    }
+
     @Test
     public void testRimuoviLibro() { // Verifica la corretta pulizia dei dati e il decremento del contatore.
         Libro libro = new Libro("1234567890", "Titolo", List.of("Mario Rossi"), 2020, 1);
@@ -160,4 +187,355 @@ public class ArchivioTest {
     public void testCercaPrestiti() { // Verifica che il motore di ricerca prestiti sia attivo.
         assertNotNull(archivio.cercaPrestiti(null), "La ricerca prestiti non deve restituire null.");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testTrova() { // Verifica la ricerca puntuale per ISBN, matricola e id.
+        Libro libro = new Libro("1234567890", "Titolo", List.of("Mario Rossi"), 2020, 1);
+        Utente utente = new Utente("0512101234", "Mario", "Rossi", "mario.rossi@studenti.unisa.it");
+        Prestito prestito = new Prestito(utente, libro, LocalDate.now(), LocalDate.now().plusDays(30));
+        archivio.aggiungiLibro(libro);
+        archivio.aggiungiUtente(utente);
+        archivio.aggiungiPrestito(prestito);
+
+        assertSame(libro, archivio.trovaLibro("1234567890"), "Il libro deve essere trovato tramite ISBN.");
+        assertSame(utente, archivio.trovaUtente("0512101234"), "L'utente deve essere trovato tramite matricola.");
+        assertSame(prestito, archivio.trovaPrestito(prestito.getId()), "Il prestito deve essere trovato tramite id.");
+        assertNull(archivio.trovaLibro("0000000000"), "Un ISBN sconosciuto non deve restituire nulla.");
+    }
+
+    @Test
+    public void testPrestitiPerUtenteELibro() { // Verifica che gli indici secondari seguano aggiunte, modifiche e rimozioni.
+        Libro libro = new Libro("1234567890", "Titolo", List.of("Mario Rossi"), 2020, 3);
+        Utente utente = new Utente("0512101234", "Mario", "Rossi", "mario.rossi@studenti.unisa.it");
+        Utente altro = new Utente("0512105678", "Luigi", "Verdi", "luigi.verdi@studenti.unisa.it");
+        Prestito primo = new Prestito(utente, libro, LocalDate.now(), LocalDate.now().plusDays(30));
+        Prestito secondo = new Prestito(utente, libro, LocalDate.now(), LocalDate.now().plusDays(10));
+        Prestito terzo = new Prestito(altro, libro, LocalDate.now(), LocalDate.now().plusDays(20));
+        archivio.aggiungiPrestito(primo);
+        archivio.aggiungiPrestito(secondo);
+        archivio.aggiungiPrestito(terzo);
+
+        assertEquals(List.of(secondo, primo), archivio.prestitiPerUtente("0512101234"), "I prestiti dell'utente devono essere ordinati per data prevista.");
+        assertEquals(3, archivio.prestitiPerLibro("1234567890").size(), "Il libro deve avere tre prestiti.");
+        assertTrue(archivio.prestitiPerUtente("0512109999").isEmpty(), "Una matricola senza prestiti deve restituire una lista vuota.");
+
+        primo.setDataRestituzioneEffettiva(LocalDate.now());
+        archivio.modificaPrestito(primo);
+        assertEquals(2, archivio.prestitiPerUtente("0512101234").size(), "La modifica non deve duplicare il prestito nell'indice.");
+
+        archivio.rimuoviPrestito(secondo);
+        assertEquals(List.of(primo), archivio.prestitiPerUtente("0512101234"), "Il prestito rimosso non deve più comparire.");
+        assertEquals(2, archivio.prestitiPerLibro("1234567890").size(), "Il libro deve avere due prestiti dopo la rimozione.");
+    }
+
+    @Test
+    public void testPrestitiScaduti() { // Verifica che vengano restituiti solo i prestiti in corso con data prevista superata.
+        Libro libro = new Libro("1234567890", "Titolo", List.of("Mario Rossi"), 2020, 3);
+        Utente utente = new Utente("0512101234", "Mario", "Rossi", "mario.rossi@studenti.unisa.it");
+        LocalDate oggi = LocalDate.of(2025, 6, 15);
+        Prestito scaduto = new Prestito(utente, libro, oggi.minusDays(20), oggi.minusDays(1));
+        Prestito inScadenza = new Prestito(utente, libro, oggi.minusDays(20), oggi);
+        Prestito concluso = new Prestito(utente, libro, oggi.minusDays(40), oggi.minusDays(10));
+        concluso.setStato(StatoPrestito.CONCLUSO);
+        archivio.aggiungiPrestito(scaduto);
+        archivio.aggiungiPrestito(inScadenza);
+        archivio.aggiungiPrestito(concluso);
+
+        assertEquals(List.of(scaduto), archivio.prestitiScaduti(oggi), "Solo il prestito in corso scaduto deve essere restituito.");
+
+        scaduto.aggiornaStato(oggi);
+        archivio.modificaPrestito(scaduto);
+        assertTrue(archivio.prestitiScaduti(oggi).isEmpty(), "Un prestito in ritardo non deve più essere restituito.");
+        assertEquals(List.of(inScadenza), archivio.prestitiScaduti(oggi.plusDays(1)), "Il giorno dopo scade anche il secondo prestito.");
+    }
+
+    @Test
+    public void testStatistiche() { // Verifica che i contatori seguano le modifiche all'archivio.
+        Libro libro = new Libro("1234567890", "Titolo", List.of("Mario Rossi"), 2020, 3);
+        Utente utente = new Utente("0512101234", "Mario", "Rossi", "mario.rossi@studenti.unisa.it");
+        archivio.aggiungiLibro(libro);
+        archivio.aggiungiUtente(utente);
+        StatisticheArchivio statistiche = archivio.getStatistiche();
+        assertEquals(3, statistiche.getCopieTotali(), "Le copie totali devono essere 3.");
+        assertEquals(3, statistiche.getCopieDisponibili(), "Le copie disponibili devono essere 3.");
+
+        Prestito prestito = new Prestito(utente, libro, LocalDate.now(), LocalDate.now().plusDays(30));
+        archivio.aggiungiPrestito(prestito);
+        libro.setCopieDisponibili(2);
+        archivio.modificaLibro(libro);
+        assertEquals(2, statistiche.getCopieDisponibili(), "Le copie disponibili devono essere 2.");
+        assertEquals(1, statistiche.getPrestiti(StatoPrestito.IN_CORSO), "Deve esserci un prestito in corso.");
+        assertEquals(1, statistiche.getUtentiAttivi(), "L'utente deve risultare attivo.");
+
+        prestito.setStato(StatoPrestito.CONCLUSO);
+        archivio.modificaPrestito(prestito);
+        assertEquals(0, statistiche.getPrestiti(StatoPrestito.IN_CORSO), "Non devono esserci prestiti in corso.");
+        assertEquals(1, statistiche.getPrestiti(StatoPrestito.CONCLUSO), "Deve esserci un prestito concluso.");
+        assertEquals(0, statistiche.getUtentiAttivi(), "L'utente non deve più risultare attivo.");
+
+        archivio.rimuoviLibro(libro);
+        assertEquals(0, statistiche.getCopieTotali(), "Dopo la rimozione non devono esserci copie.");
+    }
+
+    @Test
+    public void testRicercaIndicizzata() { // Verifica che la ricerca tramite indice dia gli stessi risultati della scansione completa.
+        String[] parole = {"Il", "Nome", "della", "Rosa", "Rossi", "Promessi", "Sposi", "Java", "Programmazione", "L'arte"};
+        for (int i = 0; i < 200; i++) {
+            String titolo = parole[i % parole.length] + " " + parole[(i * 7 + 3) % parole.length] + "-" + i;
+            archivio.aggiungiLibro(new Libro(String.format("97888%05d", i), titolo, List.of("Autore " + parole[(i * 3) % parole.length]), 2000, 1));
+        }
+
+        String[] ricerche = {"ross", "ossi", "ROSA", "rosa ", " rosa", "nome della", "me del", "l'arte", "-1", "978880001", "autore sp", "xyz", "a", "-", "prog"};
+        for (String testo : ricerche) {
+            InterfacciaFiltro<Libro> filtro = FiltroLibro.ricerca(testo);
+            List<Libro> attesi = new ArrayList<>();
+            for (Libro libro : archivio.listaLibri())
+                if (filtro.filtra(libro))
+                    attesi.add(libro);
+            assertEquals(attesi, archivio.cercaLibri(filtro), "La ricerca di '" + testo + "' dovrebbe coincidere con la scansione.");
+            assertEquals(attesi.size(), archivio.contaLibri(filtro), "Il conteggio di '" + testo + "' dovrebbe coincidere con la scansione.");
+        }
+    }
+
+    @Test
+    public void testRicercaDopoModifica() { // Verifica che l'indice segua modifiche in place e rimozioni.
+        Libro libro = new Libro("1234567890", "Titolo Vecchio", List.of("Mario Rossi"), 2020, 1);
+        archivio.aggiungiLibro(libro);
+        archivio.aggiungiLibro(new Libro("1234567891", "Altro", List.of("Anna Bianchi"), 2020, 1));
+
+        libro.setTitolo("Titolo Nuovo");
+        archivio.modificaLibro(libro);
+        assertEquals(List.of(libro), archivio.cercaLibri(FiltroLibro.ricerca("nuov")), "Il nuovo titolo dovrebbe essere trovato.");
+        assertTrue(archivio.cercaLibri(FiltroLibro.ricerca("vecchio")).isEmpty(), "Il vecchio titolo non dovrebbe più essere trovato.");
+
+        archivio.rimuoviLibro(libro);
+        assertTrue(archivio.cercaLibri(FiltroLibro.ricerca("rossi")).isEmpty(), "Il libro rimosso non dovrebbe essere trovato.");
+    }
+
+    @Test
+    public void testRicercaUtentiIndicizzata() { // Verifica che la ricerca per sottostringa sugli utenti coincida con la scansione completa.
+        String[] cognomi = {"Rossi", "Russo", "De Rosa", "Esposito", "Bianchi", "Rossini", "D'Amico"};
+        for (int i = 0; i < 150; i++)
+            archivio.aggiungiUtente(new Utente(String.format("05121%05d", i), "Nome", cognomi[i % cognomi.length], "utente" + i + "@studenti.unisa.it"));
+
+        String[] ricerche = {"ossi", "ROSS", "de r", "d'a", "0512100", "00012", "ssi", "x", "rossin", "zzz"};
+        for (String testo : ricerche) {
+            InterfacciaFiltro<Utente> filtro = FiltroUtente.ricerca(testo);
+            List<Utente> attesi = new ArrayList<>();
+            for (Utente utente : archivio.listaUtenti())
+                if (filtro.filtra(utente))
+                    attesi.add(utente);
+            assertEquals(attesi, archivio.cercaUtenti(filtro), "La ricerca di '" + testo + "' dovrebbe coincidere con la scansione.");
+        }
+    }
+
+    @Test
+    public void testRicercaPerPrefisso() { // Verifica che le ricerche per codice tramite indice coincidano con la scansione completa.
+        for (int i = 0; i < 200; i++)
+            archivio.aggiungiLibro(new Libro(String.format("97888%05d", i * 7), "Titolo " + i, List.of("Autore"), 2000, 1));
+        for (int i = 0; i < 150; i++)
+            archivio.aggiungiUtente(new Utente(String.format("05121%05d", i * 3), "Nome", "Cognome", "utente" + i + "@studenti.unisa.it"));
+
+        List<InterfacciaFiltro<Libro>> filtriLibri = List.of(FiltroLibro.prefissoIsbn("978880001"), FiltroLibro.prefissoIsbn("9788800"),
+                FiltroLibro.prefissoIsbn("97888013"), FiltroLibro.prefissoIsbn("1"), FiltroLibro.ricercaIsbn("9788800014"), FiltroLibro.ricercaIsbn("9788800015"));
+        for (InterfacciaFiltro<Libro> filtro : filtriLibri) {
+            List<Libro> attesi = new ArrayList<>();
+            for (Libro libro : archivio.listaLibri())
+                if (filtro.filtra(libro))
+                    attesi.add(libro);
+            assertEquals(attesi, archivio.cercaLibri(filtro), "La ricerca per ISBN dovrebbe coincidere con la scansione.");
+        }
+
+        List<InterfacciaFiltro<Utente>> filtriUtenti = List.of(FiltroUtente.prefissoMatricola("051210001"), FiltroUtente.prefissoMatricola("0512"),
+                FiltroUtente.prefissoMatricola("9"), FiltroUtente.ricercaMatricola("0512100003"), FiltroUtente.ricercaMatricola("0512100004"));
+        for (InterfacciaFiltro<Utente> filtro : filtriUtenti) {
+            List<Utente> attesi = new ArrayList<>();
+            for (Utente utente : archivio.listaUtenti())
+                if (filtro.filtra(utente))
+                    attesi.add(utente);
+            assertEquals(attesi, archivio.cercaUtenti(filtro), "La ricerca per matricola dovrebbe coincidere con la scansione.");
+        }
+
+        Libro libro = archivio.cercaLibri(FiltroLibro.ricercaIsbn("9788800014")).get(0);
+        archivio.rimuoviLibro(libro);
+        assertTrue(archivio.cercaLibri(FiltroLibro.ricercaIsbn("9788800014")).isEmpty(), "Il libro rimosso non dovrebbe più essere trovato.");
+    }
+
+    @Test
+    public void testPianificazioneFiltriComposti() { // Verifica che i filtri strutturati, pianificati sugli indici, coincidano con la scansione completa.
+        Libro libro = new Libro("1234567890", "Titolo", List.of("Mario Rossi"), 2020, 1000);
+        archivio.aggiungiLibro(libro);
+        List<Utente> iscritti = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Utente utente = new Utente(String.format("05121%05d", i), "Nome", "Cognome", "utente" + i + "@studenti.unisa.it");
+            archivio.aggiungiUtente(utente);
+            iscritti.add(utente);
+        }
+        LocalDate oggi = LocalDate.of(2025, 1, 1);
+        for (int i = 0; i < 300; i++) {
+            Prestito prestito = new Prestito(iscritti.get(i % iscritti.size()), libro, oggi, oggi.plusDays(i % 60));
+            if (i % 3 == 0)
+                prestito.setStato(StatoPrestito.CONCLUSO);
+            else if (i % 3 == 1)
+                prestito.setStato(StatoPrestito.IN_RITARDO);
+            archivio.aggiungiPrestito(prestito);
+        }
+
+        List<InterfacciaFiltro<Prestito>> filtri = List.of(
+                FiltroPrestito.ricercaAttiviMatricola("0512100007"),
+                FiltroPrestito.ricercaMatricola("0512100099"),
+                FiltroPrestito.scadenzaTra(oggi.plusDays(10), oggi.plusDays(12)),
+                FiltroPrestito.scadenzaTra(oggi.plusDays(12), oggi.plusDays(10)),
+                FiltroPrestito.scadenzaTra(null, null),
+                FiltroComposto.congiunzione(FiltroPrestito.scadenzaTra(oggi, oggi.plusDays(20)), FiltroPrestito.ricercaMatricola("0512100003")),
+                FiltroComposto.disgiunzione(FiltroPrestito.ricercaMatricola("0512100001"), FiltroPrestito.ricercaMatricola("0512100002")),
+                FiltroComposto.disgiunzione(FiltroPrestito.ricercaMatricola("0512100001"), p -> p.getDataPrevista().getDayOfMonth() == 5),
+                FiltroComposto.negazione(FiltroPrestito.ricercaMatricola("0512100001")),
+                FiltroComposto.congiunzione(FiltroPrestito.filtraConclusi(), p -> p.getUtente().getMatricola().endsWith("4")));
+        for (InterfacciaFiltro<Prestito> filtro : filtri) {
+            List<Prestito> attesi = new ArrayList<>();
+            for (Prestito prestito : archivio.listaPrestiti())
+                if (filtro.filtra(prestito))
+                    attesi.add(prestito);
+            assertEquals(attesi, archivio.cercaPrestiti(filtro), "La ricerca pianificata dovrebbe coincidere con la scansione.");
+            assertEquals(attesi.size(), archivio.contaPrestiti(filtro), "Il conteggio pianificato dovrebbe coincidere con la scansione.");
+        }
+    }
+
+    @Test
+    public void testRicercaPerStato() { // Verifica che i filtri per stato seguano i cambi di stato registrati con modificaPrestito.
+        Libro libro = new Libro("1234567890", "Titolo", List.of("Mario Rossi"), 2020, 100);
+        Utente utente = new Utente("0512101234", "Mario", "Rossi", "mario.rossi@studenti.unisa.it");
+        LocalDate oggi = LocalDate.of(2025, 6, 15);
+        List<Prestito> inseriti = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Prestito prestito = new Prestito(utente, libro, oggi, oggi.plusDays(30 - i));
+            archivio.aggiungiPrestito(prestito);
+            inseriti.add(prestito);
+        }
+        for (int i = 0; i < 30; i += 2) {
+            Prestito prestito = inseriti.get(i);
+            prestito.setStato((i % 4 == 0) ? StatoPrestito.CONCLUSO : StatoPrestito.IN_RITARDO);
+            archivio.modificaPrestito(prestito);
+        }
+
+        List<InterfacciaFiltro<Prestito>> filtri = List.of(FiltroPrestito.filtraConclusi(), FiltroPrestito.filtraInCorso(),
+                FiltroPrestito.filtraInRitardo(), FiltroPrestito.filtraAttivi());
+        for (InterfacciaFiltro<Prestito> filtro : filtri) {
+            List<Prestito> attesi = new ArrayList<>();
+            for (Prestito prestito : archivio.listaPrestiti())
+                if (filtro.filtra(prestito))
+                    attesi.add(prestito);
+            assertEquals(attesi, archivio.cercaPrestiti(filtro), "La ricerca per stato dovrebbe coincidere con la scansione.");
+            assertEquals(attesi.subList(2, 5), archivio.paginaPrestiti(filtro, 2, 3), "La pagina per stato dovrebbe seguire l'ordinamento dell'archivio.");
+        }
+
+        archivio.rimuoviPrestito(inseriti.get(1));
+        assertEquals(14, archivio.contaPrestiti(FiltroPrestito.filtraInCorso()), "Il prestito rimosso non dovrebbe più essere contato.");
+    }
+
+    @Test
+    public void testRicercaIgnoraAccenti() { // Verifica che la ricerca indicizzata ignori gli accenti, come il filtro.
+        for (int i = 0; i < 100; i++)
+            archivio.aggiungiLibro(new Libro(String.format("97888%05d", i), (i % 10 == 0) ? "Perché no-" + i : "Titolo-" + i, List.of((i % 4 == 0) ? "Nicolò Rossi" : "Anna Bianchi"), 2000, 1));
+
+        for (String testo : new String[]{"nicolo", "NICOLÒ", "perche", "perché no", "colò r"}) {
+            InterfacciaFiltro<Libro> filtro = FiltroLibro.ricerca(testo);
+            List<Libro> attesi = new ArrayList<>();
+            for (Libro libro : archivio.listaLibri())
+                if (filtro.filtra(libro))
+                    attesi.add(libro);
+            assertFalse(attesi.isEmpty(), "La ricerca di '" + testo + "' dovrebbe trovare dei libri.");
+            assertEquals(attesi, archivio.cercaLibri(filtro), "La ricerca di '" + testo + "' dovrebbe coincidere con la scansione.");
+        }
+    }
+
+    @Test
+    public void testCacheRicerche() { // Verifica che le interrogazioni ripetute non esaminino di nuovo i libri finché l'archivio non cambia.
+        for (int i = 0; i < 50; i++)
+            archivio.aggiungiLibro(new Libro(String.format("97888%05d", i), "Titolo " + i, List.of("Autore"), 2000, 1));
+        int[] valutazioni = {0};
+        InterfacciaFiltro<Libro> filtro = new InterfacciaFiltro<>() {
+            @Override
+            public boolean filtra(Libro libro) {
+                valutazioni[0]++;
+                return libro.getTitolo().endsWith("1");
+            }
+
+            @Override
+            public String descrizione() {
+                return "test:finisce-con-1";
+            }
+        };
+
+        List<Libro> risultato = archivio.cercaLibri(filtro);
+        assertEquals(5, risultato.size(), "Dovrebbero essere trovati i titoli che finiscono con 1.");
+        assertEquals(50, valutazioni[0], "La prima ricerca dovrebbe esaminare tutti i libri.");
+
+        assertEquals(risultato, archivio.cercaLibri(filtro), "La ricerca ripetuta dovrebbe dare lo stesso risultato.");
+        assertEquals(5, archivio.contaLibri(filtro), "Il conteggio dovrebbe essere servito dal risultato memorizzato.");
+        assertEquals(risultato.subList(1, 3), archivio.paginaLibri(filtro, 1, 2), "La pagina dovrebbe essere servita dal risultato memorizzato.");
+        assertEquals(risultato.subList(2, 5), archivio.paginaLibriDopo(filtro, risultato.get(1), 10), "La pagina a cursore dovrebbe partire dopo l'ultimo elemento.");
+        assertEquals(50, valutazioni[0], "Le interrogazioni ripetute non dovrebbero esaminare di nuovo i libri.");
+
+        archivio.aggiungiLibro(new Libro("9788899999", "Titolo 51", List.of("Autore"), 2000, 1));
+        assertEquals(6, archivio.contaLibri(filtro), "Dopo una modifica il risultato dovrebbe essere ricalcolato.");
+        assertEquals(101, valutazioni[0], "Dopo una modifica i libri dovrebbero essere esaminati di nuovo.");
+        assertEquals(6, archivio.contaLibri(filtro), "Il conteggio dovrebbe restare corretto.");
+        assertEquals(101, valutazioni[0], "Il conteggio ripetuto dovrebbe essere memorizzato.");
+        List<Libro> prima = archivio.paginaLibri(filtro, 0, 2);
+        int dopoPrima = valutazioni[0];
+        assertTrue(dopoPrima > 101, "La prima pagina dovrebbe essere calcolata dal sotto-archivio.");
+        assertEquals(prima, archivio.paginaLibri(filtro, 0, 2), "La pagina ripetuta dovrebbe dare lo stesso risultato.");
+        assertEquals(prima, archivio.paginaLibriDopo(filtro, null, 2), "La prima pagina a cursore dovrebbe coincidere con quella a offset zero.");
+        assertEquals(dopoPrima, valutazioni[0], "Le pagine ripetute non dovrebbero esaminare di nuovo i libri.");
+        assertEquals(6, archivio.cercaLibri(filtro).size(), "La ricerca dovrebbe calcolare e memorizzare il risultato.");
+        assertEquals(6, archivio.contaLibri(filtro), "Il conteggio dovrebbe essere servito dal risultato memorizzato.");
+        assertEquals(dopoPrima + 51, valutazioni[0], "Solo la ricerca dovrebbe esaminare di nuovo i libri.");
+    }
+
+    @Test
+    public void testLettureInParallelo() throws Exception { // Verifica che due ricerche possano essere in corso contemporaneamente.
+        archivio.aggiungiLibro(new Libro("9788800001", "Titolo", List.of("Autore"), 2000, 1));
+        CyclicBarrier barriera = new CyclicBarrier(2);
+        InterfacciaFiltro<Libro> attendiAltraLettura = libro -> {   // Si sblocca solo se entrambe le ricerche sono dentro l'archivio.
+            try {
+                barriera.await(5, TimeUnit.SECONDS);
+                return true;
+            } catch (InterruptedException | BrokenBarrierException | TimeoutException ex) {
+                return false;
+            }
+        };
+        ExecutorService esecutore = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<Libro>> prima = esecutore.submit(() -> archivio.cercaLibri(attendiAltraLettura));
+            Future<List<Libro>> seconda = esecutore.submit(() -> archivio.cercaLibri(attendiAltraLettura));
+            assertEquals(1, prima.get().size(), "Le letture dovrebbero procedere in parallelo.");
+            assertEquals(1, seconda.get().size(), "Le letture dovrebbero procedere in parallelo.");
+        } finally {
+            esecutore.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testModificaDuranteLettura() { // Verifica che una modifica invocata durante un'interrogazione venga rifiutata invece di bloccare il thread.
+        archivio.aggiungiLibro(new Libro("9788800001", "Titolo", List.of("Autore"), 2000, 1));
+        Libro altro = new Libro("9788800002", "Altro", List.of("Autore"), 2000, 1);
+        assertThrows(IllegalStateException.class, () -> archivio.cercaLibri(libro -> {
+            archivio.aggiungiLibro(altro);
+            return true;
+        }), "Una modifica dall'interno di una lettura dovrebbe essere rifiutata.");
+        assertNull(archivio.trovaLibro(altro.getIsbn()), "Il libro non dovrebbe essere stato aggiunto.");
+    }
+
+    @Test
+    public void testEseguiAtomicamente() { // Verifica che un'operazione composta possa leggere e modificare l'archivio.
+        Libro libro = new Libro("9788800001", "Titolo", List.of("Autore"), 2000, 1);
+        archivio.eseguiAtomicamente(() -> {
+            if (archivio.trovaLibro(libro.getIsbn()) == null)
+                archivio.aggiungiLibro(libro);
+        });
+        assertEquals(1, archivio.contaLibri(), "Il libro dovrebbe essere stato aggiunto.");
+        assertEquals(1, archivio.getStatistiche().getCopieTotali(), "Le statistiche dovrebbero seguire l'operazione composta.");
+    }
+}
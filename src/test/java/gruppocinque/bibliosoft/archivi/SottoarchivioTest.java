@@ -1,7 +1,9 @@
 package gruppocinque.bibliosoft.archivi;
 
 import gruppocinque.bibliosoft.archivi.Sottoarchivio;
+import gruppocinque.bibliosoft.archivi.filtri.InterfacciaFiltro;
 import gruppocinque.bibliosoft.modelli.Utente;
+import java.util.Arrays;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -25,6 +27,37 @@ public class SottoarchivioTest {
         assertTrue(instance.lista().contains(utente), "L'utente aggiunto deve essere presente nella lista.");
     }
 
+    @Test
+    public void testAggiungiTutti() { // Verifica che l'inserimento in blocco mantenga l'ordine scartando i duplicati.
+        Sottoarchivio<Utente> archivio = new Sottoarchivio<>(Utente::getMatricola);
+        Utente presente = new Utente("0512100002", "Anna", "Bianchi", "anna.bianchi@studenti.unisa.it");
+        archivio.aggiungi(presente);
+        Utente primo = new Utente("0512100003", "Carlo", "Verdi", "carlo.verdi@studenti.unisa.it");
+        Utente secondo = new Utente("0512100001", "Luca", "Amato", "luca.amato@studenti.unisa.it");
+        Utente stessaMatricola = new Utente("0512100002", "Anna", "Neri", "anna.neri@studenti.unisa.it");
+        Utente ripetuto = new Utente("0512100003", "Carlo", "Verdi", "c.verdi@studenti.unisa.it");
+
+        List<Utente> aggiunti = archivio.aggiungiTutti(List.of(primo, stessaMatricola, secondo, ripetuto));
+
+        assertEquals(List.of(secondo, primo), aggiunti, "Dovrebbero essere aggiunti solo gli utenti nuovi, in ordine.");
+        assertEquals(List.of(secondo, presente, primo), archivio.lista(), "L'archivio dovrebbe restare ordinato.");
+        assertSame(primo, archivio.trova("0512100003"), "L'indice dovrebbe contenere gli utenti aggiunti.");
+        assertThrows(IllegalStateException.class, () -> archivio.aggiungi(secondo), "Gli utenti aggiunti in blocco dovrebbero risultare presenti.");
+    }
+
+    @Test
+    public void testAggiungiTuttiPochiElementi() { // Verifica che pochi elementi in un archivio grande vengano inseriti nella posizione corretta.
+        for (int i = 0; i < 100; i++)
+            instance.aggiungi(new Utente(String.format("05121%05d", i * 2), "Nome", String.format("Cognome%05d", i * 2), "u" + i * 2 + "@studenti.unisa.it"));
+        Utente nuovo = new Utente("0512100001", "Nome", "Cognome00001", "u1@studenti.unisa.it");
+        Utente duplicato = new Utente("0512100000", "Nome", "Cognome00000", "altro@studenti.unisa.it");    //stessa matricola di un utente presente
+
+        assertEquals(List.of(nuovo), instance.aggiungiTutti(List.of(nuovo, duplicato)), "Dovrebbe essere aggiunto solo l'utente nuovo.");
+        assertEquals(101, instance.conta(), "Il conteggio dovrebbe comprendere l'utente aggiunto.");
+        assertSame(nuovo, instance.lista().get(1), "L'utente dovrebbe essere inserito nella posizione corretta.");
+        assertThrows(NullPointerException.class, () -> instance.aggiungiTutti(Arrays.asList(nuovo, null)), "Un elemento null dovrebbe essere rifiutato.");
+    }
+
     @Test
     public void testRimuovi() { // Verifica la corretta rimozione dell'oggetto e l'aggiornamento del contatore.
         Utente utente = new Utente("0512101234", "Mario", "Rossi", "mario.rossi@studenti.unisa.it");
@@ -77,6 +110,51 @@ public class SottoarchivioTest {
         assertEquals("0512100001", filtrati.get(0).getMatricola(), "L'utente trovato deve essere quello corretto (Mario).");
     }
 
+    @Test
+    public void testContaEsistePrimo() { // Verifica conteggio, esistenza e primo elemento filtrati senza costruire liste.
+        Utente u1 = new Utente("0512100001", "Franck", "Rossi", "m.rossi@studenti.unisa.it");
+        Utente u2 = new Utente("0512100002", "Angela", "Verdi", "l.verdi@studenti.unisa.it");
+        Utente u3 = new Utente("0512100003", "Franck", "Bianchi", "f.bianchi@studenti.unisa.it");
+        instance.aggiungi(u1);
+        instance.aggiungi(u2);
+        instance.aggiungi(u3);
+
+        assertEquals(3, instance.conta(null), "Con filtro null devono essere contati tutti gli utenti.");
+        assertEquals(2, instance.conta(u -> u.getNome().equals("Franck")), "Il filtro dovrebbe contare 2 utenti.");
+        assertTrue(instance.esiste(u -> u.getCognome().equals("Verdi")), "Un utente Verdi deve esistere.");
+        assertFalse(instance.esiste(u -> u.getCognome().equals("Neri")), "Nessun utente Neri deve esistere.");
+        assertSame(u3, instance.primo(u -> u.getNome().equals("Franck")), "Il primo Franck in ordine deve essere Bianchi.");
+        assertNull(instance.primo(u -> u.getCognome().equals("Neri")), "Senza corrispondenze primo() deve restituire null.");
+    }
+
+    @Test
+    public void testPagina() { // Verifica la paginazione per offset e per cursore sull'ordinamento naturale.
+        for (int i = 0; i < 10; i++)
+            instance.aggiungi(new Utente("05121000" + i, "Nome", "Cognome" + i, "utente" + i + "@studenti.unisa.it"));
+
+        List<Utente> prima = instance.pagina(null, 0, 4);
+        List<Utente> seconda = instance.pagina(null, 4, 4);
+        List<Utente> ultima = instance.pagina(null, 8, 4);
+        assertEquals(4, prima.size(), "La prima pagina deve contenere 4 utenti.");
+        assertEquals("Cognome4", seconda.get(0).getCognome(), "La seconda pagina deve iniziare dal quinto utente.");
+        assertEquals(2, ultima.size(), "L'ultima pagina deve contenere i 2 utenti rimanenti.");
+
+        assertEquals(seconda, instance.paginaDopo(null, prima.get(3), 4), "Il cursore deve restituire la stessa pagina dell'offset.");
+        assertEquals(prima, instance.paginaDopo(null, null, 4), "Senza cursore deve essere restituita la prima pagina.");
+        assertEquals(List.of("Cognome1", "Cognome3"), instance.pagina(u -> u.getCognome().matches(".*[13579]"), 0, 2).stream().map(Utente::getCognome).toList(), "Il filtro deve essere applicato prima della paginazione.");
+        assertThrows(IllegalArgumentException.class, () -> instance.pagina(null, -1, 4), "Un offset negativo deve essere rifiutato.");
+    }
+
+    @Test
+    public void testFlusso() { // Verifica che il flusso restituisca gli elementi in ordine.
+        Utente u1 = new Utente("002", "Mario", "Rossi", "z.rossi@studenti.unisa.it");
+        Utente u2 = new Utente("001", "Pippo", "Graziuso", "a.graziuso@studenti.unisa.it");
+        instance.aggiungi(u1);
+        instance.aggiungi(u2);
+
+        assertEquals(List.of(u2, u1), instance.flusso().toList(), "Il flusso deve seguire l'ordinamento naturale.");
+    }
+
     @Test
     public void testConta() { // Assicura che un nuovo sottoarchivio parta da zero elementi.
         assertEquals(0, instance.conta(), "Un nuovo sottoarchivio deve partire da 0 utenti.");
@@ -93,4 +171,48 @@ public class SottoarchivioTest {
         assertEquals("Graziuso", instance.lista().get(0).getCognome(), "Il primo elemento dovrebbe essere Graziuso (ordine alfabetico).");
         assertEquals("Rossi", instance.lista().get(1).getCognome(), "Il secondo elemento dovrebbe essere Rossi.");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testTrova() { // Verifica la ricerca per chiave primaria su un sottoarchivio indicizzato.
+        Sottoarchivio<Utente> indicizzato = new Sottoarchivio<>(Utente::getMatricola);
+        Utente utente = new Utente("0512101234", "Mario", "Rossi", "mario.rossi@studenti.unisa.it");
+        indicizzato.aggiungi(utente);
+
+        assertSame(utente, indicizzato.trova("0512101234"), "L'utente deve essere trovato tramite la matricola.");
+        assertNull(indicizzato.trova("0512109999"), "Una matricola sconosciuta non deve restituire nulla.");
+        assertThrows(IllegalStateException.class, () -> indicizzato.aggiungi(new Utente("0512101234", "Luigi", "Verdi", "luigi.verdi@studenti.unisa.it")), "Una matricola duplicata deve essere rifiutata.");
+
+        indicizzato.rimuovi(utente);
+        assertNull(indicizzato.trova("0512101234"), "Dopo la rimozione l'utente non deve più essere trovato.");
+        assertThrows(UnsupportedOperationException.class, () -> instance.trova("0512101234"), "Senza estrattore di chiave trova() non è supportato.");
+    }
+
+    @Test
+    public void testModificaIndicizzata() { // Verifica che la modifica con un'istanza nuova sostituisca quella memorizzata.
+        Sottoarchivio<Utente> indicizzato = new Sottoarchivio<>(Utente::getMatricola);
+        Utente utente = new Utente("0512101234", "Mario", "Rossi", "mario.rossi@studenti.unisa.it");
+        indicizzato.aggiungi(utente);
+
+        utente.setCognome("Zeta");  // modifica in place che altera l'ordinamento
+        Utente aggiornato = new Utente("0512101234", "Mario", "Bianchi", "mario.rossi@studenti.unisa.it");
+        indicizzato.modifica(aggiornato);
+
+        assertEquals(1, indicizzato.conta(), "Il numero di utenti deve restare invariato.");
+        assertSame(aggiornato, indicizzato.trova("0512101234"), "L'indice deve riferire la nuova istanza.");
+        assertSame(aggiornato, indicizzato.lista().get(0), "La lista deve contenere la nuova istanza.");
+    }
+
+    @Test
+    public void testCercaParallela() { // Verifica che oltre la soglia la ricerca parallela dia gli stessi risultati, nello stesso ordine.
+        for (int i = 0; i < 2000; i++)
+            instance.aggiungi(new Utente(String.format("05121%05d", i), "Nome", "Cognome" + (i % 7), "utente" + i + "@studenti.unisa.it"));
+        InterfacciaFiltro<Utente> filtro = u -> u.getCognome().endsWith("3");
+        List<Utente> sequenziali = instance.cerca(filtro);
+        int contati = instance.conta(filtro);
+
+        instance.setSogliaParallela(100);
+        assertEquals(sequenziali, instance.cerca(filtro), "La ricerca parallela deve restituire gli stessi elementi nello stesso ordine.");
+        assertEquals(contati, instance.conta(filtro), "Il conteggio parallelo deve coincidere con quello sequenziale.");
+        assertThrows(IllegalArgumentException.class, () -> instance.setSogliaParallela(0), "Una soglia non positiva deve essere rifiutata.");
+    }
+}
@@ -78,4 +78,18 @@ public class FiltroLibroTest {
 
         assertFalse(filtro.filtra(libroTest), "Non dovrebbe trovare il libro con ISBN diverso.");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPrefissoIsbn1() { //test di prefissoIsbn(): controlla se trova il libro tramite l'inizio dell'ISBN
+        InterfacciaFiltro<Libro> filtro = FiltroLibro.prefissoIsbn("97888");
+
+        assertTrue(filtro.filtra(libroTest), "Dovrebbe trovare il libro il cui ISBN inizia con il prefisso.");
+    }
+
+    @Test
+    public void testPrefissoIsbn2() { //test di prefissoIsbn(): controlla che una parte interna dell'ISBN non passi il filtro
+        InterfacciaFiltro<Libro> filtro = FiltroLibro.prefissoIsbn("88800");
+
+        assertFalse(filtro.filtra(libroTest), "Non dovrebbe trovare il libro se il prefisso non è l'inizio dell'ISBN.");
+    }
+}
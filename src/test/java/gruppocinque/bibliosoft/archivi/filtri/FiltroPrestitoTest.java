@@ -111,4 +111,24 @@ public class FiltroPrestitoTest {
 
         assertFalse(filtro.filtra(prestitoInCorso), "Non dovrebbe accettare prestito di un altro utente anche se è attivo.");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testScadenzaTra() { //test di scadenzaTra(): controlla gli estremi inclusi e gli intervalli aperti
+        assertTrue(FiltroPrestito.scadenzaTra(dataPrevista, dataPrevista).filtra(prestitoInCorso), "Dovrebbe accettare una scadenza pari agli estremi.");
+        assertTrue(FiltroPrestito.scadenzaTra(null, dataPrevista).filtra(prestitoInCorso), "Dovrebbe accettare un intervallo aperto a sinistra.");
+        assertFalse(FiltroPrestito.scadenzaTra(dataPrevista.plusDays(1), null).filtra(prestitoInCorso), "Non dovrebbe accettare una scadenza precedente all'intervallo.");
+    }
+
+    @Test
+    public void testFiltriComposti() { //test di FiltroComposto: controlla congiunzione, disgiunzione e negazione
+        InterfacciaFiltro<Prestito> inCorsoORitardo = FiltroComposto.disgiunzione(FiltroPrestito.filtraInCorso(), FiltroPrestito.filtraInRitardo());
+        InterfacciaFiltro<Prestito> nonConclusi = FiltroComposto.negazione(FiltroPrestito.filtraConclusi());
+        InterfacciaFiltro<Prestito> inCorsoDiAltri = FiltroComposto.congiunzione(FiltroPrestito.filtraInCorso(), FiltroPrestito.ricercaMatricola("999"));
+
+        for (Prestito prestito : List.of(prestitoConcluso, prestitoInCorso, prestitoInRitardo)) {
+            assertEquals(FiltroPrestito.filtraAttivi().filtra(prestito), inCorsoORitardo.filtra(prestito), "La disgiunzione dovrebbe coincidere con i prestiti attivi.");
+            assertEquals(FiltroPrestito.filtraAttivi().filtra(prestito), nonConclusi.filtra(prestito), "La negazione dovrebbe coincidere con i prestiti attivi.");
+            assertFalse(inCorsoDiAltri.filtra(prestito), "La congiunzione non dovrebbe accettare prestiti di un altro utente.");
+        }
+    }
+}
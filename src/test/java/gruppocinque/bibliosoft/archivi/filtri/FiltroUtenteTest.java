@@ -100,4 +100,18 @@ public class FiltroUtenteTest {
 
         assertFalse(filtro.filtra(utente), "Non dovrebbe accettare l'utente che ha la lista prestiti vuota.");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPrefissoMatricola() { //test di prefissoMatricola(): controlla se trova l'utente tramite l'inizio della matricola
+        assertTrue(FiltroUtente.prefissoMatricola("12").filtra(utente), "Dovrebbe trovare l'utente la cui matricola inizia con il prefisso.");
+        assertFalse(FiltroUtente.prefissoMatricola("23").filtra(utente), "Non dovrebbe trovare l'utente se il prefisso non è l'inizio della matricola.");
+    }
+
+    @Test
+    public void testRicercaSenzaAccenti() { //test di ricerca(): controlla che la ricerca ignori gli accenti e segua setCognome
+        utente.setCognome("Niccolò");
+        assertTrue(FiltroUtente.ricerca("niccolo").filtra(utente), "Dovrebbe trovare l'utente ignorando gli accenti.");
+        assertTrue(FiltroUtente.ricerca("NICCOLÒ").filtra(utente), "Dovrebbe trovare l'utente con il testo accentato.");
+        assertFalse(FiltroUtente.ricerca("rossi").filtra(utente), "Non dovrebbe più trovare l'utente con il vecchio cognome.");
+    }
+}
@@ -0,0 +1,76 @@
+package gruppocinque.bibliosoft.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AggiornatoreVistaTest {
+
+    private List<Runnable> inCoda;
+    private List<Runnable> daPubblicare;
+    private List<Integer> pubblicati;
+    private int interrogazioni;
+    private AggiornatoreVista<Integer> aggiornatore;
+
+    @BeforeEach
+    public void setUp() { // Gli esecutori accodano i lavori, che vengono eseguiti a mano dal test.
+        inCoda = new ArrayList<>();
+        daPubblicare = new ArrayList<>();
+        pubblicati = new ArrayList<>();
+        interrogazioni = 0;
+        aggiornatore = new AggiornatoreVista<>(() -> ++interrogazioni, pubblicati::add, inCoda::add, daPubblicare::add);
+    }
+
+    private void eseguiTutto() { // Esegue i lavori accodati e poi le pubblicazioni.
+        while (!inCoda.isEmpty())
+            inCoda.remove(0).run();
+        while (!daPubblicare.isEmpty())
+            daPubblicare.remove(0).run();
+    }
+
+    @Test
+    public void testRichiesteAccorpate() { // Più richieste in attesa producono una sola interrogazione.
+        aggiornatore.richiedi();
+        aggiornatore.richiedi();
+        aggiornatore.richiedi();
+        assertEquals(1, inCoda.size(), "Dovrebbe essere accodata una sola interrogazione.");
+        assertTrue(pubblicati.isEmpty(), "Nulla dovrebbe essere pubblicato prima dell'esecuzione.");
+
+        eseguiTutto();
+        assertEquals(1, interrogazioni, "L'interrogazione dovrebbe essere eseguita una volta.");
+        assertEquals(List.of(1), pubblicati, "Il risultato dovrebbe essere pubblicato una volta.");
+    }
+
+    @Test
+    public void testRichiestaDuranteEsecuzione() { // Una richiesta arrivata a interrogazione iniziata ne accoda un'altra.
+        aggiornatore = new AggiornatoreVista<>(() -> {
+            if (++interrogazioni == 1)
+                aggiornatore.richiedi();    //nuova richiesta mentre la prima è in corso
+            return interrogazioni;
+        }, pubblicati::add, inCoda::add, daPubblicare::add);
+
+        aggiornatore.richiedi();
+        eseguiTutto();
+        assertEquals(2, interrogazioni, "La richiesta arrivata durante l'esecuzione non dovrebbe andare persa.");
+        assertEquals(List.of(1, 2), pubblicati, "I risultati dovrebbero essere pubblicati in ordine.");
+    }
+
+    @Test
+    public void testErroreNonPubblicato() { // Un'interrogazione fallita non pubblica nulla e non blocca le successive.
+        aggiornatore = new AggiornatoreVista<>(() -> {
+            if (++interrogazioni == 1)
+                throw new IllegalStateException("errore simulato");
+            return interrogazioni;
+        }, pubblicati::add, inCoda::add, daPubblicare::add);
+
+        aggiornatore.richiedi();
+        eseguiTutto();
+        assertTrue(pubblicati.isEmpty(), "Un errore non dovrebbe essere pubblicato.");
+
+        aggiornatore.richiedi();
+        eseguiTutto();
+        assertEquals(List.of(2), pubblicati, "Le richieste successive dovrebbero essere eseguite.");
+    }
+}
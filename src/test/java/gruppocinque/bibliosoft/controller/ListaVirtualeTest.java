@@ -0,0 +1,103 @@
+package gruppocinque.bibliosoft.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ListaVirtualeTest {
+
+    private List<Integer> valori;
+    private int richiesteOffset;
+    private int richiesteCursore;
+    private ListaVirtuale<Integer> lista;
+
+    @BeforeEach
+    public void setUp() { // Sorgente in memoria che conta le pagine richieste.
+        valori = new ArrayList<>();
+        for (int i = 0; i < 250; i++)
+            valori.add(i);
+        richiesteOffset = 0;
+        richiesteCursore = 0;
+        lista = new ListaVirtuale<>(new ListaVirtuale.Sorgente<>() {
+            @Override
+            public int conta() {
+                return valori.size();
+            }
+
+            @Override
+            public List<Integer> pagina(int offset, int limite) {
+                richiesteOffset++;
+                return new ArrayList<>(valori.subList(Math.min(offset, valori.size()), Math.min(offset + limite, valori.size())));
+            }
+
+            @Override
+            public List<Integer> paginaDopo(Integer ultimo, int limite) {
+                richiesteCursore++;
+                return pagina(valori.indexOf(ultimo) + 1, limite);
+            }
+        });
+    }
+
+    @Test
+    public void testVuotaPrimaDiAggiorna() { // La lista non interroga la sorgente finché non viene aggiornata.
+        assertEquals(0, lista.size(), "La lista dovrebbe essere vuota.");
+        assertEquals(0, richiesteOffset, "Non dovrebbero essere state richieste pagine.");
+    }
+
+    @Test
+    public void testCaricamentoAPagine() { // Oltre alla prima, solo la pagina della riga richiesta viene caricata.
+        lista.aggiorna();
+        assertEquals(250, lista.size(), "La dimensione dovrebbe essere quella della sorgente.");
+        assertEquals(1, richiesteOffset, "Dovrebbe essere stata letta solo la prima pagina.");
+
+        assertEquals(5, lista.get(5), "L'elemento dovrebbe essere quello della sorgente.");
+        assertEquals(99, lista.get(99), "L'elemento dovrebbe essere nella stessa pagina.");
+        assertEquals(1, richiesteOffset, "La prima pagina non dovrebbe essere riletta.");
+
+        assertEquals(249, lista.get(249), "L'ultimo elemento dovrebbe essere caricato.");
+        assertEquals(2, richiesteOffset, "L'ultima pagina dovrebbe essere caricata per posizione.");
+        assertThrows(IndexOutOfBoundsException.class, () -> lista.get(250), "Un indice oltre la dimensione dovrebbe essere rifiutato.");
+    }
+
+    @Test
+    public void testScorrimentoACursore() { // Scorrendo in avanti le pagine vengono richieste a partire dall'ultimo elemento.
+        lista.aggiorna();
+        for (int i = 0; i < lista.size(); i++)
+            assertEquals(i, lista.get(i), "Gli elementi dovrebbero rispettare l'ordine della sorgente.");
+        assertEquals(2, richiesteCursore, "Le pagine successive alla prima dovrebbero usare il cursore.");
+    }
+
+    @Test
+    public void testAggiornaNotificaEScarta() { // aggiorna() sostituisce il contenuto e rilegge la sorgente.
+        lista.aggiorna();
+        lista.get(0);
+        List<Integer> variazioni = new ArrayList<>();
+        lista.addListener((ListChangeListener<Integer>) cambio -> {
+            while (cambio.next()) {
+                variazioni.add(cambio.getRemovedSize());
+                variazioni.add(cambio.getAddedSize());
+            }
+        });
+
+        valori.remove(0);
+        lista.aggiorna();
+
+        assertEquals(List.of(250, 249), variazioni, "Dovrebbe essere notificata la sostituzione dell'intero contenuto.");
+        assertEquals(1, lista.get(0), "La pagina dovrebbe essere riletta dalla sorgente.");
+    }
+
+    @Test
+    public void testLeggiNonModificaLaLista() { // leggi() può essere eseguito in background: la lista cambia solo con applica().
+        ListaVirtuale.Contenuto<Integer> contenuto = lista.leggi();
+        assertEquals(0, lista.size(), "leggi() non dovrebbe modificare la lista.");
+        assertEquals(250, contenuto.getDimensione(), "Il contenuto dovrebbe riportare la dimensione della sorgente.");
+
+        lista.applica(contenuto);
+        assertEquals(250, lista.size(), "applica() dovrebbe impostare la dimensione letta.");
+        assertEquals(0, lista.get(0), "La prima pagina letta dovrebbe essere riusata.");
+        assertEquals(1, richiesteOffset, "La prima pagina non dovrebbe essere riletta.");
+    }
+}
@@ -303,5 +303,16 @@ public class LibroTest {
         String aspettato = "Il Signore degli Anelli (1234567890)";
         
         assertEquals(aspettato, libro.toString(), "Il formato del toString non è corretto.");
-    }  
+    }
+
+    @Test
+    void testChiaviRicerca() {    //test sulla getChiaviRicerca(): controlla la normalizzazione e il ricalcolo dopo setTitolo/setAutori
+        Libro libro = new Libro("1111111111", "Però", List.of("Nicolò Ammaniti"), 2020, 5);
+        assertEquals(List.of("pero", "nicolo ammaniti", "1111111111"), libro.getChiaviRicerca(), "Le chiavi dovrebbero essere in minuscolo e senza accenti.");
+        assertTrue(libro.contieneAutore("Nicolo"), "L'autore dovrebbe essere trovato ignorando gli accenti.");
+
+        libro.setTitolo("Io non ho paura");
+        libro.setAutori(List.of("Italo Calvino"));
+        assertEquals(List.of("io non ho paura", "italo calvino", "1111111111"), libro.getChiaviRicerca(), "Le chiavi dovrebbero seguire le modifiche.");
+    }
 }
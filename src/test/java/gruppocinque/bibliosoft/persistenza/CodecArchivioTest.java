@@ -0,0 +1,116 @@
+package gruppocinque.bibliosoft.persistenza;
+
+import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.modelli.Libro;
+import gruppocinque.bibliosoft.modelli.Prestito;
+import gruppocinque.bibliosoft.modelli.StatoPrestito;
+import gruppocinque.bibliosoft.modelli.Utente;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CodecArchivioTest {
+
+    private Archivio archivio;
+
+    @BeforeEach
+    public void setUp() { // Ogni test parte da un archivio vuoto.
+        archivio = new Archivio();
+    }
+
+    private byte[] scrivi() throws IOException { // Scrive l'archivio corrente in memoria.
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodecArchivio.scrivi(new DataOutputStream(bytes), archivio);
+        return bytes.toByteArray();
+    }
+
+    private Archivio leggi(byte[] contenuto) throws IOException { // Ricostruisce un nuovo archivio dai byte forniti.
+        DataInputStream ingresso = new DataInputStream(new ByteArrayInputStream(contenuto));
+        assertTrue(CodecArchivio.isFormatoBinario(ingresso.readInt()), "L'intestazione dovrebbe essere riconosciuta.");
+        RicostruttoreArchivio ricostruttore = new RicostruttoreArchivio();
+        CodecArchivio.leggi(ingresso, ricostruttore);
+        Archivio ricaricato = new Archivio();
+        ricostruttore.popola(ricaricato);
+        return ricaricato;
+    }
+
+    @Test
+    public void testArchivioVuoto() throws Exception { // Un archivio vuoto produce solo intestazione e sezioni vuote.
+        byte[] contenuto = scrivi();
+        assertEquals(4 + 4 + 5 * 4, contenuto.length, "Il file dovrebbe contenere solo intestazione e conteggi.");
+        Archivio ricaricato = leggi(contenuto);
+        assertEquals(0, ricaricato.contaLibri(), "Non dovrebbero esserci libri.");
+        assertEquals(0, ricaricato.contaUtenti(), "Non dovrebbero esserci utenti.");
+        assertEquals(0, ricaricato.contaPrestiti(), "Non dovrebbero esserci prestiti.");
+    }
+
+    @Test
+    public void testAndataRitorno() throws Exception { // Verifica che libri, utenti e prestiti vengano riletti e ricollegati.
+        Libro libro = new Libro("1234567890", "Titolo", List.of("Autore Uno", "Autore Due"), 2020, 3);
+        Utente utente = new Utente("0512101234", "Mario", "Rossi", "m.rossi@studenti.unisa.it");
+        Prestito attivo = new Prestito(utente, libro, LocalDate.of(2025, 1, 10), LocalDate.of(2025, 2, 10));
+        Prestito concluso = new Prestito(utente, libro, LocalDate.of(2024, 1, 10), LocalDate.of(2024, 2, 10));
+        concluso.setDataRestituzioneEffettiva(LocalDate.of(2024, 2, 1));
+        concluso.setStato(StatoPrestito.CONCLUSO);
+        archivio.aggiungiLibro(libro);
+        archivio.aggiungiUtente(utente);
+        archivio.aggiungiPrestito(attivo);
+        archivio.aggiungiPrestito(concluso);
+
+        Archivio ricaricato = leggi(scrivi());
+
+        Libro libroLetto = ricaricato.listaLibri().get(0);
+        assertEquals("Titolo", libroLetto.getTitolo(), "Il titolo dovrebbe essere conservato.");
+        assertEquals(List.of("Autore Uno", "Autore Due"), libroLetto.getAutori(), "Gli autori dovrebbero essere conservati.");
+        assertEquals(2, libroLetto.getCopieDisponibili(), "Le copie disponibili dovrebbero tener conto del prestito attivo.");
+
+        Utente utenteLetto = ricaricato.listaUtenti().get(0);
+        assertEquals(1, utenteLetto.getPrestitiAttivi().size(), "L'utente dovrebbe avere un prestito attivo.");
+
+        assertEquals(2, ricaricato.contaPrestiti(), "Dovrebbero esserci entrambi i prestiti.");
+        for (Prestito prestito : ricaricato.listaPrestiti()) {
+            assertSame(libroLetto, prestito.getLibro(), "Il prestito dovrebbe riferire l'istanza del libro in archivio.");
+            assertSame(utenteLetto, prestito.getUtente(), "Il prestito dovrebbe riferire l'istanza dell'utente in archivio.");
+            if (prestito.getId().equals(concluso.getId())) {
+                assertEquals(StatoPrestito.CONCLUSO, prestito.getStato(), "Lo stato dovrebbe essere conservato.");
+                assertEquals(LocalDate.of(2024, 2, 1), prestito.getDataRestituzioneEffettiva(), "La data di restituzione dovrebbe essere conservata.");
+            }
+        }
+    }
+
+    @Test
+    public void testRiferimentiStorici() throws Exception { // I prestiti conclusi di libri e utenti rimossi devono restare leggibili.
+        Libro libro = new Libro("1234567890", "Titolo", List.of("Autore"), 2020, 1);
+        Utente utente = new Utente("0512101234", "Mario", "Rossi", "m.rossi@studenti.unisa.it");
+        Prestito prestito = new Prestito(utente, libro, LocalDate.of(2024, 1, 10), LocalDate.of(2024, 2, 10));
+        prestito.setDataRestituzioneEffettiva(LocalDate.of(2024, 2, 1));
+        prestito.setStato(StatoPrestito.CONCLUSO);
+        archivio.aggiungiPrestito(prestito);    //libro e utente non sono (più) in archivio
+
+        Archivio ricaricato = leggi(scrivi());
+
+        assertEquals(0, ricaricato.contaLibri(), "Il libro rimosso non dovrebbe tornare in archivio.");
+        assertEquals(0, ricaricato.contaUtenti(), "L'utente rimosso non dovrebbe tornare in archivio.");
+        Prestito letto = ricaricato.listaPrestiti().get(0);
+        assertEquals("Titolo", letto.getLibro().getTitolo(), "Il prestito dovrebbe conservare i dati del libro.");
+        assertEquals("Rossi", letto.getUtente().getCognome(), "Il prestito dovrebbe conservare i dati dell'utente.");
+    }
+
+    @Test
+    public void testVersioneNonSupportata() { // Una versione successiva a quella corrente deve essere rifiutata.
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        assertDoesNotThrow(() -> {
+            DataOutputStream uscita = new DataOutputStream(bytes);
+            uscita.writeInt(CodecArchivio.NUMERO_MAGICO);
+            uscita.writeInt(CodecArchivio.VERSIONE + 1);
+        });
+        assertThrows(IOException.class, () -> leggi(bytes.toByteArray()), "Una versione sconosciuta dovrebbe essere rifiutata.");
+    }
+}
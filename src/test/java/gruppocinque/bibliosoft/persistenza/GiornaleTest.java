@@ -0,0 +1,160 @@
+package gruppocinque.bibliosoft.persistenza;
+
+import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.modelli.Libro;
+import gruppocinque.bibliosoft.modelli.Prestito;
+import gruppocinque.bibliosoft.modelli.StatoPrestito;
+import gruppocinque.bibliosoft.modelli.Utente;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GiornaleTest {
+
+    @TempDir
+    Path cartella;
+
+    private File file;
+    private Archivio archivio;
+    private Giornale giornale;
+
+    @BeforeEach
+    public void setUp() { // Ogni test parte da un archivio vuoto con il giornale registrato come osservatore.
+        file = cartella.resolve("archivio.dat.log").toFile();
+        archivio = new Archivio();
+        giornale = new Giornale(file.getAbsolutePath());
+        archivio.aggiungiOsservatore(giornale);
+    }
+
+    private Archivio rileggi() throws Exception { // Ricostruisce un nuovo archivio a partire dal solo giornale.
+        RicostruttoreArchivio ricostruttore = new RicostruttoreArchivio();
+        new Giornale(file.getAbsolutePath()).riproduci(ricostruttore);
+        Archivio ricaricato = new Archivio();
+        ricostruttore.popola(ricaricato);
+        return ricaricato;
+    }
+
+    @Test
+    public void testNessunFileSenzaModifiche() throws Exception { // Il file del giornale non deve essere creato finché non si registra qualcosa.
+        giornale.chiudi();
+        assertFalse(file.exists(), "Il giornale non dovrebbe esistere senza modifiche.");
+    }
+
+    @Test
+    public void testRiproduzione() throws Exception { // Verifica che aggiunte, modifiche e rimozioni vengano riapplicate nello stesso ordine.
+        Libro libro = new Libro("1234567890", "Titolo", List.of("Autore"), 2020, 2);
+        Libro daRimuovere = new Libro("1111111111", "Altro", List.of("Autore"), 2020, 1);
+        Utente utente = new Utente("0512101234", "Mario", "Rossi", "m.rossi@studenti.unisa.it");
+        archivio.aggiungiLibro(libro);
+        archivio.aggiungiLibro(daRimuovere);
+        archivio.aggiungiUtente(utente);
+        archivio.rimuoviLibro(daRimuovere);
+
+        libro.setTitolo("Nuovo Titolo");
+        archivio.modificaLibro(libro);
+
+        Prestito prestito = new Prestito(utente, libro, LocalDate.now(), LocalDate.now().plusDays(30));
+        archivio.aggiungiPrestito(prestito);
+        giornale.chiudi();
+
+        Archivio ricaricato = rileggi();
+
+        assertEquals(1, ricaricato.contaLibri(), "Il libro rimosso non dovrebbe essere presente.");
+        assertEquals("Nuovo Titolo", ricaricato.listaLibri().get(0).getTitolo(), "La modifica dovrebbe essere riapplicata.");
+        assertEquals(1, ricaricato.contaPrestiti(), "Il prestito dovrebbe essere presente.");
+
+        Prestito letto = ricaricato.listaPrestiti().get(0);
+        assertEquals(prestito.getId(), letto.getId(), "L'identificativo del prestito deve essere conservato.");
+        assertSame(ricaricato.listaLibri().get(0), letto.getLibro(), "Il prestito deve riferire il libro presente in archivio.");
+        assertSame(ricaricato.listaUtenti().get(0), letto.getUtente(), "Il prestito deve riferire l'utente presente in archivio.");
+        assertEquals(1, letto.getLibro().getCopieDisponibili(), "Le copie disponibili devono tenere conto del prestito attivo.");
+        assertEquals(1, letto.getUtente().getPrestitiAttivi().size(), "L'utente deve avere il prestito tra quelli attivi.");
+    }
+
+    @Test
+    public void testRestituzioneRiprodotta() throws Exception { // Verifica che lo stato concluso di un prestito venga riapplicato.
+        Libro libro = new Libro("1234567890", "Titolo", List.of("Autore"), 2020, 1);
+        Utente utente = new Utente("0512101234", "Mario", "Rossi", "m.rossi@studenti.unisa.it");
+        archivio.aggiungiLibro(libro);
+        archivio.aggiungiUtente(utente);
+        Prestito prestito = new Prestito(utente, libro, LocalDate.now(), LocalDate.now().plusDays(30));
+        archivio.aggiungiPrestito(prestito);
+
+        prestito.setStato(StatoPrestito.CONCLUSO);
+        prestito.setDataRestituzioneEffettiva(LocalDate.now());
+        archivio.modificaPrestito(prestito);
+        giornale.chiudi();
+
+        Archivio ricaricato = rileggi();
+        Prestito letto = ricaricato.listaPrestiti().get(0);
+
+        assertEquals(StatoPrestito.CONCLUSO, letto.getStato(), "Il prestito dovrebbe risultare concluso.");
+        assertEquals(LocalDate.now(), letto.getDataRestituzioneEffettiva(), "La data di restituzione deve essere conservata.");
+        assertEquals(1, letto.getLibro().getCopieDisponibili(), "Tutte le copie devono risultare disponibili.");
+        assertFalse(letto.getUtente().haPrestitiAttivi(), "L'utente non deve avere prestiti attivi.");
+    }
+
+    @Test
+    public void testCodaTroncata() throws Exception { // Simula un'interruzione durante la scrittura: l'ultimo record incompleto viene scartato.
+        archivio.aggiungiLibro(new Libro("1234567890", "Primo", List.of("Autore"), 2020, 1));
+        archivio.aggiungiLibro(new Libro("1111111111", "Secondo", List.of("Autore"), 2020, 1));
+        giornale.chiudi();
+
+        try (RandomAccessFile accesso = new RandomAccessFile(file, "rw")) {
+            accesso.setLength(accesso.length() - 3);
+        }
+
+        Giornale riletto = new Giornale(file.getAbsolutePath());
+        RicostruttoreArchivio ricostruttore = new RicostruttoreArchivio();
+        assertEquals(1, riletto.riproduci(ricostruttore), "Solo il primo record dovrebbe essere valido.");
+
+        riletto.notifica(gruppocinque.bibliosoft.archivi.InterfacciaOsservatoreArchivio.Operazione.AGGIUNTA,
+                new Libro("2222222222", "Terzo", List.of("Autore"), 2020, 1));
+        riletto.chiudi();
+
+        Archivio ricaricato = rileggi();
+        assertEquals(2, ricaricato.contaLibri(), "Il record scritto dopo la coda troncata deve essere leggibile.");
+    }
+
+    @Test
+    public void testTronca() throws Exception { // Dopo tronca() il giornale è vuoto.
+        archivio.aggiungiLibro(new Libro("1234567890", "Titolo", List.of("Autore"), 2020, 1));
+        giornale.tronca();
+
+        assertEquals(0, giornale.dimensione(), "Il giornale dovrebbe essere vuoto.");
+        assertEquals(0, rileggi().contaLibri(), "Nessun elemento dovrebbe essere riapplicato.");
+    }
+
+    @Test
+    public void testErroreDiScrittura() throws Exception { // Un errore di scrittura non interrompe l'operazione né le altre notifiche, ma viene lanciato da sincronizza().
+        File cartellaGiornale = cartella.resolve("giornale.log").toFile();
+        assertTrue(cartellaGiornale.mkdir(), "La cartella al posto del giornale dovrebbe essere creata.");
+        Archivio bloccato = new Archivio();
+        Giornale nonScrivibile = new Giornale(cartellaGiornale.getAbsolutePath());
+        int[] notifiche = {0};
+        bloccato.aggiungiOsservatore(nonScrivibile);
+        bloccato.aggiungiOsservatore((operazione, elemento) -> notifiche[0]++);
+
+        List<Libro> aggiunti = bloccato.aggiungiLibri(List.of(
+                new Libro("1234567890", "Primo", List.of("Autore"), 2020, 1),
+                new Libro("1111111111", "Secondo", List.of("Autore"), 2020, 1),
+                new Libro("2222222222", "Terzo", List.of("Autore"), 2020, 1)));
+
+        assertEquals(3, aggiunti.size(), "L'inserimento massivo non dovrebbe fermarsi all'errore del giornale.");
+        assertEquals(3, bloccato.contaLibri(), "L'archivio dovrebbe contenere tutti i libri.");
+        assertEquals(3, notifiche[0], "Gli altri osservatori dovrebbero ricevere tutte le notifiche.");
+        assertThrows(IOException.class, nonScrivibile::sincronizza, "La sincronizzazione dovrebbe segnalare l'errore di scrittura.");
+        assertThrows(IOException.class, nonScrivibile::chiudi, "La chiusura dovrebbe segnalare l'errore di scrittura.");
+
+        assertTrue(cartellaGiornale.delete(), "La cartella dovrebbe essere rimossa.");
+        nonScrivibile.tronca();
+        nonScrivibile.sincronizza();    // Dopo lo svuotamento l'errore è dimenticato.
+    }
+}
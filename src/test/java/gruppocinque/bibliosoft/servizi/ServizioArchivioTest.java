@@ -4,12 +4,18 @@ import gruppocinque.bibliosoft.archivi.Archivio;
 import gruppocinque.bibliosoft.modelli.Libro;
 import gruppocinque.bibliosoft.modelli.Prestito;
 import gruppocinque.bibliosoft.modelli.Utente;
+import gruppocinque.bibliosoft.persistenza.CodecArchivio;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.ObjectInputStream;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -63,22 +69,126 @@ public class ServizioArchivioTest {
             assertTrue(file.exists(), "Il file dovrebbe esistere (appena creato).");
             assertTrue(file.length() > 0, "Il file dovrebbe contenere qualcosa (mappa vuota).");
 
-            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-                Object obj = ois.readObject();
-                assertTrue(obj instanceof Map, "Il file dovrebbe contenere una instanza di mappa.");
+            try (DataInputStream dis = new DataInputStream(new FileInputStream(file))) {
+                assertEquals(CodecArchivio.NUMERO_MAGICO, dis.readInt(), "Il file dovrebbe essere nel formato binario.");
+                assertEquals(CodecArchivio.VERSIONE, dis.readInt(), "Il file dovrebbe riportare la versione corrente del formato.");
+            }
+
+            Archivio ricaricato = new Archivio();
+            new ServizioArchivio(file.getAbsolutePath(), ricaricato).carica();
+            assertTrue(ricaricato.listaLibri().isEmpty(), "La lista di libri dovrebbe essere vuota.");
+            assertTrue(ricaricato.listaUtenti().isEmpty(), "La lista di utenti dovrebbe essere vuota.");
+            assertTrue(ricaricato.listaPrestiti().isEmpty(), "La lista di prestiti dovrebbe essere vuota.");
+        } finally {
+            new File(file.getAbsolutePath()).delete(); //mi assicuro che il file venga cancellato
+        }
+    }
 
-                Map<String, Object> mappa = (Map<String, Object>) obj;
+    @Test
+    void testCaricaFormatoSerializzato() throws Exception { //test di compatibilità: un archivio salvato con la serializzazione Java viene ancora letto
+        File file = new File("archivio_serializzato_prova.dat");
+        Libro libro = new Libro("1234567890", "Titolo", List.of("Autore"), 2020, 2);
+        Utente utente = new Utente("0612700001", "Mario", "Rossi", "m.rossi@studenti.unisa.it");
+        Prestito prestito = new Prestito(utente, libro, LocalDate.now(), LocalDate.now().plusDays(30));
 
-                assertTrue(mappa.containsKey("libri"), "La mappa dovrebbe contenere una lista di libri vuota.");
-                assertTrue(mappa.containsKey("utenti"), "La mappa dovrebbe contenere una lista di utenti vuota.");
-                assertTrue(mappa.containsKey("prestiti"), "La mappa dovrebbe contenere una lista di prestiti vuota.");
+        Map<String, Object> mappa = new HashMap<>();
+        mappa.put("libri", new ArrayList<>(List.of(libro)));
+        mappa.put("utenti", new ArrayList<>(List.of(utente)));
+        mappa.put("prestiti", new ArrayList<>(List.of(prestito)));
 
-                assertTrue(((List<Libro>) mappa.get("libri")).isEmpty(), "La lista di libri dovrebbe essere vuota.");
-                assertTrue(((List<Utente>) mappa.get("utenti")).isEmpty(), "La lista di utenti dovrebbe essere vuota.");
-                assertTrue(((List<Prestito>) mappa.get("prestiti")).isEmpty(), "La lista di prestiti dovrebbe essere vuota.");
+        try {
+            try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file))) {
+                oos.writeObject(mappa);
             }
+
+            new ServizioArchivio(file.getAbsolutePath(), archivio).carica();
+            assertEquals(1, archivio.contaLibri(), "Il libro dovrebbe essere stato caricato.");
+            assertEquals(1, archivio.contaUtenti(), "L'utente dovrebbe essere stato caricato.");
+            assertEquals(1, archivio.contaPrestiti(), "Il prestito dovrebbe essere stato caricato.");
+            assertEquals(1, archivio.listaLibri().get(0).getCopieDisponibili(), "Una copia dovrebbe risultare in prestito.");
         } finally {
-            new File(file.getAbsolutePath()).delete(); //mi assicuro che il file venga cancellato
+            file.delete();
+            new File(file.getAbsolutePath() + ServizioArchivio.ESTENSIONE_GIORNALE).delete();
+        }
+    }
+
+    @Test
+    void testGiornale() throws Exception { //test del giornale: le modifiche successive a carica() sopravvivono al riavvio anche senza salvataggio completo
+        File file = new File("archivio_giornale_prova.dat");
+        File giornale = new File(file.getAbsolutePath() + ServizioArchivio.ESTENSIONE_GIORNALE);
+
+        try {
+            ServizioArchivio servizio = new ServizioArchivio(file.getAbsolutePath(), archivio);
+            servizio.carica();
+            assertTrue(servizio.isGiornaleAttivo(), "Dopo il caricamento il giornale dovrebbe essere attivo.");
+
+            archivio.aggiungiLibro(new Libro("1234567890", "Titolo", List.of("Autore"), 2020, 1));
+            servizio.chiudi();
+            assertFalse(file.exists(), "Non dovrebbe essere stato eseguito alcun salvataggio completo.");
+
+            Archivio ricaricato = new Archivio();
+            new ServizioArchivio(file.getAbsolutePath(), ricaricato).carica();
+            assertEquals(1, ricaricato.contaLibri(), "Il libro dovrebbe essere ricostruito dal giornale.");
+
+            servizio.compatta();
+            assertTrue(file.exists(), "Il salvataggio completo dovrebbe esistere.");
+            assertFalse(giornale.exists(), "Dopo il salvataggio completo il giornale dovrebbe essere vuoto.");
+        } finally {
+            file.delete();
+            giornale.delete();
+        }
+    }
+
+    @Test
+    void testSalvaConGiornaleNonScrivibile() throws Exception { //test di salva(): se una modifica non è stata scritta nel giornale viene eseguito il salvataggio completo
+        File file = new File("archivio_giornale_errato_prova.dat");
+        File giornale = new File(file.getAbsolutePath() + ServizioArchivio.ESTENSIONE_GIORNALE);
+
+        try {
+            ServizioArchivio servizio = new ServizioArchivio(file.getAbsolutePath(), archivio);
+            servizio.carica();
+            servizio.compatta();    //esiste un salvataggio completo, per cui salva() si limiterebbe a sincronizzare il giornale
+            assertTrue(giornale.mkdir(), "La cartella al posto del giornale dovrebbe essere creata.");
+
+            archivio.aggiungiLibro(new Libro("1234567890", "Titolo", List.of("Autore"), 2020, 1));
+            assertEquals(1, archivio.contaLibri(), "L'errore del giornale non dovrebbe annullare l'aggiunta.");
+            servizio.salva();
+            assertFalse(giornale.exists(), "Il salvataggio completo dovrebbe svuotare il giornale.");
+
+            Archivio ricaricato = new Archivio();
+            new ServizioArchivio(file.getAbsolutePath(), ricaricato).carica();
+            assertEquals(1, ricaricato.contaLibri(), "Il libro non scritto nel giornale dovrebbe essere nel salvataggio completo.");
+        } finally {
+            file.delete();
+            giornale.delete();
+        }
+    }
+
+    @Test
+    void testCompattaDuranteModifiche() throws Exception { //test di compatta(): le modifiche eseguite durante un salvataggio completo sono nel file o nel giornale, mai perse
+        File file = new File("archivio_compatta_prova.dat");
+        File giornale = new File(file.getAbsolutePath() + ServizioArchivio.ESTENSIONE_GIORNALE);
+
+        try {
+            ServizioArchivio servizio = new ServizioArchivio(file.getAbsolutePath(), archivio);
+            servizio.carica();
+            int libri = 500;
+            Thread scrittore = new Thread(() -> {
+                for (int i = 0; i < libri; i++)
+                    archivio.aggiungiLibro(new Libro(String.format("%010d", i), "Titolo", List.of("Autore"), 2020, 1));
+            });
+            scrittore.start();
+            while (scrittore.isAlive())
+                servizio.compatta();    //salvataggi completi intercalati alle aggiunte
+            scrittore.join();
+            servizio.chiudi();
+
+            Archivio ricaricato = new Archivio();
+            new ServizioArchivio(file.getAbsolutePath(), ricaricato).carica();
+            assertEquals(libri, ricaricato.contaLibri(), "Nessuna aggiunta dovrebbe andare persa.");
+        } finally {
+            file.delete();
+            giornale.delete();
         }
     }
 }
@@ -0,0 +1,200 @@
+package gruppocinque.bibliosoft.servizi;
+
+import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.modelli.Libro;
+import gruppocinque.bibliosoft.modelli.Utente;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServizioImportazioneTest {
+
+    private Archivio archivio;
+    private ServizioImportazione servizio;
+
+    @TempDir
+    Path cartella;
+
+    @BeforeEach
+    public void setUp() { // Archivio vuoto per ogni test.
+        archivio = new Archivio();
+        servizio = new ServizioImportazione(archivio);
+    }
+
+    @Test
+    public void testImportaLibri() { // Le righe valide vengono importate, l'intestazione ignorata e i campi tra virgolette interpretati.
+        String csv = "isbn,titolo,autori,anno,copie\n"
+                + "1234567890,Il nome della rosa,Umberto Eco,1980,2\n"
+                + "\n"
+                + "9788800000001,\"Guerra, pace e \"\"altro\"\"\",Lev Tolstoj;Anonimo,1869,1\n";
+        EsitoImportazione esito = importaLibri(csv);
+
+        assertEquals(2, esito.getRighe(), "Dovrebbero essere lette due righe di dati.");
+        assertEquals(2, esito.getImportati(), "Dovrebbero essere importati due libri.");
+        assertEquals(0, esito.getScartate(), "Non dovrebbero esserci righe scartate.");
+        Libro libro = archivio.trovaLibro("9788800000001");
+        assertEquals("Guerra, pace e \"altro\"", libro.getTitolo(), "Il titolo tra virgolette dovrebbe essere interpretato.");
+        assertEquals(List.of("Lev Tolstoj", "Anonimo"), libro.getAutori(), "Gli autori dovrebbero essere separati da punto e virgola.");
+        assertEquals(3, archivio.getStatistiche().getCopieTotali(), "Le statistiche dovrebbero seguire l'importazione.");
+    }
+
+    @Test
+    public void testErroriPerRiga() { // Le righe non valide vengono scartate con numero di riga e motivo, senza interrompere l'importazione.
+        String csv = "isbn,titolo,autori,anno,copie\n"
+                + "12345,Titolo,Autore,2000,1\n"
+                + "1234567890,Titolo,Autore,duemila,1\n"
+                + "1234567891,Titolo,Autore\n"
+                + "1234567892,Titolo,Autore,2000,1\n";
+        EsitoImportazione esito = importaLibri(csv);
+
+        assertEquals(4, esito.getRighe(), "Dovrebbero essere lette quattro righe di dati.");
+        assertEquals(1, esito.getImportati(), "Dovrebbe essere importata solo la riga valida.");
+        assertEquals(3, esito.getScartate(), "Dovrebbero essere scartate tre righe.");
+        List<EsitoImportazione.Errore> errori = esito.getErrori();
+        assertEquals(2, errori.get(0).getRiga(), "Il primo errore dovrebbe riguardare la riga 2.");
+        assertEquals("Lunghezza ISBN non valida (ISBN10 o ISBN13)", errori.get(0).getMessaggio(), "Il motivo dovrebbe essere quello del validatore.");
+        assertTrue(errori.get(1).getMessaggio().startsWith("Anno non valido"), "L'anno non numerico dovrebbe essere segnalato.");
+        assertEquals("Riga 4: Numero di campi errato: attesi 5, trovati 3", errori.get(2).toString(), "Il numero di campi dovrebbe essere verificato.");
+    }
+
+    @Test
+    public void testDuplicati() { // I libri già presenti o ripetuti nel file vengono scartati.
+        archivio.aggiungiLibro(new Libro("1234567890", "Presente", List.of("Autore"), 2000, 1));
+        String csv = "1234567890,Copia,Autore,2000,1\n"
+                + "1234567891,Nuovo,Autore,2000,1\n"
+                + "1234567891,Ripetuto,Autore,2000,1\n";
+        EsitoImportazione esito = importaLibri(csv);
+
+        assertEquals(1, esito.getImportati(), "Dovrebbe essere importato solo il libro nuovo.");
+        assertEquals(1, esito.getErrori().get(0).getRiga(), "Il libro presente dovrebbe essere scartato.");
+        assertEquals(3, esito.getErrori().get(1).getRiga(), "Il libro ripetuto dovrebbe essere scartato.");
+        assertEquals("Libro già presente", esito.getErrori().get(1).getMessaggio(), "Il motivo dovrebbe indicare il duplicato.");
+        assertEquals("Nuovo", archivio.trovaLibro("1234567891").getTitolo(), "Dovrebbe essere conservata la prima occorrenza.");
+    }
+
+    @Test
+    public void testImportaUtentiDaFile() throws IOException { // Gli utenti vengono letti da file UTF-8, anche con BOM e campi su più righe.
+        File file = cartella.resolve("utenti.csv").toFile();
+        Files.writeString(file.toPath(), "\uFEFFmatricola,nome,cognome,email\n"
+                + "0512100001,Niccolò,D'Amico,niccolo.damico@studenti.unisa.it\n"
+                + "0512100002,\"Anna\nMaria\",Rossi,anna.rossi@studenti.unisa.it\n"
+                + "0512100003,Luca,Verdi,luca.verdi@gmail.com\n", StandardCharsets.UTF_8);
+
+        EsitoImportazione esito = servizio.importaUtenti(file);
+
+        assertEquals(1, esito.getImportati(), "Dovrebbe essere importato solo l'utente valido.");
+        Utente utente = archivio.trovaUtente("0512100001");
+        assertEquals("Niccolò", utente.getNome(), "Il file dovrebbe essere letto in UTF-8.");
+        assertEquals(3, esito.getErrori().get(0).getRiga(), "Il record su più righe dovrebbe iniziare alla riga 3.");
+        assertEquals("Nome non valido", esito.getErrori().get(0).getMessaggio(), "L'a capo nel nome dovrebbe essere rifiutato dal validatore.");
+        assertEquals(5, esito.getErrori().get(1).getRiga(), "La numerazione dovrebbe tenere conto del record su più righe.");
+    }
+
+    @Test
+    public void testCampoSuPiuRighe() { // Un campo tra virgolette può proseguire su più righe, anche con virgolette raddoppiate a metà.
+        String csv = "1234567890,\"Titolo\nsu \"\"tre\"\"\nrighe\",Autore,2000,1\n"
+                + "1234567891,Altro,Autore,2000,1\n"
+                + "1234567892,Titolo,Autore\n";
+        EsitoImportazione esito = importaLibri(csv);
+
+        assertEquals(2, esito.getImportati(), "Dovrebbero essere importati i due libri validi.");
+        assertEquals("Titolo\nsu \"tre\"\nrighe", archivio.trovaLibro("1234567890").getTitolo(), "Il campo dovrebbe comprendere tutte le righe.");
+        assertEquals(5, esito.getErrori().get(0).getRiga(), "La numerazione dovrebbe tenere conto delle righe del campo.");
+    }
+
+    @Test
+    public void testBlocchi() { // Con blocchi piccoli il file viene importato in più inserimenti con lo stesso risultato.
+        servizio = new ServizioImportazione(archivio, 7);
+        StringBuilder csv = new StringBuilder("isbn,titolo,autori,anno,copie\n");
+        for (int i = 100; i > 0; i--)
+            csv.append(String.format("%010d", i % 90)).append(",Titolo ").append(i).append(",Autore,2000,1\n");  //ISBN ripetuti oltre i 90 libri
+        EsitoImportazione esito = importaLibri(csv.toString());
+
+        assertEquals(100, esito.getRighe(), "Dovrebbero essere lette tutte le righe.");
+        assertEquals(90, esito.getImportati(), "Dovrebbero essere importati i libri con ISBN distinto.");
+        assertEquals(10, esito.getScartate(), "Le ripetizioni dovrebbero essere scartate anche tra blocchi diversi.");
+        List<Libro> libri = archivio.listaLibri();
+        for (int i = 1; i < libri.size(); i++)
+            assertTrue(libri.get(i - 1).compareTo(libri.get(i)) < 0, "L'archivio dovrebbe restare ordinato.");
+    }
+
+    @Test
+    public void testMassivo() { // Importazione di molte righe da un flusso generato, senza costruire il file in memoria.
+        int righe = 100_000;
+        EsitoImportazione esito;
+        try (Reader sorgente = new SorgenteGenerata(righe)) {
+            esito = servizio.importaUtenti(sorgente);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+
+        assertEquals(righe, esito.getImportati(), "Dovrebbero essere importati tutti gli utenti.");
+        assertEquals(righe, archivio.contaUtenti(), "L'archivio dovrebbe contenere tutti gli utenti.");
+        assertNotNull(archivio.trovaUtente(String.format("%010d", righe - 1)), "L'ultimo utente dovrebbe essere trovato.");
+    }
+
+    @Test
+    public void testLimiteErrori() { // Oltre il limite gli errori vengono contati ma non conservati.
+        servizio = new ServizioImportazione(archivio, 500);
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < EsitoImportazione.MAX_ERRORI + 10; i++)
+            csv.append("riga non valida\n");
+        EsitoImportazione esito = importaLibri(csv.toString());
+
+        assertEquals(EsitoImportazione.MAX_ERRORI + 10, esito.getScartate(), "Dovrebbero essere contate tutte le righe scartate.");
+        assertEquals(EsitoImportazione.MAX_ERRORI, esito.getErrori().size(), "Dovrebbero essere conservati solo i primi errori.");
+    }
+
+    private EsitoImportazione importaLibri(String csv) {
+        try {
+            return servizio.importaLibri(new StringReader(csv));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Flusso CSV di utenti prodotto riga per riga.
+     */
+    private static class SorgenteGenerata extends Reader {
+        private final int righe;
+        private int prossima = 0;
+        private String corrente = "matricola,nome,cognome,email\n";
+        private int posizione = 0;
+
+        SorgenteGenerata(int righe) {
+            this.righe = righe;
+        }
+
+        @Override
+        public int read(char[] destinazione, int inizio, int lunghezza) {
+            if (posizione == corrente.length()) {
+                if (prossima == righe)
+                    return -1;
+                String matricola = String.format("%010d", prossima++);
+                StringBuilder cognome = new StringBuilder("Cognome");
+                for (char cifra : matricola.substring(4).toCharArray())
+                    cognome.append((char) ('a' + cifra - '0'));    //il cognome può contenere solo lettere
+                corrente = matricola + ",Nome," + cognome + ",u" + matricola + "@studenti.unisa.it\n";
+                posizione = 0;
+            }
+            int letti = Math.min(lunghezza, corrente.length() - posizione);
+            corrente.getChars(posizione, posizione + letti, destinazione, inizio);
+            posizione += letti;
+            return letti;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
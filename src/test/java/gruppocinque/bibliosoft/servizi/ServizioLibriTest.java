@@ -2,10 +2,16 @@ package gruppocinque.bibliosoft.servizi;
 
 import gruppocinque.bibliosoft.servizi.ServizioLibri;
 import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.archivi.BlocchiEntita;
 import gruppocinque.bibliosoft.modelli.Libro;
+import gruppocinque.bibliosoft.modelli.Utente;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -28,6 +34,40 @@ public class ServizioLibriTest {
         assertNotNull(servizioLibri, "Il servizio dovrebbe essere stato istanziato.");
     }
 
+    @Test
+    public void testModificaConLockDelLibro() throws Exception { //test su modificaLibro(): attende la transazione in corso sullo stesso libro e ne vede le copie
+        servizioLibri.aggiungiLibro(libroValido);
+        CountDownLatch acquisito = new CountDownLatch(1);
+        CountDownLatch rilascia = new CountDownLatch(1);
+        CompletableFuture<Void> prestito = CompletableFuture.runAsync(() -> archivio.getBlocchi().esegui(() -> {
+            acquisito.countDown();
+            try {
+                rilascia.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Libro memorizzato = archivio.trovaLibro(libroValido.getIsbn());
+            archivio.eseguiAtomicamente(() -> memorizzato.setCopieDisponibili(memorizzato.getCopieDisponibili() - 1));  //copia prestata
+            archivio.modificaLibro(memorizzato);
+        }, BlocchiEntita.libro(libroValido.getIsbn())));
+        assertTrue(acquisito.await(5, TimeUnit.SECONDS), "La transazione dovrebbe aver acquisito il lock del libro.");
+
+        long attese = archivio.getBlocchi().getAttese();
+        CompletableFuture<Void> modifica = CompletableFuture.runAsync(() -> servizioLibri.modificaLibro(new Libro("9788800000000", "Nuovo titolo", List.of("Autore Test"), 2020, 6)));
+        long scadenza = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (archivio.getBlocchi().getAttese() == attese) {   //la modifica si mette in attesa del lock del libro
+            assertFalse(modifica.isDone(), "La modifica dovrebbe attendere la transazione sullo stesso libro.");
+            assertTrue(System.nanoTime() < scadenza, "La modifica dovrebbe richiedere il lock del libro.");
+            Thread.onSpinWait();
+        }
+        assertFalse(modifica.isDone(), "La modifica dovrebbe attendere la transazione sullo stesso libro.");
+        rilascia.countDown();
+        prestito.get(5, TimeUnit.SECONDS);
+        modifica.get(5, TimeUnit.SECONDS);
+
+        assertEquals(5, archivio.trovaLibro(libroValido.getIsbn()).getCopieDisponibili(), "La modifica non dovrebbe annullare la copia prestata.");
+    }
+
     @Test
     public void testAggiungiLibro() {   //test su aggiungiLibro(): libro nullo
         assertThrows(
@@ -120,8 +160,11 @@ public class ServizioLibriTest {
         Libro libro2 = new Libro("2222222222", "Titolo2", List.of("Mario Rossi"), 2021, 5);
         servizioLibri.aggiungiLibro(libro1);
         servizioLibri.aggiungiLibro(libro2);
-        libro1.setCopieDisponibili(libro1.getCopieDisponibili() - 2);
-        libro2.setCopieDisponibili(libro2.getCopieDisponibili() - 1);
+        ServizioPrestiti servizioPrestiti = new ServizioPrestiti(archivio);
+        Utente utente = new Utente("0512100001", "Mario", "Rossi", "m.rossi@studenti.unisa.it");
+        servizioPrestiti.registraPrestito(utente, libro1, LocalDate.now().plusDays(15));
+        servizioPrestiti.registraPrestito(utente, libro1, LocalDate.now().plusDays(15));
+        servizioPrestiti.registraPrestito(utente, libro2, LocalDate.now().plusDays(15));
         
         assertEquals(5, servizioLibri.getCopieDisponibili(), "Dovrebbe uscire 5.");
     }
@@ -9,7 +9,15 @@ import gruppocinque.bibliosoft.modelli.Utente;
 import gruppocinque.bibliosoft.archivi.filtri.FiltroPrestito;
 import gruppocinque.bibliosoft.archivi.filtri.InterfacciaFiltro;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -46,6 +54,24 @@ public class ServizioPrestitiTest {
         assertEquals(0, lista.size(), "La dimensione della lista dovrebbe essere 0.");
     }
 
+    @Test
+    public void testRestituzioneDopoModificaLibro() { //test di registraRestituzione(): la restituzione di un prestito precedente alla modifica del libro non annulla la modifica
+        ServizioLibri servizioLibri = new ServizioLibri(archivio);
+        servizioLibri.aggiungiLibro(libro);
+        servizio.registraPrestito(utente, libro, LocalDate.now().plusDays(15));
+        Prestito prestito = servizio.lista().get(0);
+        servizioLibri.modificaLibro(new Libro("1234567890", "Nuovo titolo", List.of("Autore"), 2020, 6));
+
+        servizio.registraRestituzione(prestito);
+
+        Libro memorizzato = archivio.trovaLibro("1234567890");
+        assertEquals("Nuovo titolo", memorizzato.getTitolo(), "La modifica del libro dovrebbe essere conservata.");
+        assertEquals(6, memorizzato.getCopieTotali(), "Le copie totali dovrebbero restare quelle modificate.");
+        assertEquals(6, memorizzato.getCopieDisponibili(), "La copia restituita dovrebbe tornare disponibile.");
+        assertEquals(6, servizioLibri.getCopieTotali(), "Il totale delle copie dovrebbe seguire la modifica.");
+        assertEquals(6, servizioLibri.getCopieDisponibili(), "Le copie disponibili dovrebbero seguire la restituzione.");
+    }
+
     @Test
     public void testCerca() { //test di cerca(): verifica il funzionamento con un filtro generico
         servizio.registraPrestito(utente, libro, LocalDate.now().plusDays(15));
@@ -73,6 +99,15 @@ public class ServizioPrestitiTest {
         assertEquals("123", storicoUtente1.get(0).getUtente().getMatricola(), "La matricola del prestito deve corrispondere.");
     }
     
+    @Test
+    public void testTrova() {   //test di trova(): ricerca per identificativo, null se il prestito non esiste
+        servizio.registraPrestito(utente, libro, LocalDate.now().plusDays(15));
+        Prestito prestito = servizio.lista().get(0);
+
+        assertSame(prestito, servizio.trova(prestito.getId()), "Il prestito dovrebbe essere trovato tramite il suo identificativo.");
+        assertNull(servizio.trova("inesistente"), "Un identificativo sconosciuto dovrebbe restituire null.");
+    }
+
     @Test
     public void testGetPrestitiInCorso() {  //test di getPrestitiInCorso(): su archivio vuoto
         assertEquals(0, servizio.getPrestitiInCorso(), "Dovrebbe restituire 0.");
@@ -118,9 +153,10 @@ public class ServizioPrestitiTest {
 
         int disponibiliPrima = libro.getCopieDisponibili();
 
-        servizio.registraPrestito(utente, libro, LocalDate.now().plusDays(7));
+        Prestito prestito = servizio.registraPrestito(utente, libro, LocalDate.now().plusDays(7));
 
         assertEquals(1, archivio.listaPrestiti().size(), "L'archivio dovrebbe contenere un prestito.");
+        assertSame(prestito, archivio.listaPrestiti().get(0), "Il prestito restituito dovrebbe essere quello in archivio.");
         assertEquals(disponibiliPrima - 1, libro.getCopieDisponibili(), "Il libro dovrebbe avere " + (disponibiliPrima - 1) + 
          " copie disponibili.");
         assertEquals(1, utente.getPrestitiAttivi().size(), "L'utente dovrebbe avere 1 prestito attivo.");
@@ -175,6 +211,24 @@ public class ServizioPrestitiTest {
         assertTrue(inRitardo >= 1, "Il libro dovrebbe essere già in ritardo.");
     }
 
+    @Test
+    public void testAggiornaSoloScaduti() {    //test di aggiornaRitardi(): vengono modificati solo i prestiti effettivamente scaduti, una sola volta
+        Prestito scaduto = new Prestito(utente, libro, LocalDate.now().minusDays(10), LocalDate.now().minusDays(1));
+        Prestito inCorso = new Prestito(utente, libro, LocalDate.now(), LocalDate.now().plusDays(10));
+        archivio.aggiungiPrestito(scaduto);
+        archivio.aggiungiPrestito(inCorso);
+
+        List<Object> modificati = new ArrayList<>();
+        archivio.aggiungiOsservatore((operazione, elemento) -> modificati.add(elemento));
+
+        servizio.aggiornaRitardi();
+        servizio.aggiornaRitardi();
+
+        assertEquals(List.of(scaduto), modificati, "Dovrebbe essere modificato solo il prestito scaduto, una sola volta.");
+        assertEquals(StatoPrestito.IN_RITARDO, scaduto.getStato(), "Il prestito scaduto dovrebbe essere in ritardo.");
+        assertEquals(StatoPrestito.IN_CORSO, inCorso.getStato(), "Il prestito non scaduto dovrebbe restare in corso.");
+    }
+
     @Test
     public void testGetPrestitiConclusi() { //test di getPrestitiConclusi(): verifica il conteggio
         servizio.registraPrestito(utente, libro, LocalDate.now().plusDays(15));
@@ -193,4 +247,139 @@ public class ServizioPrestitiTest {
 
         assertEquals(1, servizio.getPrestitiInRitardo(), "Dovrebbe esserci 1 prestito in ritardo.");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testUltimaCopiaConcorrente() throws Exception {   //test di registraPrestito(): più postazioni prestano insieme l'ultima copia, solo una deve riuscirci
+        Libro ultimaCopia = new Libro("9788800001", "Ultima copia", List.of("Autore"), 2020, 1);
+        archivio.aggiungiLibro(ultimaCopia);
+        int postazioni = 8;
+        CountDownLatch via = new CountDownLatch(1);
+        ExecutorService esecutore = Executors.newFixedThreadPool(postazioni);
+        List<Future<Boolean>> esiti = new ArrayList<>();
+        try {
+            for (int i = 0; i < postazioni; i++) {
+                Utente richiedente = new Utente("05121000" + i, "Mario", "Rossi", "m.rossi" + i + "@studenti.unisa.it");
+                archivio.aggiungiUtente(richiedente);
+                esiti.add(esecutore.submit(() -> {
+                    via.await();
+                    try {
+                        servizio.registraPrestito(richiedente, ultimaCopia, LocalDate.now().plusDays(15));
+                        return true;
+                    } catch (IllegalStateException ex) {
+                        return false;
+                    }
+                }));
+            }
+            via.countDown();
+            int riusciti = 0;
+            for (Future<Boolean> esito : esiti)
+                riusciti += esito.get() ? 1 : 0;
+
+            assertEquals(1, riusciti, "Solo un prestito dovrebbe essere registrato.");
+            assertEquals(0, ultimaCopia.getCopieDisponibili(), "Le copie disponibili non dovrebbero diventare negative.");
+            assertEquals(1, archivio.contaPrestiti(), "L'archivio dovrebbe contenere un solo prestito.");
+            assertEquals(0, archivio.getStatistiche().getCopieDisponibili(), "Le statistiche dovrebbero essere coerenti con il libro.");
+        } finally {
+            esecutore.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testStressTransazioni() throws Exception {   //test di registraPrestito() e registraRestituzione(): prestiti e restituzioni concorrenti su pochi libri e utenti
+        List<Libro> libri = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            libri.add(new Libro("978880000" + i, "Libro " + i, List.of("Autore"), 2020, 2));
+            archivio.aggiungiLibro(libri.get(i));
+        }
+        List<Utente> utenti = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            utenti.add(new Utente("05121000" + i, "Mario", "Rossi", "m.rossi" + i + "@studenti.unisa.it"));
+            archivio.aggiungiUtente(utenti.get(i));
+        }
+
+        int postazioni = 8;
+        int operazioni = 500;
+        CountDownLatch via = new CountDownLatch(1);
+        ExecutorService esecutore = Executors.newFixedThreadPool(postazioni);
+        List<Future<?>> esiti = new ArrayList<>();
+        try {
+            for (int t = 0; t < postazioni; t++) {
+                esiti.add(esecutore.submit(() -> {
+                    via.await();
+                    ThreadLocalRandom caso = ThreadLocalRandom.current();
+                    for (int i = 0; i < operazioni; i++) {
+                        Utente richiedente = utenti.get(caso.nextInt(utenti.size()));
+                        List<Prestito> attivi = new ArrayList<>(servizio.storico(richiedente));
+                        attivi.removeIf(p -> p.getStato() == StatoPrestito.CONCLUSO);
+                        try {
+                            if (attivi.isEmpty() || caso.nextBoolean())
+                                servizio.registraPrestito(richiedente, libri.get(caso.nextInt(libri.size())), LocalDate.now().plusDays(15));
+                            else
+                                servizio.registraRestituzione(attivi.get(0));
+                        } catch (IllegalStateException ex) {
+                            //copie esaurite, limite raggiunto o prestito già restituito da un'altra postazione
+                        }
+                    }
+                    return null;
+                }));
+            }
+            via.countDown();
+            for (Future<?> esito : esiti)
+                esito.get();
+        } finally {
+            esecutore.shutdownNow();
+        }
+
+        int attiviTotali = 0;
+        for (Libro l : libri) {
+            long attivi = archivio.prestitiPerLibro(l.getIsbn()).stream().filter(p -> p.getStato() != StatoPrestito.CONCLUSO).count();
+            assertEquals(l.getCopieTotali() - attivi, l.getCopieDisponibili(), "Le copie disponibili dovrebbero corrispondere ai prestiti attivi del libro.");
+            assertTrue(l.getCopieDisponibili() >= 0, "Le copie disponibili non dovrebbero diventare negative.");
+        }
+        for (Utente u : utenti) {
+            long attivi = archivio.prestitiPerUtente(u.getMatricola()).stream().filter(p -> p.getStato() != StatoPrestito.CONCLUSO).count();
+            assertEquals(attivi, u.getNumeroPrestitiAttivi(), "I prestiti attivi dell'utente dovrebbero corrispondere all'archivio.");
+            assertTrue(attivi <= ServizioPrestiti.MAX_PRESTITI_ATTIVI, "Il limite di prestiti attivi non dovrebbe essere superato.");
+            attiviTotali += attivi;
+        }
+        assertEquals(attiviTotali, servizio.getPrestitiInCorso(), "Le statistiche dovrebbero contare i prestiti attivi.");
+
+        assertTrue(archivio.getBlocchi().getAcquisizioni() > 0, "Le transazioni dovrebbero acquisire i lock delle entità.");
+    }
+
+    @Test
+    public void testTransazioniInParallelo() throws Exception {   //test di registraPrestito(): una transazione ferma nelle verifiche non blocca quelle su libri e utenti diversi
+        CountDownLatch inVerifica = new CountDownLatch(1);
+        CountDownLatch rilascia = new CountDownLatch(1);
+        Utente lento = new Utente("0512100001", "Luca", "Bianchi", "l.bianchi@studenti.unisa.it") {
+            @Override
+            public int getNumeroPrestitiAttivi() {
+                if (inVerifica.getCount() > 0) {    //solo la prima verifica si ferma
+                    inVerifica.countDown();
+                    try {
+                        rilascia.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.getNumeroPrestitiAttivi();
+            }
+        };
+        Libro altro = new Libro("9788800000001", "Altro libro", List.of("Autore"), 2020, 1);
+        archivio.aggiungiLibro(libro);
+        archivio.aggiungiLibro(altro);
+
+        CompletableFuture<Void> ferma = CompletableFuture.runAsync(() -> servizio.registraPrestito(lento, altro, LocalDate.now().plusDays(15)));
+        try {
+            assertTrue(inVerifica.await(5, TimeUnit.SECONDS), "La prima transazione dovrebbe essere nelle verifiche.");
+            CompletableFuture<Void> parallela = CompletableFuture.runAsync(() -> servizio.registraPrestito(utente, libro, LocalDate.now().plusDays(15)));
+            assertDoesNotThrow(() -> parallela.get(5, TimeUnit.SECONDS), "Il prestito di un altro libro a un altro utente non dovrebbe attendere la transazione in corso.");
+            assertEquals(4, archivio.trovaLibro(libro.getIsbn()).getCopieDisponibili(), "Il prestito parallelo dovrebbe essere registrato.");
+        } finally {
+            rilascia.countDown();
+        }
+        ferma.get(5, TimeUnit.SECONDS);
+        assertEquals(0, archivio.trovaLibro(altro.getIsbn()).getCopieDisponibili(), "Anche la transazione fermata dovrebbe essere registrata.");
+        assertEquals(2, archivio.contaPrestiti(), "Dovrebbero essere registrati entrambi i prestiti.");
+    }
+}
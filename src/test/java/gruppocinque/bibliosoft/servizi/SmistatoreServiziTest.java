@@ -0,0 +1,164 @@
+package gruppocinque.bibliosoft.servizi;
+
+import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.modelli.Libro;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SmistatoreServiziTest {
+
+    private SmistatoreServizi smistatore;
+
+    @AfterEach
+    public void tearDown() {
+        if (smistatore != null)
+            smistatore.chiudi();
+    }
+
+    @Test
+    public void testCostruttore() { // Limiti non validi vengono rifiutati.
+        assertThrows(IllegalArgumentException.class, () -> new SmistatoreServizi(0, 1, 1), "Servono almeno una scrittura contemporanea.");
+        assertThrows(IllegalArgumentException.class, () -> new SmistatoreServizi(1, -1, 1), "La coda non può essere negativa.");
+        assertThrows(IllegalArgumentException.class, () -> new SmistatoreServizi(1, 1, -1), "L'attesa non può essere negativa.");
+    }
+
+    @Test
+    public void testLetturaEScrittura() { // Le chiamate restituiscono il risultato del servizio e sono conteggiate nelle metriche.
+        smistatore = new SmistatoreServizi();
+        ServizioLibri servizio = new ServizioLibri(new Archivio());
+        Libro libro = new Libro("1234567890", "Titolo", List.of("Autore"), 2020, 1);
+
+        smistatore.scrivi("aggiungi", () -> servizio.aggiungiLibro(libro));
+        assertSame(libro, smistatore.leggi("trova", () -> servizio.trovaLibro("1234567890")), "La lettura dovrebbe restituire il libro.");
+        assertThrows(IllegalStateException.class, () -> smistatore.scrivi("aggiungi", () -> servizio.aggiungiLibro(libro)), "L'eccezione del servizio dovrebbe essere propagata.");
+
+        assertEquals(2, smistatore.getMetriche().getRichieste("aggiungi"), "Dovrebbero essere conteggiate entrambe le scritture.");
+        assertEquals(1, smistatore.getMetriche().getErrori("aggiungi"), "Dovrebbe essere conteggiato l'errore.");
+        assertEquals(0, smistatore.getScrittureInCorso(), "Il permesso dovrebbe essere rilasciato anche in caso di errore.");
+    }
+
+    @Test
+    public void testRifiutoCodaPiena() throws Exception { // Senza coda una scrittura oltre il limite viene rifiutata subito, le letture no.
+        smistatore = new SmistatoreServizi(1, 0, 1000);
+        CountDownLatch bloccata = new CountDownLatch(1);
+        CountDownLatch rilascia = new CountDownLatch(1);
+        CompletableFuture<Object> prima = smistatore.inviaScrittura("lenta", () -> {
+            bloccata.countDown();
+            attendi(rilascia);
+            return null;
+        });
+        assertTrue(bloccata.await(5, TimeUnit.SECONDS), "La prima scrittura dovrebbe essere in corso.");
+
+        long inizio = System.nanoTime();
+        assertThrows(RejectedExecutionException.class, () -> smistatore.scrivi("rifiutata", () -> { }), "La seconda scrittura dovrebbe essere rifiutata.");
+        assertTrue(System.nanoTime() - inizio < TimeUnit.MILLISECONDS.toNanos(500), "Il rifiuto dovrebbe essere immediato.");
+        assertEquals(1, smistatore.leggi("lettura", () -> 1), "Le letture non dovrebbero essere limitate.");
+        assertEquals(1, smistatore.getRifiutate(), "Dovrebbe essere conteggiato il rifiuto.");
+
+        rilascia.countDown();
+        prima.get(5, TimeUnit.SECONDS);
+        smistatore.scrivi("accettata", () -> { });  //il permesso è di nuovo libero
+    }
+
+    @Test
+    public void testAttesaScaduta() throws Exception { // Una scrittura in coda viene rifiutata se il permesso non si libera entro l'attesa massima.
+        smistatore = new SmistatoreServizi(1, 4, 50);
+        CountDownLatch bloccata = new CountDownLatch(1);
+        CountDownLatch rilascia = new CountDownLatch(1);
+        CompletableFuture<Object> prima = smistatore.inviaScrittura("lenta", () -> {
+            bloccata.countDown();
+            attendi(rilascia);
+            return null;
+        });
+        assertTrue(bloccata.await(5, TimeUnit.SECONDS), "La prima scrittura dovrebbe essere in corso.");
+
+        long inizio = System.nanoTime();
+        CompletableFuture<Object> seconda = smistatore.inviaScrittura("in coda", () -> null);
+        ExecutionException errore = assertThrows(ExecutionException.class, () -> seconda.get(5, TimeUnit.SECONDS), "La seconda scrittura dovrebbe scadere.");
+        assertTrue(errore.getCause() instanceof RejectedExecutionException, "La scrittura scaduta dovrebbe essere rifiutata.");
+        assertTrue(System.nanoTime() - inizio >= TimeUnit.MILLISECONDS.toNanos(50), "La scrittura dovrebbe attendere l'attesa massima.");
+        assertEquals(0, smistatore.getInCoda(), "La coda dovrebbe essere vuota.");
+
+        rilascia.countDown();
+        prima.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testCaricoSaturazione() throws Exception { // Prova di carico: con scritture oltre la capacità il limite è rispettato e ogni scrittura è accettata o rifiutata.
+        final int scrittureMassime = 2;
+        final long servizio = 2;    //millisecondi di ogni scrittura, oltre all'inserimento in archivio
+        smistatore = new SmistatoreServizi(scrittureMassime, 16, 50);
+        Archivio archivio = new Archivio();
+        ServizioLibri servizioLibri = new ServizioLibri(archivio);
+        AtomicInteger contemporanee = new AtomicInteger();
+        AtomicInteger massimoContemporanee = new AtomicInteger();
+        AtomicInteger prossimo = new AtomicInteger();
+        AtomicInteger accettate = new AtomicInteger();
+
+        int client = 64;
+        int operazioni = 25;
+        ExecutorService esecutore = Executors.newFixedThreadPool(client);
+        try {
+            List<Future<?>> risultati = new ArrayList<>();
+            CountDownLatch partenza = new CountDownLatch(1);
+            for (int c = 0; c < client; c++) {
+                risultati.add(esecutore.submit(() -> {
+                    partenza.await();
+                    for (int i = 0; i < operazioni; i++) {
+                        try {
+                            smistatore.scrivi("aggiungi", () -> {
+                                massimoContemporanee.accumulateAndGet(contemporanee.incrementAndGet(), Math::max);
+                                try {
+                                    String isbn = String.format("%010d", prossimo.incrementAndGet());
+                                    servizioLibri.aggiungiLibro(new Libro(isbn, "Titolo", List.of("Autore"), 2020, 1));
+                                    Thread.sleep(servizio);
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                } finally {
+                                    contemporanee.decrementAndGet();
+                                }
+                            });
+                            accettate.incrementAndGet();
+                        } catch (RejectedExecutionException e) {
+                            //carico in eccesso: il client riproverebbe più tardi
+                        }
+                        smistatore.leggi("conta", servizioLibri::getLibriTotali);
+                    }
+                    return null;
+                }));
+            }
+            partenza.countDown();
+            for (Future<?> risultato : risultati)
+                risultato.get(60, TimeUnit.SECONDS);
+        } finally {
+            esecutore.shutdownNow();
+            assertTrue(esecutore.awaitTermination(10, TimeUnit.SECONDS), "I client dovrebbero terminare.");
+        }
+
+        assertTrue(smistatore.getRifiutate() > 0, "Oltre la capacità alcune scritture dovrebbero essere rifiutate.");
+        assertEquals(client * operazioni, accettate.get() + smistatore.getRifiutate(), "Ogni scrittura dovrebbe essere accettata o rifiutata.");
+        assertEquals(accettate.get(), archivio.contaLibri(), "Solo le scritture accettate dovrebbero modificare l'archivio.");
+        assertTrue(massimoContemporanee.get() <= scrittureMassime, "Non dovrebbero esserci più scritture contemporanee del limite.");
+        assertEquals(client * operazioni, smistatore.getMetriche().getRichieste("conta"), "Dovrebbero essere conteggiate tutte le letture.");
+    }
+
+    private static void attendi(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package gruppocinque.bibliosoft.strumenti;
+
+import gruppocinque.bibliosoft.archivi.Archivio;
+import gruppocinque.bibliosoft.modelli.Libro;
+import gruppocinque.bibliosoft.modelli.Prestito;
+import gruppocinque.bibliosoft.modelli.StatoPrestito;
+import gruppocinque.bibliosoft.modelli.Utente;
+import gruppocinque.bibliosoft.servizi.ServizioArchivio;
+import gruppocinque.bibliosoft.servizi.ServizioPrestiti;
+import java.io.File;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeneratoreDatiTest {
+
+    private static final LocalDate OGGI = LocalDate.of(2025, 6, 1);
+
+    private GeneratoreDati generatore;
+
+    @BeforeEach
+    public void setUp() { // Generatore con data fissa, così il risultato non dipende dal giorno di esecuzione.
+        generatore = new GeneratoreDati(42);
+        generatore.setLibri(300);
+        generatore.setUtenti(80);
+        generatore.setPrestiti(1000);
+        generatore.setOggi(OGGI);
+    }
+
+    @Test
+    public void testRiproducibile() { // Stesso seme e stessi parametri producono lo stesso archivio.
+        Archivio primo = generatore.genera();
+        Archivio secondo = generatore.genera();
+        assertEquals(isbn(primo), isbn(secondo), "I libri dovrebbero coincidere.");
+        assertEquals(primo.listaPrestiti().stream().map(Prestito::getId).collect(Collectors.toList()),
+                secondo.listaPrestiti().stream().map(Prestito::getId).collect(Collectors.toList()), "I prestiti dovrebbero coincidere.");
+
+        GeneratoreDati altroSeme = new GeneratoreDati(43);
+        altroSeme.setLibri(300);
+        assertNotEquals(isbn(primo), isbn(altroSeme.genera()), "Un seme diverso dovrebbe produrre un archivio diverso.");
+    }
+
+    @Test
+    public void testDatiValidi() { // Libri e utenti superano i controlli del Validatore e gli ISBN hanno cifra di controllo corretta.
+        Archivio archivio = generatore.genera();
+        assertEquals(300, archivio.contaLibri(), "Dovrebbero essere generati tutti i libri.");
+        assertEquals(80, archivio.contaUtenti(), "Dovrebbero essere generati tutti gli utenti.");
+        boolean isbn10 = false;
+        for (Libro libro : archivio.listaLibri()) {
+            assertDoesNotThrow(() -> Validatore.validaLibro(libro), "Il libro " + libro + " dovrebbe essere valido.");
+            assertTrue(controlloIsbn(libro.getIsbn()), "La cifra di controllo di " + libro.getIsbn() + " dovrebbe essere corretta.");
+            isbn10 |= libro.getIsbn().length() == 10;
+        }
+        assertTrue(isbn10, "Dovrebbero essere generati anche ISBN-10.");
+        for (Utente utente : archivio.listaUtenti())
+            assertDoesNotThrow(() -> Validatore.validaUtente(utente), "L'utente " + utente + " dovrebbe essere valido.");
+    }
+
+    @Test
+    public void testStoricoPrestiti() { // Lo storico comprende tutti gli stati e rispetta copie e limite di prestiti attivi.
+        generatore.setQuotaRitardo(0.5);
+        Archivio archivio = generatore.genera();
+        assertEquals(1000, archivio.contaPrestiti(), "Dovrebbero essere generati tutti i prestiti.");
+        for (StatoPrestito stato : StatoPrestito.values())
+            assertTrue(archivio.getStatistiche().getPrestiti(stato) > 0, "Dovrebbero esserci prestiti nello stato " + stato + ".");
+
+        for (Prestito prestito : archivio.listaPrestiti()) {
+            StatoPrestito atteso = prestito.getStato();
+            if (atteso != StatoPrestito.CONCLUSO) {
+                prestito.aggiornaStato(OGGI);
+                assertEquals(atteso, prestito.getStato(), "Lo stato dovrebbe essere coerente con la data prevista.");
+            }
+        }
+        for (Libro libro : archivio.listaLibri()) {
+            long attivi = archivio.prestitiPerLibro(libro.getIsbn()).stream().filter(p -> p.getStato() != StatoPrestito.CONCLUSO).count();
+            assertEquals(libro.getCopieTotali() - attivi, libro.getCopieDisponibili(), "Le copie disponibili dovrebbero tenere conto dei prestiti attivi.");
+        }
+        for (Utente utente : archivio.listaUtenti())
+            assertTrue(utente.getNumeroPrestitiAttivi() <= ServizioPrestiti.MAX_PRESTITI_ATTIVI, "Il limite di prestiti attivi dovrebbe essere rispettato.");
+
+        int inRitardo = archivio.getStatistiche().getPrestiti(StatoPrestito.IN_RITARDO);
+        int attivi = inRitardo + archivio.getStatistiche().getPrestiti(StatoPrestito.IN_CORSO);
+        assertEquals(0.5, (double) inRitardo / attivi, 0.15, "La quota di prestiti in ritardo dovrebbe seguire quella richiesta.");
+    }
+
+    @Test
+    public void testPopolaritaZipf() { // I prestiti si concentrano sui libri più popolari.
+        Archivio archivio = generatore.genera();
+        List<Integer> prestitiPerLibro = new ArrayList<>();
+        for (Libro libro : archivio.listaLibri())
+            prestitiPerLibro.add(archivio.prestitiPerLibro(libro.getIsbn()).size());
+        prestitiPerLibro.sort(null);
+        int piuRichiesto = prestitiPerLibro.get(prestitiPerLibro.size() - 1);
+        int mediano = prestitiPerLibro.get(prestitiPerLibro.size() / 2);
+        assertTrue(piuRichiesto > 10 * Math.max(1, mediano), "Il libro più richiesto dovrebbe avere molti più prestiti del mediano.");
+    }
+
+    @Test
+    public void testScriviFile(@TempDir Path cartella) throws Exception { // Il file scritto viene caricato dall'applicazione.
+        Archivio archivio = generatore.genera();
+        File file = cartella.resolve("archivio.dat").toFile();
+        GeneratoreDati.scrivi(archivio, file);
+
+        Archivio caricato = new Archivio();
+        ServizioArchivio servizio = new ServizioArchivio(file.getPath(), caricato);
+        servizio.carica();
+        servizio.chiudi();
+        assertEquals(isbn(archivio), isbn(caricato), "I libri dovrebbero essere riletti dal file.");
+        assertEquals(archivio.contaUtenti(), caricato.contaUtenti(), "Gli utenti dovrebbero essere riletti dal file.");
+        assertEquals(archivio.contaPrestiti(), caricato.contaPrestiti(), "I prestiti dovrebbero essere riletti dal file.");
+    }
+
+    private static List<String> isbn(Archivio archivio) {
+        return archivio.listaLibri().stream().map(Libro::getIsbn).collect(Collectors.toList());
+    }
+
+    private static boolean controlloIsbn(String isbn) { // Verifica la cifra di controllo di un ISBN-10 o ISBN-13.
+        int somma = 0;
+        if (isbn.length() == 10) {
+            for (int i = 0; i < 10; i++)
+                somma += (isbn.charAt(i) - '0') * (10 - i);
+            return somma % 11 == 0;
+        }
+        for (int i = 0; i < 13; i++)
+            somma += (isbn.charAt(i) - '0') * ((i % 2 == 0) ? 1 : 3);
+        return somma % 10 == 0;
+    }
+}
@@ -0,0 +1,46 @@
+package gruppocinque.bibliosoft.strumenti;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricheRichiesteTest {
+
+    @Test
+    public void testIntervalli() { // Ogni latenza cade in un intervallo il cui limite superiore la contiene con errore inferiore al 25%.
+        for (long micro = 0; micro < 1_000_000; micro += 1 + micro / 100) {
+            long limite = MetricheRichieste.limiteSuperiore(MetricheRichieste.intervallo(micro));
+            assertTrue(limite >= micro, "Il limite " + limite + " dovrebbe contenere " + micro + ".");
+            assertTrue(limite <= micro * 1.25 + 1, "Il limite " + limite + " dovrebbe essere vicino a " + micro + ".");
+        }
+    }
+
+    @Test
+    public void testRegistra() { // Richieste, errori e rotta complessiva vengono conteggiati.
+        MetricheRichieste metriche = new MetricheRichieste();
+        metriche.registra("GET /a", metriche.inizia(), false);
+        metriche.registra("GET /a", metriche.inizia(), true);
+        long inizio = metriche.inizia();
+        assertEquals(1, metriche.getInCorso(), "Dovrebbe esserci una richiesta in corso.");
+        metriche.registra("GET /b", inizio, false);
+
+        assertEquals(0, metriche.getInCorso(), "Non dovrebbero esserci richieste in corso.");
+        assertEquals(2, metriche.getRichieste("GET /a"), "La rotta dovrebbe avere due richieste.");
+        assertEquals(1, metriche.getErrori("GET /a"), "La rotta dovrebbe avere un errore.");
+        assertEquals(3, metriche.getRichieste(MetricheRichieste.TUTTE), "La rotta complessiva dovrebbe avere tutte le richieste.");
+        assertEquals(0, metriche.getRichieste("GET /c"), "Una rotta mai usata non dovrebbe avere richieste.");
+    }
+
+    @Test
+    public void testPercentile() throws InterruptedException { // Il p99 riflette le richieste più lente.
+        MetricheRichieste metriche = new MetricheRichieste();
+        for (int i = 0; i < 99; i++)
+            metriche.registra("GET /a", metriche.inizia(), false);
+        long inizio = metriche.inizia();
+        Thread.sleep(20);
+        metriche.registra("GET /a", inizio, false);
+
+        assertTrue(metriche.getPercentile("GET /a", 50) < 10_000, "Il p50 dovrebbe riflettere le richieste veloci.");
+        assertTrue(metriche.getPercentile("GET /a", 100) >= 20_000, "Il massimo dovrebbe riflettere la richiesta lenta.");
+        assertThrows(IllegalArgumentException.class, () -> metriche.getPercentile("GET /a", 101), "Un percentile oltre 100 non è valido.");
+    }
+}